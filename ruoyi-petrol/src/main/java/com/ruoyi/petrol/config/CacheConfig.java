@@ -2,6 +2,8 @@ package com.ruoyi.petrol.config;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ruoyi.petrol.engine.neighbors.KnnModel;
+import com.ruoyi.petrol.engine.regression.TreeEnsemble;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
@@ -20,6 +22,9 @@ import java.util.concurrent.TimeUnit;
 @Configuration
 @EnableCaching
 public class CacheConfig {
+
+    /** 模型索引缓存的内存上限（KB） */
+    private static final long MODEL_INDEX_MAX_KB = 512L * 1024;
     
     /**
      * 默认缓存管理器
@@ -60,6 +65,20 @@ public class CacheConfig {
                 .build();
     }
     
+    /**
+     * 模型索引缓存
+     * 用于缓存加载后的KNN近邻索引和树集成节点表，按估算的内存占用（KB）淘汰
+     */
+    @Bean("modelIndexCache")
+    public Cache<String, Object> modelIndexCache() {
+        return Caffeine.newBuilder()
+                .maximumWeight(MODEL_INDEX_MAX_KB)
+                .weigher((String key, Object value) -> modelIndexWeight(value))
+                .expireAfterAccess(30, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+
     /**
      * 分析结果缓存
      * 用于缓存分析任务的结果
@@ -158,6 +177,19 @@ public class CacheConfig {
                 .build();
     }
 
+    /**
+     * 模型索引的权重（KB），至少为1
+     */
+    private static int modelIndexWeight(Object value) {
+        long bytes = 0;
+        if (value instanceof KnnModel) {
+            bytes = ((KnnModel) value).getIndex().getMemoryBytes();
+        } else if (value instanceof TreeEnsemble) {
+            bytes = ((TreeEnsemble) value).getMemoryBytes();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, bytes >> 10));
+    }
+
     /**
      * 默认Caffeine构建器
      */
@@ -0,0 +1,36 @@
+package com.ruoyi.petrol.config;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 数据计算线程池配置
+ * 列画像、统计等CPU密集计算使用独立的ForkJoinPool，
+ * 与threadPoolTaskExecutor和Tomcat请求线程隔离
+ *
+ * @author ruoyi
+ */
+@Configuration
+public class ComputePoolConfig
+{
+    /** 并行度，0表示CPU核数-1，为请求线程保留一个核 */
+    @Value("${petrol.compute.parallelism:0}")
+    private int parallelism;
+
+    @Bean(name = "computeForkJoinPool", destroyMethod = "shutdown")
+    public ForkJoinPool computeForkJoinPool()
+    {
+        int size = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger index = new AtomicInteger();
+        return new ForkJoinPool(size, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("petrol-compute-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+}
@@ -289,11 +289,13 @@ public class PetrolDatasetController extends BaseController
                                 @RequestParam("chunkHash") String chunkHash,
                                 @RequestParam("fileHash") String fileHash,
                                 @RequestParam("fileName") String fileName,
-                                @RequestParam("totalChunks") Integer totalChunks)
+                                @RequestParam("totalChunks") Integer totalChunks,
+                                @RequestParam(value = "chunkSize", required = false) Long chunkSize,
+                                @RequestParam(value = "fileSize", required = false) Long fileSize)
     {
         try {
             Map<String, Object> result = petrolDatasetService.uploadChunk(
-                chunk, chunkIndex, chunkHash, fileHash, fileName, totalChunks
+                chunk, chunkIndex, chunkHash, fileHash, fileName, totalChunks, chunkSize, fileSize
             );
 
             if ((Boolean) result.get("success")) {
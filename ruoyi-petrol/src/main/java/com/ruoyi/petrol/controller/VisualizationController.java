@@ -2,6 +2,10 @@ package com.ruoyi.petrol.controller;
 
 import com.ruoyi.common.core.controller.BaseController;
 import com.ruoyi.common.core.domain.AjaxResult;
+import com.ruoyi.petrol.domain.dto.BinSpec;
+import com.ruoyi.petrol.engine.chart.CurvePyramid;
+import com.ruoyi.petrol.engine.chart.Downsampler;
+import com.ruoyi.petrol.engine.table.ColumnarTable;
 import com.ruoyi.petrol.service.IDataSourceService;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -79,6 +83,9 @@ public class VisualizationController extends BaseController
 
     /**
      * 读取数据源数据
+     * 参数layout为columnar时按列返回，否则按行返回；
+     * 指定minDepth/maxDepth时通过深度索引读取该深度区间的数据；
+     * 指定downsample（lttb/minmax）时按points点数预算对整条曲线降采样，不再截断为前maxRows行
      */
     @PreAuthorize("@ss.hasPermi('petrol:visualization:view')")
     @PostMapping("/data/{sourceId}/{sourceType}")
@@ -89,6 +96,12 @@ public class VisualizationController extends BaseController
         try {
             List<String> columns = null;
             Integer maxRows = 100;
+            String layout = null;
+            Double minDepth = null;
+            Double maxDepth = null;
+            String downsample = null;
+            String xColumn = null;
+            Integer points = null;
 
             if (params != null) {
                 if (params.containsKey("columns")) {
@@ -97,17 +110,129 @@ public class VisualizationController extends BaseController
                 if (params.containsKey("maxRows")) {
                     maxRows = (Integer) params.get("maxRows");
                 }
+                layout = (String) params.get("layout");
+                if (params.get("minDepth") != null) {
+                    minDepth = ((Number) params.get("minDepth")).doubleValue();
+                }
+                if (params.get("maxDepth") != null) {
+                    maxDepth = ((Number) params.get("maxDepth")).doubleValue();
+                }
+                downsample = (String) params.get("downsample");
+                xColumn = (String) params.get("xColumn");
+                if (params.get("points") != null) {
+                    points = ((Number) params.get("points")).intValue();
+                }
             }
 
-            List<Map<String, Object>> result = dataSourceService.readDataSourceData(
-                sourceId, sourceType, columns, maxRows);
-            return success(result);
+            ColumnarTable table;
+            if (downsample != null) {
+                // 点数预算限制在服务端上限内
+                int budget = Math.max(1, Math.min(points != null ? points : maxRows, Downsampler.MAX_POINTS));
+                table = dataSourceService.readDataSourceDownsampled(sourceId, sourceType, columns, xColumn,
+                    minDepth, maxDepth, budget, downsample);
+            } else if (minDepth != null || maxDepth != null) {
+                table = dataSourceService.readDataSourceRange(sourceId, sourceType, columns, minDepth, maxDepth, maxRows);
+            } else {
+                table = dataSourceService.readDataSourceTable(sourceId, sourceType, columns, maxRows);
+            }
+            if ("columnar".equals(layout)) {
+                return success(table);
+            }
+            return success(table.toRecords());
         } catch (Exception e) {
             logger.error("读取数据源数据失败", e);
             return error("读取数据源数据失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 按视口读取曲线瓦片
+     * 参数minDepth/maxDepth为视口深度范围，resolution为视口像素数，缩放和平移时从瓦片金字塔读取对应层级
+     */
+    @PreAuthorize("@ss.hasPermi('petrol:visualization:view')")
+    @PostMapping("/tile/{sourceId}/{sourceType}")
+    public AjaxResult readDataSourceTile(@PathVariable("sourceId") String sourceId,
+                                        @PathVariable("sourceType") String sourceType,
+                                        @RequestBody(required = false) Map<String, Object> params)
+    {
+        try {
+            List<String> columns = null;
+            Double minDepth = null;
+            Double maxDepth = null;
+            int resolution = 1000;
+
+            if (params != null) {
+                if (params.containsKey("columns")) {
+                    columns = (List<String>) params.get("columns");
+                }
+                if (params.get("minDepth") != null) {
+                    minDepth = ((Number) params.get("minDepth")).doubleValue();
+                }
+                if (params.get("maxDepth") != null) {
+                    maxDepth = ((Number) params.get("maxDepth")).doubleValue();
+                }
+                if (params.get("resolution") != null) {
+                    resolution = ((Number) params.get("resolution")).intValue();
+                }
+            }
+
+            resolution = Math.max(1, Math.min(resolution, CurvePyramid.MAX_RESOLUTION));
+            return success(dataSourceService.readDataSourceTile(sourceId, sourceType, columns, minDepth, maxDepth,
+                resolution));
+        } catch (Exception e) {
+            logger.error("读取曲线瓦片失败", e);
+            return error("读取曲线瓦片失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 分箱统计（交会图）
+     * 只指定xColumn时为直方图；指定yColumn时按shape（rect/hex）二维分箱，zColumn为着色曲线
+     */
+    @PreAuthorize("@ss.hasPermi('petrol:visualization:view')")
+    @PostMapping("/bins/{sourceId}/{sourceType}")
+    public AjaxResult readDataSourceBins(@PathVariable("sourceId") String sourceId,
+                                        @PathVariable("sourceType") String sourceType,
+                                        @RequestBody BinSpec spec)
+    {
+        try {
+            return success(dataSourceService.readDataSourceBins(sourceId, sourceType, spec));
+        } catch (Exception e) {
+            logger.error("分箱统计失败", e);
+            return error("分箱统计失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 相关系数矩阵
+     * 参数columns为参与计算的列（为空时取全部数值列），method为pearson或spearman
+     */
+    @PreAuthorize("@ss.hasPermi('petrol:visualization:view')")
+    @PostMapping("/correlation/{sourceId}/{sourceType}")
+    public AjaxResult getDataSourceCorrelation(@PathVariable("sourceId") String sourceId,
+                                              @PathVariable("sourceType") String sourceType,
+                                              @RequestBody(required = false) Map<String, Object> params)
+    {
+        try {
+            List<String> columns = null;
+            String method = null;
+
+            if (params != null) {
+                if (params.containsKey("columns")) {
+                    columns = (List<String>) params.get("columns");
+                }
+                if (params.get("method") != null) {
+                    method = params.get("method").toString();
+                }
+            }
+
+            return success(dataSourceService.getDataSourceCorrelation(sourceId, sourceType, columns, method));
+        } catch (Exception e) {
+            logger.error("计算相关系数矩阵失败", e);
+            return error("计算相关系数矩阵失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 获取数据源统计信息
      */
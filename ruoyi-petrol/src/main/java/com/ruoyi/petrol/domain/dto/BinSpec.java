@@ -0,0 +1,48 @@
+package com.ruoyi.petrol.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * 分箱统计参数
+ * 只指定xColumn时为一维直方图，同时指定yColumn时为二维分箱（矩形或六边形），
+ * 指定zColumn时附带每个箱内第三条曲线的均值；范围未指定时取全部数据的最小/最大值
+ * （x/y/z前缀的字段按Jackson默认规则会映射为xcolumn等小写名，因此显式指定属性名）
+ */
+@Data
+public class BinSpec {
+    /** 横轴列 */
+    @JsonProperty("xColumn")
+    private String xColumn;
+    /** 纵轴列（可选） */
+    @JsonProperty("yColumn")
+    private String yColumn;
+    /** 着色列（可选），每个箱输出均值 */
+    @JsonProperty("zColumn")
+    private String zColumn;
+    /** 箱形状：rect/hex */
+    private String shape = "rect";
+    /** 横向箱数 */
+    @JsonProperty("xBins")
+    private Integer xBins = 50;
+    /** 纵向箱数 */
+    @JsonProperty("yBins")
+    private Integer yBins = 50;
+    @JsonProperty("xMin")
+    private Double xMin;
+    @JsonProperty("xMax")
+    private Double xMax;
+    @JsonProperty("yMin")
+    private Double yMin;
+    @JsonProperty("yMax")
+    private Double yMax;
+
+    /**
+     * 缓存key，范围为空时以*占位
+     */
+    public String getCacheKey() {
+        return xColumn + "|" + yColumn + "|" + zColumn + "|" + shape + "|" + xBins + "|" + yBins + "|"
+            + (xMin != null ? xMin : "*") + "|" + (xMax != null ? xMax : "*") + "|"
+            + (yMin != null ? yMin : "*") + "|" + (yMax != null ? yMax : "*");
+    }
+}
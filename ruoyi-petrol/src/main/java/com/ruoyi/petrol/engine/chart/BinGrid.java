@@ -0,0 +1,240 @@
+package com.ruoyi.petrol.engine.chart;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+
+/**
+ * 分箱网格
+ * 一维直方图、二维矩形分箱和六边形分箱共用：把(x, y)映射到箱号，扫描由BinTask按行区间并行完成，
+ * 结果大小只与箱数有关，与采样点数无关
+ *
+ * 六边形按箱宽和行高归一化后使用d3-hexbin的最近中心算法（距离按六边形实际比例计算），奇数行向右错开半个箱宽
+ *
+ * @author ruoyi
+ */
+public class BinGrid
+{
+    /** 矩形分箱 */
+    public static final String RECT = "rect";
+
+    /** 六边形分箱 */
+    public static final String HEX = "hex";
+
+    /** 单个方向允许的最大箱数 */
+    public static final int MAX_BINS = 500;
+
+    private final boolean hex;
+    private final boolean twoDimensional;
+    private final int xBins;
+    private final int yBins;
+    private final double xMin;
+    private final double xMax;
+    private final double yMin;
+    private final double yMax;
+    private final double xStep;
+    private final double yStep;
+    /** 六边形网格每行的箱数，奇数行错开后两侧各多一个 */
+    private final int hexColumns;
+
+    /**
+     * @param shape 箱形状，rect或hex，一维时忽略
+     * @param xBins 横向箱数
+     * @param xMin 横轴下限
+     * @param xMax 横轴上限
+     * @param yBins 纵向箱数，0表示一维直方图
+     * @param yMin 纵轴下限
+     * @param yMax 纵轴上限
+     */
+    public BinGrid(String shape, int xBins, double xMin, double xMax, int yBins, double yMin, double yMax)
+    {
+        if (xBins <= 0 || xBins > MAX_BINS || yBins < 0 || yBins > MAX_BINS)
+        {
+            throw new IllegalArgumentException("箱数必须在1到" + MAX_BINS + "之间");
+        }
+        this.twoDimensional = yBins > 0;
+        this.hex = twoDimensional && HEX.equals(shape);
+        this.xBins = xBins;
+        this.yBins = yBins;
+        this.xMin = xMin;
+        this.xMax = xMax > xMin ? xMax : xMin + 1;
+        this.yMin = yMin;
+        this.yMax = yMax > yMin ? yMax : yMin + 1;
+        this.xStep = (this.xMax - this.xMin) / xBins;
+        this.yStep = (this.yMax - this.yMin) / Math.max(1, yBins);
+        this.hexColumns = xBins + 2;
+    }
+
+    /**
+     * 箱总数
+     */
+    public int getCellCount()
+    {
+        if (!twoDimensional)
+        {
+            return xBins;
+        }
+        return hex ? hexColumns * (yBins + 1) : xBins * yBins;
+    }
+
+    public boolean isTwoDimensional()
+    {
+        return twoDimensional;
+    }
+
+    /**
+     * 点所在的箱号，超出范围时返回-1
+     */
+    public int cellOf(double x, double y)
+    {
+        if (x < xMin || x > xMax || (twoDimensional && (y < yMin || y > yMax)))
+        {
+            return -1;
+        }
+        double u = (x - xMin) / xStep;
+        if (!twoDimensional)
+        {
+            return Math.min((int) u, xBins - 1);
+        }
+        double v = (y - yMin) / yStep;
+        if (!hex)
+        {
+            return Math.min((int) v, yBins - 1) * xBins + Math.min((int) u, xBins - 1);
+        }
+
+        // 最近的六边形中心：先取所在行，靠近行边界时再与相邻行比较
+        int row = (int) Math.round(v);
+        double px = u - (row & 1) / 2.0;
+        int column = (int) Math.round(px);
+        double py1 = v - row;
+        if (Math.abs(py1) * 3 > 1)
+        {
+            double px1 = px - column;
+            double column2 = column + (px < column ? -1 : 1) / 2.0;
+            int row2 = row + (v < row ? -1 : 1);
+            double px2 = px - column2;
+            double py2 = v - row2;
+            // 行距是箱宽的√3/2，比较距离时换算回六边形的实际比例
+            if (px1 * px1 + 0.75 * py1 * py1 > px2 * px2 + 0.75 * py2 * py2)
+            {
+                column = (int) Math.round(column2 + ((row & 1) == 1 ? 1 : -1) / 2.0);
+                row = row2;
+            }
+        }
+        if (row < 0 || row > yBins || column < -1 || column > xBins)
+        {
+            return -1;
+        }
+        return row * hexColumns + column + 1;
+    }
+
+    /**
+     * 并行扫描列式缓存，统计每个箱的点数和着色列均值
+     *
+     * @param columnar 列式缓存
+     * @param x 横轴列号
+     * @param y 纵轴列号，一维时为-1
+     * @param z 着色列号，不需要时为-1
+     * @param pool 计算线程池
+     */
+    public Map<String, Object> compute(ColumnarFile columnar, int x, int y, int z, ForkJoinPool pool)
+    {
+        BinTask.Counts counts = pool.invoke(new BinTask(this, columnar, x, y, z, 0, columnar.getRowCount()));
+        return toResult(counts, z >= 0);
+    }
+
+    private Map<String, Object> toResult(BinTask.Counts counts, boolean withMeans)
+    {
+        Map<String, Object> result = new HashMap<>();
+        result.put("total", counts.total);
+        result.put("outside", counts.outside);
+        result.put("xMin", xMin);
+        result.put("xMax", xMax);
+        result.put("xBins", xBins);
+        if (!twoDimensional)
+        {
+            result.put("type", "histogram");
+            result.put("edges", edges(xMin, xStep, xBins));
+            result.put("counts", counts.counts);
+            if (withMeans)
+            {
+                result.put("means", means(counts));
+            }
+            return result;
+        }
+
+        result.put("yMin", yMin);
+        result.put("yMax", yMax);
+        result.put("yBins", yBins);
+        if (!hex)
+        {
+            // 按行优先排列：第j行第i列为j * xBins + i
+            result.put("type", RECT);
+            result.put("xEdges", edges(xMin, xStep, xBins));
+            result.put("yEdges", edges(yMin, yStep, yBins));
+            result.put("counts", counts.counts);
+            if (withMeans)
+            {
+                result.put("means", means(counts));
+            }
+            return result;
+        }
+
+        // 六边形只输出非空的箱及其中心
+        result.put("type", HEX);
+        result.put("xStep", xStep);
+        result.put("yStep", yStep);
+        Double[] means = withMeans ? means(counts) : null;
+        List<Double> centerX = new ArrayList<>();
+        List<Double> centerY = new ArrayList<>();
+        List<Long> binCounts = new ArrayList<>();
+        List<Double> binMeans = new ArrayList<>();
+        for (int cell = 0; cell < counts.counts.length; cell++)
+        {
+            if (counts.counts[cell] == 0)
+            {
+                continue;
+            }
+            int row = cell / hexColumns;
+            int column = cell % hexColumns - 1;
+            centerX.add(xMin + (column + (row & 1) / 2.0) * xStep);
+            centerY.add(yMin + row * yStep);
+            binCounts.add(counts.counts[cell]);
+            if (means != null)
+            {
+                binMeans.add(means[cell]);
+            }
+        }
+        result.put("x", centerX);
+        result.put("y", centerY);
+        result.put("counts", binCounts);
+        if (withMeans)
+        {
+            result.put("means", binMeans);
+        }
+        return result;
+    }
+
+    private static double[] edges(double min, double step, int bins)
+    {
+        double[] edges = new double[bins + 1];
+        for (int i = 0; i <= bins; i++)
+        {
+            edges[i] = min + i * step;
+        }
+        return edges;
+    }
+
+    private static Double[] means(BinTask.Counts counts)
+    {
+        Double[] means = new Double[counts.counts.length];
+        for (int cell = 0; cell < means.length; cell++)
+        {
+            means[cell] = counts.zCounts[cell] > 0 ? counts.sums[cell] / counts.zCounts[cell] : null;
+        }
+        return means;
+    }
+}
@@ -0,0 +1,132 @@
+package com.ruoyi.petrol.engine.chart;
+
+import java.util.concurrent.RecursiveTask;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+
+/**
+ * 分箱任务
+ * 行数超过一个分区时对半拆分并行统计，各分区的箱计数逐箱相加
+ *
+ * @author ruoyi
+ */
+public class BinTask extends RecursiveTask<BinTask.Counts>
+{
+    private static final long serialVersionUID = 1L;
+
+    /** 每个分区的行数 */
+    public static final int PARTITION_ROWS = 1 << 16;
+
+    /** 每次批量读取的行数 */
+    private static final int BATCH = 4096;
+
+    private final transient BinGrid grid;
+    private final transient ColumnarFile columnar;
+    private final int x;
+    private final int y;
+    private final int z;
+    private final int from;
+    private final int to;
+
+    public BinTask(BinGrid grid, ColumnarFile columnar, int x, int y, int z, int from, int to)
+    {
+        this.grid = grid;
+        this.columnar = columnar;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected Counts compute()
+    {
+        if (to - from > PARTITION_ROWS)
+        {
+            int mid = (from + to) >>> 1;
+            BinTask left = new BinTask(grid, columnar, x, y, z, from, mid);
+            left.fork();
+            Counts right = new BinTask(grid, columnar, x, y, z, mid, to).compute();
+            Counts result = left.join();
+            result.merge(right);
+            return result;
+        }
+
+        Counts counts = new Counts(grid.getCellCount(), z >= 0);
+        double[] xs = new double[BATCH];
+        double[] ys = y >= 0 ? new double[BATCH] : null;
+        double[] zs = z >= 0 ? new double[BATCH] : null;
+        for (int start = from; start < to; start += BATCH)
+        {
+            int end = Math.min(to, start + BATCH);
+            columnar.readDoubles(x, start, end, xs, 0);
+            if (ys != null)
+            {
+                columnar.readDoubles(y, start, end, ys, 0);
+            }
+            if (zs != null)
+            {
+                columnar.readDoubles(z, start, end, zs, 0);
+            }
+            for (int i = 0; i < end - start; i++)
+            {
+                double yValue = ys != null ? ys[i] : 0;
+                if (Double.isNaN(xs[i]) || Double.isNaN(yValue))
+                {
+                    continue;
+                }
+                int cell = grid.cellOf(xs[i], yValue);
+                if (cell < 0)
+                {
+                    counts.outside++;
+                    continue;
+                }
+                counts.counts[cell]++;
+                counts.total++;
+                if (zs != null && !Double.isNaN(zs[i]))
+                {
+                    counts.sums[cell] += zs[i];
+                    counts.zCounts[cell]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * 一个分区的箱计数
+     */
+    public static class Counts
+    {
+        final long[] counts;
+        final double[] sums;
+        final long[] zCounts;
+        long total;
+        long outside;
+
+        Counts(int cells, boolean withMeans)
+        {
+            this.counts = new long[cells];
+            this.sums = withMeans ? new double[cells] : null;
+            this.zCounts = withMeans ? new long[cells] : null;
+        }
+
+        void merge(Counts other)
+        {
+            for (int cell = 0; cell < counts.length; cell++)
+            {
+                counts[cell] += other.counts[cell];
+            }
+            if (sums != null)
+            {
+                for (int cell = 0; cell < sums.length; cell++)
+                {
+                    sums[cell] += other.sums[cell];
+                    zCounts[cell] += other.zCounts[cell];
+                }
+            }
+            total += other.total;
+            outside += other.outside;
+        }
+    }
+}
@@ -0,0 +1,575 @@
+package com.ruoyi.petrol.engine.chart;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.ruoyi.petrol.engine.index.DepthIndex;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+
+/**
+ * 测井曲线多分辨率瓦片金字塔（.ptile）
+ * 按深度排序后，第L层每2^L个相邻采样点聚合为一个桶，保存桶的深度范围和每条曲线的最小/最大/平均值；
+ * 最细一层为2^MIN_LEVEL，逐层两两合并直到只剩一个桶。查询时按视口宽度选择桶数不超过像素数的最细一层，
+ * 在该层上二分定位深度窗口，只读取窗口内的桶，耗时与井深无关
+ *
+ * 文件布局（小端序）：
+ * <pre>
+ * 头部 40字节: magic "TILE" | 版本 | 源文件大小 | 源文件修改时间 | 采样点数 | 曲线数 | 层数 | 最细层级
+ * 曲线名:      每条为 长度 + UTF-8，整体补齐到8字节
+ * 层表:        层数×(桶数, 层级, 数据起始位置)
+ * 每层数据:    桶数×起始深度(double) | 桶数×结束深度(double) | 每条曲线 桶数×(最小值, 最大值, 平均值)(float)，补齐到8字节
+ * </pre>
+ *
+ * @author ruoyi
+ */
+public class CurvePyramid
+{
+    /** 金字塔文件扩展名 */
+    public static final String EXTENSION = ".ptile";
+
+    /** 最细一层的层级，每桶2^MIN_LEVEL个采样点，更细的窗口直接读取原始数据 */
+    public static final int MIN_LEVEL = 4;
+
+    /** 允许的最大像素数 */
+    public static final int MAX_RESOLUTION = 10000;
+
+    private static final int MAGIC = 0x454C4954;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 40;
+    private static final int WRITE_BUFFER = 1 << 20;
+
+    private final long sourceLength;
+    private final long sourceModified;
+    private final int count;
+    private final String[] curves;
+    /** 从细到粗 */
+    private final Level[] levels;
+
+    private CurvePyramid(long sourceLength, long sourceModified, int count, String[] curves, Level[] levels)
+    {
+        this.sourceLength = sourceLength;
+        this.sourceModified = sourceModified;
+        this.count = count;
+        this.curves = curves;
+        this.levels = levels;
+    }
+
+    /**
+     * 按深度索引的顺序聚合深度列以外的全部数值列，生成金字塔文件
+     *
+     * @param source 源数据文件，用于记录版本
+     * @param columnar 源文件的列式缓存
+     * @param index 源文件的深度索引
+     * @param target 金字塔文件
+     */
+    public static void build(File source, ColumnarFile columnar, DepthIndex index, File target) throws IOException
+    {
+        int[] rows = index.rowsInRange(null, null, Integer.MAX_VALUE);
+        int n = rows.length;
+        int depthColumn = index.getColumnIndex();
+        List<Integer> columns = new ArrayList<>();
+        for (int c = 0; c < columnar.getColumnCount(); c++)
+        {
+            if (c != depthColumn && columnar.isNumeric(c))
+            {
+                columns.add(c);
+            }
+        }
+        int curveCount = columns.size();
+
+        List<Integer> bucketCounts = new ArrayList<>();
+        for (int level = MIN_LEVEL; n > 0; level++)
+        {
+            int buckets = (int) ((n + (1L << level) - 1) >> level);
+            bucketCounts.add(buckets);
+            if (buckets <= 1)
+            {
+                break;
+            }
+        }
+        int levelCount = bucketCounts.size();
+
+        // 逐层深度范围
+        double[] depths = gather(columnar, depthColumn, rows);
+        double[][] starts = new double[levelCount][];
+        double[][] ends = new double[levelCount][];
+        for (int l = 0; l < levelCount; l++)
+        {
+            int size = 1 << (MIN_LEVEL + l);
+            int buckets = bucketCounts.get(l);
+            starts[l] = new double[buckets];
+            ends[l] = new double[buckets];
+            for (int b = 0; b < buckets; b++)
+            {
+                starts[l][b] = depths[b * size];
+                ends[l][b] = depths[Math.min(n, (b + 1) * size) - 1];
+            }
+        }
+
+        // 每条曲线先从原始值聚合最细一层，再逐层两两合并
+        float[][][] stats = new float[curveCount][levelCount][];
+        for (int k = 0; k < curveCount; k++)
+        {
+            double[] values = gather(columnar, columns.get(k), rows);
+            int buckets = bucketCounts.isEmpty() ? 0 : bucketCounts.get(0);
+            int size = 1 << MIN_LEVEL;
+            double[] min = new double[buckets];
+            double[] max = new double[buckets];
+            double[] sum = new double[buckets];
+            int[] valid = new int[buckets];
+            for (int b = 0; b < buckets; b++)
+            {
+                min[b] = Double.POSITIVE_INFINITY;
+                max[b] = Double.NEGATIVE_INFINITY;
+                int to = Math.min(n, (b + 1) * size);
+                for (int i = b * size; i < to; i++)
+                {
+                    double value = values[i];
+                    if (!Double.isNaN(value))
+                    {
+                        min[b] = Math.min(min[b], value);
+                        max[b] = Math.max(max[b], value);
+                        sum[b] += value;
+                        valid[b]++;
+                    }
+                }
+            }
+            stats[k][0] = pack(min, max, sum, valid, buckets);
+
+            for (int l = 1; l < levelCount; l++)
+            {
+                int merged = bucketCounts.get(l);
+                double[] mergedMin = new double[merged];
+                double[] mergedMax = new double[merged];
+                double[] mergedSum = new double[merged];
+                int[] mergedValid = new int[merged];
+                for (int b = 0; b < merged; b++)
+                {
+                    int left = 2 * b;
+                    int right = Math.min(left + 1, buckets - 1);
+                    mergedMin[b] = Math.min(min[left], min[right]);
+                    mergedMax[b] = Math.max(max[left], max[right]);
+                    mergedSum[b] = sum[left] + (right != left ? sum[right] : 0);
+                    mergedValid[b] = valid[left] + (right != left ? valid[right] : 0);
+                }
+                min = mergedMin;
+                max = mergedMax;
+                sum = mergedSum;
+                valid = mergedValid;
+                buckets = merged;
+                stats[k][l] = pack(min, max, sum, valid, buckets);
+            }
+        }
+
+        write(source, n, columnar, columns, bucketCounts, starts, ends, stats, target);
+    }
+
+    /**
+     * 打开金字塔文件，各层数据内存映射
+     */
+    public static CurvePyramid open(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.size() < HEADER_SIZE || mapped.getInt() != MAGIC || mapped.getInt() != VERSION)
+            {
+                throw new IOException("瓦片金字塔文件格式不正确: " + file.getName());
+            }
+            long sourceLength = mapped.getLong();
+            long sourceModified = mapped.getLong();
+            int count = mapped.getInt();
+            int curveCount = mapped.getInt();
+            int levelCount = mapped.getInt();
+            mapped.getInt();
+
+            String[] curves = new String[curveCount];
+            for (int k = 0; k < curveCount; k++)
+            {
+                byte[] name = new byte[mapped.getInt()];
+                mapped.get(name);
+                curves[k] = new String(name, StandardCharsets.UTF_8);
+            }
+            mapped.position((mapped.position() + 7) & ~7);
+
+            Level[] levels = new Level[levelCount];
+            for (int l = 0; l < levelCount; l++)
+            {
+                int buckets = mapped.getInt();
+                int level = mapped.getInt();
+                long offset = mapped.getLong();
+                if (offset + levelSize(buckets, curveCount) > channel.size())
+                {
+                    throw new IOException("瓦片金字塔文件不完整: " + file.getName());
+                }
+                levels[l] = new Level(level, buckets, curveCount, mapped, (int) offset);
+            }
+            return new CurvePyramid(sourceLength, sourceModified, count, curves, levels);
+        }
+    }
+
+    /**
+     * 是否由当前版本的源文件生成
+     */
+    public boolean matches(File source)
+    {
+        return source.length() == sourceLength && source.lastModified() == sourceModified;
+    }
+
+    /**
+     * 采样点总数
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * 读取深度窗口内的瓦片：选择窗口内桶数不超过resolution的最细一层
+     *
+     * @param minDepth 最小深度（含），null表示不限
+     * @param maxDepth 最大深度（含），null表示不限
+     * @param resolution 像素数（桶数上限）
+     * @param names 需要的曲线，为空时返回全部曲线
+     * @return level、bucketSize、depthStart、depthEnd、curves（name、min、max、mean），缺失值为null
+     */
+    public Map<String, Object> tile(Double minDepth, Double maxDepth, int resolution, List<String> names)
+    {
+        Map<String, Object> tile = new HashMap<>();
+        if (levels.length == 0)
+        {
+            tile.put("level", MIN_LEVEL);
+            tile.put("bucketSize", 1 << MIN_LEVEL);
+            tile.put("depthStart", new Double[0]);
+            tile.put("depthEnd", new Double[0]);
+            tile.put("curves", new ArrayList<>());
+            return tile;
+        }
+
+        Level level = levels[0];
+        int from = level.firstEndingAtOrAfter(minDepth);
+        int to = level.lastStartingAtOrBefore(maxDepth);
+        for (int l = 1; l < levels.length && to - from > resolution; l++)
+        {
+            level = levels[l];
+            from = level.firstEndingAtOrAfter(minDepth);
+            to = level.lastStartingAtOrBefore(maxDepth);
+        }
+        int size = Math.max(0, to - from);
+
+        tile.put("level", level.level);
+        tile.put("bucketSize", 1 << level.level);
+        tile.put("depthStart", boxed(level.starts, from, size));
+        tile.put("depthEnd", boxed(level.ends, from, size));
+        List<Map<String, Object>> series = new ArrayList<>();
+        for (int k = 0; k < curves.length; k++)
+        {
+            if (names != null && !names.isEmpty() && !names.contains(curves[k]))
+            {
+                continue;
+            }
+            Map<String, Object> curve = new HashMap<>();
+            curve.put("name", curves[k]);
+            curve.put("min", boxed(level.stats[k], from, size, 0));
+            curve.put("max", boxed(level.stats[k], from, size, 1));
+            curve.put("mean", boxed(level.stats[k], from, size, 2));
+            series.add(curve);
+        }
+        tile.put("curves", series);
+        return tile;
+    }
+
+    /**
+     * 窗口内采样点不多于像素数时直接输出原始值，结构与tile相同（level为0，最小/最大/平均值相同）
+     *
+     * @param columnar 源文件的列式缓存
+     * @param depthColumn 深度列号
+     * @param rows 按深度排列的行号
+     * @param names 需要的曲线，为空时返回深度列以外的全部数值列
+     */
+    public static Map<String, Object> rawTile(ColumnarFile columnar, int depthColumn, int[] rows, List<String> names)
+    {
+        Map<String, Object> tile = new HashMap<>();
+        Double[] depths = boxed(gather(columnar, depthColumn, rows));
+        tile.put("level", 0);
+        tile.put("bucketSize", 1);
+        tile.put("depthStart", depths);
+        tile.put("depthEnd", depths);
+        List<Map<String, Object>> series = new ArrayList<>();
+        for (int c = 0; c < columnar.getColumnCount(); c++)
+        {
+            String name = columnar.getColumnNames().get(c);
+            if (c == depthColumn || !columnar.isNumeric(c) || (names != null && !names.isEmpty() && !names.contains(name)))
+            {
+                continue;
+            }
+            Double[] values = boxed(gather(columnar, c, rows));
+            Map<String, Object> curve = new HashMap<>();
+            curve.put("name", name);
+            curve.put("min", values);
+            curve.put("max", values);
+            curve.put("mean", values);
+            series.add(curve);
+        }
+        tile.put("curves", series);
+        return tile;
+    }
+
+    private static double[] gather(ColumnarFile columnar, int column, int[] rows)
+    {
+        double[] values = new double[rows.length];
+        for (int i = 0; i < rows.length; i++)
+        {
+            values[i] = columnar.getDouble(column, rows[i]);
+        }
+        return values;
+    }
+
+    /**
+     * 每个桶依次为最小值、最大值、平均值，桶内没有有效值时均为NaN
+     */
+    private static float[] pack(double[] min, double[] max, double[] sum, int[] valid, int buckets)
+    {
+        float[] packed = new float[buckets * 3];
+        for (int b = 0; b < buckets; b++)
+        {
+            boolean empty = valid[b] == 0;
+            packed[3 * b] = empty ? Float.NaN : (float) min[b];
+            packed[3 * b + 1] = empty ? Float.NaN : (float) max[b];
+            packed[3 * b + 2] = empty ? Float.NaN : (float) (sum[b] / valid[b]);
+        }
+        return packed;
+    }
+
+    private static long levelSize(int buckets, int curveCount)
+    {
+        return (((long) buckets * 16 + (long) buckets * curveCount * 12) + 7) & ~7L;
+    }
+
+    private static void write(File source, int count, ColumnarFile columnar, List<Integer> columns,
+            List<Integer> bucketCounts, double[][] starts, double[][] ends, float[][][] stats, File target)
+            throws IOException
+    {
+        int curveCount = columns.size();
+        int levelCount = bucketCounts.size();
+        List<byte[]> names = new ArrayList<>(curveCount);
+        int namesLength = 0;
+        for (int c : columns)
+        {
+            byte[] name = columnar.getColumnNames().get(c).getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            namesLength += 4 + name.length;
+        }
+        long offset = HEADER_SIZE + ((namesLength + 7) & ~7) + (long) levelCount * 16;
+
+        File temp = new File(target.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(source.length()).putLong(source.lastModified())
+                    .putInt(count).putInt(curveCount).putInt(levelCount).putInt(MIN_LEVEL);
+            for (byte[] name : names)
+            {
+                ensure(channel, buffer, 4 + name.length);
+                buffer.putInt(name.length).put(name);
+            }
+            pad(channel, buffer, HEADER_SIZE + namesLength);
+            for (int l = 0; l < levelCount; l++)
+            {
+                ensure(channel, buffer, 16);
+                buffer.putInt(bucketCounts.get(l)).putInt(MIN_LEVEL + l).putLong(offset);
+                offset += levelSize(bucketCounts.get(l), curveCount);
+            }
+
+            for (int l = 0; l < levelCount; l++)
+            {
+                int buckets = bucketCounts.get(l);
+                for (double depth : starts[l])
+                {
+                    ensure(channel, buffer, 8);
+                    buffer.putDouble(depth);
+                }
+                for (double depth : ends[l])
+                {
+                    ensure(channel, buffer, 8);
+                    buffer.putDouble(depth);
+                }
+                for (int k = 0; k < curveCount; k++)
+                {
+                    for (float value : stats[k][l])
+                    {
+                        ensure(channel, buffer, 4);
+                        buffer.putFloat(value);
+                    }
+                }
+                pad(channel, buffer, (long) buckets * 16 + (long) buckets * curveCount * 12);
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException
+    {
+        if (buffer.remaining() < bytes)
+        {
+            buffer.flip();
+            writeFully(channel, buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * 已写入length字节的段补齐到8字节
+     */
+    private static void pad(FileChannel channel, ByteBuffer buffer, long length) throws IOException
+    {
+        int padding = (int) (((length + 7) & ~7L) - length);
+        ensure(channel, buffer, padding);
+        for (int i = 0; i < padding; i++)
+        {
+            buffer.put((byte) 0);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+
+    private static Double[] boxed(double[] values)
+    {
+        Double[] result = new Double[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            result[i] = Double.isNaN(values[i]) ? null : values[i];
+        }
+        return result;
+    }
+
+    private static Double[] boxed(DoubleBuffer values, int from, int size)
+    {
+        Double[] result = new Double[size];
+        for (int i = 0; i < size; i++)
+        {
+            result[i] = values.get(from + i);
+        }
+        return result;
+    }
+
+    private static Double[] boxed(FloatBuffer values, int from, int size, int field)
+    {
+        Double[] result = new Double[size];
+        for (int i = 0; i < size; i++)
+        {
+            float value = values.get(3 * (from + i) + field);
+            result[i] = Float.isNaN(value) ? null : (double) value;
+        }
+        return result;
+    }
+
+    /**
+     * 一层瓦片，各数组为映射文件上的视图
+     */
+    private static class Level
+    {
+        private final int level;
+        private final int buckets;
+        private final DoubleBuffer starts;
+        private final DoubleBuffer ends;
+        private final FloatBuffer[] stats;
+
+        Level(int level, int buckets, int curveCount, ByteBuffer mapped, int offset)
+        {
+            this.level = level;
+            this.buckets = buckets;
+            this.starts = view(mapped, offset, buckets * 8).asDoubleBuffer();
+            this.ends = view(mapped, offset + buckets * 8, buckets * 8).asDoubleBuffer();
+            this.stats = new FloatBuffer[curveCount];
+            int position = offset + buckets * 16;
+            for (int k = 0; k < curveCount; k++)
+            {
+                stats[k] = view(mapped, position, buckets * 12).asFloatBuffer();
+                position += buckets * 12;
+            }
+        }
+
+        /**
+         * 第一个结束深度不小于minDepth的桶
+         */
+        int firstEndingAtOrAfter(Double minDepth)
+        {
+            if (minDepth == null)
+            {
+                return 0;
+            }
+            int lo = 0;
+            int hi = buckets;
+            while (lo < hi)
+            {
+                int mid = (lo + hi) >>> 1;
+                if (ends.get(mid) < minDepth)
+                {
+                    lo = mid + 1;
+                }
+                else
+                {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * 最后一个起始深度不大于maxDepth的桶之后的位置
+         */
+        int lastStartingAtOrBefore(Double maxDepth)
+        {
+            if (maxDepth == null)
+            {
+                return buckets;
+            }
+            int lo = 0;
+            int hi = buckets;
+            while (lo < hi)
+            {
+                int mid = (lo + hi) >>> 1;
+                if (starts.get(mid) <= maxDepth)
+                {
+                    lo = mid + 1;
+                }
+                else
+                {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private static ByteBuffer view(ByteBuffer mapped, int offset, int length)
+        {
+            ByteBuffer duplicate = mapped.duplicate();
+            duplicate.limit(offset + length).position(offset);
+            return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
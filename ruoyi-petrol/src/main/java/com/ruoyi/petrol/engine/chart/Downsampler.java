@@ -0,0 +1,203 @@
+package com.ruoyi.petrol.engine.chart;
+
+/**
+ * 曲线降采样
+ * 按像素预算从整条曲线中选出代表点，输出选中点的下标（升序），单次O(n)扫描原始数组：
+ * <ul>
+ * <li>LTTB（Largest-Triangle-Three-Buckets）：每个桶选出与前一个选中点、后一个桶均值点构成三角形面积最大的点，保留曲线形状</li>
+ * <li>min/max：每个桶保留最小值和最大值两点，峰值和谷值不会丢失</li>
+ * </ul>
+ * 首尾两点总是保留；x或y为NaN的点不参与选择
+ *
+ * @author ruoyi
+ */
+public class Downsampler
+{
+    /** LTTB降采样 */
+    public static final String LTTB = "lttb";
+
+    /** 每桶最小/最大值降采样 */
+    public static final String MIN_MAX = "minmax";
+
+    /** 每条曲线允许的最大点数预算 */
+    public static final int MAX_POINTS = 10000;
+
+    private Downsampler()
+    {
+    }
+
+    /**
+     * 是否为支持的降采样方法
+     */
+    public static boolean isSupported(String method)
+    {
+        return LTTB.equals(method) || MIN_MAX.equals(method);
+    }
+
+    /**
+     * 降采样
+     *
+     * @param method 方法，lttb或minmax
+     * @param x 横坐标（如深度），按曲线顺序排列
+     * @param y 曲线值
+     * @param length 有效长度
+     * @param threshold 最多保留的点数
+     * @return 选中点在原数组中的下标，升序
+     */
+    public static int[] downsample(String method, double[] x, double[] y, int length, int threshold)
+    {
+        // 去掉缺失值，在有效点上降采样后再映射回原下标
+        int[] valid = new int[length];
+        int count = 0;
+        for (int i = 0; i < length; i++)
+        {
+            if (!Double.isNaN(x[i]) && !Double.isNaN(y[i]))
+            {
+                valid[count++] = i;
+            }
+        }
+        if (count <= threshold)
+        {
+            return trim(valid, count);
+        }
+
+        int[] selected = MIN_MAX.equals(method) ? minMax(y, valid, count, threshold) : lttb(x, y, valid, count,
+                threshold);
+        for (int i = 0; i < selected.length; i++)
+        {
+            selected[i] = valid[selected[i]];
+        }
+        return selected;
+    }
+
+    /**
+     * LTTB，下标均指有效点序号
+     */
+    private static int[] lttb(double[] x, double[] y, int[] valid, int count, int threshold)
+    {
+        if (threshold < 3)
+        {
+            return endpoints(count, threshold);
+        }
+        int[] selected = new int[threshold];
+        int size = 0;
+        selected[size++] = 0;
+
+        // 除首尾两点外，其余点均分到threshold-2个桶中
+        double every = (double) (count - 2) / (threshold - 2);
+        int a = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++)
+        {
+            // 下一个桶的均值点
+            int nextFrom = (int) Math.floor((bucket + 1) * every) + 1;
+            int nextTo = Math.min((int) Math.floor((bucket + 2) * every) + 1, count);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextFrom; i < nextTo; i++)
+            {
+                avgX += x[valid[i]];
+                avgY += y[valid[i]];
+            }
+            int nextLength = nextTo - nextFrom;
+            if (nextLength > 0)
+            {
+                avgX /= nextLength;
+                avgY /= nextLength;
+            }
+            else
+            {
+                avgX = x[valid[count - 1]];
+                avgY = y[valid[count - 1]];
+            }
+
+            // 当前桶中与点a、均值点构成三角形面积最大的点
+            int from = (int) Math.floor(bucket * every) + 1;
+            int to = (int) Math.floor((bucket + 1) * every) + 1;
+            double ax = x[valid[a]];
+            double ay = y[valid[a]];
+            double maxArea = -1;
+            int next = from;
+            for (int i = from; i < to; i++)
+            {
+                double area = Math.abs((ax - avgX) * (y[valid[i]] - ay) - (ax - x[valid[i]]) * (avgY - ay));
+                if (area > maxArea)
+                {
+                    maxArea = area;
+                    next = i;
+                }
+            }
+            selected[size++] = next;
+            a = next;
+        }
+        selected[size++] = count - 1;
+        return trim(selected, size);
+    }
+
+    /**
+     * 每桶最小/最大值，下标均指有效点序号
+     */
+    private static int[] minMax(double[] y, int[] valid, int count, int threshold)
+    {
+        int buckets = (threshold - 2) / 2;
+        if (buckets < 1)
+        {
+            return endpoints(count, threshold);
+        }
+        int[] selected = new int[buckets * 2 + 2];
+        int size = 0;
+        selected[size++] = 0;
+
+        double every = (double) (count - 2) / buckets;
+        for (int bucket = 0; bucket < buckets; bucket++)
+        {
+            int from = (int) Math.floor(bucket * every) + 1;
+            int to = Math.min((int) Math.floor((bucket + 1) * every) + 1, count - 1);
+            if (from >= to)
+            {
+                continue;
+            }
+            int min = from;
+            int max = from;
+            for (int i = from + 1; i < to; i++)
+            {
+                double value = y[valid[i]];
+                if (value < y[valid[min]])
+                {
+                    min = i;
+                }
+                else if (value > y[valid[max]])
+                {
+                    max = i;
+                }
+            }
+            // 按原顺序输出，保持曲线走向
+            selected[size++] = Math.min(min, max);
+            if (min != max)
+            {
+                selected[size++] = Math.max(min, max);
+            }
+        }
+        selected[size++] = count - 1;
+        return trim(selected, size);
+    }
+
+    private static int[] endpoints(int count, int threshold)
+    {
+        if (threshold <= 0)
+        {
+            return new int[0];
+        }
+        return threshold == 1 ? new int[] { 0 } : new int[] { 0, count - 1 };
+    }
+
+    private static int[] trim(int[] values, int size)
+    {
+        if (values.length == size)
+        {
+            return values;
+        }
+        int[] result = new int[size];
+        System.arraycopy(values, 0, result, 0, size);
+        return result;
+    }
+}
@@ -0,0 +1,134 @@
+package com.ruoyi.petrol.engine.cluster;
+
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+
+import java.util.Arrays;
+
+/**
+ * 参与聚类的点
+ * 从列式文件读取所选数值列，去掉含缺失值的行（与Python端dropna一致），按StandardScaler标准化（总体标准差，
+ * 常数列缩放量取1）后按行连续存放
+ *
+ * @author ruoyi
+ */
+public class ClusterData
+{
+    private final double[] points;
+    private final int rowCount;
+    private final int dimension;
+    private final int[] sourceRows;
+    private final double[] mean;
+    private final double[] scale;
+
+    private ClusterData(double[] points, int rowCount, int dimension, int[] sourceRows, double[] mean, double[] scale)
+    {
+        this.points = points;
+        this.rowCount = rowCount;
+        this.dimension = dimension;
+        this.sourceRows = sourceRows;
+        this.mean = mean;
+        this.scale = scale;
+    }
+
+    /**
+     * 读取并标准化
+     *
+     * @param columnar 列式缓存
+     * @param columns 特征列号，应为数值列
+     */
+    public static ClusterData load(ColumnarFile columnar, int[] columns)
+    {
+        int d = columns.length;
+        int rows = columnar.getRowCount();
+        double[][] values = new double[d][];
+        boolean[] missing = new boolean[rows];
+        for (int c = 0; c < d; c++)
+        {
+            values[c] = new double[rows];
+            columnar.readDoubles(columns[c], 0, rows, values[c], 0);
+            for (int r = 0; r < rows; r++)
+            {
+                missing[r] |= Double.isNaN(values[c][r]) || Double.isInfinite(values[c][r]);
+            }
+        }
+        int[] sourceRows = new int[rows];
+        int n = 0;
+        for (int r = 0; r < rows; r++)
+        {
+            if (!missing[r])
+            {
+                sourceRows[n++] = r;
+            }
+        }
+        sourceRows = Arrays.copyOf(sourceRows, n);
+        if (n == 0)
+        {
+            throw new IllegalArgumentException("所选特征列去掉缺失值后没有数据");
+        }
+
+        double[] mean = new double[d];
+        double[] scale = new double[d];
+        double[] points = new double[n * d];
+        for (int c = 0; c < d; c++)
+        {
+            double[] column = values[c];
+            double sum = 0;
+            for (int r : sourceRows)
+            {
+                sum += column[r];
+            }
+            mean[c] = sum / n;
+            double squares = 0;
+            for (int r : sourceRows)
+            {
+                double delta = column[r] - mean[c];
+                squares += delta * delta;
+            }
+            double std = Math.sqrt(squares / n);
+            scale[c] = std > 0 ? std : 1;
+            for (int i = 0; i < n; i++)
+            {
+                points[i * d + c] = (column[sourceRows[i]] - mean[c]) / scale[c];
+            }
+            // 读完即释放，大文件时不同时保留原始列和标准化后的点
+            values[c] = null;
+        }
+        return new ClusterData(points, n, d, sourceRows, mean, scale);
+    }
+
+    /**
+     * 标准化后的点，第i个点占[i·d, (i+1)·d)
+     */
+    public double[] getPoints()
+    {
+        return points;
+    }
+
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    public int getDimension()
+    {
+        return dimension;
+    }
+
+    /**
+     * 各点在原始数据中的行号
+     */
+    public int[] getSourceRows()
+    {
+        return sourceRows;
+    }
+
+    public double[] getMean()
+    {
+        return mean;
+    }
+
+    public double[] getScale()
+    {
+        return scale;
+    }
+}
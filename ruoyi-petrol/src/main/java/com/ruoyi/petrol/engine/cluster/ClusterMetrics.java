@@ -0,0 +1,272 @@
+package com.ruoyi.petrol.engine.cluster;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 聚类质量指标，与sklearn.metrics的同名函数一致
+ * calinski_harabasz和davies_bouldin按簇均值计算，两次并行扫描得到；
+ * 轮廓系数需要两两距离，样本数超过SILHOUETTE_ROWS时与silhouette_score(sample_size=...)一样在随机抽取的行上计算
+ *
+ * @author ruoyi
+ */
+public class ClusterMetrics
+{
+    /** 轮廓系数最多使用的行数 */
+    public static final int SILHOUETTE_ROWS = 10000;
+
+    /** 轮廓系数并行计算时每块的抽样行数，每行要与全部抽样行计算距离 */
+    private static final int SILHOUETTE_CHUNK = 256;
+
+    private final int clusterCount;
+    private final double silhouette;
+    private final double calinskiHarabasz;
+    private final double daviesBouldin;
+
+    private ClusterMetrics(int clusterCount, double silhouette, double calinskiHarabasz, double daviesBouldin)
+    {
+        this.clusterCount = clusterCount;
+        this.silhouette = silhouette;
+        this.calinskiHarabasz = calinskiHarabasz;
+        this.daviesBouldin = daviesBouldin;
+    }
+
+    /**
+     * 计算聚类指标，非空簇少于2个时各指标为NaN
+     *
+     * @param points 按行连续存放的点坐标
+     * @param n 点数
+     * @param d 维数
+     * @param labels 各点所属的簇，取值[0, k)
+     * @param k 聚类数
+     * @param seed 轮廓系数抽样的随机种子
+     * @param pool 计算线程池
+     */
+    public static ClusterMetrics compute(double[] points, int n, int d, int[] labels, int k, long seed,
+            ForkJoinPool pool)
+    {
+        double[] means = new double[k * d];
+        long[] counts = new long[k];
+        KMeans.forEachChunk(n, pool, (from, to) -> {
+            double[] localSums = new double[k * d];
+            long[] localCounts = new long[k];
+            for (int i = from; i < to; i++)
+            {
+                int label = labels[i];
+                for (int c = 0; c < d; c++)
+                {
+                    localSums[label * d + c] += points[i * d + c];
+                }
+                localCounts[label]++;
+            }
+            synchronized (counts)
+            {
+                for (int x = 0; x < means.length; x++)
+                {
+                    means[x] += localSums[x];
+                }
+                for (int j = 0; j < k; j++)
+                {
+                    counts[j] += localCounts[j];
+                }
+            }
+        });
+        int nonEmpty = 0;
+        double[] overall = new double[d];
+        for (int j = 0; j < k; j++)
+        {
+            for (int c = 0; c < d; c++)
+            {
+                overall[c] += means[j * d + c];
+                means[j * d + c] = counts[j] > 0 ? means[j * d + c] / counts[j] : 0;
+            }
+            nonEmpty += counts[j] > 0 ? 1 : 0;
+        }
+        if (nonEmpty < 2)
+        {
+            return new ClusterMetrics(nonEmpty, Double.NaN, Double.NaN, Double.NaN);
+        }
+        for (int c = 0; c < d; c++)
+        {
+            overall[c] /= n;
+        }
+
+        // 簇内平方和与簇内点到中心的平均距离
+        double[] within = new double[1];
+        double[] spread = new double[k];
+        KMeans.forEachChunk(n, pool, (from, to) -> {
+            double localWithin = 0;
+            double[] localSpread = new double[k];
+            for (int i = from; i < to; i++)
+            {
+                double distance = KMeans.squaredDistance(points, i, means, labels[i], d);
+                localWithin += distance;
+                localSpread[labels[i]] += Math.sqrt(distance);
+            }
+            synchronized (within)
+            {
+                within[0] += localWithin;
+                for (int j = 0; j < k; j++)
+                {
+                    spread[j] += localSpread[j];
+                }
+            }
+        });
+
+        double between = 0;
+        for (int j = 0; j < k; j++)
+        {
+            double distance = 0;
+            for (int c = 0; c < d; c++)
+            {
+                double delta = means[j * d + c] - overall[c];
+                distance += delta * delta;
+            }
+            between += counts[j] * distance;
+            spread[j] = counts[j] > 0 ? spread[j] / counts[j] : 0;
+        }
+        double calinskiHarabasz = within[0] == 0 ? 1.0
+                : between * (n - nonEmpty) / (within[0] * (nonEmpty - 1));
+
+        double daviesBouldin = 0;
+        for (int j = 0; j < k; j++)
+        {
+            if (counts[j] == 0)
+            {
+                continue;
+            }
+            double worst = 0;
+            for (int other = 0; other < k; other++)
+            {
+                if (other == j || counts[other] == 0)
+                {
+                    continue;
+                }
+                double separation = Math.sqrt(KMeans.squaredDistance(means, j, means, other, d));
+                // 中心重合时sklearn把该比值记为0
+                double ratio = separation > 0 ? (spread[j] + spread[other]) / separation : 0;
+                worst = Math.max(worst, ratio);
+            }
+            daviesBouldin += worst;
+        }
+        daviesBouldin /= nonEmpty;
+
+        return new ClusterMetrics(nonEmpty, silhouette(points, n, d, labels, k, seed, pool), calinskiHarabasz,
+                daviesBouldin);
+    }
+
+    /**
+     * 轮廓系数，只有一个点的簇中的点记为0
+     */
+    private static double silhouette(double[] points, int n, int d, int[] labels, int k, long seed,
+            ForkJoinPool pool)
+    {
+        int m = Math.min(n, SILHOUETTE_ROWS);
+        int[] sample = new int[m];
+        if (m == n)
+        {
+            for (int i = 0; i < n; i++)
+            {
+                sample[i] = i;
+            }
+        }
+        else
+        {
+            // 蓄水池抽样，结果只依赖种子
+            Random random = new Random(seed);
+            for (int i = 0; i < n; i++)
+            {
+                if (i < m)
+                {
+                    sample[i] = i;
+                }
+                else
+                {
+                    int slot = random.nextInt(i + 1);
+                    if (slot < m)
+                    {
+                        sample[slot] = i;
+                    }
+                }
+            }
+        }
+        // 抽样点复制为连续数组，两两距离计算时都在缓存内
+        double[] coordinates = new double[m * d];
+        int[] sampleLabels = new int[m];
+        long[] sizes = new long[k];
+        for (int a = 0; a < m; a++)
+        {
+            System.arraycopy(points, sample[a] * d, coordinates, a * d, d);
+            sampleLabels[a] = labels[sample[a]];
+            sizes[sampleLabels[a]]++;
+        }
+        int clusters = 0;
+        for (long size : sizes)
+        {
+            clusters += size > 0 ? 1 : 0;
+        }
+        if (clusters < 2)
+        {
+            return Double.NaN;
+        }
+
+        double[] total = new double[1];
+        KMeans.forEachChunk(m, SILHOUETTE_CHUNK, pool, (from, to) -> {
+            double[] distances = new double[k];
+            double localTotal = 0;
+            for (int a = from; a < to; a++)
+            {
+                Arrays.fill(distances, 0);
+                for (int b = 0; b < m; b++)
+                {
+                    distances[sampleLabels[b]] += Math.sqrt(KMeans.squaredDistance(coordinates, a, coordinates, b, d));
+                }
+                int own = sampleLabels[a];
+                if (sizes[own] <= 1)
+                {
+                    continue;
+                }
+                double inside = distances[own] / (sizes[own] - 1);
+                double outside = Double.POSITIVE_INFINITY;
+                for (int j = 0; j < k; j++)
+                {
+                    if (j != own && sizes[j] > 0)
+                    {
+                        outside = Math.min(outside, distances[j] / sizes[j]);
+                    }
+                }
+                double larger = Math.max(inside, outside);
+                localTotal += larger > 0 ? (outside - inside) / larger : 0;
+            }
+            synchronized (total)
+            {
+                total[0] += localTotal;
+            }
+        });
+        return total[0] / m;
+    }
+
+    /**
+     * 非空簇个数
+     */
+    public int getClusterCount()
+    {
+        return clusterCount;
+    }
+
+    public double getSilhouette()
+    {
+        return silhouette;
+    }
+
+    public double getCalinskiHarabasz()
+    {
+        return calinskiHarabasz;
+    }
+
+    public double getDaviesBouldin()
+    {
+        return daviesBouldin;
+    }
+}
@@ -0,0 +1,476 @@
+package com.ruoyi.petrol.engine.cluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * K-Means聚类
+ * 点按行连续存放在一个double[]中（第i个点占[i·d, (i+1)·d)），初始中心用k-means++（与sklearn相同的贪心版本，
+ * 每步按D²概率抽2+ln k个候选，取使总距离平方和最小者）
+ *
+ * 迭代用Hamerly算法：每个点维护到所属中心距离的上界和到其他中心距离的下界，中心移动后只按移动量放宽界；
+ * 上界不超过下界和所属中心到最近中心距离的一半时，该点的归属不可能改变，不必计算距离。
+ * 分配步骤按行分块并行，各块记录归属变化引起的簇内坐标和与点数的增量，合并后直接得到新中心，不需要每轮重新累加全部点
+ *
+ * 收敛条件与sklearn相同：中心移动量的平方和不超过tol（数据已标准化，各列方差为1），或者没有点改变归属；
+ * 结束时的归属总是相对最终中心的
+ *
+ * @author ruoyi
+ */
+public class KMeans
+{
+    /** 最大迭代次数，与sklearn默认值相同 */
+    public static final int MAX_ITERATIONS = 300;
+
+    /** 中心移动量平方和的收敛阈值 */
+    private static final double TOLERANCE = 1e-4;
+
+    /** 并行分配时每块的点数 */
+    private static final int CHUNK_ROWS = 1 << 14;
+
+    private final int clusters;
+    private final int dimension;
+    private final double[] centroids;
+    private final int[] labels;
+    private final double inertia;
+    private final int iterations;
+
+    private KMeans(int clusters, int dimension, double[] centroids, int[] labels, double inertia, int iterations)
+    {
+        this.clusters = clusters;
+        this.dimension = dimension;
+        this.centroids = centroids;
+        this.labels = labels;
+        this.inertia = inertia;
+        this.iterations = iterations;
+    }
+
+    /**
+     * 聚类，多次初始化时返回簇内平方和最小的一次
+     *
+     * @param points 按行连续存放的点坐标
+     * @param n 点数
+     * @param d 维数
+     * @param k 聚类数
+     * @param runs 初始化次数（sklearn的n_init）
+     * @param seed 随机种子
+     * @param pool 计算线程池
+     */
+    public static KMeans fit(double[] points, int n, int d, int k, int runs, long seed, ForkJoinPool pool)
+    {
+        if (k < 1)
+        {
+            throw new IllegalArgumentException("聚类数必须为正整数: " + k);
+        }
+        if (n < k)
+        {
+            throw new IllegalArgumentException("有效样本数(" + n + ")少于聚类数(" + k + ")");
+        }
+        Random random = new Random(seed);
+        KMeans best = null;
+        for (int run = 0; run < Math.max(1, runs); run++)
+        {
+            KMeans candidate = run(points, n, d, k, new Random(random.nextLong()), pool);
+            if (best == null || candidate.inertia < best.inertia)
+            {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private static KMeans run(double[] points, int n, int d, int k, Random random, ForkJoinPool pool)
+    {
+        double[] centroids = seed(points, n, d, k, random, pool);
+        int[] labels = new int[n];
+        double[] upper = new double[n];
+        double[] lower = new double[n];
+        double[] sums = new double[k * d];
+        long[] counts = new long[k];
+
+        // 第一次分配计算每个点到全部中心的距离
+        forEachChunk(n, pool, (from, to) -> {
+            double[] localSums = new double[k * d];
+            long[] localCounts = new long[k];
+            double[] nearest = new double[2];
+            for (int i = from; i < to; i++)
+            {
+                int label = nearestTwo(points, i, d, centroids, k, nearest);
+                labels[i] = label;
+                upper[i] = nearest[0];
+                lower[i] = nearest[1];
+                add(localSums, label, points, i, d, 1);
+                localCounts[label]++;
+            }
+            merge(sums, counts, localSums, localCounts);
+        });
+
+        double[] moves = new double[k];
+        double[] half = new double[k];
+        int iterations = 0;
+        while (iterations < MAX_ITERATIONS)
+        {
+            iterations++;
+            double shift = 0;
+            for (int j = 0; j < k; j++)
+            {
+                double move = 0;
+                if (counts[j] > 0)
+                {
+                    // 空簇保留原中心
+                    for (int c = 0; c < d; c++)
+                    {
+                        double value = sums[j * d + c] / counts[j];
+                        double delta = value - centroids[j * d + c];
+                        move += delta * delta;
+                        centroids[j * d + c] = value;
+                    }
+                }
+                shift += move;
+                moves[j] = Math.sqrt(move);
+            }
+            int farthest = 0;
+            for (int j = 1; j < k; j++)
+            {
+                farthest = moves[j] > moves[farthest] ? j : farthest;
+            }
+            double largest = moves[farthest];
+            double runnerUp = 0;
+            for (int j = 0; j < k; j++)
+            {
+                runnerUp = j != farthest ? Math.max(runnerUp, moves[j]) : runnerUp;
+            }
+            // 下界是到其他中心的距离，所属中心移动最多时只需按次大移动量放宽
+            int fastest = farthest;
+            double second = runnerUp;
+            for (int j = 0; j < k; j++)
+            {
+                double closest = Double.POSITIVE_INFINITY;
+                for (int other = 0; other < k; other++)
+                {
+                    if (other != j)
+                    {
+                        closest = Math.min(closest, Math.sqrt(squaredDistance(centroids, j, centroids, other, d)));
+                    }
+                }
+                half[j] = closest / 2;
+            }
+
+            long[] changed = new long[1];
+            forEachChunk(n, pool, (from, to) -> {
+                double[] localSums = new double[k * d];
+                long[] localCounts = new long[k];
+                double[] nearest = new double[2];
+                long localChanged = 0;
+                for (int i = from; i < to; i++)
+                {
+                    int label = labels[i];
+                    upper[i] += moves[label];
+                    lower[i] -= label == fastest ? second : largest;
+                    double bound = Math.max(half[label], lower[i]);
+                    if (upper[i] <= bound)
+                    {
+                        continue;
+                    }
+                    upper[i] = Math.sqrt(squaredDistance(points, i, centroids, label, d));
+                    if (upper[i] <= bound)
+                    {
+                        continue;
+                    }
+                    int next = nearestTwo(points, i, d, centroids, k, nearest);
+                    upper[i] = nearest[0];
+                    lower[i] = nearest[1];
+                    if (next != label)
+                    {
+                        labels[i] = next;
+                        add(localSums, label, points, i, d, -1);
+                        add(localSums, next, points, i, d, 1);
+                        localCounts[label]--;
+                        localCounts[next]++;
+                        localChanged++;
+                    }
+                }
+                merge(sums, counts, localSums, localCounts);
+                synchronized (changed)
+                {
+                    changed[0] += localChanged;
+                }
+            });
+            if (changed[0] == 0 || shift <= TOLERANCE)
+            {
+                break;
+            }
+        }
+
+        double[] total = new double[1];
+        forEachChunk(n, pool, (from, to) -> {
+            double sum = 0;
+            for (int i = from; i < to; i++)
+            {
+                sum += squaredDistance(points, i, centroids, labels[i], d);
+            }
+            synchronized (total)
+            {
+                total[0] += sum;
+            }
+        });
+        return new KMeans(k, d, centroids, labels, total[0], iterations);
+    }
+
+    /**
+     * 贪心k-means++初始化
+     */
+    private static double[] seed(double[] points, int n, int d, int k, Random random, ForkJoinPool pool)
+    {
+        double[] centroids = new double[k * d];
+        double[] closest = new double[n];
+        int first = random.nextInt(n);
+        System.arraycopy(points, first * d, centroids, 0, d);
+        double[] potential = new double[1];
+        forEachChunk(n, pool, (from, to) -> {
+            double sum = 0;
+            for (int i = from; i < to; i++)
+            {
+                closest[i] = squaredDistance(points, i, centroids, 0, d);
+                sum += closest[i];
+            }
+            synchronized (potential)
+            {
+                potential[0] += sum;
+            }
+        });
+
+        int trials = 2 + (int) Math.log(k);
+        for (int c = 1; c < k; c++)
+        {
+            int[] candidates = sampleByPotential(closest, potential[0], trials, random);
+            double[] candidatePotential = new double[trials];
+            forEachChunk(n, pool, (from, to) -> {
+                double[] local = new double[trials];
+                for (int i = from; i < to; i++)
+                {
+                    for (int t = 0; t < trials; t++)
+                    {
+                        local[t] += Math.min(closest[i], squaredDistance(points, i, points, candidates[t], d));
+                    }
+                }
+                synchronized (candidatePotential)
+                {
+                    for (int t = 0; t < trials; t++)
+                    {
+                        candidatePotential[t] += local[t];
+                    }
+                }
+            });
+            int best = 0;
+            for (int t = 1; t < trials; t++)
+            {
+                best = candidatePotential[t] < candidatePotential[best] ? t : best;
+            }
+            int chosen = candidates[best];
+            System.arraycopy(points, chosen * d, centroids, c * d, d);
+            potential[0] = candidatePotential[best];
+            forEachChunk(n, pool, (from, to) -> {
+                for (int i = from; i < to; i++)
+                {
+                    closest[i] = Math.min(closest[i], squaredDistance(points, i, points, chosen, d));
+                }
+            });
+        }
+        return centroids;
+    }
+
+    /**
+     * 按距离平方的概率抽样，一次扫描得到全部候选；所有点都已与某个中心重合时均匀抽样
+     */
+    private static int[] sampleByPotential(double[] closest, double potential, int count, Random random)
+    {
+        int n = closest.length;
+        int[] chosen = new int[count];
+        if (!(potential > 0))
+        {
+            for (int t = 0; t < count; t++)
+            {
+                chosen[t] = random.nextInt(n);
+            }
+            return chosen;
+        }
+        double[] targets = new double[count];
+        Integer[] order = new Integer[count];
+        for (int t = 0; t < count; t++)
+        {
+            targets[t] = random.nextDouble() * potential;
+            order[t] = t;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(targets[a], targets[b]));
+        double cumulative = 0;
+        int last = 0;
+        int next = 0;
+        for (int i = 0; i < n && next < count; i++)
+        {
+            if (closest[i] > 0)
+            {
+                cumulative += closest[i];
+                last = i;
+                while (next < count && targets[order[next]] < cumulative)
+                {
+                    chosen[order[next++]] = i;
+                }
+            }
+        }
+        // 累加的舍入误差可能使最后几个目标值落在总和之外
+        while (next < count)
+        {
+            chosen[order[next++]] = last;
+        }
+        return chosen;
+    }
+
+    /**
+     * 最近和次近中心，nearest中返回两者的距离
+     *
+     * @return 最近中心的序号
+     */
+    private static int nearestTwo(double[] points, int i, int d, double[] centroids, int k, double[] nearest)
+    {
+        double best = Double.POSITIVE_INFINITY;
+        double second = Double.POSITIVE_INFINITY;
+        int label = 0;
+        for (int j = 0; j < k; j++)
+        {
+            double distance = squaredDistance(points, i, centroids, j, d);
+            if (distance < best)
+            {
+                second = best;
+                best = distance;
+                label = j;
+            }
+            else if (distance < second)
+            {
+                second = distance;
+            }
+        }
+        nearest[0] = Math.sqrt(best);
+        nearest[1] = Math.sqrt(second);
+        return label;
+    }
+
+    static double squaredDistance(double[] a, int i, double[] b, int j, int d)
+    {
+        double sum = 0;
+        int offsetA = i * d;
+        int offsetB = j * d;
+        for (int c = 0; c < d; c++)
+        {
+            double delta = a[offsetA + c] - b[offsetB + c];
+            sum += delta * delta;
+        }
+        return sum;
+    }
+
+    private static void add(double[] sums, int label, double[] points, int i, int d, int sign)
+    {
+        for (int c = 0; c < d; c++)
+        {
+            sums[label * d + c] += sign * points[i * d + c];
+        }
+    }
+
+    private static void merge(double[] sums, long[] counts, double[] localSums, long[] localCounts)
+    {
+        synchronized (counts)
+        {
+            for (int x = 0; x < sums.length; x++)
+            {
+                sums[x] += localSums[x];
+            }
+            for (int j = 0; j < counts.length; j++)
+            {
+                counts[j] += localCounts[j];
+            }
+        }
+    }
+
+    interface RangeAction
+    {
+        void run(int from, int to);
+    }
+
+    static void forEachChunk(int length, ForkJoinPool pool, RangeAction action)
+    {
+        forEachChunk(length, CHUNK_ROWS, pool, action);
+    }
+
+    static void forEachChunk(int length, int chunkRows, ForkJoinPool pool, RangeAction action)
+    {
+        List<RecursiveAction> tasks = new ArrayList<>();
+        for (int from = 0; from < length; from += chunkRows)
+        {
+            int start = from;
+            int end = Math.min(length, from + chunkRows);
+            tasks.add(new RecursiveAction()
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute()
+                {
+                    action.run(start, end);
+                }
+            });
+        }
+        pool.invoke(new RecursiveAction()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    public int getClusters()
+    {
+        return clusters;
+    }
+
+    public int getDimension()
+    {
+        return dimension;
+    }
+
+    /**
+     * 聚类中心，按行连续存放
+     */
+    public double[] getCentroids()
+    {
+        return centroids;
+    }
+
+    /**
+     * 各点所属的簇
+     */
+    public int[] getLabels()
+    {
+        return labels;
+    }
+
+    /**
+     * 簇内平方和，即sklearn的inertia_
+     */
+    public double getInertia()
+    {
+        return inertia;
+    }
+
+    public int getIterations()
+    {
+        return iterations;
+    }
+}
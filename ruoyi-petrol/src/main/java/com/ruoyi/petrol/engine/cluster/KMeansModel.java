@@ -0,0 +1,178 @@
+package com.ruoyi.petrol.engine.cluster;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * K-Means模型
+ * 只由特征列、标准化参数和聚类中心（标准化空间）组成，保存在petrol_model.model_params中，预测时不需要模型文件
+ *
+ * @author ruoyi
+ */
+public class KMeansModel
+{
+    /** model_params中model_form的取值 */
+    public static final String FORM = "kmeans";
+
+    private static final String FORM_KEY = "model_form";
+
+    private final List<String> featureColumns;
+    private final double[] mean;
+    private final double[] scale;
+    private final double[] centroids;
+    private final int clusters;
+
+    public KMeansModel(List<String> featureColumns, double[] mean, double[] scale, double[] centroids)
+    {
+        this.featureColumns = featureColumns;
+        this.mean = mean;
+        this.scale = scale;
+        this.centroids = centroids;
+        this.clusters = centroids.length / mean.length;
+    }
+
+    /**
+     * model_params是否描述了一个JVM训练的K-Means模型
+     */
+    public static boolean isKMeans(Map<String, Object> params)
+    {
+        return params != null && FORM.equals(params.get(FORM_KEY));
+    }
+
+    /**
+     * 预测一行所属的簇
+     *
+     * @param x 各特征的原始值
+     * @return 簇序号，特征缺失时为-1
+     */
+    public int predict(double[] x)
+    {
+        int d = mean.length;
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < clusters; j++)
+        {
+            double distance = 0;
+            for (int c = 0; c < d; c++)
+            {
+                double delta = (x[c] - mean[c]) / scale[c] - centroids[j * d + c];
+                distance += delta * delta;
+            }
+            if (distance < bestDistance)
+            {
+                bestDistance = distance;
+                best = j;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 写入model_params的参数
+     */
+    public Map<String, Object> toParams()
+    {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("n_clusters", clusters);
+        params.put("feature_columns", featureColumns);
+        params.put(FORM_KEY, FORM);
+        params.put("scaler_mean", toList(mean, 0, mean.length));
+        params.put("scaler_scale", toList(scale, 0, scale.length));
+        params.put("cluster_centers", centerList());
+        return params;
+    }
+
+    /**
+     * 标准化空间中的聚类中心，每个中心一行
+     */
+    public List<List<Double>> centerList()
+    {
+        int d = mean.length;
+        List<List<Double>> centers = new ArrayList<>(clusters);
+        for (int j = 0; j < clusters; j++)
+        {
+            centers.add(toList(centroids, j * d, d));
+        }
+        return centers;
+    }
+
+    /**
+     * 从model_params恢复模型
+     *
+     * @throws IllegalArgumentException 不是K-Means模型或参数不完整
+     */
+    public static KMeansModel fromParams(Map<String, Object> params)
+    {
+        if (!isKMeans(params))
+        {
+            throw new IllegalArgumentException("模型参数中没有K-Means聚类中心");
+        }
+        List<String> featureColumns = new ArrayList<>();
+        if (params.get("feature_columns") instanceof List)
+        {
+            for (Object column : (List<?>) params.get("feature_columns"))
+            {
+                featureColumns.add(column.toString());
+            }
+        }
+        double[] mean = toArray(params.get("scaler_mean"));
+        double[] scale = toArray(params.get("scaler_scale"));
+        int d = featureColumns.size();
+        List<?> centers = params.get("cluster_centers") instanceof List ? (List<?>) params.get("cluster_centers") : null;
+        if (d == 0 || mean.length != d || scale.length != d || centers == null || centers.isEmpty())
+        {
+            throw new IllegalArgumentException("K-Means模型参数不完整");
+        }
+        double[] centroids = new double[centers.size() * d];
+        for (int j = 0; j < centers.size(); j++)
+        {
+            double[] center = toArray(centers.get(j));
+            if (center.length != d)
+            {
+                throw new IllegalArgumentException("K-Means模型参数不完整");
+            }
+            System.arraycopy(center, 0, centroids, j * d, d);
+        }
+        return new KMeansModel(featureColumns, mean, scale, centroids);
+    }
+
+    private static List<Double> toList(double[] values, int from, int length)
+    {
+        List<Double> list = new ArrayList<>(length);
+        for (int i = from; i < from + length; i++)
+        {
+            list.add(values[i]);
+        }
+        return list;
+    }
+
+    private static double[] toArray(Object value)
+    {
+        if (!(value instanceof List))
+        {
+            return new double[0];
+        }
+        List<?> list = (List<?>) value;
+        double[] array = new double[list.size()];
+        for (int i = 0; i < array.length; i++)
+        {
+            array[i] = ((Number) list.get(i)).doubleValue();
+        }
+        return array;
+    }
+
+    /**
+     * 训练时的特征列，预测时按同样顺序读取
+     */
+    public List<String> getFeatureColumns()
+    {
+        return featureColumns;
+    }
+
+    public int getClusters()
+    {
+        return clusters;
+    }
+}
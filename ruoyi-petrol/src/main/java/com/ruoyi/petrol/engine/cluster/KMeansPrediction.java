@@ -0,0 +1,160 @@
+package com.ruoyi.petrol.engine.cluster;
+
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 用K-Means模型把列式文件中的行分配到最近的聚类中心
+ * 特征缺失的行跳过，结果结构与Python端BasePredictorAlgorithm的输出一致
+ *
+ * @author ruoyi
+ */
+public class KMeansPrediction
+{
+    private final List<String> featureColumns;
+    private final int[] rows;
+    private final double[][] inputs;
+    private final int[] labels;
+    private final long[] sizes;
+    private final int skipped;
+
+    private KMeansPrediction(List<String> featureColumns, int[] rows, double[][] inputs, int[] labels, long[] sizes,
+            int skipped)
+    {
+        this.featureColumns = featureColumns;
+        this.rows = rows;
+        this.inputs = inputs;
+        this.labels = labels;
+        this.sizes = sizes;
+        this.skipped = skipped;
+    }
+
+    /**
+     * 预测指定的行
+     *
+     * @param model K-Means模型
+     * @param columnar 输入数据
+     * @param selectedRows 要预测的行号，为null时预测全部行；超出范围的行号忽略
+     */
+    public static KMeansPrediction compute(KMeansModel model, ColumnarFile columnar, int[] selectedRows)
+    {
+        List<String> featureColumns = model.getFeatureColumns();
+        int features = featureColumns.size();
+        int[] columns = new int[features];
+        for (int j = 0; j < features; j++)
+        {
+            columns[j] = columnar.getColumnIndex(featureColumns.get(j));
+            if (columns[j] < 0 || !columnar.isNumeric(columns[j]))
+            {
+                throw new IllegalArgumentException("列不存在或不是数值列: " + featureColumns.get(j));
+            }
+        }
+
+        int rowCount = columnar.getRowCount();
+        int[] candidates = selectedRows == null ? null
+                : Arrays.stream(selectedRows).filter(r -> r >= 0 && r < rowCount).toArray();
+        int total = candidates != null ? candidates.length : rowCount;
+
+        double[][] inputs = new double[features][total];
+        int[] labels = new int[total];
+        int[] rows = new int[total];
+        long[] sizes = new long[model.getClusters()];
+        double[] point = new double[features];
+        int count = 0;
+        for (int k = 0; k < total; k++)
+        {
+            int r = candidates != null ? candidates[k] : k;
+            for (int j = 0; j < features; j++)
+            {
+                point[j] = columnar.getDouble(columns[j], r);
+            }
+            int label = model.predict(point);
+            if (label < 0)
+            {
+                continue;
+            }
+            for (int j = 0; j < features; j++)
+            {
+                inputs[j][count] = point[j];
+            }
+            sizes[label]++;
+            rows[count] = r;
+            labels[count++] = label;
+        }
+        if (count == 0)
+        {
+            throw new IllegalArgumentException("没有可预测的行，特征列全部缺失");
+        }
+        for (int j = 0; j < features; j++)
+        {
+            inputs[j] = Arrays.copyOf(inputs[j], count);
+        }
+        return new KMeansPrediction(featureColumns, Arrays.copyOf(rows, count), inputs, Arrays.copyOf(labels, count),
+                sizes, total - count);
+    }
+
+    /**
+     * 预测结果：predictions（簇序号）、input_data（各行特征）、statistics（各簇行数）
+     */
+    public Map<String, Object> toResult()
+    {
+        List<Integer> values = new ArrayList<>(labels.length);
+        List<Map<String, Object>> inputData = new ArrayList<>(labels.length);
+        for (int k = 0; k < labels.length; k++)
+        {
+            values.add(labels[k]);
+            Map<String, Object> record = new LinkedHashMap<>();
+            for (int j = 0; j < featureColumns.size(); j++)
+            {
+                record.put(featureColumns.get(j), inputs[j][k]);
+            }
+            inputData.add(record);
+        }
+        Map<String, Object> clusterSizes = new LinkedHashMap<>();
+        for (int j = 0; j < sizes.length; j++)
+        {
+            clusterSizes.put(String.valueOf(j), sizes[j]);
+        }
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("message", String.format(Locale.ROOT, "Successfully made %d predictions.", labels.length));
+        statistics.put("prediction_summary", clusterSizes);
+        statistics.put("cluster_sizes", clusterSizes);
+        statistics.put("task_type", "classification");
+        statistics.put("skipped_rows", skipped);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("predictions", values);
+        result.put("input_data", inputData);
+        result.put("statistics", statistics);
+        result.put("excel_report", new LinkedHashMap<>());
+        return result;
+    }
+
+    /**
+     * 被预测的行号
+     */
+    public int[] getRows()
+    {
+        return rows;
+    }
+
+    public int[] getLabels()
+    {
+        return labels;
+    }
+
+    /**
+     * 特征缺失而跳过的行数
+     */
+    public int getSkipped()
+    {
+        return skipped;
+    }
+}
@@ -0,0 +1,285 @@
+package com.ruoyi.petrol.engine.feature;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 曲线分形维数（盒计数法）
+ * 数据归一化到[0,1]后，对每个盒子大小s，横向每s个采样点为一列、纵向按value*s取整分层，
+ * 统计被数据点占据的盒子数N(s)，log N(s)对log(1/s)线性拟合的斜率即盒计数维数；
+ * 同一组盒子中各盒子点数占比的平方和C(s)对log(1/s)拟合的斜率为相关维数（二阶Rényi维数）
+ *
+ * 盒子大小、取整方式和拟合与Python版feature_engineering.fractal_dimension一致：
+ * s取1到n/4之间按对数均匀分布的20个整数（去重），被占据的盒子用位图标记，各盒子大小并行计算
+ *
+ * @author ruoyi
+ */
+public class FractalDimension
+{
+    /** 盒子大小的个数（去重前） */
+    private static final int BOX_SIZE_COUNT = 20;
+
+    private final int[] boxSizes;
+    private final long[] boxCounts;
+    private final double[] collisionSums;
+    private final double boxCountingDimension;
+    private final double correlationCoefficient;
+    private final double correlationDimension;
+
+    private FractalDimension(int[] boxSizes, long[] boxCounts, double[] collisionSums)
+    {
+        this.boxSizes = boxSizes;
+        this.boxCounts = boxCounts;
+        this.collisionSums = collisionSums;
+
+        double[] x = new double[boxSizes.length];
+        double[] logCounts = new double[boxSizes.length];
+        double[] logCollisions = new double[boxSizes.length];
+        for (int i = 0; i < boxSizes.length; i++)
+        {
+            x[i] = Math.log(1.0 / boxSizes[i]);
+            logCounts[i] = Math.log(boxCounts[i]);
+            logCollisions[i] = Math.log(collisionSums[i]);
+        }
+        if (boxSizes.length < 2)
+        {
+            this.boxCountingDimension = 1.0;
+            this.correlationCoefficient = 0.0;
+            this.correlationDimension = 1.0;
+        }
+        else
+        {
+            double[] fit = fit(x, logCounts);
+            this.boxCountingDimension = Math.abs(fit[0]);
+            this.correlationCoefficient = Double.isNaN(fit[1]) ? 0.0 : Math.abs(fit[1]);
+            this.correlationDimension = Math.abs(fit(x, logCollisions)[0]);
+        }
+    }
+
+    /**
+     * 计算一条曲线的分形维数
+     *
+     * @param values 曲线值（不含缺失值），按深度顺序排列
+     * @param length 有效长度
+     * @param pool 计算线程池
+     */
+    public static FractalDimension compute(double[] values, int length, ForkJoinPool pool)
+    {
+        if (length < 4)
+        {
+            throw new IllegalArgumentException("有效样本数不足，至少需要4个: " + length);
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i++)
+        {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+        }
+        if (!(max > min))
+        {
+            throw new IllegalArgumentException("曲线值为常数，无法计算分形维数");
+        }
+        double range = max - min;
+        double[] normalized = new double[length];
+        for (int i = 0; i < length; i++)
+        {
+            normalized[i] = (values[i] - min) / range;
+        }
+
+        int[] sizes = boxSizes(length / 4);
+        long[] counts = new long[sizes.length];
+        double[] collisions = new double[sizes.length];
+        List<RecursiveAction> tasks = new ArrayList<>(sizes.length);
+        for (int k = 0; k < sizes.length; k++)
+        {
+            int index = k;
+            tasks.add(new RecursiveAction()
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute()
+                {
+                    countBoxes(normalized, sizes[index], counts, collisions, index);
+                }
+            });
+        }
+        pool.invoke(new RecursiveAction()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+        return new FractalDimension(sizes, counts, collisions);
+    }
+
+    /**
+     * 盒子大小：与np.unique(np.logspace(0, log10(maxBoxSize), 20, dtype=int))相同
+     */
+    static int[] boxSizes(int maxBoxSize)
+    {
+        double stop = Math.log10(maxBoxSize);
+        double step = stop / (BOX_SIZE_COUNT - 1);
+        int[] sizes = new int[BOX_SIZE_COUNT];
+        int count = 0;
+        for (int i = 0; i < BOX_SIZE_COUNT; i++)
+        {
+            double exponent = i == BOX_SIZE_COUNT - 1 ? stop : i * step;
+            int size = (int) Math.pow(10, exponent);
+            // 指数递增，去重只需与上一个比较
+            if (count == 0 || sizes[count - 1] != size)
+            {
+                sizes[count++] = size;
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(sizes, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * 一个盒子大小下的被占据盒子数和各盒子点数平方和
+     * 位图按列连续存放，每列s+1位（value为1时落在第s层）；列内点数用计数数组累计，
+     * 换列时按该列已置位的盒子取出计数并清零
+     */
+    private static void countBoxes(double[] normalized, int size, long[] counts, double[] collisions, int index)
+    {
+        int length = normalized.length;
+        int height = size + 1;
+        long columns = (length + (long) size - 1) / size;
+        long[] bits = new long[(int) ((columns * height + 63) >>> 6)];
+        int[] cell = new int[height];
+        long occupied = 0;
+        double squares = 0;
+        for (int from = 0, column = 0; from < length; from += size, column++)
+        {
+            int to = Math.min(length, from + size);
+            long base = (long) column * height;
+            for (int i = from; i < to; i++)
+            {
+                int level = (int) (normalized[i] * size);
+                long bit = base + level;
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                if ((bits[word] & mask) == 0)
+                {
+                    bits[word] |= mask;
+                    occupied++;
+                }
+                cell[level]++;
+            }
+            for (long bit = nextSetBit(bits, base, base + height); bit >= 0; bit = nextSetBit(bits, bit + 1,
+                    base + height))
+            {
+                int level = (int) (bit - base);
+                squares += (double) cell[level] * cell[level];
+                cell[level] = 0;
+            }
+        }
+        counts[index] = occupied;
+        collisions[index] = squares / ((double) length * length);
+    }
+
+    /**
+     * [from, to)中第一个置位的位，没有时返回-1
+     */
+    private static long nextSetBit(long[] bits, long from, long to)
+    {
+        long bit = from;
+        while (bit < to)
+        {
+            int word = (int) (bit >>> 6);
+            long rest = bits[word] >>> bit;
+            if (rest != 0)
+            {
+                long found = bit + Long.numberOfTrailingZeros(rest);
+                return found < to ? found : -1;
+            }
+            bit = (long) (word + 1) << 6;
+        }
+        return -1;
+    }
+
+    /**
+     * 最小二乘直线拟合
+     *
+     * @return 斜率和相关系数
+     */
+    private static double[] fit(double[] x, double[] y)
+    {
+        int n = x.length;
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < n; i++)
+        {
+            meanX += x[i];
+            meanY += y[i];
+        }
+        meanX /= n;
+        meanY /= n;
+        double sxx = 0;
+        double syy = 0;
+        double sxy = 0;
+        for (int i = 0; i < n; i++)
+        {
+            double dx = x[i] - meanX;
+            double dy = y[i] - meanY;
+            sxx += dx * dx;
+            syy += dy * dy;
+            sxy += dx * dy;
+        }
+        return new double[] { sxy / sxx, sxy / Math.sqrt(sxx * syy) };
+    }
+
+    /**
+     * 盒计数维数
+     */
+    public double getBoxCountingDimension()
+    {
+        return boxCountingDimension;
+    }
+
+    /**
+     * 盒计数拟合的相关系数（绝对值）
+     */
+    public double getCorrelationCoefficient()
+    {
+        return correlationCoefficient;
+    }
+
+    /**
+     * 相关维数
+     */
+    public double getCorrelationDimension()
+    {
+        return correlationDimension;
+    }
+
+    public int[] getBoxSizes()
+    {
+        return boxSizes;
+    }
+
+    /**
+     * 每个盒子大小下被占据的盒子数
+     */
+    public long[] getBoxCounts()
+    {
+        return boxCounts;
+    }
+
+    /**
+     * 每个盒子大小下各盒子点数占比的平方和
+     */
+    public double[] getCollisionSums()
+    {
+        return collisionSums;
+    }
+}
@@ -0,0 +1,241 @@
+package com.ruoyi.petrol.engine.feature;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 滑动窗口分形维数剖面
+ * 每个窗口取window个连续采样点，窗口起点每次前移step个点，按盒计数法计算窗口内的分形维数
+ *
+ * 为了在窗口滑动时增量更新，与整段计算相比有两点不同：
+ * 数值按整条曲线的最小/最大值归一化（各窗口共用同一组纵向分层）；盒子的列按全局采样序号对齐，
+ * 而不是从窗口起点开始划分。每个盒子大小维护窗口内各盒子的点数，点移入时加一、移出时减一，
+ * 点数在0和1之间变化时更新被占据盒子数，窗口移动一次只需处理移出和移入的点
+ *
+ * 窗口序列按段划分到线程池并行计算，每段从头计数第一个窗口，之后逐窗口滑动
+ *
+ * @author ruoyi
+ */
+public class SlidingFractalDimension
+{
+    /** 窗口最少的采样点数（至少两个盒子大小才能拟合） */
+    public static final int MIN_WINDOW = 8;
+
+    private SlidingFractalDimension()
+    {
+    }
+
+    /**
+     * 窗口个数
+     */
+    public static int windowCount(int length, int window, int step)
+    {
+        return length < window ? 0 : (length - window) / step + 1;
+    }
+
+    /**
+     * 第index个窗口中心采样点的序号，窗口采样点数为偶数时取中间两点中靠后的一个
+     */
+    public static int centerOf(int index, int window, int step)
+    {
+        return index * step + window / 2;
+    }
+
+    /**
+     * 计算每个窗口的分形维数
+     *
+     * @param values 曲线值（不含缺失值），按深度顺序排列
+     * @param length 有效长度
+     * @param window 窗口采样点数
+     * @param step 窗口步长
+     * @param pool 计算线程池
+     * @return 各窗口的分形维数，第k个窗口覆盖[k*step, k*step+window)
+     */
+    public static double[] compute(double[] values, int length, int window, int step, ForkJoinPool pool)
+    {
+        if (window < MIN_WINDOW)
+        {
+            throw new IllegalArgumentException("窗口采样点数不能小于" + MIN_WINDOW + ": " + window);
+        }
+        if (step < 1)
+        {
+            throw new IllegalArgumentException("窗口步长必须为正数: " + step);
+        }
+        int windows = windowCount(length, window, step);
+        double[] dimensions = new double[windows];
+        if (windows == 0)
+        {
+            return dimensions;
+        }
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i++)
+        {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+        }
+        double range = max > min ? max - min : 1;
+        double[] normalized = new double[length];
+        for (int i = 0; i < length; i++)
+        {
+            normalized[i] = (values[i] - min) / range;
+        }
+
+        int[] sizes = FractalDimension.boxSizes(window / 4);
+        // 拟合的横坐标log(1/s)对所有窗口相同
+        double[] x = new double[sizes.length];
+        double meanX = 0;
+        for (int k = 0; k < sizes.length; k++)
+        {
+            x[k] = Math.log(1.0 / sizes[k]);
+            meanX += x[k];
+        }
+        meanX /= sizes.length;
+        double sxx = 0;
+        for (int k = 0; k < sizes.length; k++)
+        {
+            x[k] -= meanX;
+            sxx += x[k] * x[k];
+        }
+
+        // 每段至少跨过几个窗口长度，从头计数的开销才能被摊薄
+        int segments = Math.max(1, pool.getParallelism() * 4);
+        int perSegment = Math.max((windows + segments - 1) / segments, (4 * window + step - 1) / step);
+        List<RecursiveAction> tasks = new ArrayList<>();
+        for (int from = 0; from < windows; from += perSegment)
+        {
+            tasks.add(new SegmentTask(normalized, window, step, sizes, x, sxx, dimensions, from,
+                    Math.min(windows, from + perSegment)));
+        }
+        pool.invoke(new RecursiveAction()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+        return dimensions;
+    }
+
+    /**
+     * 一个盒子大小在窗口内的盒子点数
+     * 窗口最多跨window/s+2列，各列按列号取模放入环形数组，每列s+1层
+     */
+    private static class BoxCounter
+    {
+        private final double[] normalized;
+        private final int size;
+        private final int height;
+        private final int ring;
+        private final int[] counts;
+        private long occupied;
+
+        BoxCounter(double[] normalized, int size, int window)
+        {
+            this.normalized = normalized;
+            this.size = size;
+            this.height = size + 1;
+            this.ring = window / size + 2;
+            this.counts = new int[ring * height];
+        }
+
+        void add(int from, int to)
+        {
+            for (int i = from; i < to; i++)
+            {
+                if (counts[cell(i)]++ == 0)
+                {
+                    occupied++;
+                }
+            }
+        }
+
+        void remove(int from, int to)
+        {
+            for (int i = from; i < to; i++)
+            {
+                if (--counts[cell(i)] == 0)
+                {
+                    occupied--;
+                }
+            }
+        }
+
+        private int cell(int i)
+        {
+            return (i / size) % ring * height + (int) (normalized[i] * size);
+        }
+    }
+
+    /**
+     * 连续一段窗口
+     */
+    private static class SegmentTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] normalized;
+        private final int window;
+        private final int step;
+        private final int[] sizes;
+        private final double[] x;
+        private final double sxx;
+        private final double[] dimensions;
+        private final int from;
+        private final int to;
+
+        SegmentTask(double[] normalized, int window, int step, int[] sizes, double[] x, double sxx,
+                double[] dimensions, int from, int to)
+        {
+            this.normalized = normalized;
+            this.window = window;
+            this.step = step;
+            this.sizes = sizes;
+            this.x = x;
+            this.sxx = sxx;
+            this.dimensions = dimensions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            int windows = to - from;
+            // logCounts[k][w]：第k个盒子大小在第w个窗口的log N(s)
+            double[][] logCounts = new double[sizes.length][windows];
+            for (int k = 0; k < sizes.length; k++)
+            {
+                BoxCounter counter = new BoxCounter(normalized, sizes[k], window);
+                int start = from * step;
+                counter.add(start, start + window);
+                logCounts[k][0] = Math.log(counter.occupied);
+                for (int w = 1; w < windows; w++)
+                {
+                    int next = start + step;
+                    // 先移出旧窗口独有的点，再移入新窗口独有的点（步长大于窗口时两段不相交）
+                    counter.remove(start, Math.min(start + window, next));
+                    counter.add(Math.max(start + window, next), next + window);
+                    start = next;
+                    logCounts[k][w] = Math.log(counter.occupied);
+                }
+            }
+
+            for (int w = 0; w < windows; w++)
+            {
+                double sxy = 0;
+                for (int k = 0; k < sizes.length; k++)
+                {
+                    sxy += x[k] * logCounts[k][w];
+                }
+                dimensions[from + w] = Math.abs(sxy / sxx);
+            }
+        }
+    }
+}
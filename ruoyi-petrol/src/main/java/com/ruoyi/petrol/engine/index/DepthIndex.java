@@ -0,0 +1,426 @@
+package com.ruoyi.petrol.engine.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+
+/**
+ * 深度区间索引（.pidx）
+ * 深度值按升序排列并记录对应的行号；排序后的数组按块划分，
+ * 每块的最小/最大深度（区域图）常驻内存，查询时先在区域图上定位块，
+ * 再在块内二分，区间查询为O(log n + k)，只触及相关的块
+ *
+ * 文件布局（小端序）：
+ * <pre>
+ * 头部 48字节: magic "PIDX" | 版本 | 源文件大小 | 源文件修改时间 | 条目数 | 块大小 | 块数 | 深度列号 | 列名长度 | 保留
+ * 列名:        UTF-8，补齐到8字节
+ * 区域图:      块数×(最小深度, 最大深度)
+ * 深度:        条目数×double，升序
+ * 行号:        条目数×int，与深度一一对应
+ * </pre>
+ *
+ * @author ruoyi
+ */
+public class DepthIndex
+{
+    /** 索引文件扩展名 */
+    public static final String EXTENSION = ".pidx";
+
+    /** 每块条目数 */
+    public static final int BLOCK_SIZE = 4096;
+
+    /** 深度列名关键字，按优先级排列 */
+    private static final String[] EXACT_NAMES = { "DEPT", "DEPTH", "MD", "TVD", "深度" };
+    private static final String[] NAME_KEYWORDS = { "DEPTH", "DEPT", "深度" };
+
+    private static final int MAGIC = 0x58444950;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+
+    private final String column;
+    private final int columnIndex;
+    private final long sourceLength;
+    private final long sourceModified;
+    private final int count;
+    private final double[] blockMin;
+    private final double[] blockMax;
+    private final DoubleBuffer depths;
+    private final IntBuffer rows;
+
+    private DepthIndex(String column, int columnIndex, long sourceLength, long sourceModified, int count,
+                       double[] blockMin, double[] blockMax, DoubleBuffer depths, IntBuffer rows)
+    {
+        this.column = column;
+        this.columnIndex = columnIndex;
+        this.sourceLength = sourceLength;
+        this.sourceModified = sourceModified;
+        this.count = count;
+        this.blockMin = blockMin;
+        this.blockMax = blockMax;
+        this.depths = depths;
+        this.rows = rows;
+    }
+
+    /**
+     * 识别深度列：优先匹配DEPT/DEPTH/MD/TVD/深度等列名，其次是包含depth/深度的列名，只考虑数值列
+     *
+     * @return 列号，没有深度列时返回-1
+     */
+    public static int detectDepthColumn(ColumnarFile columnar)
+    {
+        List<String> names = columnar.getColumnNames();
+        for (String exact : EXACT_NAMES)
+        {
+            for (int c = 0; c < names.size(); c++)
+            {
+                if (columnar.isNumeric(c) && names.get(c).trim().equalsIgnoreCase(exact))
+                {
+                    return c;
+                }
+            }
+        }
+        for (String keyword : NAME_KEYWORDS)
+        {
+            for (int c = 0; c < names.size(); c++)
+            {
+                if (columnar.isNumeric(c) && names.get(c).toUpperCase(Locale.ROOT).contains(keyword))
+                {
+                    return c;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 为指定列生成索引文件，缺失深度的行不进入索引
+     *
+     * @param source 源数据文件，用于记录版本
+     * @param columnar 源文件的列式缓存
+     * @param column 深度列号
+     * @param target 索引文件
+     */
+    public static void build(File source, ColumnarFile columnar, int column, File target) throws IOException
+    {
+        int rowCount = columnar.getRowCount();
+        double[] values = new double[rowCount];
+        int[] order = new int[rowCount];
+        int n = 0;
+        boolean ascending = true;
+        boolean descending = true;
+        for (int r = 0; r < rowCount; r++)
+        {
+            double depth = columnar.getDouble(column, r);
+            if (Double.isNaN(depth))
+            {
+                continue;
+            }
+            if (n > 0)
+            {
+                ascending &= depth >= values[n - 1];
+                descending &= depth <= values[n - 1];
+            }
+            values[n] = depth;
+            order[n] = r;
+            n++;
+        }
+        values = Arrays.copyOf(values, n);
+        order = Arrays.copyOf(order, n);
+
+        // 测井数据通常已按深度单调排列，只有乱序时才需要排序
+        if (!ascending && descending)
+        {
+            reverse(values, order);
+        }
+        else if (!ascending)
+        {
+            sortByDepth(values, order);
+        }
+
+        int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        byte[] name = columnar.getColumnNames().get(column).getBytes(StandardCharsets.UTF_8);
+        int namePadded = (name.length + 7) & ~7;
+
+        File temp = new File(target.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE + namePadded + blocks * 16).order(ByteOrder.LITTLE_ENDIAN);
+            head.putInt(MAGIC).putInt(VERSION).putLong(source.length()).putLong(source.lastModified())
+                    .putInt(n).putInt(BLOCK_SIZE).putInt(blocks).putInt(column).putInt(name.length).putInt(0);
+            head.put(name);
+            head.position(HEADER_SIZE + namePadded);
+            for (int b = 0; b < blocks; b++)
+            {
+                head.putDouble(values[b * BLOCK_SIZE]);
+                head.putDouble(values[Math.min(n, (b + 1) * BLOCK_SIZE) - 1]);
+            }
+            head.flip();
+            writeFully(channel, head);
+
+            ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE * 8).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < n; i++)
+            {
+                if (!buffer.hasRemaining())
+                {
+                    buffer.flip();
+                    writeFully(channel, buffer);
+                    buffer.clear();
+                }
+                buffer.putDouble(values[i]);
+            }
+            for (int i = 0; i < n; i++)
+            {
+                if (!buffer.hasRemaining())
+                {
+                    buffer.flip();
+                    writeFully(channel, buffer);
+                    buffer.clear();
+                }
+                buffer.putInt(order[i]);
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 打开索引文件：区域图读入内存，深度和行号内存映射
+     */
+    public static DepthIndex open(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.size() < HEADER_SIZE || mapped.getInt() != MAGIC || mapped.getInt() != VERSION)
+            {
+                throw new IOException("深度索引文件格式不正确: " + file.getName());
+            }
+            long sourceLength = mapped.getLong();
+            long sourceModified = mapped.getLong();
+            int count = mapped.getInt();
+            mapped.getInt();
+            int blocks = mapped.getInt();
+            int columnIndex = mapped.getInt();
+            byte[] name = new byte[mapped.getInt()];
+            mapped.getInt();
+            mapped.get(name);
+            mapped.position(HEADER_SIZE + ((name.length + 7) & ~7));
+
+            double[] blockMin = new double[blocks];
+            double[] blockMax = new double[blocks];
+            for (int b = 0; b < blocks; b++)
+            {
+                blockMin[b] = mapped.getDouble();
+                blockMax[b] = mapped.getDouble();
+            }
+            int depthOffset = mapped.position();
+            int rowOffset = depthOffset + count * 8;
+            if (rowOffset + (long) count * 4 > channel.size())
+            {
+                throw new IOException("深度索引文件不完整: " + file.getName());
+            }
+            mapped.position(depthOffset).limit(rowOffset);
+            DoubleBuffer depths = mapped.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            mapped.limit(rowOffset + count * 4).position(rowOffset);
+            IntBuffer rows = mapped.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            return new DepthIndex(new String(name, StandardCharsets.UTF_8), columnIndex, sourceLength,
+                    sourceModified, count, blockMin, blockMax, depths, rows);
+        }
+    }
+
+    /**
+     * 是否由当前版本的源文件生成
+     */
+    public boolean matches(File source)
+    {
+        return source.length() == sourceLength && source.lastModified() == sourceModified;
+    }
+
+    public String getColumn()
+    {
+        return column;
+    }
+
+    public int getColumnIndex()
+    {
+        return columnIndex;
+    }
+
+    /**
+     * 有深度值的行数
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    public double getMinDepth()
+    {
+        return count == 0 ? Double.NaN : blockMin[0];
+    }
+
+    public double getMaxDepth()
+    {
+        return count == 0 ? Double.NaN : blockMax[blockMax.length - 1];
+    }
+
+    /**
+     * 查询深度区间内的行号，按深度升序
+     *
+     * @param minDepth 最小深度（含），null表示不限
+     * @param maxDepth 最大深度（含），null表示不限
+     * @param limit 最多返回的行数
+     */
+    public int[] rowsInRange(Double minDepth, Double maxDepth, int limit)
+    {
+        int from = minDepth == null ? 0 : lowerBound(minDepth, false);
+        int to = maxDepth == null ? count : lowerBound(maxDepth, true);
+        int size = Math.max(0, Math.min(to - from, limit));
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            result[i] = rows.get(from + i);
+        }
+        return result;
+    }
+
+    /**
+     * 深度区间内的行数，不读取行号
+     *
+     * @param minDepth 最小深度（含），null表示不限
+     * @param maxDepth 最大深度（含），null表示不限
+     */
+    public int countInRange(Double minDepth, Double maxDepth)
+    {
+        int from = minDepth == null ? 0 : lowerBound(minDepth, false);
+        int to = maxDepth == null ? count : lowerBound(maxDepth, true);
+        return Math.max(0, to - from);
+    }
+
+    /**
+     * 第一个深度不小于（inclusive为true时大于）指定值的位置
+     */
+    private int lowerBound(double depth, boolean inclusive)
+    {
+        // 在区域图上找到第一个可能包含目标的块
+        int lo = 0;
+        int hi = blockMax.length;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (inclusive ? blockMax[mid] <= depth : blockMax[mid] < depth)
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        if (lo == blockMax.length)
+        {
+            return count;
+        }
+
+        // 块内二分
+        int from = lo * BLOCK_SIZE;
+        int to = Math.min(count, from + BLOCK_SIZE);
+        while (from < to)
+        {
+            int mid = (from + to) >>> 1;
+            double value = depths.get(mid);
+            if (inclusive ? value <= depth : value < depth)
+            {
+                from = mid + 1;
+            }
+            else
+            {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    private static void reverse(double[] values, int[] order)
+    {
+        for (int i = 0, j = values.length - 1; i < j; i++, j--)
+        {
+            double v = values[i];
+            values[i] = values[j];
+            values[j] = v;
+            int o = order[i];
+            order[i] = order[j];
+            order[j] = o;
+        }
+    }
+
+    /**
+     * 按深度稳定排序（归并排序），深度相同时保持原行序
+     */
+    private static void sortByDepth(double[] values, int[] order)
+    {
+        int n = values.length;
+        double[] valueBuffer = new double[n];
+        int[] orderBuffer = new int[n];
+        for (int width = 1; width < n; width <<= 1)
+        {
+            for (int left = 0; left < n - width; left += width << 1)
+            {
+                int mid = left + width;
+                int right = Math.min(n, mid + width);
+                int i = left;
+                int j = mid;
+                int k = left;
+                while (i < mid && j < right)
+                {
+                    if (values[j] < values[i])
+                    {
+                        valueBuffer[k] = values[j];
+                        orderBuffer[k++] = order[j++];
+                    }
+                    else
+                    {
+                        valueBuffer[k] = values[i];
+                        orderBuffer[k++] = order[i++];
+                    }
+                }
+                while (i < mid)
+                {
+                    valueBuffer[k] = values[i];
+                    orderBuffer[k++] = order[i++];
+                }
+                while (j < right)
+                {
+                    valueBuffer[k] = values[j];
+                    orderBuffer[k++] = order[j++];
+                }
+                System.arraycopy(valueBuffer, left, values, left, right - left);
+                System.arraycopy(orderBuffer, left, order, left, right - left);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+}
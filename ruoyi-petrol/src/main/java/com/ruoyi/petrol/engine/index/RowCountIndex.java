@@ -0,0 +1,200 @@
+package com.ruoyi.petrol.engine.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+import com.ruoyi.petrol.engine.io.CsvStreamReader;
+import com.ruoyi.petrol.engine.io.EncodingSniffer;
+import com.ruoyi.petrol.engine.io.RowHandler;
+
+/**
+ * 数据文件行数索引
+ * 已有列式缓存时精确行数取自列式缓存；CSV文件没有列式缓存时按与解析器相同的规则
+ * （引号内换行、空行跳过）扫描一遍得到精确行数，不需要先生成列式缓存
+ *
+ * 首次访问的大文件可以先按采样块中的换行密度估算行数，精确计数完成后再替换
+ *
+ * @author ruoyi
+ */
+public class RowCountIndex
+{
+    /** 估算时的采样块数 */
+    private static final int SAMPLE_COUNT = 16;
+
+    /** 估算时每个采样块的大小 */
+    private static final int SAMPLE_SIZE = 64 * 1024;
+
+    private final long sourceLength;
+    private final long sourceModified;
+    private final long rowCount;
+    private final boolean exact;
+
+    private RowCountIndex(long sourceLength, long sourceModified, long rowCount, boolean exact)
+    {
+        this.sourceLength = sourceLength;
+        this.sourceModified = sourceModified;
+        this.rowCount = rowCount;
+        this.exact = exact;
+    }
+
+    /**
+     * 是否可以直接扫描源文件计数（CSV文件）
+     */
+    public static boolean isScannable(File source)
+    {
+        return source.getName().toLowerCase().endsWith(".csv");
+    }
+
+    /**
+     * 扫描CSV文件，得到精确行数
+     */
+    public static RowCountIndex build(File source) throws IOException
+    {
+        long length = source.length();
+        long modified = source.lastModified();
+        byte[] head = EncodingSniffer.readHead(source, EncodingSniffer.SNIFF_LENGTH);
+        CsvStreamReader reader = new CsvStreamReader(CsvStreamReader.detectDelimiter(head), EncodingSniffer.detect(head),
+                new SkipAllHandler());
+        reader.readFile(source);
+        return new RowCountIndex(length, modified, Math.max(reader.getRowCount() - 1, 0), true);
+    }
+
+    /**
+     * 按列式缓存的行数生成精确计数
+     */
+    public static RowCountIndex of(File source, ColumnarFile columnar)
+    {
+        return new RowCountIndex(source.length(), source.lastModified(), columnar.getRowCount(), true);
+    }
+
+    /**
+     * 按均匀分布的采样块中的换行密度估算文本文件行数，只读取少量数据
+     *
+     * @return 估算结果，非文本格式无法估算时返回null
+     */
+    public static RowCountIndex estimate(File source) throws IOException
+    {
+        String name = source.getName().toLowerCase();
+        if (!name.endsWith(".csv") && !name.endsWith(".las"))
+        {
+            return null;
+        }
+        long length = source.length();
+        long sampled = 0;
+        long lines = 0;
+        boolean endsWithNewline = false;
+        try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(SAMPLE_SIZE);
+            int samples = length <= (long) SAMPLE_COUNT * SAMPLE_SIZE ? 1 : SAMPLE_COUNT;
+            long stride = samples == 1 ? 0 : (length - SAMPLE_SIZE) / (samples - 1);
+            for (int s = 0; s < samples; s++)
+            {
+                long position = s * stride;
+                long end = samples == 1 ? length : position + SAMPLE_SIZE;
+                while (position < end)
+                {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(SAMPLE_SIZE, end - position));
+                    int n = channel.read(buffer, position);
+                    if (n <= 0)
+                    {
+                        break;
+                    }
+                    lines += countLines(buffer.array(), n);
+                    byte last = buffer.array()[n - 1];
+                    endsWithNewline = last == '\n' || last == '\r';
+                    sampled += n;
+                    position += n;
+                }
+            }
+        }
+        long count = 0;
+        if (sampled > 0 && lines > 0)
+        {
+            // 整个文件都已读取时补上没有换行结尾的最后一行；扣除标题行
+            long total = sampled < length ? Math.round((double) lines * length / sampled)
+                    : endsWithNewline ? lines : lines + 1;
+            count = Math.max(total - 1, 0);
+        }
+        return new RowCountIndex(length, source.lastModified(), count, false);
+    }
+
+    /**
+     * 是否由当前版本的源文件生成
+     */
+    public boolean matches(File source)
+    {
+        return source.length() == sourceLength && source.lastModified() == sourceModified;
+    }
+
+    /**
+     * 数据行数（不含标题行）
+     */
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    /**
+     * 是否为精确计数
+     */
+    public boolean isExact()
+    {
+        return exact;
+    }
+
+    private static int countLines(byte[] bytes, int length)
+    {
+        int newlines = 0;
+        int returns = 0;
+        for (int i = 0; i < length; i++)
+        {
+            if (bytes[i] == '\n')
+            {
+                newlines++;
+            }
+            else if (bytes[i] == '\r')
+            {
+                returns++;
+            }
+        }
+        // 只用\r换行的旧式文件
+        return newlines > 0 ? newlines : returns;
+    }
+
+    /**
+     * 只计数、不保留单元格内容
+     */
+    private static class SkipAllHandler implements RowHandler
+    {
+        @Override
+        public void startRow(int rowIndex)
+        {
+        }
+
+        @Override
+        public void numberCell(int columnIndex, double value)
+        {
+        }
+
+        @Override
+        public void textCell(int columnIndex, String value)
+        {
+        }
+
+        @Override
+        public void otherCell(int columnIndex, String value)
+        {
+        }
+
+        @Override
+        public boolean endRow(int rowIndex)
+        {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.ruoyi.petrol.engine.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 列式数据缓存文件（.pcol）读取器
+ *
+ * 文件布局（小端序）：
+ * <pre>
+ * 头部 40字节: magic "PCOL" | 版本 | 行数 | 列数 | 保留 | 源文件大小 | 源文件修改时间
+ * 列数据块:    每列一个块，8字节对齐
+ *              FLOAT64 - 行数×double，缺失值为NaN
+ *              INT64   - 行数×long，缺失值为Long.MIN_VALUE
+ *              DICT    - 行数×int字典编码，缺失值为-1
+ * 字典区:      DICT列的字典，条目数 + (长度 + UTF-8字节)×条目数
+ * 尾部索引:    每列 类型 | 列名 | 块偏移 | 块长度 | 缺失数 | 字典偏移 | 字典长度
+ * 结尾 12字节: 尾部索引偏移 | magic "PCOL"
+ * </pre>
+ *
+ * 各列数据块单独内存映射，只读，多个读取方共享操作系统页缓存
+ *
+ * @author ruoyi
+ */
+public class ColumnarFile
+{
+    public static final byte FLOAT64 = 1;
+    public static final byte INT64 = 2;
+    public static final byte DICT = 3;
+
+    /** 缓存文件扩展名 */
+    public static final String EXTENSION = ".pcol";
+
+    static final int MAGIC = 0x4C4F4350;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 40;
+    static final int TRAILER_SIZE = 12;
+    static final long NULL_LONG = Long.MIN_VALUE;
+
+    private final File file;
+    private final int rowCount;
+    private final long sourceLength;
+    private final long sourceModified;
+    private final String[] names;
+    private final byte[] types;
+    private final long[] nullCounts;
+    private final ByteBuffer[] blocks;
+    private final String[][] dictionaries;
+
+    private ColumnarFile(File file, int rowCount, long sourceLength, long sourceModified, int columnCount)
+    {
+        this.file = file;
+        this.rowCount = rowCount;
+        this.sourceLength = sourceLength;
+        this.sourceModified = sourceModified;
+        this.names = new String[columnCount];
+        this.types = new byte[columnCount];
+        this.nullCounts = new long[columnCount];
+        this.blocks = new ByteBuffer[columnCount];
+        this.dictionaries = new String[columnCount][];
+    }
+
+    /**
+     * 打开缓存文件：读取头部和尾部索引，映射各列数据块
+     */
+    public static ColumnarFile open(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE)
+            {
+                throw new IOException("列式缓存文件已损坏: " + file.getName());
+            }
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+            {
+                throw new IOException("列式缓存文件格式不正确: " + file.getName());
+            }
+            long rows = header.getLong();
+            int columnCount = header.getInt();
+            header.getInt();
+            long sourceLength = header.getLong();
+            long sourceModified = header.getLong();
+
+            ByteBuffer trailer = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            long footerOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC || footerOffset < HEADER_SIZE || footerOffset > size - TRAILER_SIZE)
+            {
+                throw new IOException("列式缓存文件不完整: " + file.getName());
+            }
+
+            ColumnarFile columnar = new ColumnarFile(file, (int) rows, sourceLength, sourceModified, columnCount);
+            ByteBuffer footer = readFully(channel, footerOffset, (int) (size - TRAILER_SIZE - footerOffset));
+            for (int c = 0; c < columnCount; c++)
+            {
+                columnar.types[c] = footer.get();
+                byte[] name = new byte[footer.getInt()];
+                footer.get(name);
+                columnar.names[c] = new String(name, StandardCharsets.UTF_8);
+                long offset = footer.getLong();
+                long length = footer.getLong();
+                columnar.nullCounts[c] = footer.getLong();
+                long dictOffset = footer.getLong();
+                long dictLength = footer.getLong();
+
+                columnar.blocks[c] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                if (columnar.types[c] == DICT)
+                {
+                    columnar.dictionaries[c] = readDictionary(readFully(channel, dictOffset, (int) dictLength));
+                }
+            }
+            return columnar;
+        }
+    }
+
+    /**
+     * 缓存是否由当前版本的源文件生成
+     */
+    public boolean matches(File source)
+    {
+        return source.length() == sourceLength && source.lastModified() == sourceModified;
+    }
+
+    public File getFile()
+    {
+        return file;
+    }
+
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    public int getColumnCount()
+    {
+        return names.length;
+    }
+
+    public List<String> getColumnNames()
+    {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * 按列名查找列号
+     *
+     * @return 列号，不存在时返回-1
+     */
+    public int getColumnIndex(String name)
+    {
+        for (int c = 0; c < names.length; c++)
+        {
+            if (names[c].equals(name))
+            {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    public byte getType(int column)
+    {
+        return types[column];
+    }
+
+    public boolean isNumeric(int column)
+    {
+        return types[column] != DICT;
+    }
+
+    public long getNullCount(int column)
+    {
+        return nullCounts[column];
+    }
+
+    /**
+     * 读取数值，缺失值或非数值文本返回NaN
+     */
+    public double getDouble(int column, int row)
+    {
+        ByteBuffer block = blocks[column];
+        switch (types[column])
+        {
+            case FLOAT64:
+                return block.getDouble(row << 3);
+            case INT64:
+                long value = block.getLong(row << 3);
+                return value == NULL_LONG ? Double.NaN : value;
+            default:
+                int code = block.getInt(row << 2);
+                if (code < 0)
+                {
+                    return Double.NaN;
+                }
+                try
+                {
+                    return Double.parseDouble(dictionaries[column][code]);
+                }
+                catch (NumberFormatException e)
+                {
+                    return Double.NaN;
+                }
+        }
+    }
+
+    /**
+     * 读取INT64列的原始值，缺失值为Long.MIN_VALUE
+     */
+    public long getLong(int column, int row)
+    {
+        return blocks[column].getLong(row << 3);
+    }
+
+    /**
+     * 读取DICT列的字典编码，缺失值为-1
+     */
+    public int getCode(int column, int row)
+    {
+        return blocks[column].getInt(row << 2);
+    }
+
+    /**
+     * DICT列的字典，调用方不得修改
+     */
+    public String[] getDictionary(int column)
+    {
+        return dictionaries[column];
+    }
+
+    /**
+     * 是否为缺失值
+     */
+    public boolean isNull(int column, int row)
+    {
+        switch (types[column])
+        {
+            case FLOAT64:
+                return Double.isNaN(blocks[column].getDouble(row << 3));
+            case INT64:
+                return blocks[column].getLong(row << 3) == NULL_LONG;
+            default:
+                return blocks[column].getInt(row << 2) < 0;
+        }
+    }
+
+    /**
+     * 批量读取数值列的一段
+     *
+     * @param column 列号
+     * @param from 起始行（含）
+     * @param to 结束行（不含）
+     * @param dest 目标数组
+     * @param destOffset 目标数组起始位置
+     */
+    public void readDoubles(int column, int from, int to, double[] dest, int destOffset)
+    {
+        if (types[column] == FLOAT64)
+        {
+            ByteBuffer block = blocks[column].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            block.position(from << 3);
+            block.asDoubleBuffer().get(dest, destOffset, to - from);
+            return;
+        }
+        for (int r = from; r < to; r++)
+        {
+            dest[destOffset++] = getDouble(column, r);
+        }
+    }
+
+    /**
+     * 读取单元格值：数值列返回Double，文本列中可解析为数字的返回Double，否则返回String，缺失返回null
+     */
+    public Object getValue(int column, int row)
+    {
+        if (types[column] != DICT)
+        {
+            double value = getDouble(column, row);
+            return Double.isNaN(value) ? null : value;
+        }
+        String text = getText(column, row);
+        if (text == null)
+        {
+            return null;
+        }
+        try
+        {
+            return Double.parseDouble(text);
+        }
+        catch (NumberFormatException e)
+        {
+            return text;
+        }
+    }
+
+    /**
+     * 读取文本列的原始字符串，缺失返回null
+     */
+    public String getText(int column, int row)
+    {
+        if (types[column] != DICT)
+        {
+            double value = getDouble(column, row);
+            return Double.isNaN(value) ? null : String.valueOf(value);
+        }
+        int code = blocks[column].getInt(row << 2);
+        return code < 0 ? null : dictionaries[column][code];
+    }
+
+    /**
+     * 按行回放：第0行为列名，之后最多maxRows个数据行，缺失值不回调
+     */
+    public void emit(RowHandler handler, int maxRows)
+    {
+        handler.startRow(0);
+        for (int c = 0; c < names.length; c++)
+        {
+            handler.textCell(c, names[c]);
+        }
+        if (!handler.endRow(0))
+        {
+            return;
+        }
+        int rows = Math.min(rowCount, maxRows);
+        for (int r = 0; r < rows; r++)
+        {
+            handler.startRow(r + 1);
+            for (int c = 0; c < names.length; c++)
+            {
+                if (types[c] == DICT)
+                {
+                    int code = blocks[c].getInt(r << 2);
+                    if (code >= 0)
+                    {
+                        handler.textCell(c, dictionaries[c][code]);
+                    }
+                }
+                else
+                {
+                    double value = getDouble(c, r);
+                    if (!Double.isNaN(value))
+                    {
+                        handler.numberCell(c, value);
+                    }
+                }
+            }
+            if (!handler.endRow(r + 1))
+            {
+                return;
+            }
+        }
+    }
+
+    private static String[] readDictionary(ByteBuffer buffer)
+    {
+        String[] values = new String[buffer.getInt()];
+        for (int i = 0; i < values.length; i++)
+        {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new IOException("列式缓存文件意外结束");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,455 @@
+package com.ruoyi.petrol.engine.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列式数据缓存文件（.pcol）写入器
+ * 作为RowHandler挂在任意表格读取器上，读取过程中按行写入临时溢出文件，
+ * finish时根据各列实际出现的值确定列类型（FLOAT64/INT64/DICT），
+ * 再顺序读取一遍溢出文件，按列块写入最终文件，文件格式见{@link ColumnarFile}
+ *
+ * @author ruoyi
+ */
+public class ColumnarWriter implements RowHandler, Closeable
+{
+    private static final byte TAG_MISSING = 0;
+    private static final byte TAG_NUMBER = 1;
+    private static final byte TAG_TEXT = 2;
+
+    /** 整数列允许的最大绝对值（超过后double无法精确表示） */
+    private static final double MAX_EXACT_INTEGER = 9007199254740992.0;
+
+    /** 所有列写缓冲区的总大小 */
+    private static final int TOTAL_BUFFER_SIZE = 8 << 20;
+
+    private final File target;
+    private final File temp;
+    private final File spill;
+    private long sourceLength;
+    private long sourceModified;
+    private final DataOutputStream spillOut;
+
+    private final List<String> headers = new ArrayList<>();
+    private int width = -1;
+    private int rowCount;
+    private boolean headerRow;
+    private boolean finished;
+
+    private byte[] rowTags;
+    private double[] rowNumbers;
+    private int[] rowCodes;
+
+    private List<Map<String, Integer>> dictionaries;
+    private List<List<String>> dictionaryValues;
+    private boolean[] hasText;
+    private boolean[] nonIntegral;
+
+    /**
+     * @param source 源数据文件（记录其大小和修改时间用于判断缓存是否过期）
+     * @param target 缓存文件
+     */
+    public ColumnarWriter(File source, File target) throws IOException
+    {
+        this.target = target;
+        this.temp = new File(target.getPath() + ".tmp");
+        this.spill = new File(target.getPath() + ".spill");
+        this.sourceLength = source.length();
+        this.sourceModified = source.lastModified();
+        this.spillOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spill), 1 << 16));
+    }
+
+    @Override
+    public void startRow(int rowIndex)
+    {
+        headerRow = rowIndex == 0;
+        if (headerRow)
+        {
+            return;
+        }
+        if (width < 0)
+        {
+            initColumns();
+        }
+        // 读取器跳过的空行按全缺失行补齐，保证行号与源文件一致
+        while (rowCount < rowIndex - 1)
+        {
+            writeRow();
+        }
+    }
+
+    @Override
+    public void numberCell(int columnIndex, double value)
+    {
+        if (headerRow)
+        {
+            setHeader(columnIndex, formatNumber(value));
+            return;
+        }
+        if (columnIndex >= width)
+        {
+            return;
+        }
+        rowTags[columnIndex] = TAG_NUMBER;
+        rowNumbers[columnIndex] = value;
+        if (value != Math.rint(value) || Math.abs(value) >= MAX_EXACT_INTEGER)
+        {
+            nonIntegral[columnIndex] = true;
+        }
+    }
+
+    @Override
+    public void textCell(int columnIndex, String value)
+    {
+        if (headerRow)
+        {
+            setHeader(columnIndex, value);
+            return;
+        }
+        if (columnIndex >= width)
+        {
+            return;
+        }
+        rowTags[columnIndex] = TAG_TEXT;
+        rowCodes[columnIndex] = code(columnIndex, value);
+        hasText[columnIndex] = true;
+    }
+
+    @Override
+    public void otherCell(int columnIndex, String value)
+    {
+        textCell(columnIndex, value);
+    }
+
+    @Override
+    public boolean endRow(int rowIndex)
+    {
+        if (headerRow)
+        {
+            initColumns();
+        }
+        else
+        {
+            writeRow();
+        }
+        return true;
+    }
+
+    /**
+     * 生成最终缓存文件，并按源文件当前状态记录版本
+     * 用于源文件在解析过程中仍在写入的场景（如分片上传边收边解析）
+     */
+    public void finish(File source) throws IOException
+    {
+        sourceLength = source.length();
+        sourceModified = source.lastModified();
+        finish();
+    }
+
+    /**
+     * 生成最终缓存文件（先写临时文件，完成后原子替换）
+     */
+    public void finish() throws IOException
+    {
+        if (width < 0)
+        {
+            initColumns();
+        }
+        spillOut.close();
+
+        byte[] types = new byte[width];
+        long[] offsets = new long[width];
+        long[] lengths = new long[width];
+        long position = ColumnarFile.HEADER_SIZE;
+        for (int c = 0; c < width; c++)
+        {
+            types[c] = hasText[c] ? ColumnarFile.DICT : nonIntegral[c] ? ColumnarFile.FLOAT64 : ColumnarFile.INT64;
+            offsets[c] = position;
+            lengths[c] = (long) rowCount * (types[c] == ColumnarFile.DICT ? 4 : 8);
+            position = align(position + lengths[c]);
+        }
+
+        long[] nullCounts = new long[width];
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            writeBlocks(channel, types, offsets, nullCounts);
+
+            // 字典区
+            long[] dictOffsets = new long[width];
+            long[] dictLengths = new long[width];
+            for (int c = 0; c < width; c++)
+            {
+                if (types[c] != ColumnarFile.DICT)
+                {
+                    continue;
+                }
+                ByteBuffer dict = encodeDictionary(dictionaryValues.get(c));
+                dictOffsets[c] = position;
+                dictLengths[c] = dict.remaining();
+                position += writeFully(channel, dict, position);
+            }
+
+            // 尾部索引
+            long footerOffset = position;
+            ByteBuffer footer = encodeFooter(types, offsets, lengths, nullCounts, dictOffsets, dictLengths);
+            position += writeFully(channel, footer, position);
+            ByteBuffer trailer = ByteBuffer.allocate(ColumnarFile.TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putLong(footerOffset).putInt(ColumnarFile.MAGIC).flip();
+            writeFully(channel, trailer, position);
+
+            // 头部最后写入，头部完整即代表文件完整
+            ByteBuffer header = ByteBuffer.allocate(ColumnarFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(ColumnarFile.MAGIC).putInt(ColumnarFile.VERSION).putLong(rowCount).putInt(width).putInt(0)
+                    .putLong(sourceLength).putLong(sourceModified).flip();
+            writeFully(channel, header, 0);
+            channel.force(true);
+        }
+
+        try
+        {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        finished = true;
+        spill.delete();
+    }
+
+    /**
+     * 数据行数（不含标题行）
+     */
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        spillOut.close();
+        spill.delete();
+        if (!finished)
+        {
+            temp.delete();
+        }
+    }
+
+    /**
+     * 顺序读取溢出文件，每列一个写缓冲区，写满后按该列当前位置落盘
+     */
+    private void writeBlocks(FileChannel channel, byte[] types, long[] offsets, long[] nullCounts) throws IOException
+    {
+        int bufferSize = Math.max(4096, Math.min(1 << 16, TOTAL_BUFFER_SIZE / Math.max(width, 1)));
+        bufferSize &= ~7;
+        ByteBuffer[] buffers = new ByteBuffer[width];
+        long[] positions = offsets.clone();
+        for (int c = 0; c < width; c++)
+        {
+            buffers[c] = ByteBuffer.allocate(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spill), 1 << 16)))
+        {
+            for (int r = 0; r < rowCount; r++)
+            {
+                for (int c = 0; c < width; c++)
+                {
+                    byte tag = in.readByte();
+                    double number = tag == TAG_NUMBER ? in.readDouble() : Double.NaN;
+                    int code = tag == TAG_TEXT ? in.readInt() : -1;
+                    if (tag == TAG_MISSING)
+                    {
+                        nullCounts[c]++;
+                    }
+
+                    ByteBuffer buffer = buffers[c];
+                    if (buffer.remaining() < 8)
+                    {
+                        buffer.flip();
+                        positions[c] += writeFully(channel, buffer, positions[c]);
+                        buffer.clear();
+                    }
+                    switch (types[c])
+                    {
+                        case ColumnarFile.FLOAT64:
+                            buffer.putDouble(number);
+                            break;
+                        case ColumnarFile.INT64:
+                            buffer.putLong(tag == TAG_NUMBER ? (long) number : ColumnarFile.NULL_LONG);
+                            break;
+                        default:
+                            // 文本列中的数值按文本加入字典
+                            buffer.putInt(tag == TAG_NUMBER ? code(c, formatNumber(number)) : code);
+                            break;
+                    }
+                }
+            }
+        }
+        for (int c = 0; c < width; c++)
+        {
+            buffers[c].flip();
+            writeFully(channel, buffers[c], positions[c]);
+        }
+    }
+
+    private void writeRow()
+    {
+        try
+        {
+            for (int c = 0; c < width; c++)
+            {
+                byte tag = rowTags[c];
+                spillOut.writeByte(tag);
+                if (tag == TAG_NUMBER)
+                {
+                    spillOut.writeDouble(rowNumbers[c]);
+                }
+                else if (tag == TAG_TEXT)
+                {
+                    spillOut.writeInt(rowCodes[c]);
+                }
+                rowTags[c] = TAG_MISSING;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("写入列式缓存溢出文件失败: " + e.getMessage(), e);
+        }
+        rowCount++;
+    }
+
+    private void initColumns()
+    {
+        if (width >= 0)
+        {
+            return;
+        }
+        width = headers.size();
+        rowTags = new byte[width];
+        rowNumbers = new double[width];
+        rowCodes = new int[width];
+        hasText = new boolean[width];
+        nonIntegral = new boolean[width];
+        dictionaries = new ArrayList<>(width);
+        dictionaryValues = new ArrayList<>(width);
+        for (int c = 0; c < width; c++)
+        {
+            dictionaries.add(new HashMap<>());
+            dictionaryValues.add(new ArrayList<>());
+            if (headers.get(c) == null)
+            {
+                headers.set(c, "Column_" + (c + 1));
+            }
+        }
+    }
+
+    private void setHeader(int columnIndex, String name)
+    {
+        while (headers.size() <= columnIndex)
+        {
+            headers.add(null);
+        }
+        headers.set(columnIndex, name);
+    }
+
+    private int code(int column, String value)
+    {
+        Map<String, Integer> dictionary = dictionaries.get(column);
+        Integer code = dictionary.get(value);
+        if (code == null)
+        {
+            code = dictionary.size();
+            dictionary.put(value, code);
+            dictionaryValues.get(column).add(value);
+        }
+        return code;
+    }
+
+    private static String formatNumber(double value)
+    {
+        if (value == Math.rint(value) && Math.abs(value) < MAX_EXACT_INTEGER)
+        {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(value);
+    }
+
+    private ByteBuffer encodeDictionary(List<String> values)
+    {
+        List<byte[]> encoded = new ArrayList<>(values.size());
+        int size = 4;
+        for (String value : values)
+        {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            size += 4 + bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(encoded.size());
+        for (byte[] bytes : encoded)
+        {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private ByteBuffer encodeFooter(byte[] types, long[] offsets, long[] lengths, long[] nullCounts,
+                                    long[] dictOffsets, long[] dictLengths)
+    {
+        List<byte[]> names = new ArrayList<>(width);
+        int size = 0;
+        for (int c = 0; c < width; c++)
+        {
+            byte[] name = headers.get(c).getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            size += 1 + 4 + name.length + 8 * 5;
+        }
+        ByteBuffer footer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        for (int c = 0; c < width; c++)
+        {
+            footer.put(types[c]).putInt(names.get(c).length).put(names.get(c));
+            footer.putLong(offsets[c]).putLong(lengths[c]).putLong(nullCounts[c]);
+            footer.putLong(dictOffsets[c]).putLong(dictLengths[c]);
+        }
+        footer.flip();
+        return footer;
+    }
+
+    private static long align(long position)
+    {
+        return (position + 7) & ~7L;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+    {
+        int written = 0;
+        while (buffer.hasRemaining())
+        {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+}
@@ -0,0 +1,391 @@
+package com.ruoyi.petrol.engine.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * CSV流式解析器（RFC 4180）
+ * 直接在字节上解析：支持引号字段、字段内换行、双引号转义、任意单字节分隔符，
+ * 数值字段（无论是否加引号）直接从字节解析为double，不为每个单元格创建String
+ *
+ * 解析器是推送式的，可以通过feed分块喂入数据（如分片上传按序到达时边收边解析），
+ * 也可以通过read按大块从FileChannel读取整个文件
+ *
+ * @author ruoyi
+ */
+public class CsvStreamReader
+{
+    /** 每次从文件读取的块大小 */
+    public static final int BLOCK_SIZE = 1 << 20;
+
+    /** 自动识别时的候选分隔符 */
+    private static final byte[] DELIMITER_CANDIDATES = { ',', '\t', ';', '|' };
+
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+
+    private final byte delimiter;
+    private final Charset charset;
+    private final boolean doubleByte;
+    private final RowHandler handler;
+
+    private byte[] field = new byte[256];
+    private int fieldLength;
+    private boolean fieldQuoted;
+    private boolean pendingTrail;
+    private boolean afterCarriageReturn;
+    private int state = FIELD_START;
+    private int columnIndex;
+    private int rowIndex;
+    private boolean stopped;
+    private int bomPosition;
+    /** 已喂入的字节数 */
+    private long position;
+    /** 当前记录第一个字节在输入中的位置 */
+    private long recordStart;
+
+    /**
+     * @param delimiter 分隔符
+     * @param charset 文件编码
+     * @param handler 行处理器
+     */
+    public CsvStreamReader(char delimiter, Charset charset, RowHandler handler)
+    {
+        this.delimiter = (byte) delimiter;
+        this.charset = charset;
+        this.doubleByte = !StandardCharsets.UTF_8.equals(charset) && charset.newEncoder().maxBytesPerChar() > 1;
+        this.handler = handler;
+    }
+
+    /**
+     * 自动识别编码和分隔符后读取整个文件
+     */
+    public static void read(File file, RowHandler handler) throws IOException
+    {
+        byte[] head = EncodingSniffer.readHead(file, EncodingSniffer.SNIFF_LENGTH);
+        Charset charset = EncodingSniffer.detect(head);
+        new CsvStreamReader(detectDelimiter(head), charset, handler).readFile(file);
+    }
+
+    /**
+     * 按块读取整个文件
+     */
+    public void readFile(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+            byte[] block = buffer.array();
+            int n;
+            while ((n = channel.read(buffer)) >= 0)
+            {
+                if (n > 0 && !feed(block, 0, buffer.position()))
+                {
+                    return;
+                }
+                buffer.clear();
+            }
+            finish();
+        }
+    }
+
+    /**
+     * 喂入一段数据
+     *
+     * @return 是否需要继续喂入，处理器要求停止时返回false
+     */
+    public boolean feed(byte[] bytes, int offset, int length)
+    {
+        int end = offset + length;
+        int i = offset;
+        long base = position - offset;
+        position += length;
+        // 跳过文件开头的UTF-8 BOM
+        while (bomPosition < 3 && i < end)
+        {
+            byte expected = bomPosition == 0 ? (byte) 0xEF : bomPosition == 1 ? (byte) 0xBB : (byte) 0xBF;
+            if (bytes[i] != expected)
+            {
+                if (bomPosition > 0)
+                {
+                    // 不是完整的BOM，已跳过的字节按普通数据处理
+                    for (int k = 0; k < bomPosition; k++)
+                    {
+                        append(k == 0 ? (byte) 0xEF : (byte) 0xBB);
+                    }
+                    state = UNQUOTED;
+                }
+                bomPosition = 3;
+                break;
+            }
+            bomPosition++;
+            i++;
+        }
+
+        for (; i < end && !stopped; i++)
+        {
+            byte b = bytes[i];
+
+            if (pendingTrail)
+            {
+                // 双字节编码的第二个字节可能与分隔符或引号相同，原样保留
+                pendingTrail = false;
+                appendByte(b);
+                continue;
+            }
+            if (afterCarriageReturn)
+            {
+                afterCarriageReturn = false;
+                if (b == '\n')
+                {
+                    continue;
+                }
+            }
+
+            switch (state)
+            {
+                case FIELD_START:
+                    if (columnIndex == 0 && b != '\n' && b != '\r')
+                    {
+                        recordStart = base + i;
+                    }
+                    if (b == '"')
+                    {
+                        fieldQuoted = true;
+                        state = QUOTED;
+                    }
+                    else if (b == delimiter)
+                    {
+                        endField();
+                    }
+                    else if (b == '\n' || b == '\r')
+                    {
+                        endRecord(b);
+                    }
+                    else
+                    {
+                        append(b);
+                        state = UNQUOTED;
+                    }
+                    break;
+                case UNQUOTED:
+                    if (b == delimiter)
+                    {
+                        endField();
+                    }
+                    else if (b == '\n' || b == '\r')
+                    {
+                        endRecord(b);
+                    }
+                    else
+                    {
+                        append(b);
+                    }
+                    break;
+                case QUOTED:
+                    if (b == '"')
+                    {
+                        state = QUOTE_IN_QUOTED;
+                    }
+                    else
+                    {
+                        append(b);
+                    }
+                    break;
+                default:
+                    // 引号字段中遇到引号：""为转义，否则字段结束
+                    if (b == '"')
+                    {
+                        append(b);
+                        state = QUOTED;
+                    }
+                    else if (b == delimiter)
+                    {
+                        endField();
+                    }
+                    else if (b == '\n' || b == '\r')
+                    {
+                        endRecord(b);
+                    }
+                    else
+                    {
+                        // 不规范的 "abc"def 写法，宽松处理为拼接
+                        append(b);
+                        state = UNQUOTED;
+                    }
+                    break;
+            }
+        }
+        return !stopped;
+    }
+
+    /**
+     * 输入结束，输出最后一条没有换行结尾的记录
+     */
+    public void finish()
+    {
+        if (stopped)
+        {
+            return;
+        }
+        if (state != FIELD_START || columnIndex > 0)
+        {
+            endRecord((byte) '\n');
+        }
+    }
+
+    /**
+     * 已输出的记录数（含标题行）
+     */
+    public int getRowCount()
+    {
+        return rowIndex;
+    }
+
+    /**
+     * 当前记录（在endRow回调中即刚结束的记录）第一个字节在输入中的位置
+     */
+    public long getRecordStart()
+    {
+        return recordStart;
+    }
+
+    /**
+     * 根据文件头部识别分隔符：取首行中出现次数最多的候选分隔符（忽略引号内的字符），默认逗号
+     */
+    public static char detectDelimiter(byte[] head)
+    {
+        int[] counts = new int[DELIMITER_CANDIDATES.length];
+        boolean quoted = false;
+        for (int i = EncodingSniffer.bomLength(head); i < head.length; i++)
+        {
+            byte b = head[i];
+            if (b == '"')
+            {
+                quoted = !quoted;
+            }
+            else if (!quoted && (b == '\n' || b == '\r'))
+            {
+                break;
+            }
+            else if (!quoted)
+            {
+                for (int k = 0; k < DELIMITER_CANDIDATES.length; k++)
+                {
+                    if (b == DELIMITER_CANDIDATES[k])
+                    {
+                        counts[k]++;
+                    }
+                }
+            }
+        }
+        int best = 0;
+        for (int k = 1; k < counts.length; k++)
+        {
+            if (counts[k] > counts[best])
+            {
+                best = k;
+            }
+        }
+        return (char) DELIMITER_CANDIDATES[best];
+    }
+
+    private void append(byte b)
+    {
+        appendByte(b);
+        if (doubleByte && (b & 0xFF) >= 0x81 && (b & 0xFF) <= 0xFE)
+        {
+            pendingTrail = true;
+        }
+    }
+
+    private void appendByte(byte b)
+    {
+        if (fieldLength == field.length)
+        {
+            byte[] grown = new byte[field.length * 2];
+            System.arraycopy(field, 0, grown, 0, fieldLength);
+            field = grown;
+        }
+        field[fieldLength++] = b;
+    }
+
+    private void endField()
+    {
+        if (columnIndex == 0)
+        {
+            handler.startRow(rowIndex);
+        }
+        emitField();
+        columnIndex++;
+        fieldLength = 0;
+        fieldQuoted = false;
+        state = FIELD_START;
+    }
+
+    private void endRecord(byte terminator)
+    {
+        if (terminator == '\r')
+        {
+            afterCarriageReturn = true;
+        }
+        if (columnIndex == 0 && fieldLength == 0 && !fieldQuoted)
+        {
+            // 空行直接跳过
+            state = FIELD_START;
+            return;
+        }
+        endField();
+        if (!handler.endRow(rowIndex))
+        {
+            stopped = true;
+        }
+        rowIndex++;
+        columnIndex = 0;
+    }
+
+    private void emitField()
+    {
+        // 引号只用于包裹分隔符、换行等字符，"12.5"与12.5一样按数值处理（与pandas一致）
+        int from = 0;
+        int to = fieldLength;
+        while (from < to && (field[from] == ' ' || field[from] == '\t'))
+        {
+            from++;
+        }
+        while (to > from && (field[to - 1] == ' ' || field[to - 1] == '\t'))
+        {
+            to--;
+        }
+        if (from == to)
+        {
+            // 空字段视为缺失值，引号内只有空白时保留原文
+            if (fieldQuoted && fieldLength > 0)
+            {
+                handler.textCell(columnIndex, new String(field, 0, fieldLength, charset));
+            }
+            return;
+        }
+        double value = NumberParser.parse(field, from, to);
+        if (!Double.isNaN(value))
+        {
+            handler.numberCell(columnIndex, value);
+        }
+        else if (fieldQuoted)
+        {
+            // 引号内的空白属于字段内容
+            handler.textCell(columnIndex, new String(field, 0, fieldLength, charset));
+        }
+        else
+        {
+            handler.textCell(columnIndex, new String(field, from, to - from, charset));
+        }
+    }
+}
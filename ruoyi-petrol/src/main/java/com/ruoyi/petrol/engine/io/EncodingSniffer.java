@@ -0,0 +1,135 @@
+package com.ruoyi.petrol.engine.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 文本文件编码识别
+ * 依次检查BOM、UTF-8合法性，不合法时按GBK处理（国内Excel导出CSV的默认编码）
+ *
+ * @author ruoyi
+ */
+public class EncodingSniffer
+{
+    /** 检测时读取的文件头长度 */
+    public static final int SNIFF_LENGTH = 64 * 1024;
+
+    public static final Charset GBK = Charset.forName("GBK");
+
+    private EncodingSniffer()
+    {
+    }
+
+    /**
+     * 读取文件头并识别编码
+     */
+    public static Charset detect(File file) throws IOException
+    {
+        return detect(readHead(file, SNIFF_LENGTH));
+    }
+
+    /**
+     * 识别字节序列的编码
+     *
+     * @param head 文件头部字节
+     * @return 字符集
+     */
+    public static Charset detect(byte[] head) throws IOException
+    {
+        if (bomLength(head) > 0)
+        {
+            return StandardCharsets.UTF_8;
+        }
+        if (head.length >= 2 && ((head[0] == (byte) 0xFF && head[1] == (byte) 0xFE)
+                || (head[0] == (byte) 0xFE && head[1] == (byte) 0xFF)))
+        {
+            throw new IOException("不支持UTF-16编码的文本文件，请另存为UTF-8或GBK编码");
+        }
+        return isUtf8(head) ? StandardCharsets.UTF_8 : GBK;
+    }
+
+    /**
+     * UTF-8 BOM长度，无BOM时返回0
+     */
+    public static int bomLength(byte[] head)
+    {
+        if (head.length >= 3 && head[0] == (byte) 0xEF && head[1] == (byte) 0xBB && head[2] == (byte) 0xBF)
+        {
+            return 3;
+        }
+        return 0;
+    }
+
+    /**
+     * 读取文件头部字节
+     */
+    public static byte[] readHead(File file, int length) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            int size = (int) Math.min(length, channel.size());
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            while (buffer.hasRemaining() && channel.read(buffer) > 0)
+            {
+                // 读满为止
+            }
+            byte[] head = new byte[buffer.position()];
+            buffer.flip();
+            buffer.get(head);
+            return head;
+        }
+    }
+
+    /**
+     * 校验是否为合法UTF-8，末尾被截断的多字节序列视为合法
+     */
+    private static boolean isUtf8(byte[] bytes)
+    {
+        int i = 0;
+        int n = bytes.length;
+        while (i < n)
+        {
+            int b = bytes[i] & 0xFF;
+            int trail;
+            if (b < 0x80)
+            {
+                i++;
+                continue;
+            }
+            else if (b >= 0xC2 && b <= 0xDF)
+            {
+                trail = 1;
+            }
+            else if (b >= 0xE0 && b <= 0xEF)
+            {
+                trail = 2;
+            }
+            else if (b >= 0xF0 && b <= 0xF4)
+            {
+                trail = 3;
+            }
+            else
+            {
+                return false;
+            }
+            for (int k = 1; k <= trail; k++)
+            {
+                if (i + k >= n)
+                {
+                    return true;
+                }
+                if ((bytes[i + k] & 0xC0) != 0x80)
+                {
+                    return false;
+                }
+            }
+            i += trail + 1;
+        }
+        return true;
+    }
+}
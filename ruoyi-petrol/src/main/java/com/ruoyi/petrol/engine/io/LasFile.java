@@ -0,0 +1,187 @@
+package com.ruoyi.petrol.engine.io;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LAS测井文件解析结果
+ * 曲线数据按列保存为double[]，NULL值已转换为NaN
+ *
+ * @author ruoyi
+ */
+public class LasFile
+{
+    /** LAS版本（2.0/3.0） */
+    private String version;
+
+    /** 是否为折行模式 */
+    private boolean wrapped;
+
+    /** 缺失值标记 */
+    private double nullValue = -999.25;
+
+    /** ~W井信息段 */
+    private final Map<String, String> wellInfo = new LinkedHashMap<>();
+
+    /** ~P参数段 */
+    private final Map<String, String> parameters = new LinkedHashMap<>();
+
+    /** ~C曲线定义 */
+    private final List<Curve> curves = new ArrayList<>();
+
+    /** 曲线数据，与curves一一对应 */
+    private double[][] columns = new double[0][];
+
+    /** 数据行数 */
+    private int rowCount;
+
+    /**
+     * 曲线定义
+     */
+    public static class Curve
+    {
+        private final String mnemonic;
+        private final String unit;
+        private final String description;
+
+        public Curve(String mnemonic, String unit, String description)
+        {
+            this.mnemonic = mnemonic;
+            this.unit = unit;
+            this.description = description;
+        }
+
+        public String getMnemonic()
+        {
+            return mnemonic;
+        }
+
+        public String getUnit()
+        {
+            return unit;
+        }
+
+        public String getDescription()
+        {
+            return description;
+        }
+    }
+
+    /**
+     * 按行回放数据：第0行为曲线助记符，数据行中的NaN作为空值不回调
+     *
+     * @param handler 行处理器
+     */
+    public void emit(RowHandler handler)
+    {
+        handler.startRow(0);
+        for (int c = 0; c < curves.size(); c++)
+        {
+            handler.textCell(c, curves.get(c).getMnemonic());
+        }
+        if (!handler.endRow(0))
+        {
+            return;
+        }
+        for (int r = 0; r < rowCount; r++)
+        {
+            handler.startRow(r + 1);
+            for (int c = 0; c < columns.length; c++)
+            {
+                double value = columns[c][r];
+                if (!Double.isNaN(value))
+                {
+                    handler.numberCell(c, value);
+                }
+            }
+            if (!handler.endRow(r + 1))
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 按助记符获取曲线数据（不区分大小写）
+     *
+     * @return 曲线数据，不存在时返回null
+     */
+    public double[] getColumn(String mnemonic)
+    {
+        for (int c = 0; c < curves.size(); c++)
+        {
+            if (curves.get(c).getMnemonic().equalsIgnoreCase(mnemonic))
+            {
+                return columns[c];
+            }
+        }
+        return null;
+    }
+
+    public String getVersion()
+    {
+        return version;
+    }
+
+    public void setVersion(String version)
+    {
+        this.version = version;
+    }
+
+    public boolean isWrapped()
+    {
+        return wrapped;
+    }
+
+    public void setWrapped(boolean wrapped)
+    {
+        this.wrapped = wrapped;
+    }
+
+    public double getNullValue()
+    {
+        return nullValue;
+    }
+
+    public void setNullValue(double nullValue)
+    {
+        this.nullValue = nullValue;
+    }
+
+    public Map<String, String> getWellInfo()
+    {
+        return wellInfo;
+    }
+
+    public Map<String, String> getParameters()
+    {
+        return parameters;
+    }
+
+    public List<Curve> getCurves()
+    {
+        return curves;
+    }
+
+    public double[][] getColumns()
+    {
+        return columns;
+    }
+
+    public void setColumns(double[][] columns)
+    {
+        this.columns = columns;
+    }
+
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    public void setRowCount(int rowCount)
+    {
+        this.rowCount = rowCount;
+    }
+}
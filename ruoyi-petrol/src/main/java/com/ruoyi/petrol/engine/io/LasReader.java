@@ -0,0 +1,440 @@
+package com.ruoyi.petrol.engine.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * LAS 2.0/3.0 测井文件解析器
+ * 文件通过内存映射读取，头部各段按行解析，~A数据段直接在映射缓冲区上切分数值，
+ * 写入每条曲线的double[]，不产生装箱对象
+ *
+ * 支持：~V/~W/~C/~P/~A 段（及LAS 3.0的~Log_Parameter/~Log_Definition/~Log_Data），
+ * NULL缺失值标记，WRAP=YES折行模式，LAS 3.0逗号分隔（DLM=COMMA）
+ *
+ * @author ruoyi
+ */
+public class LasReader
+{
+    /** 单个数值的最大字节数，超出时视为非法数值 */
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private static final int SECTION_NONE = 0;
+    private static final int SECTION_VERSION = 1;
+    private static final int SECTION_WELL = 2;
+    private static final int SECTION_CURVE = 3;
+    private static final int SECTION_PARAMETER = 4;
+    private static final int SECTION_DATA = 5;
+    private static final int SECTION_OTHER = 6;
+
+    private final ByteBuffer buffer;
+    private final Charset charset;
+    private final int maxRows;
+    private final LasFile las = new LasFile();
+
+    private boolean commaDelimited;
+    private double start = Double.NaN;
+    private double stop = Double.NaN;
+    private double step = Double.NaN;
+
+    private LasReader(ByteBuffer buffer, Charset charset, int maxRows)
+    {
+        this.buffer = buffer;
+        this.charset = charset;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * 读取整个LAS文件
+     */
+    public static LasFile read(File file) throws IOException
+    {
+        return read(file, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 读取LAS文件，数据段最多读取maxRows行（用于预览和格式校验）
+     */
+    public static LasFile read(File file, int maxRows) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+            {
+                throw new IOException("LAS文件超过2GB，无法解析");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            byte[] head = new byte[(int) Math.min(size, EncodingSniffer.SNIFF_LENGTH)];
+            buffer.get(head);
+            buffer.rewind();
+            Charset charset = EncodingSniffer.detect(head);
+
+            LasReader reader = new LasReader(buffer, charset, maxRows);
+            reader.parse(EncodingSniffer.bomLength(head));
+            return reader.las;
+        }
+    }
+
+    private void parse(int position) throws IOException
+    {
+        int limit = buffer.limit();
+        int section = SECTION_NONE;
+        int pos = position;
+        while (pos < limit)
+        {
+            int lineEnd = lineEnd(pos, limit);
+            String line = decode(pos, lineEnd).trim();
+            pos = lineEnd + 1;
+
+            if (line.isEmpty() || line.charAt(0) == '#')
+            {
+                continue;
+            }
+            if (line.charAt(0) == '~')
+            {
+                section = sectionOf(line);
+                if (section == SECTION_DATA)
+                {
+                    pos = parseData(pos, limit);
+                    section = SECTION_NONE;
+                }
+                continue;
+            }
+            parseHeaderLine(section, line);
+        }
+        if (las.getCurves().isEmpty())
+        {
+            throw new IOException("LAS文件缺少曲线定义段(~C)");
+        }
+        if (las.getColumns().length == 0)
+        {
+            throw new IOException("LAS文件缺少数据段(~A)");
+        }
+    }
+
+    /**
+     * 根据段标题识别段类型，如"~CURVE INFORMATION"、"~Log_Definition"
+     */
+    private static int sectionOf(String line)
+    {
+        String name = line.substring(1).trim().toUpperCase();
+        int end = 0;
+        while (end < name.length() && !Character.isWhitespace(name.charAt(end)) && name.charAt(end) != '|')
+        {
+            end++;
+        }
+        name = name.substring(0, end);
+        if (name.isEmpty())
+        {
+            return SECTION_OTHER;
+        }
+        boolean simple = name.indexOf('_') < 0;
+        switch (name.charAt(0))
+        {
+            case 'V':
+                return simple ? SECTION_VERSION : SECTION_OTHER;
+            case 'W':
+                return simple ? SECTION_WELL : SECTION_OTHER;
+            case 'C':
+                return simple ? SECTION_CURVE : SECTION_OTHER;
+            case 'P':
+                return simple ? SECTION_PARAMETER : SECTION_OTHER;
+            case 'A':
+                return simple ? SECTION_DATA : SECTION_OTHER;
+            default:
+                break;
+        }
+        switch (name)
+        {
+            case "LOG_DEFINITION":
+                return SECTION_CURVE;
+            case "LOG_PARAMETER":
+                return SECTION_PARAMETER;
+            case "LOG_DATA":
+                return SECTION_DATA;
+            default:
+                return SECTION_OTHER;
+        }
+    }
+
+    /**
+     * 解析头部行：MNEM.UNIT  VALUE : DESCRIPTION
+     */
+    private void parseHeaderLine(int section, String line)
+    {
+        if (section == SECTION_NONE || section == SECTION_OTHER)
+        {
+            return;
+        }
+        int dot = line.indexOf('.');
+        if (dot < 0)
+        {
+            return;
+        }
+        String mnemonic = line.substring(0, dot).trim();
+        String rest = line.substring(dot + 1);
+        int unitEnd = 0;
+        while (unitEnd < rest.length() && !Character.isWhitespace(rest.charAt(unitEnd)))
+        {
+            unitEnd++;
+        }
+        String unit = rest.substring(0, unitEnd);
+        String remainder = rest.substring(unitEnd);
+        int colon = remainder.lastIndexOf(':');
+        String value = (colon >= 0 ? remainder.substring(0, colon) : remainder).trim();
+        String description = colon >= 0 ? cleanDescription(remainder.substring(colon + 1)) : "";
+
+        switch (section)
+        {
+            case SECTION_VERSION:
+                if ("VERS".equalsIgnoreCase(mnemonic))
+                {
+                    las.setVersion(value);
+                }
+                else if ("WRAP".equalsIgnoreCase(mnemonic))
+                {
+                    las.setWrapped("YES".equalsIgnoreCase(value));
+                }
+                else if ("DLM".equalsIgnoreCase(mnemonic))
+                {
+                    commaDelimited = "COMMA".equalsIgnoreCase(value);
+                }
+                break;
+            case SECTION_WELL:
+                las.getWellInfo().put(mnemonic, value);
+                if ("NULL".equalsIgnoreCase(mnemonic))
+                {
+                    las.setNullValue(parseOrNaN(value, las.getNullValue()));
+                }
+                else if ("STRT".equalsIgnoreCase(mnemonic))
+                {
+                    start = parseOrNaN(value, Double.NaN);
+                }
+                else if ("STOP".equalsIgnoreCase(mnemonic))
+                {
+                    stop = parseOrNaN(value, Double.NaN);
+                }
+                else if ("STEP".equalsIgnoreCase(mnemonic))
+                {
+                    step = parseOrNaN(value, Double.NaN);
+                }
+                break;
+            case SECTION_CURVE:
+                las.getCurves().add(new LasFile.Curve(mnemonic, unit, description));
+                break;
+            case SECTION_PARAMETER:
+                las.getParameters().put(mnemonic, value);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 去掉LAS 3.0描述中的{格式}和|关联部分
+     */
+    private static String cleanDescription(String description)
+    {
+        int cut = description.length();
+        int brace = description.indexOf('{');
+        int bar = description.indexOf('|');
+        if (brace >= 0)
+        {
+            cut = Math.min(cut, brace);
+        }
+        if (bar >= 0)
+        {
+            cut = Math.min(cut, bar);
+        }
+        return description.substring(0, cut).trim();
+    }
+
+    /**
+     * 解析数据段，返回下一段标题所在位置
+     */
+    private int parseData(int position, int limit) throws IOException
+    {
+        int curveCount = las.getCurves().size();
+        if (curveCount == 0)
+        {
+            throw new IOException("LAS数据段之前缺少曲线定义段(~C)");
+        }
+        int capacity = estimateRows(limit - position, curveCount);
+        double[][] columns = new double[curveCount][capacity];
+        double nullValue = las.getNullValue();
+        boolean wrapped = las.isWrapped();
+        byte[] token = new byte[MAX_TOKEN_LENGTH];
+
+        int row = 0;
+        int column = 0;
+        int pos = position;
+        while (pos < limit && row < maxRows)
+        {
+            int lineEnd = lineEnd(pos, limit);
+            int first = skipBlank(pos, lineEnd);
+            if (first < lineEnd && buffer.get(first) == '~')
+            {
+                break;
+            }
+            if (first < lineEnd && buffer.get(first) == '#')
+            {
+                pos = lineEnd + 1;
+                continue;
+            }
+
+            int i = first;
+            while (i < lineEnd && row < maxRows)
+            {
+                // 切分一个数值
+                int length = 0;
+                boolean quoted = false;
+                while (i < lineEnd)
+                {
+                    byte b = buffer.get(i);
+                    if (b == '"')
+                    {
+                        quoted = !quoted;
+                    }
+                    else if (!quoted && isSeparator(b))
+                    {
+                        break;
+                    }
+                    if (length < MAX_TOKEN_LENGTH)
+                    {
+                        token[length] = b;
+                    }
+                    length++;
+                    i++;
+                }
+                if (length > 0)
+                {
+                    double value = length > MAX_TOKEN_LENGTH ? Double.NaN : NumberParser.parse(token, 0, length);
+                    if (value == nullValue)
+                    {
+                        value = Double.NaN;
+                    }
+                    if (row == capacity)
+                    {
+                        capacity = capacity + (capacity >> 1) + 16;
+                        for (int c = 0; c < curveCount; c++)
+                        {
+                            columns[c] = Arrays.copyOf(columns[c], capacity);
+                        }
+                    }
+                    columns[column][row] = value;
+                    if (++column == curveCount)
+                    {
+                        column = 0;
+                        row++;
+                    }
+                }
+                i = skipBlank(i, lineEnd);
+            }
+
+            // 非折行模式下每行是一条完整记录，数值不足时补NaN
+            if (!wrapped && column != 0)
+            {
+                for (; column < curveCount; column++)
+                {
+                    columns[column][row] = Double.NaN;
+                }
+                column = 0;
+                row++;
+            }
+            pos = lineEnd + 1;
+        }
+
+        if (row != capacity)
+        {
+            for (int c = 0; c < curveCount; c++)
+            {
+                columns[c] = Arrays.copyOf(columns[c], row);
+            }
+        }
+        las.setColumns(columns);
+        las.setRowCount(row);
+
+        // 跳过剩余数据（仅读取前maxRows行时）直到下一段
+        while (pos < limit)
+        {
+            int lineEnd = lineEnd(pos, limit);
+            int first = skipBlank(pos, lineEnd);
+            if (first < lineEnd && buffer.get(first) == '~')
+            {
+                break;
+            }
+            pos = lineEnd + 1;
+        }
+        return pos;
+    }
+
+    /**
+     * 预估数据行数：优先使用STRT/STOP/STEP，并以数据段字节数为上限
+     */
+    private int estimateRows(int dataBytes, int curveCount)
+    {
+        long upper = dataBytes / (2L * curveCount) + 1;
+        long estimate;
+        if (!Double.isNaN(start) && !Double.isNaN(stop) && !Double.isNaN(step) && step != 0)
+        {
+            estimate = (long) (Math.abs(stop - start) / Math.abs(step)) + 2;
+        }
+        else
+        {
+            estimate = dataBytes / (8L * curveCount) + 16;
+        }
+        return (int) Math.max(16, Math.min(Math.min(estimate, upper), Math.min(maxRows, Integer.MAX_VALUE - 8)));
+    }
+
+    private boolean isSeparator(byte b)
+    {
+        return b == ' ' || b == '\t' || b == '\r' || (commaDelimited && b == ',');
+    }
+
+    private int skipBlank(int pos, int end)
+    {
+        while (pos < end && isSeparator(buffer.get(pos)))
+        {
+            pos++;
+        }
+        return pos;
+    }
+
+    private int lineEnd(int pos, int limit)
+    {
+        while (pos < limit && buffer.get(pos) != '\n')
+        {
+            pos++;
+        }
+        return pos;
+    }
+
+    private String decode(int from, int to)
+    {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, charset);
+    }
+
+    private static double parseOrNaN(String value, double defaultValue)
+    {
+        try
+        {
+            return Double.parseDouble(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            return defaultValue;
+        }
+    }
+}
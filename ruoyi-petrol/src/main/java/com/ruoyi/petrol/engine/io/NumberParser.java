@@ -0,0 +1,138 @@
+package com.ruoyi.petrol.engine.io;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 字节级数值解析
+ * 直接从文本文件的字节缓冲区解析十进制数，避免为每个数值创建String
+ *
+ * @author ruoyi
+ */
+public class NumberParser
+{
+    /** 可精确表示的10的幂 */
+    private static final double[] POW10 = new double[23];
+
+    /** 2^53，尾数不超过该值时可以用一次乘除法得到正确舍入的结果 */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    static
+    {
+        POW10[0] = 1.0;
+        for (int i = 1; i < POW10.length; i++)
+        {
+            POW10[i] = POW10[i - 1] * 10.0;
+        }
+    }
+
+    private NumberParser()
+    {
+    }
+
+    /**
+     * 从字节解析十进制数
+     * 尾数不超过2^53且10的指数在±22以内时一次乘除即得到正确舍入的结果（Clinger快速路径），
+     * 其余合法数值交给Double.parseDouble
+     *
+     * @param b 字节数组
+     * @param from 起始位置（含）
+     * @param to 结束位置（不含）
+     * @return 解析结果，不是合法数值时返回NaN
+     */
+    public static double parse(byte[] b, int from, int to)
+    {
+        if (from >= to)
+        {
+            return Double.NaN;
+        }
+        int i = from;
+        boolean negative = false;
+        if (b[i] == '-' || b[i] == '+')
+        {
+            negative = b[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significant = 0;
+        int exponent = 0;
+        boolean digits = false;
+        boolean truncated = false;
+
+        for (; i < to && b[i] >= '0' && b[i] <= '9'; i++)
+        {
+            digits = true;
+            if (significant < 18)
+            {
+                mantissa = mantissa * 10 + (b[i] - '0');
+                if (mantissa != 0)
+                {
+                    significant++;
+                }
+            }
+            else
+            {
+                exponent++;
+                truncated |= b[i] != '0';
+            }
+        }
+        if (i < to && b[i] == '.')
+        {
+            for (i++; i < to && b[i] >= '0' && b[i] <= '9'; i++)
+            {
+                digits = true;
+                if (significant < 18)
+                {
+                    mantissa = mantissa * 10 + (b[i] - '0');
+                    exponent--;
+                    if (mantissa != 0)
+                    {
+                        significant++;
+                    }
+                }
+                else
+                {
+                    truncated |= b[i] != '0';
+                }
+            }
+        }
+        if (!digits)
+        {
+            return Double.NaN;
+        }
+        if (i < to && (b[i] == 'e' || b[i] == 'E'))
+        {
+            i++;
+            boolean negativeExp = false;
+            if (i < to && (b[i] == '-' || b[i] == '+'))
+            {
+                negativeExp = b[i] == '-';
+                i++;
+            }
+            if (i == to)
+            {
+                return Double.NaN;
+            }
+            int exp = 0;
+            for (; i < to && b[i] >= '0' && b[i] <= '9'; i++)
+            {
+                if (exp < 100000)
+                {
+                    exp = exp * 10 + (b[i] - '0');
+                }
+            }
+            exponent += negativeExp ? -exp : exp;
+        }
+        if (i != to)
+        {
+            return Double.NaN;
+        }
+
+        if (!truncated && mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22)
+        {
+            double value = mantissa;
+            value = exponent >= 0 ? value * POW10[exponent] : value / POW10[-exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(new String(b, from, to - from, StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,80 @@
+package com.ruoyi.petrol.engine.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预览行收集器
+ * 按原始行顺序（含标题行）收集前N行，数值单元格为Double，空单元格为null，收集满后停止读取
+ *
+ * @author ruoyi
+ */
+public class PreviewCollector implements RowHandler
+{
+    private final int maxRows;
+
+    private final List<List<Object>> rows = new ArrayList<>();
+
+    private List<Object> current;
+
+    /** 标题行列数，数据行末尾的空单元格按此补齐 */
+    private int width;
+
+    public PreviewCollector(int maxRows)
+    {
+        this.maxRows = maxRows;
+    }
+
+    @Override
+    public void startRow(int rowIndex)
+    {
+        current = new ArrayList<>();
+    }
+
+    @Override
+    public void numberCell(int columnIndex, double value)
+    {
+        set(columnIndex, value);
+    }
+
+    @Override
+    public void textCell(int columnIndex, String value)
+    {
+        set(columnIndex, value);
+    }
+
+    @Override
+    public void otherCell(int columnIndex, String value)
+    {
+        set(columnIndex, value);
+    }
+
+    @Override
+    public boolean endRow(int rowIndex)
+    {
+        if (rows.isEmpty())
+        {
+            width = current.size();
+        }
+        while (current.size() < width)
+        {
+            current.add(null);
+        }
+        rows.add(current);
+        return rows.size() < maxRows;
+    }
+
+    public List<List<Object>> getRows()
+    {
+        return rows;
+    }
+
+    private void set(int columnIndex, Object value)
+    {
+        while (current.size() <= columnIndex)
+        {
+            current.add(null);
+        }
+        current.set(columnIndex, value);
+    }
+}
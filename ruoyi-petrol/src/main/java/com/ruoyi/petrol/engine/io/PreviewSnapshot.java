@@ -0,0 +1,159 @@
+package com.ruoyi.petrol.engine.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 数据集预览快照（.pview）
+ * 入库时保存标题行和前N行数据，单元格保留类型（数值/文本/空），
+ * 预览请求直接读取快照，耗时与数据文件大小无关
+ *
+ * @author ruoyi
+ */
+public class PreviewSnapshot
+{
+    /** 快照文件扩展名 */
+    public static final String EXTENSION = ".pview";
+
+    /** 快照保存的最大行数（含标题行） */
+    public static final int MAX_ROWS = 101;
+
+    private static final int MAGIC = 0x57455650;
+    private static final int VERSION = 1;
+
+    private static final byte CELL_NULL = 0;
+    private static final byte CELL_NUMBER = 1;
+    private static final byte CELL_TEXT = 2;
+
+    private final long sourceLength;
+    private final long sourceModified;
+    private final boolean complete;
+    private final List<List<Object>> rows;
+
+    /**
+     * @param source 源数据文件
+     * @param rows 预览行（含标题行）
+     * @param complete 是否已包含文件的全部行
+     */
+    public PreviewSnapshot(File source, List<List<Object>> rows, boolean complete)
+    {
+        this(source.length(), source.lastModified(), rows, complete);
+    }
+
+    private PreviewSnapshot(long sourceLength, long sourceModified, List<List<Object>> rows, boolean complete)
+    {
+        this.sourceLength = sourceLength;
+        this.sourceModified = sourceModified;
+        this.rows = rows;
+        this.complete = complete;
+    }
+
+    /**
+     * 是否由当前版本的源文件生成
+     */
+    public boolean matches(File source)
+    {
+        return source.length() == sourceLength && source.lastModified() == sourceModified;
+    }
+
+    /**
+     * 快照能否满足指定行数的预览
+     */
+    public boolean covers(int maxRows)
+    {
+        return complete || rows.size() >= maxRows;
+    }
+
+    /**
+     * 前maxRows行（含标题行）
+     */
+    public List<List<Object>> getRows(int maxRows)
+    {
+        return new ArrayList<>(rows.subList(0, Math.min(maxRows, rows.size())));
+    }
+
+    /**
+     * 保存到文件，先写临时文件再原子替换
+     */
+    public void save(File file) throws IOException
+    {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sourceLength);
+            out.writeLong(sourceModified);
+            out.writeBoolean(complete);
+            out.writeInt(rows.size());
+            for (List<Object> row : rows)
+            {
+                out.writeInt(row.size());
+                for (Object value : row)
+                {
+                    if (value instanceof Number)
+                    {
+                        out.writeByte(CELL_NUMBER);
+                        out.writeDouble(((Number) value).doubleValue());
+                    }
+                    else if (value != null)
+                    {
+                        out.writeByte(CELL_TEXT);
+                        out.writeUTF(truncate(value.toString()));
+                    }
+                    else
+                    {
+                        out.writeByte(CELL_NULL);
+                    }
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static PreviewSnapshot load(File file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                throw new IOException("预览快照文件格式不正确: " + file.getName());
+            }
+            long sourceLength = in.readLong();
+            long sourceModified = in.readLong();
+            boolean complete = in.readBoolean();
+            int rowCount = in.readInt();
+            List<List<Object>> rows = new ArrayList<>(rowCount);
+            for (int r = 0; r < rowCount; r++)
+            {
+                int width = in.readInt();
+                List<Object> row = new ArrayList<>(width);
+                for (int c = 0; c < width; c++)
+                {
+                    byte tag = in.readByte();
+                    row.add(tag == CELL_NUMBER ? (Object) in.readDouble() : tag == CELL_TEXT ? in.readUTF() : null);
+                }
+                rows.add(row);
+            }
+            return new PreviewSnapshot(sourceLength, sourceModified, rows, complete);
+        }
+    }
+
+    /**
+     * writeUTF限制编码后不超过65535字节，超长文本截断（预览中足够显示）
+     */
+    private static String truncate(String value)
+    {
+        return value.length() > 16384 ? value.substring(0, 16384) : value;
+    }
+}
@@ -0,0 +1,51 @@
+package com.ruoyi.petrol.engine.io;
+
+/**
+ * 流式行处理器
+ * 由各类表格读取器（XLSX/CSV等）按行回调，读取器不保留整张表
+ *
+ * 单元格按读取器识别出的类型分别回调，未回调的单元格视为空值
+ *
+ * @author ruoyi
+ */
+public interface RowHandler
+{
+    /**
+     * 开始一行
+     *
+     * @param rowIndex 行号（从0开始，第0行为标题行）
+     */
+    void startRow(int rowIndex);
+
+    /**
+     * 数值单元格
+     *
+     * @param columnIndex 列号（从0开始）
+     * @param value 数值
+     */
+    void numberCell(int columnIndex, double value);
+
+    /**
+     * 文本单元格
+     *
+     * @param columnIndex 列号（从0开始）
+     * @param value 文本内容
+     */
+    void textCell(int columnIndex, String value);
+
+    /**
+     * 其他类型单元格（布尔、公式、错误值等），非空但不参与数值统计
+     *
+     * @param columnIndex 列号（从0开始）
+     * @param value 单元格的文本表示
+     */
+    void otherCell(int columnIndex, String value);
+
+    /**
+     * 结束一行
+     *
+     * @param rowIndex 行号
+     * @return 是否继续读取，返回false时读取器立即停止
+     */
+    boolean endRow(int rowIndex);
+}
@@ -0,0 +1,102 @@
+package com.ruoyi.petrol.engine.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+/**
+ * 表格文件读取入口
+ * 按扩展名选择对应的流式读取器，统一以RowHandler回调输出第一个工作表/数据段
+ *
+ * @author ruoyi
+ */
+public class TabularFileReader
+{
+    private TabularFileReader()
+    {
+    }
+
+    /**
+     * 是否为支持的数据文件
+     */
+    public static boolean isSupported(String fileName)
+    {
+        String name = fileName.toLowerCase();
+        return name.endsWith(".xlsx") || name.endsWith(".xls") || name.endsWith(".csv") || name.endsWith(".las");
+    }
+
+    /**
+     * 读取文件
+     *
+     * @param file 数据文件
+     * @param handler 行处理器
+     */
+    public static void read(File file, RowHandler handler) throws IOException
+    {
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".xlsx"))
+        {
+            XlsxStreamReader.read(file, handler);
+        }
+        else if (name.endsWith(".csv"))
+        {
+            CsvStreamReader.read(file, handler);
+        }
+        else if (name.endsWith(".las"))
+        {
+            LasReader.read(file).emit(handler);
+        }
+        else if (name.endsWith(".xls"))
+        {
+            readXls(file, handler);
+        }
+        else
+        {
+            throw new IOException("不支持的文件格式: " + file.getName());
+        }
+    }
+
+    /**
+     * 旧版xls格式没有流式接口，按usermodel逐行回调
+     */
+    private static void readXls(File file, RowHandler handler) throws IOException
+    {
+        try (FileInputStream fis = new FileInputStream(file);
+             Workbook workbook = WorkbookFactory.create(fis))
+        {
+            Sheet sheet = workbook.getSheetAt(0);
+            for (Row row : sheet)
+            {
+                int rowIndex = row.getRowNum();
+                handler.startRow(rowIndex);
+                for (Cell cell : row)
+                {
+                    int columnIndex = cell.getColumnIndex();
+                    switch (cell.getCellType())
+                    {
+                        case NUMERIC:
+                            handler.numberCell(columnIndex, cell.getNumericCellValue());
+                            break;
+                        case STRING:
+                            handler.textCell(columnIndex, cell.getStringCellValue());
+                            break;
+                        case BLANK:
+                            break;
+                        default:
+                            handler.otherCell(columnIndex, cell.toString());
+                            break;
+                    }
+                }
+                if (!handler.endRow(rowIndex))
+                {
+                    return;
+                }
+            }
+        }
+    }
+}
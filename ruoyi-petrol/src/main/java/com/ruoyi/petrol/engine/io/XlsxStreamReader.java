@@ -0,0 +1,378 @@
+package com.ruoyi.petrol.engine.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * XLSX流式读取器
+ * 基于XSSFReader事件模型逐行解析第一个工作表，不构建POI的DOM对象，
+ * 内存占用只与共享字符串表大小相关，与行数无关
+ *
+ * 单元格类型识别与usermodel保持一致：
+ * 数值单元格回调numberCell，字符串（共享/内联）回调textCell，
+ * 公式、布尔、错误值回调otherCell，空白单元格不回调
+ *
+ * @author ruoyi
+ */
+public class XlsxStreamReader
+{
+    private XlsxStreamReader()
+    {
+    }
+
+    /**
+     * 读取第一个工作表
+     *
+     * @param file xlsx文件
+     * @param handler 行处理器
+     */
+    public static void read(File file, RowHandler handler) throws IOException
+    {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ))
+        {
+            XSSFReader reader = new XSSFReader(pkg);
+            List<String> sharedStrings = readSharedStrings(reader);
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!sheets.hasNext())
+            {
+                return;
+            }
+            try (InputStream sheet = sheets.next())
+            {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new SheetHandler(sharedStrings, handler));
+                parser.parse(new InputSource(sheet));
+            }
+        }
+        catch (StopParsingException e)
+        {
+            // 处理器主动停止读取
+        }
+        catch (IOException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new IOException("解析XLSX文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 校验XLSX文件：能打开OPC包，且第一个工作表的首行可以解析
+     * 只解析到首行为止，不读取共享字符串表
+     *
+     * @param file xlsx文件
+     * @return 文件有效时为true
+     */
+    public static boolean validate(File file)
+    {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ))
+        {
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) new XSSFReader(pkg).getSheetsData();
+            if (!sheets.hasNext())
+            {
+                return false;
+            }
+            try (InputStream sheet = sheets.next())
+            {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new SheetHandler(new ArrayList<>(), new FirstRowHandler()));
+                parser.parse(new InputSource(sheet));
+            }
+            return true;
+        }
+        catch (StopParsingException e)
+        {
+            return true;
+        }
+        catch (Exception e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * 读取共享字符串表（忽略富文本格式和拼音注释）
+     */
+    private static List<String> readSharedStrings(XSSFReader reader) throws Exception
+    {
+        List<String> strings = new ArrayList<>();
+        InputStream in;
+        try
+        {
+            in = reader.getSharedStringsData();
+        }
+        catch (Exception e)
+        {
+            // 没有共享字符串表（全部为数值或内联字符串）
+            return strings;
+        }
+        if (in == null)
+        {
+            return strings;
+        }
+        try (InputStream sst = in)
+        {
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new SharedStringsHandler(strings));
+            parser.parse(new InputSource(sst));
+        }
+        return strings;
+    }
+
+    /**
+     * 将"AB12"形式的单元格引用转换为列号（从0开始）
+     */
+    static int columnIndexOf(String cellRef)
+    {
+        int column = 0;
+        for (int i = 0; i < cellRef.length(); i++)
+        {
+            char c = cellRef.charAt(i);
+            if (c < 'A' || c > 'Z')
+            {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    /**
+     * 处理器要求停止时用于中断SAX解析
+     */
+    private static class StopParsingException extends SAXException
+    {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * 读完首行即停止
+     */
+    private static class FirstRowHandler implements RowHandler
+    {
+        @Override
+        public void startRow(int rowIndex)
+        {
+        }
+
+        @Override
+        public void numberCell(int columnIndex, double value)
+        {
+        }
+
+        @Override
+        public void textCell(int columnIndex, String value)
+        {
+        }
+
+        @Override
+        public void otherCell(int columnIndex, String value)
+        {
+        }
+
+        @Override
+        public boolean endRow(int rowIndex)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * 共享字符串表解析
+     */
+    private static class SharedStringsHandler extends DefaultHandler
+    {
+        private final List<String> strings;
+        private final StringBuilder text = new StringBuilder();
+        private boolean inItem;
+        private boolean inText;
+        private boolean inPhonetic;
+
+        SharedStringsHandler(List<String> strings)
+        {
+            this.strings = strings;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes)
+        {
+            if ("si".equals(localName))
+            {
+                inItem = true;
+                text.setLength(0);
+            }
+            else if ("rPh".equals(localName))
+            {
+                inPhonetic = true;
+            }
+            else if ("t".equals(localName) && inItem && !inPhonetic)
+            {
+                inText = true;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName)
+        {
+            if ("si".equals(localName))
+            {
+                strings.add(text.toString());
+                inItem = false;
+            }
+            else if ("rPh".equals(localName))
+            {
+                inPhonetic = false;
+            }
+            else if ("t".equals(localName))
+            {
+                inText = false;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length)
+        {
+            if (inText)
+            {
+                text.append(ch, start, length);
+            }
+        }
+    }
+
+    /**
+     * 工作表数据解析
+     */
+    private static class SheetHandler extends DefaultHandler
+    {
+        private final List<String> sharedStrings;
+        private final RowHandler handler;
+        private final StringBuilder value = new StringBuilder();
+
+        private int rowIndex = -1;
+        private int columnIndex = -1;
+        private String cellType;
+        private boolean hasFormula;
+        private boolean inValue;
+        private boolean inInlineText;
+
+        SheetHandler(List<String> sharedStrings, RowHandler handler)
+        {
+            this.sharedStrings = sharedStrings;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes)
+        {
+            switch (localName)
+            {
+                case "row":
+                    String r = attributes.getValue("r");
+                    rowIndex = r != null ? Integer.parseInt(r) - 1 : rowIndex + 1;
+                    columnIndex = -1;
+                    handler.startRow(rowIndex);
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    columnIndex = ref != null ? columnIndexOf(ref) : columnIndex + 1;
+                    cellType = attributes.getValue("t");
+                    hasFormula = false;
+                    value.setLength(0);
+                    break;
+                case "f":
+                    hasFormula = true;
+                    break;
+                case "v":
+                    inValue = true;
+                    break;
+                case "t":
+                    // 内联字符串 <is><t>...</t></is>
+                    inInlineText = "inlineStr".equals(cellType);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException
+        {
+            switch (localName)
+            {
+                case "v":
+                    inValue = false;
+                    break;
+                case "t":
+                    inInlineText = false;
+                    break;
+                case "c":
+                    emitCell();
+                    break;
+                case "row":
+                    if (!handler.endRow(rowIndex))
+                    {
+                        throw new StopParsingException();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length)
+        {
+            if (inValue || inInlineText)
+            {
+                value.append(ch, start, length);
+            }
+        }
+
+        private void emitCell()
+        {
+            if (hasFormula)
+            {
+                handler.otherCell(columnIndex, value.toString());
+                return;
+            }
+            if (cellType == null || "n".equals(cellType))
+            {
+                if (value.length() == 0)
+                {
+                    // 仅有样式的空白单元格
+                    return;
+                }
+                handler.numberCell(columnIndex, Double.parseDouble(value.toString()));
+            }
+            else if ("s".equals(cellType))
+            {
+                int idx = Integer.parseInt(value.toString().trim());
+                handler.textCell(columnIndex, idx < sharedStrings.size() ? sharedStrings.get(idx) : "");
+            }
+            else if ("inlineStr".equals(cellType))
+            {
+                handler.textCell(columnIndex, value.toString());
+            }
+            else
+            {
+                // b（布尔）、e（错误）、str（公式字符串）、d（日期）
+                handler.otherCell(columnIndex, value.toString());
+            }
+        }
+    }
+}
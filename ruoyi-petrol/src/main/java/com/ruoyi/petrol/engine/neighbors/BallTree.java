@@ -0,0 +1,89 @@
+package com.ruoyi.petrol.engine.neighbors;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 球树：每个节点记录所含点的质心和到质心的最大距离，距离下界为查询点到质心的距离减去半径
+ *
+ * @author ruoyi
+ */
+public class BallTree extends SpatialIndex
+{
+    private final double[] centroids;
+    private final double[] radii;
+
+    BallTree(int rowCount, int dimension, int nodeCount)
+    {
+        super(rowCount, dimension, nodeCount);
+        this.centroids = new double[nodeCount * dimension];
+        this.radii = new double[nodeCount];
+    }
+
+    @Override
+    protected double minDistance(double[] query, int offset, int node)
+    {
+        int d = dimension;
+        int base = node * d;
+        double squared = 0;
+        for (int c = 0; c < d; c++)
+        {
+            double delta = query[offset + c] - centroids[base + c];
+            squared += delta * delta;
+        }
+        double gap = Math.sqrt(squared) - radii[node];
+        return gap > 0 ? gap * gap : 0;
+    }
+
+    @Override
+    protected int initNode(int node, double[] source, int[] order, int start, int end)
+    {
+        int d = dimension;
+        int base = node * d;
+        for (int i = start; i < end; i++)
+        {
+            for (int c = 0; c < d; c++)
+            {
+                centroids[base + c] += source[order[i] * d + c];
+            }
+        }
+        for (int c = 0; c < d; c++)
+        {
+            centroids[base + c] /= end - start;
+        }
+        double radius = 0;
+        for (int i = start; i < end; i++)
+        {
+            double squared = 0;
+            for (int c = 0; c < d; c++)
+            {
+                double delta = source[order[i] * d + c] - centroids[base + c];
+                squared += delta * delta;
+            }
+            radius = Math.max(radius, squared);
+        }
+        radii[node] = Math.sqrt(radius);
+        return widestDimension(source, order, start, end, d);
+    }
+
+    @Override
+    protected void writeBounds(DataOutputStream out) throws IOException
+    {
+        writeDoubles(out, centroids);
+        writeDoubles(out, radii);
+    }
+
+    @Override
+    protected void readBounds(DataInputStream in) throws IOException
+    {
+        readDoubles(in, centroids);
+        readDoubles(in, radii);
+    }
+
+    @Override
+    public byte getType()
+    {
+        return BALL_TREE;
+    }
+}
@@ -0,0 +1,141 @@
+package com.ruoyi.petrol.engine.neighbors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分类评估指标，与sklearn的accuracy_score、precision/recall/f1_score(average='weighted', zero_division=0)
+ * 和confusion_matrix一致：混淆矩阵和加权平均只包含真实值或预测值中出现过的类别，按类别编码排序
+ *
+ * @author ruoyi
+ */
+public class ClassificationMetrics
+{
+    private final double accuracy;
+    private final double precision;
+    private final double recall;
+    private final double f1;
+    private final int[] labels;
+    private final long[][] confusion;
+
+    private ClassificationMetrics(double accuracy, double precision, double recall, double f1, int[] labels,
+            long[][] confusion)
+    {
+        this.accuracy = accuracy;
+        this.precision = precision;
+        this.recall = recall;
+        this.f1 = f1;
+        this.labels = labels;
+        this.confusion = confusion;
+    }
+
+    /**
+     * @param actual 真实类别编码
+     * @param predicted 预测类别编码
+     * @param classes 类别数，编码取值[0, classes)
+     */
+    public static ClassificationMetrics compute(int[] actual, int[] predicted, int classes)
+    {
+        int n = actual.length;
+        long[][] full = new long[classes][classes];
+        long correct = 0;
+        for (int i = 0; i < n; i++)
+        {
+            full[actual[i]][predicted[i]]++;
+            correct += actual[i] == predicted[i] ? 1 : 0;
+        }
+        long[] support = new long[classes];
+        long[] predictedCount = new long[classes];
+        for (int a = 0; a < classes; a++)
+        {
+            for (int p = 0; p < classes; p++)
+            {
+                support[a] += full[a][p];
+                predictedCount[p] += full[a][p];
+            }
+        }
+
+        List<Integer> present = new ArrayList<>();
+        double precision = 0;
+        double recall = 0;
+        double f1 = 0;
+        for (int c = 0; c < classes; c++)
+        {
+            if (support[c] == 0 && predictedCount[c] == 0)
+            {
+                continue;
+            }
+            present.add(c);
+            double classPrecision = predictedCount[c] > 0 ? full[c][c] / (double) predictedCount[c] : 0;
+            double classRecall = support[c] > 0 ? full[c][c] / (double) support[c] : 0;
+            double classF1 = classPrecision + classRecall > 0
+                    ? 2 * classPrecision * classRecall / (classPrecision + classRecall) : 0;
+            precision += support[c] * classPrecision;
+            recall += support[c] * classRecall;
+            f1 += support[c] * classF1;
+        }
+
+        int[] labels = new int[present.size()];
+        long[][] confusion = new long[labels.length][labels.length];
+        for (int a = 0; a < labels.length; a++)
+        {
+            labels[a] = present.get(a);
+        }
+        for (int a = 0; a < labels.length; a++)
+        {
+            for (int p = 0; p < labels.length; p++)
+            {
+                confusion[a][p] = full[labels[a]][labels[p]];
+            }
+        }
+        return n == 0 ? new ClassificationMetrics(0, 0, 0, 0, labels, confusion)
+                : new ClassificationMetrics(correct / (double) n, precision / n, recall / n, f1 / n, labels,
+                        confusion);
+    }
+
+    /**
+     * 混淆矩阵，行为真实类别、列为预测类别
+     */
+    public List<List<Long>> confusionList()
+    {
+        List<List<Long>> rows = new ArrayList<>(confusion.length);
+        for (long[] row : confusion)
+        {
+            List<Long> values = new ArrayList<>(row.length);
+            for (long value : row)
+            {
+                values.add(value);
+            }
+            rows.add(values);
+        }
+        return rows;
+    }
+
+    public double getAccuracy()
+    {
+        return accuracy;
+    }
+
+    public double getPrecision()
+    {
+        return precision;
+    }
+
+    public double getRecall()
+    {
+        return recall;
+    }
+
+    public double getF1()
+    {
+        return f1;
+    }
+
+    /**
+     * 混淆矩阵各行列对应的类别编码
+     */
+    public int[] getLabels()
+    {
+        return labels;
+    }
+}
@@ -0,0 +1,91 @@
+package com.ruoyi.petrol.engine.neighbors;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * KD树：每个节点记录所含点在各维上的最小、最大值，距离下界为查询点到该矩形的距离
+ *
+ * @author ruoyi
+ */
+public class KdTree extends SpatialIndex
+{
+    private final double[] lower;
+    private final double[] upper;
+
+    KdTree(int rowCount, int dimension, int nodeCount)
+    {
+        super(rowCount, dimension, nodeCount);
+        this.lower = new double[nodeCount * dimension];
+        this.upper = new double[nodeCount * dimension];
+    }
+
+    @Override
+    protected double minDistance(double[] query, int offset, int node)
+    {
+        int d = dimension;
+        int base = node * d;
+        double distance = 0;
+        for (int c = 0; c < d; c++)
+        {
+            double value = query[offset + c];
+            double gap = lower[base + c] - value;
+            if (gap < 0)
+            {
+                gap = value - upper[base + c];
+            }
+            if (gap > 0)
+            {
+                distance += gap * gap;
+            }
+        }
+        return distance;
+    }
+
+    @Override
+    protected int initNode(int node, double[] source, int[] order, int start, int end)
+    {
+        int d = dimension;
+        int base = node * d;
+        int widest = 0;
+        for (int c = 0; c < d; c++)
+        {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = start; i < end; i++)
+            {
+                double value = source[order[i] * d + c];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            lower[base + c] = min;
+            upper[base + c] = max;
+            if (max - min > upper[base + widest] - lower[base + widest])
+            {
+                widest = c;
+            }
+        }
+        return widest;
+    }
+
+    @Override
+    protected void writeBounds(DataOutputStream out) throws IOException
+    {
+        writeDoubles(out, lower);
+        writeDoubles(out, upper);
+    }
+
+    @Override
+    protected void readBounds(DataInputStream in) throws IOException
+    {
+        readDoubles(in, lower);
+        readDoubles(in, upper);
+    }
+
+    @Override
+    public byte getType()
+    {
+        return KD_TREE;
+    }
+}
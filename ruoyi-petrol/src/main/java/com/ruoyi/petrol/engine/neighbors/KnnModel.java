@@ -0,0 +1,322 @@
+package com.ruoyi.petrol.engine.neighbors;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * KNN分类模型
+ * 由特征列、标准化参数、类别名和训练点的近邻索引组成，与sklearn KNeighborsClassifier(weights='uniform')的预测一致：
+ * 取最近的k个训练点按类别计票，票数相同时取编码较小的类别
+ *
+ * 模型文件（.pknn）：magic | 版本 | k | 特征列 | 目标列 | 标准化参数 | 类别名 | 近邻索引，加载后不需要重新构建索引
+ *
+ * @author ruoyi
+ */
+public class KnnModel
+{
+    /** model_params中model_form的取值 */
+    public static final String FORM = "knn";
+
+    /** 模型文件扩展名 */
+    public static final String EXTENSION = ".pknn";
+
+    private static final String FORM_KEY = "model_form";
+
+    private static final int MAGIC = 0x4E4E4B50;
+    private static final int VERSION = 1;
+
+    /** 批量预测时每块的行数 */
+    private static final int CHUNK_ROWS = 1 << 12;
+
+    private static final byte CLASS_LONG = 1;
+    private static final byte CLASS_DOUBLE = 2;
+    private static final byte CLASS_TEXT = 3;
+
+    private final int neighbors;
+    private final List<String> featureColumns;
+    private final String targetColumn;
+    private final double[] mean;
+    private final double[] scale;
+    private final Object[] classes;
+    private final SpatialIndex index;
+
+    /**
+     * @param neighbors 近邻数k
+     * @param classes 各类别编码对应的原始取值（Long、Double或String），按LabelEncoder的顺序排列
+     * @param index 标准化后的训练点索引，标签为类别编码
+     */
+    public KnnModel(int neighbors, List<String> featureColumns, String targetColumn, double[] mean, double[] scale,
+            Object[] classes, SpatialIndex index)
+    {
+        this.neighbors = Math.min(neighbors, index.getRowCount());
+        this.featureColumns = featureColumns;
+        this.targetColumn = targetColumn;
+        this.mean = mean;
+        this.scale = scale;
+        this.classes = classes;
+        this.index = index;
+    }
+
+    /**
+     * model_params是否描述了一个JVM训练的KNN模型
+     */
+    public static boolean isKnn(Map<String, Object> params)
+    {
+        return params != null && FORM.equals(params.get(FORM_KEY));
+    }
+
+    /**
+     * 批量预测，多于一块时各块在线程池中并行查询
+     *
+     * @param points 按行连续存放、已标准化的点
+     * @param n 点数
+     * @param pool 计算线程池
+     * @param probabilities 不为null时写入各点属于各类别的概率，第i个点占[i·类别数, (i+1)·类别数)
+     * @return 各点的类别编码
+     */
+    public int[] predict(double[] points, int n, ForkJoinPool pool, double[] probabilities)
+    {
+        int d = mean.length;
+        int classCount = classes.length;
+        int[] labels = new int[n];
+        List<RecursiveAction> tasks = new ArrayList<>();
+        for (int from = 0; from < n; from += CHUNK_ROWS)
+        {
+            int start = from;
+            int end = Math.min(n, from + CHUNK_ROWS);
+            tasks.add(new RecursiveAction()
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute()
+                {
+                    NeighborHeap heap = new NeighborHeap(neighbors);
+                    int[] votes = new int[classCount];
+                    for (int i = start; i < end; i++)
+                    {
+                        index.query(points, i * d, heap);
+                        Arrays.fill(votes, 0);
+                        for (int j = 0; j < heap.size(); j++)
+                        {
+                            votes[index.getLabel(heap.position(j))]++;
+                        }
+                        int best = 0;
+                        for (int c = 1; c < classCount; c++)
+                        {
+                            if (votes[c] > votes[best])
+                            {
+                                best = c;
+                            }
+                        }
+                        labels[i] = best;
+                        if (probabilities != null)
+                        {
+                            for (int c = 0; c < classCount; c++)
+                            {
+                                probabilities[i * classCount + c] = votes[c] / (double) heap.size();
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        if (tasks.size() == 1)
+        {
+            // 少量行直接在调用线程查询，省去线程池调度
+            tasks.get(0).invoke();
+            return labels;
+        }
+        pool.invoke(new RecursiveAction()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+        return labels;
+    }
+
+    /**
+     * 按训练时的参数标准化一个点
+     *
+     * @param raw 各特征的原始值
+     * @param dest 目标数组
+     * @param offset 目标数组起始位置
+     * @return 特征全部有效时为true
+     */
+    public boolean standardize(double[] raw, double[] dest, int offset)
+    {
+        for (int c = 0; c < mean.length; c++)
+        {
+            if (Double.isNaN(raw[c]) || Double.isInfinite(raw[c]))
+            {
+                return false;
+            }
+            dest[offset + c] = (raw[c] - mean[c]) / scale[c];
+        }
+        return true;
+    }
+
+    /**
+     * 写入model_params的参数，近邻索引保存在模型文件中
+     */
+    public Map<String, Object> toParams()
+    {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("n_neighbors", neighbors);
+        params.put("feature_columns", featureColumns);
+        params.put("target_column", targetColumn);
+        params.put(FORM_KEY, FORM);
+        params.put("algorithm", index.getTypeName());
+        params.put("leaf_size", SpatialIndex.LEAF_SIZE);
+        params.put("class_names", getClassNames());
+        params.put("training_rows", index.getRowCount());
+        return params;
+    }
+
+    /**
+     * 保存模型文件，先写临时文件再原子替换
+     */
+    public void save(File file) throws IOException
+    {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(neighbors);
+            out.writeInt(featureColumns.size());
+            for (String column : featureColumns)
+            {
+                out.writeUTF(column);
+            }
+            out.writeUTF(targetColumn);
+            for (int c = 0; c < mean.length; c++)
+            {
+                out.writeDouble(mean[c]);
+                out.writeDouble(scale[c]);
+            }
+            out.writeInt(classes.length);
+            for (Object value : classes)
+            {
+                if (value instanceof Long)
+                {
+                    out.writeByte(CLASS_LONG);
+                    out.writeLong((Long) value);
+                }
+                else if (value instanceof Double)
+                {
+                    out.writeByte(CLASS_DOUBLE);
+                    out.writeDouble((Double) value);
+                }
+                else
+                {
+                    out.writeByte(CLASS_TEXT);
+                    out.writeUTF(value.toString());
+                }
+            }
+            index.writeTo(out);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static KnnModel load(File file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                throw new IOException("KNN模型文件格式不正确: " + file.getName());
+            }
+            int neighbors = in.readInt();
+            int features = in.readInt();
+            List<String> featureColumns = new ArrayList<>(features);
+            for (int c = 0; c < features; c++)
+            {
+                featureColumns.add(in.readUTF());
+            }
+            String targetColumn = in.readUTF();
+            double[] mean = new double[features];
+            double[] scale = new double[features];
+            for (int c = 0; c < features; c++)
+            {
+                mean[c] = in.readDouble();
+                scale[c] = in.readDouble();
+            }
+            Object[] classes = new Object[in.readInt()];
+            for (int j = 0; j < classes.length; j++)
+            {
+                byte type = in.readByte();
+                classes[j] = type == CLASS_LONG ? Long.valueOf(in.readLong())
+                        : type == CLASS_DOUBLE ? Double.valueOf(in.readDouble()) : in.readUTF();
+            }
+            SpatialIndex index = SpatialIndex.readFrom(in);
+            if (index.getDimension() != features)
+            {
+                throw new IOException("KNN模型文件已损坏: " + file.getName());
+            }
+            return new KnnModel(neighbors, featureColumns, targetColumn, mean, scale, classes, index);
+        }
+    }
+
+    /**
+     * 训练时的特征列，预测时按同样顺序读取
+     */
+    public List<String> getFeatureColumns()
+    {
+        return featureColumns;
+    }
+
+    public String getTargetColumn()
+    {
+        return targetColumn;
+    }
+
+    public int getNeighbors()
+    {
+        return neighbors;
+    }
+
+    /**
+     * 类别编码对应的原始取值
+     */
+    public Object getClassName(int label)
+    {
+        return classes[label];
+    }
+
+    public List<Object> getClassNames()
+    {
+        return Collections.unmodifiableList(Arrays.asList(classes));
+    }
+
+    public int getClassCount()
+    {
+        return classes.length;
+    }
+
+    public SpatialIndex getIndex()
+    {
+        return index;
+    }
+}
@@ -0,0 +1,163 @@
+package com.ruoyi.petrol.engine.neighbors;
+
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 用KNN模型预测列式文件中的行
+ * 特征缺失的行跳过，其余行标准化后并行查询近邻索引，结果结构与Python端BasePredictorAlgorithm的输出一致
+ *
+ * @author ruoyi
+ */
+public class KnnPrediction
+{
+    private final KnnModel model;
+    private final int[] rows;
+    private final double[][] inputs;
+    private final int[] labels;
+    private final int skipped;
+
+    private KnnPrediction(KnnModel model, int[] rows, double[][] inputs, int[] labels, int skipped)
+    {
+        this.model = model;
+        this.rows = rows;
+        this.inputs = inputs;
+        this.labels = labels;
+        this.skipped = skipped;
+    }
+
+    /**
+     * 预测指定的行
+     *
+     * @param model KNN模型
+     * @param columnar 输入数据
+     * @param selectedRows 要预测的行号，为null时预测全部行；超出范围的行号忽略
+     * @param pool 计算线程池
+     */
+    public static KnnPrediction compute(KnnModel model, ColumnarFile columnar, int[] selectedRows, ForkJoinPool pool)
+    {
+        List<String> featureColumns = model.getFeatureColumns();
+        int d = featureColumns.size();
+        int[] columns = new int[d];
+        for (int c = 0; c < d; c++)
+        {
+            columns[c] = columnar.getColumnIndex(featureColumns.get(c));
+            if (columns[c] < 0 || !columnar.isNumeric(columns[c]))
+            {
+                throw new IllegalArgumentException("列不存在或不是数值列: " + featureColumns.get(c));
+            }
+        }
+
+        int rowCount = columnar.getRowCount();
+        int[] candidates = selectedRows == null ? null
+                : Arrays.stream(selectedRows).filter(r -> r >= 0 && r < rowCount).toArray();
+        int total = candidates != null ? candidates.length : rowCount;
+
+        double[][] inputs = new double[d][total];
+        double[] points = new double[total * d];
+        int[] rows = new int[total];
+        double[] raw = new double[d];
+        int count = 0;
+        for (int k = 0; k < total; k++)
+        {
+            int r = candidates != null ? candidates[k] : k;
+            for (int c = 0; c < d; c++)
+            {
+                raw[c] = columnar.getDouble(columns[c], r);
+            }
+            if (!model.standardize(raw, points, count * d))
+            {
+                continue;
+            }
+            for (int c = 0; c < d; c++)
+            {
+                inputs[c][count] = raw[c];
+            }
+            rows[count++] = r;
+        }
+        if (count == 0)
+        {
+            throw new IllegalArgumentException("没有可预测的行，特征列全部缺失");
+        }
+        for (int c = 0; c < d; c++)
+        {
+            inputs[c] = Arrays.copyOf(inputs[c], count);
+        }
+        int[] labels = model.predict(points, count, pool, null);
+        return new KnnPrediction(model, Arrays.copyOf(rows, count), inputs, labels, total - count);
+    }
+
+    /**
+     * 预测结果：predictions（类别原始取值）、input_data（各行特征）、statistics（各类别行数）
+     */
+    public Map<String, Object> toResult()
+    {
+        List<String> featureColumns = model.getFeatureColumns();
+        List<Object> values = new ArrayList<>(labels.length);
+        List<Map<String, Object>> inputData = new ArrayList<>(labels.length);
+        long[] counts = new long[model.getClassCount()];
+        for (int k = 0; k < labels.length; k++)
+        {
+            values.add(model.getClassName(labels[k]));
+            counts[labels[k]]++;
+            Map<String, Object> record = new LinkedHashMap<>();
+            for (int c = 0; c < featureColumns.size(); c++)
+            {
+                record.put(featureColumns.get(c), inputs[c][k]);
+            }
+            inputData.add(record);
+        }
+        Map<String, Object> classCounts = new LinkedHashMap<>();
+        for (int j = 0; j < counts.length; j++)
+        {
+            if (counts[j] > 0)
+            {
+                classCounts.put(String.valueOf(model.getClassName(j)), counts[j]);
+            }
+        }
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("message", String.format(Locale.ROOT, "Successfully made %d predictions.", labels.length));
+        statistics.put("prediction_summary", classCounts);
+        statistics.put("task_type", "classification");
+        statistics.put("skipped_rows", skipped);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("predictions", values);
+        result.put("input_data", inputData);
+        result.put("statistics", statistics);
+        result.put("excel_report", new LinkedHashMap<>());
+        return result;
+    }
+
+    /**
+     * 被预测的行号
+     */
+    public int[] getRows()
+    {
+        return rows;
+    }
+
+    /**
+     * 各行的类别编码
+     */
+    public int[] getLabels()
+    {
+        return labels;
+    }
+
+    /**
+     * 特征缺失而跳过的行数
+     */
+    public int getSkipped()
+    {
+        return skipped;
+    }
+}
@@ -0,0 +1,354 @@
+package com.ruoyi.petrol.engine.neighbors;
+
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * KNN分类训练，流程与Python版classification.knn相同：
+ * 目标列按LabelEncoder编码（类别按取值排序），按类别分层划分训练集和测试集（最少的类别不足2行时随机划分），
+ * 只用训练集拟合StandardScaler，在标准化后的训练点上建近邻索引，再预测测试集计算指标
+ *
+ * 特征或目标缺失的行不参与训练。分层划分用Java的随机数，测试集的行与sklearn的train_test_split不同，
+ * 各类别的测试行数按比例分配（最大余数法），与sklearn一致
+ *
+ * @author ruoyi
+ */
+public class KnnTraining
+{
+    private final KnnModel model;
+    private final int rowCount;
+    private final double[] testPoints;
+    private final int[] testLabels;
+    private final int[] predictions;
+    private final double[] probabilities;
+    private final ClassificationMetrics metrics;
+
+    private KnnTraining(KnnModel model, int rowCount, double[] testPoints, int[] testLabels, int[] predictions,
+            double[] probabilities, ClassificationMetrics metrics)
+    {
+        this.model = model;
+        this.rowCount = rowCount;
+        this.testPoints = testPoints;
+        this.testLabels = testLabels;
+        this.predictions = predictions;
+        this.probabilities = probabilities;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 训练并评估
+     *
+     * @param columnar 输入数据
+     * @param featureColumns 特征列，应为数值列
+     * @param targetColumn 目标列，数值列或文本列
+     * @param neighbors 近邻数k
+     * @param testSize 测试集比例
+     * @param seed 划分测试集的随机种子
+     * @param pool 计算线程池
+     */
+    public static KnnTraining fit(ColumnarFile columnar, List<String> featureColumns, String targetColumn,
+            int neighbors, double testSize, long seed, ForkJoinPool pool)
+    {
+        if (neighbors < 1)
+        {
+            throw new IllegalArgumentException("n_neighbors必须为正整数");
+        }
+        int d = featureColumns.size();
+        int rows = columnar.getRowCount();
+        double[][] values = new double[d][rows];
+        for (int c = 0; c < d; c++)
+        {
+            int column = columnar.getColumnIndex(featureColumns.get(c));
+            if (column < 0 || !columnar.isNumeric(column))
+            {
+                throw new IllegalArgumentException("列不存在或不是数值列: " + featureColumns.get(c));
+            }
+            columnar.readDoubles(column, 0, rows, values[c], 0);
+        }
+        int target = columnar.getColumnIndex(targetColumn);
+        if (target < 0)
+        {
+            throw new IllegalArgumentException("列不存在: " + targetColumn);
+        }
+        int[] codes = new int[rows];
+        Object[] classes = encode(columnar, target, codes);
+
+        int[] valid = new int[rows];
+        int n = 0;
+        for (int r = 0; r < rows; r++)
+        {
+            boolean ok = codes[r] >= 0;
+            for (int c = 0; c < d && ok; c++)
+            {
+                ok = !Double.isNaN(values[c][r]) && !Double.isInfinite(values[c][r]);
+            }
+            if (ok)
+            {
+                valid[n++] = r;
+            }
+        }
+        int testCount = (int) Math.ceil(testSize * n);
+        int trainCount = n - testCount;
+        if (testCount < 1 || trainCount < neighbors)
+        {
+            throw new IllegalArgumentException("有效样本数 " + n + " 不足以划分测试集并查找 " + neighbors + " 个近邻");
+        }
+        boolean[] test = split(valid, n, codes, classes.length, testCount, seed);
+
+        // 标准化参数只由训练集计算
+        double[] mean = new double[d];
+        double[] scale = new double[d];
+        for (int c = 0; c < d; c++)
+        {
+            double sum = 0;
+            for (int i = 0; i < n; i++)
+            {
+                sum += test[i] ? 0 : values[c][valid[i]];
+            }
+            mean[c] = sum / trainCount;
+            double squares = 0;
+            for (int i = 0; i < n; i++)
+            {
+                double delta = values[c][valid[i]] - mean[c];
+                squares += test[i] ? 0 : delta * delta;
+            }
+            double std = Math.sqrt(squares / trainCount);
+            scale[c] = std > 0 ? std : 1;
+        }
+
+        double[] trainPoints = new double[trainCount * d];
+        int[] trainLabels = new int[trainCount];
+        double[] testPoints = new double[testCount * d];
+        int[] testLabels = new int[testCount];
+        int trainIndex = 0;
+        int testIndex = 0;
+        for (int i = 0; i < n; i++)
+        {
+            int r = valid[i];
+            double[] dest = test[i] ? testPoints : trainPoints;
+            int k = test[i] ? testIndex : trainIndex;
+            for (int c = 0; c < d; c++)
+            {
+                dest[k * d + c] = (values[c][r] - mean[c]) / scale[c];
+            }
+            if (test[i])
+            {
+                testLabels[testIndex++] = codes[r];
+            }
+            else
+            {
+                trainLabels[trainIndex++] = codes[r];
+            }
+        }
+
+        SpatialIndex index = SpatialIndex.build(trainPoints, trainLabels, trainCount, d, pool);
+        KnnModel model = new KnnModel(neighbors, featureColumns, targetColumn, mean, scale, classes, index);
+        double[] probabilities = new double[testCount * classes.length];
+        int[] predictions = model.predict(testPoints, testCount, pool, probabilities);
+        ClassificationMetrics metrics = ClassificationMetrics.compute(testLabels, predictions, classes.length);
+        return new KnnTraining(model, n, testPoints, testLabels, predictions, probabilities, metrics);
+    }
+
+    /**
+     * 按LabelEncoder编码目标列：类别按取值排序，缺失值编码为-1
+     *
+     * @return 各编码对应的原始取值，整数列为Long，浮点列为Double，文本列为String
+     */
+    private static Object[] encode(ColumnarFile columnar, int column, int[] codes)
+    {
+        int rows = codes.length;
+        if (!columnar.isNumeric(column))
+        {
+            String[] dictionary = columnar.getDictionary(column);
+            boolean[] used = new boolean[dictionary.length];
+            for (int r = 0; r < rows; r++)
+            {
+                codes[r] = columnar.getCode(column, r);
+                if (codes[r] >= 0)
+                {
+                    used[codes[r]] = true;
+                }
+            }
+            List<Integer> present = new ArrayList<>();
+            for (int code = 0; code < dictionary.length; code++)
+            {
+                if (used[code])
+                {
+                    present.add(code);
+                }
+            }
+            present.sort(Comparator.comparing(code -> dictionary[code]));
+            int[] mapping = new int[dictionary.length];
+            Object[] classes = new Object[present.size()];
+            for (int j = 0; j < classes.length; j++)
+            {
+                mapping[present.get(j)] = j;
+                classes[j] = dictionary[present.get(j)];
+            }
+            for (int r = 0; r < rows; r++)
+            {
+                codes[r] = codes[r] >= 0 ? mapping[codes[r]] : -1;
+            }
+            return classes;
+        }
+
+        double[] target = new double[rows];
+        columnar.readDoubles(column, 0, rows, target, 0);
+        double[] sorted = Arrays.stream(target).filter(v -> !Double.isNaN(v)).sorted().distinct().toArray();
+        boolean integral = columnar.getType(column) == ColumnarFile.INT64;
+        Object[] classes = new Object[sorted.length];
+        for (int j = 0; j < sorted.length; j++)
+        {
+            classes[j] = integral ? (Object) (long) sorted[j] : (Object) sorted[j];
+        }
+        for (int r = 0; r < rows; r++)
+        {
+            codes[r] = Double.isNaN(target[r]) ? -1 : Arrays.binarySearch(sorted, target[r]);
+        }
+        return classes;
+    }
+
+    /**
+     * 划分测试集
+     *
+     * @param valid 有效行号，前n个有效
+     * @return 第i个有效行是否在测试集中
+     */
+    private static boolean[] split(int[] valid, int n, int[] codes, int classCount, int testCount, long seed)
+    {
+        Random random = new Random(seed);
+        boolean[] test = new boolean[n];
+        int[] counts = new int[classCount];
+        for (int i = 0; i < n; i++)
+        {
+            counts[codes[valid[i]]]++;
+        }
+        int smallest = Integer.MAX_VALUE;
+        for (int count : counts)
+        {
+            smallest = count > 0 ? Math.min(smallest, count) : smallest;
+        }
+        if (smallest < 2)
+        {
+            int[] order = shuffled(n, random);
+            for (int i = 0; i < testCount; i++)
+            {
+                test[order[i]] = true;
+            }
+            return test;
+        }
+
+        // 各类别测试行数按比例取整，余下的按小数部分从大到小补齐
+        int[] quota = new int[classCount];
+        Integer[] byRemainder = new Integer[classCount];
+        double[] remainder = new double[classCount];
+        int assigned = 0;
+        for (int c = 0; c < classCount; c++)
+        {
+            double exact = counts[c] * (double) testCount / n;
+            quota[c] = (int) Math.floor(exact);
+            remainder[c] = exact - quota[c];
+            assigned += quota[c];
+            byRemainder[c] = c;
+        }
+        Arrays.sort(byRemainder, (a, b) -> Double.compare(remainder[b], remainder[a]));
+        for (int j = 0; assigned < testCount; j++)
+        {
+            quota[byRemainder[j % classCount]]++;
+            assigned++;
+        }
+
+        int[][] members = new int[classCount][];
+        int[] filled = new int[classCount];
+        for (int c = 0; c < classCount; c++)
+        {
+            members[c] = new int[counts[c]];
+        }
+        for (int i = 0; i < n; i++)
+        {
+            int c = codes[valid[i]];
+            members[c][filled[c]++] = i;
+        }
+        for (int c = 0; c < classCount; c++)
+        {
+            int[] order = shuffled(counts[c], random);
+            for (int j = 0; j < quota[c]; j++)
+            {
+                test[members[c][order[j]]] = true;
+            }
+        }
+        return test;
+    }
+
+    private static int[] shuffled(int n, Random random)
+    {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+
+    public KnnModel getModel()
+    {
+        return model;
+    }
+
+    /**
+     * 特征和目标都有效的行数
+     */
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    public int getTestCount()
+    {
+        return testLabels.length;
+    }
+
+    /**
+     * 标准化后的测试点，按行连续存放
+     */
+    public double[] getTestPoints()
+    {
+        return testPoints;
+    }
+
+    public int[] getTestLabels()
+    {
+        return testLabels;
+    }
+
+    public int[] getPredictions()
+    {
+        return predictions;
+    }
+
+    /**
+     * 测试点属于各类别的概率，第i个点占[i·类别数, (i+1)·类别数)
+     */
+    public double[] getProbabilities()
+    {
+        return probabilities;
+    }
+
+    public ClassificationMetrics getMetrics()
+    {
+        return metrics;
+    }
+}
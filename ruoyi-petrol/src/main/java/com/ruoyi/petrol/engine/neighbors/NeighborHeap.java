@@ -0,0 +1,111 @@
+package com.ruoyi.petrol.engine.neighbors;
+
+/**
+ * 近邻查询的候选集合，按平方距离维护大顶堆，堆顶为当前第k近的点
+ * 每个查询线程持有一个，查询之间clear后复用
+ *
+ * @author ruoyi
+ */
+public class NeighborHeap
+{
+    private final int[] positions;
+    private final double[] distances;
+    private int size;
+
+    public NeighborHeap(int k)
+    {
+        this.positions = new int[k];
+        this.distances = new double[k];
+    }
+
+    public void clear()
+    {
+        size = 0;
+    }
+
+    /**
+     * 第k近的平方距离，不足k个时为正无穷；距离不小于它的点和节点不必再查
+     */
+    public double worst()
+    {
+        return size < distances.length ? Double.POSITIVE_INFINITY : distances[0];
+    }
+
+    /**
+     * 加入一个候选点，距离不小于当前第k近时忽略
+     *
+     * @param position 点在索引中的位置
+     * @param distance 平方距离
+     */
+    public void offer(int position, double distance)
+    {
+        if (distance >= worst())
+        {
+            return;
+        }
+        int i;
+        if (size < distances.length)
+        {
+            // 上浮
+            i = size++;
+            while (i > 0)
+            {
+                int parent = (i - 1) >> 1;
+                if (distances[parent] >= distance)
+                {
+                    break;
+                }
+                distances[i] = distances[parent];
+                positions[i] = positions[parent];
+                i = parent;
+            }
+        }
+        else
+        {
+            // 替换堆顶后下沉
+            i = 0;
+            while (true)
+            {
+                int child = 2 * i + 1;
+                if (child >= size)
+                {
+                    break;
+                }
+                if (child + 1 < size && distances[child + 1] > distances[child])
+                {
+                    child++;
+                }
+                if (distances[child] <= distance)
+                {
+                    break;
+                }
+                distances[i] = distances[child];
+                positions[i] = positions[child];
+                i = child;
+            }
+        }
+        distances[i] = distance;
+        positions[i] = position;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * 第i个候选点在索引中的位置，候选点之间不按距离排序
+     */
+    public int position(int i)
+    {
+        return positions[i];
+    }
+
+    /**
+     * 第i个候选点的平方距离
+     */
+    public double distance(int i)
+    {
+        return distances[i];
+    }
+}
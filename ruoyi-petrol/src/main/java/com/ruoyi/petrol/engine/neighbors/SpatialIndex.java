@@ -0,0 +1,398 @@
+package com.ruoyi.petrol.engine.neighbors;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 欧氏距离近邻索引，KD树和球树的公共部分
+ *
+ * 与sklearn的BinaryTree一样用隐式完全二叉树：节点i的子节点为2i+1和2i+2，层数由点数和叶子大小决定；
+ * 每个节点在最宽的维度上按中位数把点一分为二。构建结束后点坐标和标签按树内顺序连续存放，
+ * 一个叶子的点在内存中相邻，查询时按节点到查询点的距离下界剪枝
+ *
+ * 序列化为定长的数组块（坐标、标签、节点区间、节点边界），读取时不需要重新构建
+ *
+ * @author ruoyi
+ */
+public abstract class SpatialIndex
+{
+    public static final byte KD_TREE = 1;
+    public static final byte BALL_TREE = 2;
+
+    /** 维数不超过该值时用KD树，否则用球树（KD树的矩形边界在高维下几乎剪不掉节点） */
+    public static final int KD_TREE_MAX_DIMENSION = 15;
+
+    /** 叶子节点的最大点数，与sklearn KNeighborsClassifier的默认leaf_size相同 */
+    public static final int LEAF_SIZE = 30;
+
+    /** 节点点数超过该值时左右子树并行构建 */
+    private static final int PARALLEL_BUILD_ROWS = 1 << 15;
+
+    /** 数组读写时的缓冲字节数 */
+    private static final int IO_BUFFER = 1 << 16;
+
+    protected final int rowCount;
+    protected final int dimension;
+    protected final int nodeCount;
+    protected final double[] points;
+    protected final int[] labels;
+    protected final int[] nodeStart;
+    protected final int[] nodeEnd;
+
+    protected SpatialIndex(int rowCount, int dimension, int nodeCount)
+    {
+        this.rowCount = rowCount;
+        this.dimension = dimension;
+        this.nodeCount = nodeCount;
+        this.points = new double[rowCount * dimension];
+        this.labels = new int[rowCount];
+        this.nodeStart = new int[nodeCount];
+        this.nodeEnd = new int[nodeCount];
+    }
+
+    /**
+     * 构建索引，维数不超过KD_TREE_MAX_DIMENSION时为KD树，否则为球树
+     *
+     * @param source 按行连续存放的点坐标，不会被修改
+     * @param sourceLabels 各点的标签
+     * @param n 点数
+     * @param d 维数
+     * @param pool 计算线程池
+     */
+    public static SpatialIndex build(double[] source, int[] sourceLabels, int n, int d, ForkJoinPool pool)
+    {
+        if (n < 1)
+        {
+            throw new IllegalArgumentException("没有可索引的点");
+        }
+        // 与sklearn相同：每个叶子的点数在[leaf_size, 2·leaf_size]之间
+        int levels = 1 + (int) Math.floor(Math.log(Math.max(1.0, (n - 1) / (double) LEAF_SIZE)) / Math.log(2));
+        int nodeCount = (1 << levels) - 1;
+        SpatialIndex index = d <= KD_TREE_MAX_DIMENSION ? new KdTree(n, d, nodeCount) : new BallTree(n, d, nodeCount);
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            order[i] = i;
+        }
+        pool.invoke(index.new BuildTask(source, order, 0, 0, n));
+        for (int p = 0; p < n; p++)
+        {
+            System.arraycopy(source, order[p] * d, index.points, p * d, d);
+            index.labels[p] = sourceLabels[order[p]];
+        }
+        return index;
+    }
+
+    /**
+     * 查询最近的heap容量个点，结果放入heap（会先清空）
+     *
+     * @param query 查询点所在数组
+     * @param offset 查询点的起始下标
+     */
+    public void query(double[] query, int offset, NeighborHeap heap)
+    {
+        heap.clear();
+        search(query, offset, 0, minDistance(query, offset, 0), heap);
+    }
+
+    private void search(double[] query, int offset, int node, double bound, NeighborHeap heap)
+    {
+        if (bound >= heap.worst())
+        {
+            return;
+        }
+        int left = 2 * node + 1;
+        if (left >= nodeCount)
+        {
+            int d = dimension;
+            for (int p = nodeStart[node]; p < nodeEnd[node]; p++)
+            {
+                double distance = 0;
+                for (int c = 0; c < d; c++)
+                {
+                    double delta = points[p * d + c] - query[offset + c];
+                    distance += delta * delta;
+                }
+                heap.offer(p, distance);
+            }
+            return;
+        }
+        // 先查更近的子节点，尽早收紧第k近的距离
+        double leftBound = minDistance(query, offset, left);
+        double rightBound = minDistance(query, offset, left + 1);
+        if (leftBound <= rightBound)
+        {
+            search(query, offset, left, leftBound, heap);
+            search(query, offset, left + 1, rightBound, heap);
+        }
+        else
+        {
+            search(query, offset, left + 1, rightBound, heap);
+            search(query, offset, left, leftBound, heap);
+        }
+    }
+
+    /**
+     * 查询点到节点内任意点的平方距离下界
+     */
+    protected abstract double minDistance(double[] query, int offset, int node);
+
+    /**
+     * 由节点内的点计算节点边界
+     *
+     * @return 用于划分子节点的维度
+     */
+    protected abstract int initNode(int node, double[] source, int[] order, int start, int end);
+
+    protected abstract void writeBounds(DataOutputStream out) throws IOException;
+
+    protected abstract void readBounds(DataInputStream in) throws IOException;
+
+    /**
+     * 索引类型：KD_TREE或BALL_TREE
+     */
+    public abstract byte getType();
+
+    /**
+     * 与sklearn algorithm参数相同的名称
+     */
+    public String getTypeName()
+    {
+        return getType() == KD_TREE ? "kd_tree" : "ball_tree";
+    }
+
+    /**
+     * 坐标极差最大的维度
+     */
+    protected static int widestDimension(double[] source, int[] order, int start, int end, int d)
+    {
+        int widest = 0;
+        double widestSpread = -1;
+        for (int c = 0; c < d; c++)
+        {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = start; i < end; i++)
+            {
+                double value = source[order[i] * d + c];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (max - min > widestSpread)
+            {
+                widestSpread = max - min;
+                widest = c;
+            }
+        }
+        return widest;
+    }
+
+    /**
+     * 重排order[start, end)，使第mid个位置的点在dimension维上不小于左侧、不大于右侧（快速选择）
+     */
+    private static void select(double[] source, int[] order, int start, int end, int mid, int dimension, int d)
+    {
+        int lo = start;
+        int hi = end - 1;
+        while (lo < hi)
+        {
+            double pivot = source[order[(lo + hi) >>> 1] * d + dimension];
+            int i = lo;
+            int j = hi;
+            while (i <= j)
+            {
+                while (source[order[i] * d + dimension] < pivot)
+                {
+                    i++;
+                }
+                while (source[order[j] * d + dimension] > pivot)
+                {
+                    j--;
+                }
+                if (i <= j)
+                {
+                    int swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            }
+            if (mid <= j)
+            {
+                hi = j;
+            }
+            else if (mid >= i)
+            {
+                lo = i;
+            }
+            else
+            {
+                return;
+            }
+        }
+    }
+
+    private class BuildTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] source;
+        private final int[] order;
+        private final int node;
+        private final int start;
+        private final int end;
+
+        BuildTask(double[] source, int[] order, int node, int start, int end)
+        {
+            this.source = source;
+            this.order = order;
+            this.node = node;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute()
+        {
+            nodeStart[node] = start;
+            nodeEnd[node] = end;
+            int dimension = initNode(node, source, order, start, end);
+            int left = 2 * node + 1;
+            if (left >= nodeCount)
+            {
+                return;
+            }
+            int mid = start + (end - start) / 2;
+            select(source, order, start, end, mid, dimension, SpatialIndex.this.dimension);
+            BuildTask leftTask = new BuildTask(source, order, left, start, mid);
+            BuildTask rightTask = new BuildTask(source, order, left + 1, mid, end);
+            if (end - start > PARALLEL_BUILD_ROWS)
+            {
+                invokeAll(leftTask, rightTask);
+            }
+            else
+            {
+                leftTask.compute();
+                rightTask.compute();
+            }
+        }
+    }
+
+    /**
+     * 写入索引
+     */
+    public void writeTo(DataOutputStream out) throws IOException
+    {
+        out.writeByte(getType());
+        out.writeInt(rowCount);
+        out.writeInt(dimension);
+        out.writeInt(nodeCount);
+        writeDoubles(out, points);
+        writeInts(out, labels);
+        writeInts(out, nodeStart);
+        writeInts(out, nodeEnd);
+        writeBounds(out);
+    }
+
+    /**
+     * 读取writeTo写入的索引
+     */
+    public static SpatialIndex readFrom(DataInputStream in) throws IOException
+    {
+        byte type = in.readByte();
+        int n = in.readInt();
+        int d = in.readInt();
+        int nodeCount = in.readInt();
+        if ((type != KD_TREE && type != BALL_TREE) || n < 1 || d < 1 || nodeCount < 1)
+        {
+            throw new IOException("近邻索引格式不正确");
+        }
+        SpatialIndex index = type == KD_TREE ? new KdTree(n, d, nodeCount) : new BallTree(n, d, nodeCount);
+        readDoubles(in, index.points);
+        readInts(in, index.labels);
+        readInts(in, index.nodeStart);
+        readInts(in, index.nodeEnd);
+        index.readBounds(in);
+        return index;
+    }
+
+    protected static void writeDoubles(DataOutputStream out, double[] values) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER);
+        for (int i = 0; i < values.length; )
+        {
+            int count = Math.min(values.length - i, IO_BUFFER / 8);
+            buffer.clear();
+            buffer.asDoubleBuffer().put(values, i, count);
+            out.write(buffer.array(), 0, count * 8);
+            i += count;
+        }
+    }
+
+    protected static void readDoubles(DataInputStream in, double[] values) throws IOException
+    {
+        byte[] bytes = new byte[IO_BUFFER];
+        for (int i = 0; i < values.length; )
+        {
+            int count = Math.min(values.length - i, IO_BUFFER / 8);
+            in.readFully(bytes, 0, count * 8);
+            ByteBuffer.wrap(bytes, 0, count * 8).asDoubleBuffer().get(values, i, count);
+            i += count;
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER);
+        for (int i = 0; i < values.length; )
+        {
+            int count = Math.min(values.length - i, IO_BUFFER / 4);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, i, count);
+            out.write(buffer.array(), 0, count * 4);
+            i += count;
+        }
+    }
+
+    private static void readInts(DataInputStream in, int[] values) throws IOException
+    {
+        byte[] bytes = new byte[IO_BUFFER];
+        for (int i = 0; i < values.length; )
+        {
+            int count = Math.min(values.length - i, IO_BUFFER / 4);
+            in.readFully(bytes, 0, count * 4);
+            ByteBuffer.wrap(bytes, 0, count * 4).asIntBuffer().get(values, i, count);
+            i += count;
+        }
+    }
+
+    /**
+     * 树内第position个点的标签
+     */
+    public int getLabel(int position)
+    {
+        return labels[position];
+    }
+
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    public int getDimension()
+    {
+        return dimension;
+    }
+
+    /**
+     * 占用内存的估计值（字节）：点坐标、标签、节点范围，节点边界按KD树的上下界计算，球树略小
+     */
+    public long getMemoryBytes()
+    {
+        return 8L * rowCount * dimension + 4L * rowCount + 8L * nodeCount + 16L * nodeCount * dimension;
+    }
+}
@@ -0,0 +1,427 @@
+package com.ruoyi.petrol.engine.regression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 自动回归：拟合线性、对数、二次多项式、三次多项式、指数五种候选模型，按R²选出最优
+ * 候选及其顺序与Python端feature_engineering.automatic_regression相同，各候选的数据清洗和评估方式与单独训练时一致：
+ * 线性和多项式截断异常值并在测试集上评估，对数和指数在全部有效行上拟合和评估
+ *
+ * 勒让德基P0..P3是嵌套的，线性、二次、三次模型的统计量都是三次模型统计量的左上角子块；
+ * 指数速率先在抽样行上求得，于是所有候选的充分统计量在同一次并行扫描中累加，之后各候选的求解与数据量无关，
+ * 最后只对胜出的模型扫描一次评估行得到预测值和MAE
+ *
+ * @author ruoyi
+ */
+public class AutomaticRegression
+{
+    public static final String LINEAR = "Linear Regression";
+
+    public static final String LOGARITHMIC = "Logarithmic Regression";
+
+    public static final String QUADRATIC = "Polynomial Regression (Deg 2)";
+
+    public static final String CUBIC = "Polynomial Regression (Deg 3)";
+
+    public static final String EXPONENTIAL = "Exponential Regression";
+
+    /** 候选模型，顺序与Python端CANDIDATE_ALGORITHMS相同，R²相同时先出现的胜出 */
+    private static final String[] CANDIDATES = { LINEAR, LOGARITHMIC, QUADRATIC, CUBIC, EXPONENTIAL };
+
+    /** 累加的勒让德基最高次数 */
+    private static final int MAX_DEGREE = 3;
+
+    /** 搜索指数速率时最多使用的抽样行数 */
+    private static final int RATE_SAMPLE_ROWS = 1 << 16;
+
+    private final String bestModel;
+    private final LeastSquaresFit bestFit;
+    private final List<Map<String, Object>> modelsTried;
+
+    private AutomaticRegression(String bestModel, LeastSquaresFit bestFit, List<Map<String, Object>> modelsTried)
+    {
+        this.bestModel = bestModel;
+        this.bestFit = bestFit;
+        this.modelsTried = modelsTried;
+    }
+
+    /**
+     * 拟合全部候选模型并选出R²最高者
+     *
+     * @param columns 各自变量列的原始值；多于一列时只有线性回归适用，其余候选记为失败
+     * @param values 目标列的原始值
+     * @param length 行数
+     * @param testSize 线性和多项式回归的测试集比例
+     * @param seed 划分用的随机种子
+     * @param pool 计算线程池
+     * @throws IllegalArgumentException 所有候选都拟合失败
+     */
+    public static AutomaticRegression compute(double[][] columns, double[] values, int length, double testSize,
+            long seed, ForkJoinPool pool)
+    {
+        Candidate[] candidates = columns.length == 1
+                ? fitShared(columns[0], values, length, testSize, seed, pool)
+                : fitSeparately(columns, values, length, testSize, seed, pool);
+
+        Candidate best = null;
+        List<Map<String, Object>> tried = new ArrayList<>(candidates.length);
+        for (Candidate candidate : candidates)
+        {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("model", candidate.name);
+            if (candidate.error != null)
+            {
+                summary.put("r2_score", "Error: " + candidate.error);
+            }
+            else
+            {
+                double r2 = candidate.r2();
+                summary.put("r2_score", Double.isNaN(r2) ? null : r2);
+                if (!Double.isNaN(r2) && (best == null || r2 > best.r2()))
+                {
+                    best = candidate;
+                }
+            }
+            tried.add(summary);
+        }
+        if (best == null)
+        {
+            throw new IllegalArgumentException("所有候选回归模型都拟合失败，找不到适合该数据的回归模型");
+        }
+        LeastSquaresFit fit = best.fit != null ? best.fit : best.evaluate(pool);
+        return new AutomaticRegression(best.name, fit, tried);
+    }
+
+    /**
+     * 单自变量：一次扫描累加全部候选的统计量
+     */
+    private static Candidate[] fitShared(double[] column, double[] values, int length, double testSize, long seed,
+            ForkJoinPool pool)
+    {
+        int[] valid = new int[length];
+        int n = 0;
+        for (int r = 0; r < length; r++)
+        {
+            if (LeastSquaresFit.isFinite(column[r]) && LeastSquaresFit.isFinite(values[r]))
+            {
+                valid[n++] = r;
+            }
+        }
+        int[] rows = Arrays.copyOf(valid, n);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double xMin = Double.POSITIVE_INFINITY;
+        double xMax = Double.NEGATIVE_INFINITY;
+        double yMin = Double.POSITIVE_INFINITY;
+        double yMax = Double.NEGATIVE_INFINITY;
+        double shift = 0;
+        double pilot = Double.NaN;
+        for (int i = 0; i < n; i++)
+        {
+            x[i] = column[rows[i]];
+            y[i] = values[rows[i]];
+            xMin = Math.min(xMin, x[i]);
+            xMax = Math.max(xMax, x[i]);
+            yMin = Math.min(yMin, y[i]);
+            yMax = Math.max(yMax, y[i]);
+            shift += y[i];
+            if (Double.isNaN(pilot) && x[i] > 0)
+            {
+                pilot = Math.log(x[i]);
+            }
+        }
+        shift = n > 0 ? shift / n : 0;
+
+        Candidate linear = new Candidate(LINEAR);
+        Candidate logarithmic = new Candidate(LOGARITHMIC);
+        Candidate quadratic = new Candidate(QUADRATIC);
+        Candidate cubic = new Candidate(CUBIC);
+        Candidate exponential = new Candidate(EXPONENTIAL);
+        Candidate[] candidates = { linear, logarithmic, quadratic, cubic, exponential };
+        if (n < 2)
+        {
+            for (Candidate candidate : candidates)
+            {
+                candidate.error = "有效样本数不足，至少需要" + (candidate == exponential ? 3 : 2) + "个: " + n;
+            }
+            return candidates;
+        }
+
+        // 线性和多项式：截断后的区间决定勒让德基的平移缩放，截断后的最小/最大值就是截断界
+        double[] xBounds = n > LeastSquaresFit.CLIP_MIN_ROWS ? LeastSquaresFit.clipBounds(x) : null;
+        double[] yBounds = n > LeastSquaresFit.CLIP_MIN_ROWS ? LeastSquaresFit.clipBounds(y) : null;
+        double low = xBounds != null ? xBounds[0] : xMin;
+        double high = xBounds != null ? xBounds[1] : xMax;
+        double[] offset = { (low + high) / 2 };
+        double[] scale = { high > low ? (high - low) / 2 : 1 };
+        LeastSquaresModel legendre = new LeastSquaresModel(LeastSquaresModel.POLYNOMIAL, offset, scale,
+                new double[MAX_DEGREE + 1], 0);
+
+        // 指数：速率只依赖残差平方和曲线的最低点，在抽样行上搜索即可
+        double range = xMax - xMin;
+        double rate = 0;
+        if (n < 3)
+        {
+            exponential.error = "有效样本数不足，至少需要3个: " + n;
+        }
+        else if (!(range > 0))
+        {
+            exponential.error = "自变量的所有数值都相同，无法执行指数回归";
+        }
+        else if (!(yMax > yMin))
+        {
+            exponential.error = "因变量的所有数值都相同，无法执行指数回归";
+        }
+        else
+        {
+            int stride = Math.max(1, n / RATE_SAMPLE_ROWS);
+            int sampled = (n + stride - 1) / stride;
+            double[] u = new double[sampled];
+            double[] centred = new double[sampled];
+            for (int k = 0; k < sampled; k++)
+            {
+                u[k] = (x[k * stride] - xMin) / range;
+                centred[k] = y[k * stride] - shift;
+            }
+            rate = LeastSquaresFit.fitRate(u, centred, pool);
+        }
+
+        boolean split = testSize > 0 && testSize < 1;
+        boolean expFit = exponential.error == null;
+        double centre = shift;
+        double origin = Double.isNaN(pilot) ? 0 : pilot;
+        double expRate = rate;
+        double expStart = xMin;
+        NormalEquations train = new NormalEquations(MAX_DEGREE + 1);
+        NormalEquations test = new NormalEquations(MAX_DEGREE + 1);
+        NormalEquations log = new NormalEquations(2);
+        LeastSquaresFit.ExponentialSums exp = new LeastSquaresFit.ExponentialSums();
+        LeastSquaresFit.forEachChunk(n, pool, (from, to) -> {
+            NormalEquations localTrain = new NormalEquations(MAX_DEGREE + 1);
+            NormalEquations localTest = new NormalEquations(MAX_DEGREE + 1);
+            NormalEquations localLog = new NormalEquations(2);
+            LeastSquaresFit.ExponentialSums localExp = new LeastSquaresFit.ExponentialSums();
+            double[] point = new double[1];
+            double[] row = new double[MAX_DEGREE + 1];
+            double[] pair = { 1, 0 };
+            for (int i = from; i < to; i++)
+            {
+                point[0] = clamp(x[i], xBounds);
+                legendre.basis(point, row);
+                boolean held = split && LeastSquaresFit.isTest(rows[i], seed, testSize);
+                (held ? localTest : localTrain).add(row, clamp(y[i], yBounds) - centre);
+                if (x[i] > 0)
+                {
+                    pair[1] = Math.log(x[i]) - origin;
+                    localLog.add(pair, y[i] - centre);
+                }
+                if (expFit)
+                {
+                    localExp.add(Math.expm1(expRate * (x[i] - expStart) / range), y[i] - centre);
+                }
+            }
+            train.merge(localTrain);
+            test.merge(localTest);
+            log.merge(localLog);
+            exp.merge(localExp);
+        });
+
+        // 样本很少时哈希划分可能得到空的训练集或测试集，此时在全部行上训练和评估
+        boolean holdout = train.getCount() > 0 && test.getCount() > 0;
+        NormalEquations fitted = train;
+        NormalEquations scored = test;
+        if (!holdout)
+        {
+            fitted = new NormalEquations(MAX_DEGREE + 1);
+            fitted.merge(train);
+            fitted.merge(test);
+            scored = fitted;
+        }
+        double[] clippedX = new double[n];
+        double[] clippedY = new double[n];
+        boolean[] held = holdout ? new boolean[n] : null;
+        for (int i = 0; i < n; i++)
+        {
+            clippedX[i] = clamp(x[i], xBounds);
+            clippedY[i] = clamp(y[i], yBounds);
+            if (held != null)
+            {
+                held[i] = LeastSquaresFit.isTest(rows[i], seed, testSize);
+            }
+        }
+        Candidate[] nested = { linear, quadratic, cubic };
+        for (int degree = 1; degree <= MAX_DEGREE; degree++)
+        {
+            Candidate candidate = nested[degree - 1];
+            try
+            {
+                double[] beta = fitted.leading(degree + 1).solve();
+                candidate.residual = scored.leading(degree + 1).residualSumOfSquares(beta);
+                candidate.total = scored.totalSumOfSquares();
+                beta[0] += shift;
+                // P0、P1就是1和u，线性模型直接沿用多项式的平移缩放
+                String form = degree == 1 ? LeastSquaresModel.LINEAR : LeastSquaresModel.POLYNOMIAL;
+                candidate.model = new LeastSquaresModel(form, offset, scale, beta, 0);
+                candidate.data(rows, clippedX, clippedY, held, fitted.getCount());
+            }
+            catch (IllegalArgumentException e)
+            {
+                candidate.error = e.getMessage();
+            }
+        }
+
+        try
+        {
+            double[] beta = log.solve();
+            logarithmic.residual = log.residualSumOfSquares(beta);
+            logarithmic.total = log.totalSumOfSquares();
+            beta[0] += shift;
+            logarithmic.model = new LeastSquaresModel(LeastSquaresModel.LOGARITHMIC, new double[] { origin },
+                    new double[] { 1 }, beta, 0);
+            int positive = (int) log.getCount();
+            int[] logRows = new int[positive];
+            double[] logX = new double[positive];
+            double[] logY = new double[positive];
+            for (int i = 0, k = 0; i < n; i++)
+            {
+                if (x[i] > 0)
+                {
+                    logRows[k] = rows[i];
+                    logX[k] = x[i];
+                    logY[k++] = y[i];
+                }
+            }
+            logarithmic.data(logRows, logX, logY, null, positive);
+        }
+        catch (IllegalArgumentException e)
+        {
+            logarithmic.error = e.getMessage();
+        }
+
+        if (expFit)
+        {
+            exponential.residual = exp.residualSumOfSquares();
+            exponential.total = exp.totalSumOfSquares();
+            exponential.model = new LeastSquaresModel(LeastSquaresModel.EXPONENTIAL, new double[] { xMin },
+                    new double[] { range }, exp.coefficients(shift), rate);
+            exponential.data(rows, x, y, null, n);
+        }
+        return candidates;
+    }
+
+    /**
+     * 多自变量：只有线性回归适用，逐个候选单独训练，其余候选给出与单独训练时相同的错误
+     */
+    private static Candidate[] fitSeparately(double[][] columns, double[] values, int length, double testSize,
+            long seed, ForkJoinPool pool)
+    {
+        String[] forms = { LeastSquaresModel.LINEAR, LeastSquaresModel.LOGARITHMIC, LeastSquaresModel.POLYNOMIAL,
+                LeastSquaresModel.POLYNOMIAL, LeastSquaresModel.EXPONENTIAL };
+        int[] degrees = { 0, 0, 2, 3, 0 };
+        Candidate[] candidates = new Candidate[CANDIDATES.length];
+        for (int c = 0; c < CANDIDATES.length; c++)
+        {
+            candidates[c] = new Candidate(CANDIDATES[c]);
+            boolean holdout = LeastSquaresModel.LINEAR.equals(forms[c]) || LeastSquaresModel.POLYNOMIAL.equals(forms[c]);
+            try
+            {
+                candidates[c].fit = LeastSquaresFit.compute(forms[c], degrees[c], columns, values, length, holdout,
+                        holdout ? testSize : 0, seed, pool);
+            }
+            catch (IllegalArgumentException e)
+            {
+                candidates[c].error = e.getMessage();
+            }
+        }
+        return candidates;
+    }
+
+    private static double clamp(double value, double[] bounds)
+    {
+        return bounds != null ? Math.min(bounds[1], Math.max(bounds[0], value)) : value;
+    }
+
+    /**
+     * 一个候选模型的拟合结果和评估用数据
+     */
+    private static class Candidate
+    {
+        private final String name;
+        private String error;
+        private LeastSquaresFit fit;
+        private LeastSquaresModel model;
+        private double residual;
+        private double total;
+        private int[] sourceRows;
+        private double[] x;
+        private double[] y;
+        private boolean[] test;
+        private long trainCount;
+
+        Candidate(String name)
+        {
+            this.name = name;
+        }
+
+        void data(int[] sourceRows, double[] x, double[] y, boolean[] test, long trainCount)
+        {
+            this.sourceRows = sourceRows;
+            this.x = x;
+            this.y = y;
+            this.test = test;
+            this.trainCount = trainCount;
+        }
+
+        double r2()
+        {
+            if (fit != null)
+            {
+                return fit.getR2();
+            }
+            return total > 0 ? 1 - residual / total : Double.NaN;
+        }
+
+        LeastSquaresFit evaluate(ForkJoinPool pool)
+        {
+            return LeastSquaresFit.evaluate(model, sourceRows, new double[][] { x }, y, test, trainCount, residual,
+                    total, pool);
+        }
+    }
+
+    /**
+     * 胜出模型的名称，与Python端相同
+     */
+    public String getBestModel()
+    {
+        return bestModel;
+    }
+
+    /**
+     * 胜出模型的训练和评估结果
+     */
+    public LeastSquaresFit getBestFit()
+    {
+        return bestFit;
+    }
+
+    /**
+     * 各候选的R²，拟合失败的为"Error: 原因"
+     */
+    public List<Map<String, Object>> getModelsTried()
+    {
+        return modelsTried;
+    }
+
+    /**
+     * 候选模型个数
+     */
+    public static int getCandidateCount()
+    {
+        return CANDIDATES.length;
+    }
+}
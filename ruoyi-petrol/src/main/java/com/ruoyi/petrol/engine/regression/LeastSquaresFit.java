@@ -0,0 +1,805 @@
+package com.ruoyi.petrol.engine.regression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 闭式最小二乘回归的训练与评估
+ * 去掉含缺失值的行后，按行分块并行累加训练集和测试集各自的充分统计量（NormalEquations），
+ * 训练集统计量求解系数，测试集统计量直接给出R²、MSE和RMSE；MAE和测试集预测值在求解后再扫描一次测试行得到
+ *
+ * 数据清洗与Python端clean_regression_data一致：样本数超过10时各列按0.1%/99.9%分位数截断。
+ * 训练/测试划分按原始行号和random_state哈希决定，同一数据和参数的划分是确定的，但与sklearn的train_test_split不是同一组行
+ *
+ * 指数形式y = a·exp(b·x) + c对b是非线性的，采用变量投影：给定b时a、c是线性最小二乘的闭式解，
+ * 残差平方和只是b的一元函数，先在抽样行上粗扫，再在全部行上用Brent法细化
+ *
+ * @author ruoyi
+ */
+public class LeastSquaresFit
+{
+    /** 并行累加时每块的行数 */
+    private static final int CHUNK_ROWS = 1 << 16;
+
+    /** 截断异常值的分位数 */
+    private static final double CLIP_PERCENTILE = 99.9;
+
+    /** 超过该样本数才截断异常值 */
+    static final int CLIP_MIN_ROWS = 10;
+
+    /** 指数形式粗扫的速率范围（自变量缩放到[0,1]后）和步长 */
+    private static final double RATE_LIMIT = 30;
+
+    private static final double RATE_STEP = 0.5;
+
+    /** 粗扫时最多使用的抽样行数 */
+    private static final int SCAN_ROWS = 4096;
+
+    /** Brent法的最大迭代次数和相对精度 */
+    private static final int BRENT_ITERATIONS = 60;
+
+    private static final double BRENT_TOLERANCE = 1e-8;
+
+    private static final double GOLDEN_RATIO = (Math.sqrt(5) - 1) / 2;
+
+    private final LeastSquaresModel model;
+    private final int[] sourceRows;
+    private final double[][] features;
+    private final double[] target;
+    private final int[] evaluationRows;
+    private final double[] predictions;
+    private final long trainCount;
+    private final double r2;
+    private final double meanSquaredError;
+    private final double meanAbsoluteError;
+
+    private LeastSquaresFit(LeastSquaresModel model, int[] sourceRows, double[][] features, double[] target,
+            int[] evaluationRows, double[] predictions, long trainCount, double r2, double meanSquaredError,
+            double meanAbsoluteError)
+    {
+        this.model = model;
+        this.sourceRows = sourceRows;
+        this.features = features;
+        this.target = target;
+        this.evaluationRows = evaluationRows;
+        this.predictions = predictions;
+        this.trainCount = trainCount;
+        this.r2 = r2;
+        this.meanSquaredError = meanSquaredError;
+        this.meanAbsoluteError = meanAbsoluteError;
+    }
+
+    /**
+     * 训练一个闭式回归模型
+     *
+     * @param form 模型形式，见LeastSquaresModel
+     * @param degree 多项式次数，其他形式忽略
+     * @param columns 各自变量列的原始值
+     * @param values 目标列的原始值
+     * @param length 行数
+     * @param clip 是否截断异常值
+     * @param testSize 测试集比例，不在(0,1)内时不划分，在全部行上评估
+     * @param seed 划分用的随机种子
+     * @param pool 计算线程池
+     */
+    public static LeastSquaresFit compute(String form, int degree, double[][] columns, double[] values, int length,
+            boolean clip, double testSize, long seed, ForkJoinPool pool)
+    {
+        if (!LeastSquaresModel.isSupported(form))
+        {
+            throw new IllegalArgumentException("不支持的回归形式: " + form);
+        }
+        int features = columns.length;
+        if (features == 0 || (!LeastSquaresModel.LINEAR.equals(form) && features != 1))
+        {
+            throw new IllegalArgumentException(form + "回归需要" + (LeastSquaresModel.LINEAR.equals(form) ? "至少" : "")
+                    + "一个自变量列: " + features);
+        }
+        if (LeastSquaresModel.POLYNOMIAL.equals(form) && degree < 1)
+        {
+            throw new IllegalArgumentException("多项式次数必须为正整数: " + degree);
+        }
+
+        // 去掉缺失值（对数形式同时去掉自变量非正的行），保留原始行号
+        boolean logarithmic = LeastSquaresModel.LOGARITHMIC.equals(form);
+        int[] sourceRows = new int[length];
+        int n = 0;
+        for (int r = 0; r < length; r++)
+        {
+            boolean valid = isFinite(values[r]);
+            for (int j = 0; j < features && valid; j++)
+            {
+                valid = isFinite(columns[j][r]) && (!logarithmic || columns[j][r] > 0);
+            }
+            if (valid)
+            {
+                sourceRows[n++] = r;
+            }
+        }
+        sourceRows = Arrays.copyOf(sourceRows, n);
+        int minimum = LeastSquaresModel.EXPONENTIAL.equals(form) ? 3 : 2;
+        if (n < minimum)
+        {
+            throw new IllegalArgumentException("有效样本数不足，至少需要" + minimum + "个: " + n);
+        }
+        double[][] x = new double[features][n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            int r = sourceRows[i];
+            for (int j = 0; j < features; j++)
+            {
+                x[j][i] = columns[j][r];
+            }
+            y[i] = values[r];
+        }
+        if (clip && n > CLIP_MIN_ROWS)
+        {
+            for (int j = 0; j < features; j++)
+            {
+                clipOutliers(x[j]);
+            }
+            clipOutliers(y);
+        }
+
+        double[] offsets = new double[features];
+        double[] scales = new double[features];
+        for (int j = 0; j < features; j++)
+        {
+            double[] range = transformRange(form, x[j]);
+            offsets[j] = range[0];
+            scales[j] = range[1];
+        }
+        double shift = 0;
+        for (double value : y)
+        {
+            shift += value;
+        }
+        shift /= n;
+
+        boolean split = testSize > 0 && testSize < 1;
+        boolean[] test = new boolean[n];
+        int testCount = 0;
+        for (int i = 0; split && i < n; i++)
+        {
+            test[i] = isTest(sourceRows[i], seed, testSize);
+            testCount += test[i] ? 1 : 0;
+        }
+        // 样本很少时哈希划分可能得到空的训练集或测试集，此时在全部行上训练和评估
+        if (testCount == 0 || testCount == n)
+        {
+            Arrays.fill(test, false);
+            testCount = 0;
+        }
+
+        LeastSquaresModel model;
+        double residual;
+        double total;
+        if (LeastSquaresModel.EXPONENTIAL.equals(form))
+        {
+            double yMin = Double.POSITIVE_INFINITY;
+            double yMax = Double.NEGATIVE_INFINITY;
+            for (double value : y)
+            {
+                yMin = Math.min(yMin, value);
+                yMax = Math.max(yMax, value);
+            }
+            if (!(yMax > yMin))
+            {
+                throw new IllegalArgumentException("因变量的所有数值都相同，无法执行指数回归");
+            }
+            double[] u = new double[n];
+            double[] centred = new double[n];
+            for (int i = 0; i < n; i++)
+            {
+                u[i] = (x[0][i] - offsets[0]) / scales[0];
+                centred[i] = y[i] - shift;
+            }
+            double rate = fitRate(u, centred, pool);
+            ExponentialSums sums = exponentialSums(u, centred, rate, pool);
+            model = new LeastSquaresModel(form, offsets, scales, sums.coefficients(shift), rate);
+            residual = sums.residualSumOfSquares();
+            total = sums.totalSumOfSquares();
+            testCount = 0;
+        }
+        else
+        {
+            int dimension = LeastSquaresModel.dimension(form, features, degree);
+            LeastSquaresModel transform = new LeastSquaresModel(form, offsets, scales, new double[dimension], 0);
+            NormalEquations train = new NormalEquations(dimension);
+            NormalEquations evaluation = new NormalEquations(dimension);
+            boolean separate = testCount > 0;
+            double centre = shift;
+            forEachChunk(n, pool, (from, to) -> {
+                NormalEquations localTrain = new NormalEquations(dimension);
+                NormalEquations localTest = new NormalEquations(dimension);
+                double[] point = new double[features];
+                double[] row = new double[dimension];
+                for (int i = from; i < to; i++)
+                {
+                    for (int j = 0; j < features; j++)
+                    {
+                        point[j] = x[j][i];
+                    }
+                    transform.basis(point, row);
+                    (test[i] ? localTest : localTrain).add(row, y[i] - centre);
+                }
+                train.merge(localTrain);
+                if (separate)
+                {
+                    evaluation.merge(localTest);
+                }
+            });
+            double[] beta = train.solve();
+            NormalEquations scored = separate ? evaluation : train;
+            residual = scored.residualSumOfSquares(beta);
+            total = scored.totalSumOfSquares();
+            beta[0] += shift;
+            model = new LeastSquaresModel(form, offsets, scales, beta, 0);
+        }
+
+        return evaluate(model, sourceRows, x, y, testCount > 0 ? test : null, n - testCount, residual, total, pool);
+    }
+
+    /**
+     * 用已求得的模型扫描一次评估行，得到预测值和MAE
+     *
+     * @param test 各行是否属于测试集，为null时在全部行上评估
+     * @param residual 评估行的残差平方和
+     * @param total 评估行目标值的总平方和
+     */
+    static LeastSquaresFit evaluate(LeastSquaresModel model, int[] sourceRows, double[][] x, double[] y, boolean[] test,
+            long trainCount, double residual, double total, ForkJoinPool pool)
+    {
+        int n = y.length;
+        int features = x.length;
+        int evaluationCount = 0;
+        for (int i = 0; i < n; i++)
+        {
+            evaluationCount += test == null || test[i] ? 1 : 0;
+        }
+        int[] evaluationRows = new int[evaluationCount];
+        for (int i = 0, k = 0; i < n; i++)
+        {
+            if (test == null || test[i])
+            {
+                evaluationRows[k++] = i;
+            }
+        }
+        double[] predictions = new double[evaluationCount];
+        double[] absolute = new double[1];
+        forEachChunk(evaluationCount, pool, (from, to) -> {
+            double[] point = new double[features];
+            double[] row = new double[model.getDimension()];
+            double sum = 0;
+            for (int k = from; k < to; k++)
+            {
+                int i = evaluationRows[k];
+                for (int j = 0; j < features; j++)
+                {
+                    point[j] = x[j][i];
+                }
+                predictions[k] = model.predict(point, row);
+                sum += Math.abs(y[i] - predictions[k]);
+            }
+            synchronized (absolute)
+            {
+                absolute[0] += sum;
+            }
+        });
+
+        double r2 = total > 0 ? 1 - residual / total : Double.NaN;
+        return new LeastSquaresFit(model, sourceRows, x, y, evaluationRows, predictions, trainCount, r2,
+                residual / evaluationCount, absolute[0] / evaluationCount);
+    }
+
+    /**
+     * 自变量的平移量和缩放量
+     */
+    private static double[] transformRange(String form, double[] x)
+    {
+        int n = x.length;
+        if (LeastSquaresModel.LINEAR.equals(form) || LeastSquaresModel.LOGARITHMIC.equals(form))
+        {
+            boolean logarithmic = LeastSquaresModel.LOGARITHMIC.equals(form);
+            double mean = 0;
+            for (double value : x)
+            {
+                mean += logarithmic ? Math.log(value) : value;
+            }
+            mean /= n;
+            double squares = 0;
+            for (double value : x)
+            {
+                double d = (logarithmic ? Math.log(value) : value) - mean;
+                squares += d * d;
+            }
+            double std = Math.sqrt(squares / n);
+            return new double[] { mean, std > 0 ? std : 1 };
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : x)
+        {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        if (LeastSquaresModel.EXPONENTIAL.equals(form))
+        {
+            if (!(max > min))
+            {
+                throw new IllegalArgumentException("自变量的所有数值都相同，无法执行指数回归");
+            }
+            return new double[] { min, max - min };
+        }
+        return new double[] { (min + max) / 2, max > min ? (max - min) / 2 : 1 };
+    }
+
+    /**
+     * 按0.1%/99.9%分位数截断（与np.percentile的线性插值一致），常数列不处理
+     * 分位数用快速选择求得，不需要整列排序
+     */
+    private static void clipOutliers(double[] values)
+    {
+        double[] bounds = clipBounds(values);
+        if (bounds == null)
+        {
+            return;
+        }
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = Math.min(bounds[1], Math.max(bounds[0], values[i]));
+        }
+    }
+
+    /**
+     * 截断的上下界，常数列返回null
+     */
+    static double[] clipBounds(double[] values)
+    {
+        double[] work = values.clone();
+        double lower = percentile(work, 100 - CLIP_PERCENTILE);
+        double upper = percentile(work, CLIP_PERCENTILE);
+        return upper > lower ? new double[] { lower, upper } : null;
+    }
+
+    /**
+     * 线性插值分位数，work的元素顺序会被打乱
+     */
+    static double percentile(double[] work, double percent)
+    {
+        double position = percent / 100 * (work.length - 1);
+        int low = (int) Math.floor(position);
+        double value = select(work, low);
+        if (low + 1 >= work.length || position == low)
+        {
+            return value;
+        }
+        // 选择后low右侧都不小于它，其中最小者即第low+1小
+        double next = Double.POSITIVE_INFINITY;
+        for (int i = low + 1; i < work.length; i++)
+        {
+            next = Math.min(next, work[i]);
+        }
+        return value + (position - low) * (next - value);
+    }
+
+    /**
+     * 快速选择第k小的元素，完成后k左侧不大于它、右侧不小于它
+     */
+    private static double select(double[] work, int k)
+    {
+        int left = 0;
+        int right = work.length - 1;
+        while (right > left)
+        {
+            int middle = (left + right) >>> 1;
+            // 三数取中作为枢轴
+            if (work[middle] < work[left])
+            {
+                swap(work, middle, left);
+            }
+            if (work[right] < work[left])
+            {
+                swap(work, right, left);
+            }
+            if (work[right] < work[middle])
+            {
+                swap(work, right, middle);
+            }
+            double pivot = work[middle];
+            int i = left;
+            int j = right;
+            while (i <= j)
+            {
+                while (work[i] < pivot)
+                {
+                    i++;
+                }
+                while (work[j] > pivot)
+                {
+                    j--;
+                }
+                if (i <= j)
+                {
+                    swap(work, i++, j--);
+                }
+            }
+            if (k <= j)
+            {
+                right = j;
+            }
+            else if (k >= i)
+            {
+                left = i;
+            }
+            else
+            {
+                break;
+            }
+        }
+        return work[k];
+    }
+
+    private static void swap(double[] values, int i, int j)
+    {
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    /**
+     * 原始数据中第index行是否划入测试集
+     */
+    static boolean isTest(int index, long seed, double testSize)
+    {
+        long z = seed * 0x9E3779B97F4A7C15L + (index + 1L) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 11) * 0x1.0p-53 < testSize;
+    }
+
+    /**
+     * 变量投影求指数速率：抽样行上按固定步长粗扫，再在最优点两侧一个步长内用Brent法（抛物线插值加黄金分割）细化
+     */
+    static double fitRate(double[] u, double[] y, ForkJoinPool pool)
+    {
+        int stride = Math.max(1, u.length / SCAN_ROWS);
+        double best = RATE_STEP;
+        double bestResidual = Double.POSITIVE_INFINITY;
+        for (double rate = -RATE_LIMIT; rate <= RATE_LIMIT; rate += RATE_STEP)
+        {
+            if (Math.abs(rate) < RATE_STEP / 2)
+            {
+                continue;
+            }
+            ExponentialSums sums = new ExponentialSums();
+            for (int i = 0; i < u.length; i += stride)
+            {
+                sums.add(Math.expm1(rate * u[i]), y[i]);
+            }
+            double residual = sums.residualSumOfSquares();
+            if (residual < bestResidual)
+            {
+                bestResidual = residual;
+                best = rate;
+            }
+        }
+
+        double low = best - RATE_STEP;
+        double high = best + RATE_STEP;
+        double x = best;
+        double w = x;
+        double v = x;
+        double fx = exponentialSums(u, y, x, pool).residualSumOfSquares();
+        double fw = fx;
+        double fv = fx;
+        double d = 0;
+        double e = 0;
+        for (int iteration = 0; iteration < BRENT_ITERATIONS; iteration++)
+        {
+            double middle = (low + high) / 2;
+            double tolerance = BRENT_TOLERANCE * Math.abs(x) + 1e-12;
+            if (Math.abs(x - middle) <= 2 * tolerance - (high - low) / 2)
+            {
+                break;
+            }
+            boolean golden = true;
+            if (Math.abs(e) > tolerance)
+            {
+                // 过x、w、v三点的抛物线顶点
+                double r = (x - w) * (fx - fv);
+                double q = (x - v) * (fx - fw);
+                double p = (x - v) * q - (x - w) * r;
+                q = 2 * (q - r);
+                if (q > 0)
+                {
+                    p = -p;
+                }
+                q = Math.abs(q);
+                double previous = e;
+                e = d;
+                if (Math.abs(p) < Math.abs(q * previous / 2) && p > q * (low - x) && p < q * (high - x))
+                {
+                    d = p / q;
+                    double candidate = x + d;
+                    if (candidate - low < 2 * tolerance || high - candidate < 2 * tolerance)
+                    {
+                        d = middle >= x ? tolerance : -tolerance;
+                    }
+                    golden = false;
+                }
+            }
+            if (golden)
+            {
+                e = x >= middle ? low - x : high - x;
+                d = (1 - GOLDEN_RATIO) * e;
+            }
+            double next = Math.abs(d) >= tolerance ? x + d : x + (d > 0 ? tolerance : -tolerance);
+            double fn = exponentialSums(u, y, next, pool).residualSumOfSquares();
+            if (fn <= fx)
+            {
+                if (next >= x)
+                {
+                    low = x;
+                }
+                else
+                {
+                    high = x;
+                }
+                v = w;
+                fv = fw;
+                w = x;
+                fw = fx;
+                x = next;
+                fx = fn;
+            }
+            else
+            {
+                if (next < x)
+                {
+                    low = next;
+                }
+                else
+                {
+                    high = next;
+                }
+                if (fn <= fw || w == x)
+                {
+                    v = w;
+                    fv = fw;
+                    w = next;
+                    fw = fn;
+                }
+                else if (fn <= fv || v == x || v == w)
+                {
+                    v = next;
+                    fv = fn;
+                }
+            }
+        }
+        return x;
+    }
+
+    private static ExponentialSums exponentialSums(double[] u, double[] y, double rate, ForkJoinPool pool)
+    {
+        ExponentialSums total = new ExponentialSums();
+        forEachChunk(u.length, pool, (from, to) -> {
+            ExponentialSums local = new ExponentialSums();
+            for (int i = from; i < to; i++)
+            {
+                local.add(Math.expm1(rate * u[i]), y[i]);
+            }
+            total.merge(local);
+        });
+        return total;
+    }
+
+    /**
+     * 给定速率时y对e = expm1(rate·u)和常数项的二元最小二乘统计量
+     */
+    static class ExponentialSums
+    {
+        private long count;
+        private double sumE;
+        private double sumEE;
+        private double sumEY;
+        private double sumY;
+        private double sumYY;
+
+        void add(double e, double y)
+        {
+            count++;
+            sumE += e;
+            sumEE += e * e;
+            sumEY += e * y;
+            sumY += y;
+            sumYY += y * y;
+        }
+
+        synchronized void merge(ExponentialSums other)
+        {
+            count += other.count;
+            sumE += other.sumE;
+            sumEE += other.sumEE;
+            sumEY += other.sumEY;
+            sumY += other.sumY;
+            sumYY += other.sumYY;
+        }
+
+        /**
+         * e的离差平方和，速率过大溢出时为无穷大，e几乎为常数时为0
+         */
+        double varianceE()
+        {
+            if (Double.isNaN(sumEE) || Double.isInfinite(sumEE))
+            {
+                return Double.POSITIVE_INFINITY;
+            }
+            double value = sumEE - sumE * sumE / count;
+            return value > 1e-14 * sumEE ? value : 0;
+        }
+
+        /**
+         * exp(rate·u)基下的系数[常数项, 斜率]
+         *
+         * @param shift 累加前目标值减去的量
+         */
+        double[] coefficients(double shift)
+        {
+            double slope = slope();
+            double constant = (sumY - slope * sumE) / count;
+            // 拟合用的基函数是expm1(rate·u)，换回exp(rate·u)时常数项减去slope
+            return new double[] { constant - slope + shift, slope };
+        }
+
+        double slope()
+        {
+            double variance = varianceE();
+            return variance > 0 && !Double.isInfinite(variance) ? (sumEY - sumE * sumY / count) / variance : 0;
+        }
+
+        double totalSumOfSquares()
+        {
+            return Math.max(0, sumYY - sumY * sumY / count);
+        }
+
+        double residualSumOfSquares()
+        {
+            double variance = varianceE();
+            double total = totalSumOfSquares();
+            if (Double.isInfinite(variance))
+            {
+                return Double.POSITIVE_INFINITY;
+            }
+            if (variance == 0)
+            {
+                return total;
+            }
+            double covariance = sumEY - sumE * sumY / count;
+            return Math.max(0, total - covariance * covariance / variance);
+        }
+    }
+
+    interface RangeAction
+    {
+        void run(int from, int to);
+    }
+
+    static void forEachChunk(int length, ForkJoinPool pool, RangeAction action)
+    {
+        List<RecursiveAction> tasks = new ArrayList<>();
+        for (int from = 0; from < length; from += CHUNK_ROWS)
+        {
+            int start = from;
+            int end = Math.min(length, from + CHUNK_ROWS);
+            tasks.add(new RecursiveAction()
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute()
+                {
+                    action.run(start, end);
+                }
+            });
+        }
+        pool.invoke(new RecursiveAction()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    static boolean isFinite(double value)
+    {
+        return !Double.isNaN(value) && !Double.isInfinite(value);
+    }
+
+    public LeastSquaresModel getModel()
+    {
+        return model;
+    }
+
+    /**
+     * 清洗后参与回归的行数
+     */
+    public int getRowCount()
+    {
+        return target.length;
+    }
+
+    public long getTrainCount()
+    {
+        return trainCount;
+    }
+
+    /**
+     * 清洗后各行在原始数据中的行号
+     */
+    public int[] getSourceRows()
+    {
+        return sourceRows;
+    }
+
+    /**
+     * 清洗（截断）后的自变量值，按自变量列存放
+     */
+    public double[][] getFeatures()
+    {
+        return features;
+    }
+
+    /**
+     * 清洗（截断）后的目标值
+     */
+    public double[] getTarget()
+    {
+        return target;
+    }
+
+    /**
+     * 评估行（划分时为测试集，否则为全部行）在清洗后数据中的序号
+     */
+    public int[] getEvaluationRows()
+    {
+        return evaluationRows;
+    }
+
+    /**
+     * 评估行的预测值
+     */
+    public double[] getPredictions()
+    {
+        return predictions;
+    }
+
+    public double getR2()
+    {
+        return r2;
+    }
+
+    public double getMeanSquaredError()
+    {
+        return meanSquaredError;
+    }
+
+    public double getRootMeanSquaredError()
+    {
+        return Math.sqrt(meanSquaredError);
+    }
+
+    public double getMeanAbsoluteError()
+    {
+        return meanAbsoluteError;
+    }
+}
@@ -0,0 +1,372 @@
+package com.ruoyi.petrol.engine.regression;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 闭式最小二乘回归模型
+ * 模型只由自变量的平移/缩放量和基函数系数组成，保存在petrol_model.model_params中，预测时不需要模型文件
+ *
+ * 各形式的基函数（u为平移缩放后的自变量）：
+ * linear      1, u1..um，u = (x - 均值) / 标准差
+ * polynomial  勒让德多项式P0(u)..Pd(u)，u = (x - 区间中点) / 半区间长度，落在[-1,1]内，比幂次基数值稳定
+ * logarithmic 1, u，u = (ln x - 均值) / 标准差，x必须为正
+ * exponential 1, exp(rate·u)，u = (x - 最小值) / 区间长度
+ *
+ * @author ruoyi
+ */
+public class LeastSquaresModel
+{
+    public static final String LINEAR = "linear";
+
+    public static final String POLYNOMIAL = "polynomial";
+
+    public static final String LOGARITHMIC = "logarithmic";
+
+    public static final String EXPONENTIAL = "exponential";
+
+    /** model_params中标识闭式模型的键 */
+    public static final String FORM_KEY = "model_form";
+
+    private final String form;
+    private final double[] offsets;
+    private final double[] scales;
+    private final double[] coefficients;
+    private final double rate;
+
+    LeastSquaresModel(String form, double[] offsets, double[] scales, double[] coefficients, double rate)
+    {
+        this.form = form;
+        this.offsets = offsets;
+        this.scales = scales;
+        this.coefficients = coefficients;
+        this.rate = rate;
+    }
+
+    public static boolean isSupported(String form)
+    {
+        return LINEAR.equals(form) || POLYNOMIAL.equals(form) || LOGARITHMIC.equals(form) || EXPONENTIAL.equals(form);
+    }
+
+    /**
+     * model_params是否描述了一个闭式模型
+     */
+    public static boolean isClosedForm(Map<String, Object> params)
+    {
+        return params != null && params.get(FORM_KEY) instanceof String && isSupported((String) params.get(FORM_KEY));
+    }
+
+    /**
+     * 基函数个数
+     */
+    static int dimension(String form, int featureCount, int degree)
+    {
+        if (LINEAR.equals(form))
+        {
+            return featureCount + 1;
+        }
+        return POLYNOMIAL.equals(form) ? degree + 1 : 2;
+    }
+
+    /**
+     * 计算一行的基函数值
+     *
+     * @return 自变量缺失或超出定义域时返回false
+     */
+    boolean basis(double[] x, double[] out)
+    {
+        if (LINEAR.equals(form))
+        {
+            out[0] = 1;
+            for (int j = 0; j < offsets.length; j++)
+            {
+                if (!isFinite(x[j]))
+                {
+                    return false;
+                }
+                out[j + 1] = (x[j] - offsets[j]) / scales[j];
+            }
+            return true;
+        }
+        double value = x[0];
+        if (!isFinite(value) || (LOGARITHMIC.equals(form) && !(value > 0)))
+        {
+            return false;
+        }
+        if (LOGARITHMIC.equals(form))
+        {
+            value = Math.log(value);
+        }
+        double u = (value - offsets[0]) / scales[0];
+        out[0] = 1;
+        if (POLYNOMIAL.equals(form))
+        {
+            if (out.length > 1)
+            {
+                out[1] = u;
+            }
+            for (int k = 1; k + 1 < out.length; k++)
+            {
+                out[k + 1] = ((2 * k + 1) * u * out[k] - k * out[k - 1]) / (k + 1);
+            }
+        }
+        else if (EXPONENTIAL.equals(form))
+        {
+            out[1] = Math.exp(rate * u);
+        }
+        else
+        {
+            out[1] = u;
+        }
+        return true;
+    }
+
+    /**
+     * 预测一行
+     *
+     * @param x 各自变量的原始值
+     * @return 预测值，自变量缺失或超出定义域时为NaN
+     */
+    public double predict(double[] x)
+    {
+        double[] row = new double[coefficients.length];
+        return predict(x, row);
+    }
+
+    /**
+     * 预测一行，row为调用方复用的基函数缓冲区
+     */
+    public double predict(double[] x, double[] row)
+    {
+        if (!basis(x, row))
+        {
+            return Double.NaN;
+        }
+        double value = 0;
+        for (int i = 0; i < coefficients.length; i++)
+        {
+            value += coefficients[i] * row[i];
+        }
+        return value;
+    }
+
+    /**
+     * 原始自变量下的系数
+     * linear为[截距, b1..bm]；polynomial为按x升幂排列的系数；logarithmic为[a, b]（y = a + b·ln x）；
+     * exponential为[a, b, c]（y = a·exp(b·x) + c）
+     */
+    public double[] rawCoefficients()
+    {
+        if (LINEAR.equals(form))
+        {
+            double[] raw = new double[coefficients.length];
+            raw[0] = coefficients[0];
+            for (int j = 0; j < offsets.length; j++)
+            {
+                raw[j + 1] = coefficients[j + 1] / scales[j];
+                raw[0] -= raw[j + 1] * offsets[j];
+            }
+            return raw;
+        }
+        if (LOGARITHMIC.equals(form))
+        {
+            double b = coefficients[1] / scales[0];
+            return new double[] { coefficients[0] - b * offsets[0], b };
+        }
+        if (EXPONENTIAL.equals(form))
+        {
+            double b = rate / scales[0];
+            return new double[] { coefficients[1] * Math.exp(-rate * offsets[0] / scales[0]), b, coefficients[0] };
+        }
+        return polynomialCoefficients();
+    }
+
+    /**
+     * 勒让德基系数换算为u的幂次系数，再代入u = (x - o) / s按二项式展开
+     */
+    private double[] polynomialCoefficients()
+    {
+        int n = coefficients.length;
+        double[] inU = new double[n];
+        double[] previous = new double[n];
+        double[] current = new double[n];
+        previous[0] = 1;
+        inU[0] += coefficients[0];
+        if (n > 1)
+        {
+            current[1] = 1;
+            inU[1] += coefficients[1];
+        }
+        for (int k = 1; k + 1 < n; k++)
+        {
+            double[] next = new double[n];
+            for (int p = 0; p <= k; p++)
+            {
+                next[p + 1] += (2 * k + 1) * current[p] / (k + 1);
+                next[p] -= k * previous[p] / (k + 1);
+            }
+            for (int p = 0; p < n; p++)
+            {
+                inU[p] += coefficients[k + 1] * next[p];
+            }
+            previous = current;
+            current = next;
+        }
+
+        double offset = offsets[0];
+        double scale = scales[0];
+        double[] raw = new double[n];
+        for (int k = 0; k < n; k++)
+        {
+            double factor = inU[k] / Math.pow(scale, k);
+            // (x - o)^k = Σ C(k,j) x^j (-o)^(k-j)
+            double binomial = 1;
+            for (int j = 0; j <= k; j++)
+            {
+                raw[j] += factor * binomial * Math.pow(-offset, k - j);
+                binomial = binomial * (k - j) / (j + 1);
+            }
+        }
+        return raw;
+    }
+
+    /**
+     * 与Python端输出一致的方程式，仅对数和指数形式
+     */
+    public String equation()
+    {
+        double[] raw = rawCoefficients();
+        if (LOGARITHMIC.equals(form))
+        {
+            return String.format(Locale.ROOT, "y = %.4f + %.4f * log(x)", raw[0], raw[1]);
+        }
+        if (EXPONENTIAL.equals(form))
+        {
+            return String.format(Locale.ROOT, "y = %.4f * exp(%.4f * x) + %.4f", raw[0], raw[1], raw[2]);
+        }
+        return null;
+    }
+
+    /**
+     * 写入model_params的参数：预测所需的平移缩放量和基函数系数，以及与Python端同名的原始系数
+     */
+    public Map<String, Object> toParams()
+    {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put(FORM_KEY, form);
+        params.put("x_offset", toList(offsets));
+        params.put("x_scale", toList(scales));
+        params.put("basis_coefficients", toList(coefficients));
+        double[] raw = rawCoefficients();
+        if (LINEAR.equals(form))
+        {
+            List<Double> slopes = new ArrayList<>();
+            for (int j = 1; j < raw.length; j++)
+            {
+                slopes.add(raw[j]);
+            }
+            params.put("coefficient", slopes);
+            params.put("intercept", raw[0]);
+        }
+        else if (POLYNOMIAL.equals(form))
+        {
+            params.put("degree", coefficients.length - 1);
+            params.put("coefficient_count", coefficients.length);
+            params.put("intercept", raw[0]);
+            params.put("polynomial_coefficients", toList(raw));
+        }
+        else if (LOGARITHMIC.equals(form))
+        {
+            params.put("a", raw[0]);
+            params.put("b", raw[1]);
+            params.put("intercept", raw[0]);
+            params.put("coefficient", raw[1]);
+        }
+        else
+        {
+            params.put("rate", rate);
+            params.put("a", raw[0]);
+            params.put("b", raw[1]);
+            params.put("c", raw[2]);
+        }
+        return params;
+    }
+
+    /**
+     * 从model_params恢复模型
+     *
+     * @throws IllegalArgumentException 不是闭式模型或参数不完整
+     */
+    public static LeastSquaresModel fromParams(Map<String, Object> params)
+    {
+        if (!isClosedForm(params))
+        {
+            throw new IllegalArgumentException("模型参数中没有闭式回归模型: " + (params != null ? params.get(FORM_KEY) : null));
+        }
+        String form = (String) params.get(FORM_KEY);
+        double[] offsets = toArray(params.get("x_offset"));
+        double[] scales = toArray(params.get("x_scale"));
+        double[] coefficients = toArray(params.get("basis_coefficients"));
+        double rate = params.get("rate") instanceof Number ? ((Number) params.get("rate")).doubleValue() : 0;
+        if (offsets.length == 0 || offsets.length != scales.length
+                || coefficients.length != dimension(form, offsets.length, coefficients.length - 1))
+        {
+            throw new IllegalArgumentException("闭式回归模型参数不完整");
+        }
+        return new LeastSquaresModel(form, offsets, scales, coefficients, rate);
+    }
+
+    private static List<Double> toList(double[] values)
+    {
+        List<Double> list = new ArrayList<>(values.length);
+        for (double value : values)
+        {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static double[] toArray(Object value)
+    {
+        if (!(value instanceof List))
+        {
+            return new double[0];
+        }
+        List<?> list = (List<?>) value;
+        double[] array = new double[list.size()];
+        for (int i = 0; i < array.length; i++)
+        {
+            array[i] = ((Number) list.get(i)).doubleValue();
+        }
+        return array;
+    }
+
+    private static boolean isFinite(double value)
+    {
+        return !Double.isNaN(value) && !Double.isInfinite(value);
+    }
+
+    public String getForm()
+    {
+        return form;
+    }
+
+    /**
+     * 基函数个数，即predict(x, row)中row的长度
+     */
+    public int getDimension()
+    {
+        return coefficients.length;
+    }
+
+    /**
+     * 自变量个数
+     */
+    public int getFeatureCount()
+    {
+        return offsets.length;
+    }
+}
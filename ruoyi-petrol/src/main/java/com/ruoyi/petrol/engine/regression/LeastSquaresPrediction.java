@@ -0,0 +1,195 @@
+package com.ruoyi.petrol.engine.regression;
+
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 用闭式回归模型对列式文件中的行做预测
+ * 自变量缺失（对数形式还包括非正值）的行跳过，结果结构与Python端BasePredictorAlgorithm的输出一致
+ *
+ * @author ruoyi
+ */
+public class LeastSquaresPrediction
+{
+    private final List<String> featureColumns;
+    private final int[] rows;
+    private final double[][] inputs;
+    private final double[] predictions;
+    private final int skipped;
+
+    private LeastSquaresPrediction(List<String> featureColumns, int[] rows, double[][] inputs, double[] predictions,
+            int skipped)
+    {
+        this.featureColumns = featureColumns;
+        this.rows = rows;
+        this.inputs = inputs;
+        this.predictions = predictions;
+        this.skipped = skipped;
+    }
+
+    /**
+     * 预测指定的行
+     *
+     * @param model 闭式回归模型
+     * @param columnar 输入数据
+     * @param featureColumns 自变量列名，顺序与训练时相同
+     * @param selectedRows 要预测的行号，为null时预测全部行；超出范围的行号忽略
+     */
+    public static LeastSquaresPrediction compute(LeastSquaresModel model, ColumnarFile columnar,
+            List<String> featureColumns, int[] selectedRows)
+    {
+        if (featureColumns == null || featureColumns.size() != model.getFeatureCount())
+        {
+            throw new IllegalArgumentException("自变量列数与模型不一致: " + featureColumns);
+        }
+        int features = featureColumns.size();
+        int[] columns = new int[features];
+        for (int j = 0; j < features; j++)
+        {
+            columns[j] = columnar.getColumnIndex(featureColumns.get(j));
+            if (columns[j] < 0 || !columnar.isNumeric(columns[j]))
+            {
+                throw new IllegalArgumentException("列不存在或不是数值列: " + featureColumns.get(j));
+            }
+        }
+
+        int rowCount = columnar.getRowCount();
+        int[] candidates;
+        if (selectedRows == null)
+        {
+            candidates = new int[rowCount];
+            for (int r = 0; r < rowCount; r++)
+            {
+                candidates[r] = r;
+            }
+        }
+        else
+        {
+            candidates = Arrays.stream(selectedRows).filter(r -> r >= 0 && r < rowCount).toArray();
+        }
+
+        double[][] inputs = new double[features][candidates.length];
+        double[] predictions = new double[candidates.length];
+        int[] rows = new int[candidates.length];
+        double[] point = new double[features];
+        double[] basis = new double[model.getDimension()];
+        int count = 0;
+        for (int r : candidates)
+        {
+            for (int j = 0; j < features; j++)
+            {
+                point[j] = columnar.getDouble(columns[j], r);
+            }
+            double value = model.predict(point, basis);
+            if (Double.isNaN(value))
+            {
+                continue;
+            }
+            for (int j = 0; j < features; j++)
+            {
+                inputs[j][count] = point[j];
+            }
+            rows[count] = r;
+            predictions[count++] = value;
+        }
+        if (count == 0)
+        {
+            throw new IllegalArgumentException("没有可预测的行，自变量全部缺失或超出模型定义域");
+        }
+        for (int j = 0; j < features; j++)
+        {
+            inputs[j] = Arrays.copyOf(inputs[j], count);
+        }
+        return new LeastSquaresPrediction(featureColumns, Arrays.copyOf(rows, count), inputs,
+                Arrays.copyOf(predictions, count), candidates.length - count);
+    }
+
+    /**
+     * 预测结果：predictions、input_data（各行自变量）、statistics（含与pandas describe相同的prediction_summary）
+     */
+    public Map<String, Object> toResult()
+    {
+        List<Double> values = new ArrayList<>(predictions.length);
+        List<Map<String, Object>> inputData = new ArrayList<>(predictions.length);
+        for (int k = 0; k < predictions.length; k++)
+        {
+            values.add(predictions[k]);
+            Map<String, Object> record = new LinkedHashMap<>();
+            for (int j = 0; j < featureColumns.size(); j++)
+            {
+                record.put(featureColumns.get(j), inputs[j][k]);
+            }
+            inputData.add(record);
+        }
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("message", String.format(Locale.ROOT, "Successfully made %d predictions.", predictions.length));
+        statistics.put("prediction_summary", describe());
+        statistics.put("task_type", "regression");
+        statistics.put("skipped_rows", skipped);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("predictions", values);
+        result.put("input_data", inputData);
+        result.put("statistics", statistics);
+        result.put("excel_report", new LinkedHashMap<>());
+        return result;
+    }
+
+    /**
+     * 预测值的描述统计，std为样本标准差
+     */
+    private Map<String, Object> describe()
+    {
+        int n = predictions.length;
+        double mean = 0;
+        for (double value : predictions)
+        {
+            mean += value;
+        }
+        mean /= n;
+        double squares = 0;
+        for (double value : predictions)
+        {
+            squares += (value - mean) * (value - mean);
+        }
+        double[] work = predictions.clone();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", (double) n);
+        summary.put("mean", mean);
+        summary.put("std", n > 1 ? Math.sqrt(squares / (n - 1)) : null);
+        summary.put("min", LeastSquaresFit.percentile(work, 0));
+        summary.put("25%", LeastSquaresFit.percentile(work, 25));
+        summary.put("50%", LeastSquaresFit.percentile(work, 50));
+        summary.put("75%", LeastSquaresFit.percentile(work, 75));
+        summary.put("max", LeastSquaresFit.percentile(work, 100));
+        return summary;
+    }
+
+    /**
+     * 被预测的行号
+     */
+    public int[] getRows()
+    {
+        return rows;
+    }
+
+    public double[] getPredictions()
+    {
+        return predictions;
+    }
+
+    /**
+     * 自变量缺失或超出定义域而跳过的行数
+     */
+    public int getSkipped()
+    {
+        return skipped;
+    }
+}
@@ -0,0 +1,195 @@
+package com.ruoyi.petrol.engine.regression;
+
+/**
+ * 最小二乘的充分统计量
+ * 逐行累加XᵀX、Xᵀy、yᵀy、Σy和行数，分块累加后合并；求解用Cholesky分解，
+ * 残差平方和与总平方和也由这些统计量直接得到，不需要再扫描数据
+ *
+ * 调用方应先把各基函数中心化、缩放到相近量级，目标值减去均值，否则大数相减会损失精度
+ *
+ * @author ruoyi
+ */
+public class NormalEquations
+{
+    /** Cholesky分解时主元相对于原对角元的最小比例，低于此值视为设计矩阵奇异 */
+    private static final double PIVOT_TOLERANCE = 1e-12;
+
+    private final int dimension;
+    /** XᵀX按行存放，只累加上三角 */
+    private final double[] xtx;
+    private final double[] xty;
+    private double yty;
+    private double sumY;
+    private long count;
+
+    public NormalEquations(int dimension)
+    {
+        this.dimension = dimension;
+        this.xtx = new double[dimension * dimension];
+        this.xty = new double[dimension];
+    }
+
+    /**
+     * 累加一行
+     *
+     * @param row 该行的基函数值
+     * @param y 目标值
+     */
+    public void add(double[] row, double y)
+    {
+        for (int i = 0; i < dimension; i++)
+        {
+            double ri = row[i];
+            int base = i * dimension;
+            for (int j = i; j < dimension; j++)
+            {
+                xtx[base + j] += ri * row[j];
+            }
+            xty[i] += ri * y;
+        }
+        yty += y * y;
+        sumY += y;
+        count++;
+    }
+
+    /**
+     * 合并另一部分数据的统计量
+     */
+    public synchronized void merge(NormalEquations other)
+    {
+        for (int i = 0; i < xtx.length; i++)
+        {
+            xtx[i] += other.xtx[i];
+        }
+        for (int i = 0; i < dimension; i++)
+        {
+            xty[i] += other.xty[i];
+        }
+        yty += other.yty;
+        sumY += other.sumY;
+        count += other.count;
+    }
+
+    /**
+     * 只取前k个基函数时的统计量
+     * 基函数嵌套时（如勒让德多项式P0..Pd）低次模型的XᵀX、Xᵀy就是高次模型的左上角子块，不需要重新累加
+     */
+    public NormalEquations leading(int k)
+    {
+        if (k < 1 || k > dimension)
+        {
+            throw new IllegalArgumentException("子块维数超出范围: " + k);
+        }
+        NormalEquations block = new NormalEquations(k);
+        for (int i = 0; i < k; i++)
+        {
+            System.arraycopy(xtx, i * dimension, block.xtx, i * k, k);
+            block.xty[i] = xty[i];
+        }
+        block.yty = yty;
+        block.sumY = sumY;
+        block.count = count;
+        return block;
+    }
+
+    /**
+     * 求解XᵀXβ = Xᵀy
+     *
+     * @throws IllegalArgumentException 有效行数不足或设计矩阵奇异（如自变量为常数）
+     */
+    public double[] solve()
+    {
+        if (count < dimension)
+        {
+            throw new IllegalArgumentException("有效样本数不足，至少需要" + dimension + "个: " + count);
+        }
+        int n = dimension;
+        double[] lower = new double[n * n];
+        for (int j = 0; j < n; j++)
+        {
+            double diagonal = xtx[j * n + j];
+            double sum = diagonal;
+            for (int k = 0; k < j; k++)
+            {
+                sum -= lower[j * n + k] * lower[j * n + k];
+            }
+            if (!(sum > PIVOT_TOLERANCE * diagonal))
+            {
+                throw new IllegalArgumentException("设计矩阵奇异，自变量取值变化不足或样本数过少");
+            }
+            double pivot = Math.sqrt(sum);
+            lower[j * n + j] = pivot;
+            for (int i = j + 1; i < n; i++)
+            {
+                // XᵀX(i,j)取上三角的(j,i)
+                double value = xtx[j * n + i];
+                for (int k = 0; k < j; k++)
+                {
+                    value -= lower[i * n + k] * lower[j * n + k];
+                }
+                lower[i * n + j] = value / pivot;
+            }
+        }
+
+        double[] z = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            double value = xty[i];
+            for (int k = 0; k < i; k++)
+            {
+                value -= lower[i * n + k] * z[k];
+            }
+            z[i] = value / lower[i * n + i];
+        }
+        double[] beta = new double[n];
+        for (int i = n - 1; i >= 0; i--)
+        {
+            double value = z[i];
+            for (int k = i + 1; k < n; k++)
+            {
+                value -= lower[k * n + i] * beta[k];
+            }
+            beta[i] = value / lower[i * n + i];
+        }
+        return beta;
+    }
+
+    /**
+     * 残差平方和 yᵀy − 2βᵀXᵀy + βᵀXᵀXβ
+     */
+    public double residualSumOfSquares(double[] beta)
+    {
+        double quadratic = 0;
+        double cross = 0;
+        for (int i = 0; i < dimension; i++)
+        {
+            int base = i * dimension;
+            double row = xtx[base + i] * beta[i];
+            for (int j = i + 1; j < dimension; j++)
+            {
+                row += 2 * xtx[base + j] * beta[j];
+            }
+            quadratic += beta[i] * row;
+            cross += beta[i] * xty[i];
+        }
+        return Math.max(0, yty - 2 * cross + quadratic);
+    }
+
+    /**
+     * 目标值的总平方和（相对其均值）
+     */
+    public double totalSumOfSquares()
+    {
+        return count == 0 ? 0 : Math.max(0, yty - sumY * sumY / count);
+    }
+
+    public int getDimension()
+    {
+        return dimension;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+}
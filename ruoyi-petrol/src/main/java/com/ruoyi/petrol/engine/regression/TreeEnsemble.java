@@ -0,0 +1,437 @@
+package com.ruoyi.petrol.engine.regression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 树集成回归模型（XGBoost、LightGBM、随机森林）的推理引擎
+ * 由Python训练时导出的节点表（.trees.json）加载，全部树的内部节点平铺在同一组数组中：
+ * feature、threshold、left、right、defaultLeft按节点下标对齐，子节点下标为负数~k时表示第k个叶子，叶子输出在leafValues中。
+ * 每棵树按先序排列，左子节点紧跟父节点，从根走到叶子访问的节点在内存中较集中
+ *
+ * 批量预测时把64行复制成连续的块，先按树、再按行遍历，一棵树的上层节点在整块内留在缓存中；
+ * 多于一个分片时各分片在线程池中并行计算
+ *
+ * @author ruoyi
+ */
+public class TreeEnsemble
+{
+    /** 节点表的format取值 */
+    public static final String FORMAT = "tree_ensemble";
+
+    /** 节点表文件扩展名，文件名与joblib模型文件相同 */
+    public static final String EXTENSION = ".trees.json";
+
+    private static final int VERSION = 1;
+
+    /** 一块的行数，块内特征约占64·特征数·8字节 */
+    private static final int BLOCK_ROWS = 64;
+
+    /** 批量预测时每个分片的行数 */
+    private static final int CHUNK_ROWS = 1 << 12;
+
+    private final String library;
+    private final List<String> featureColumns;
+    private final boolean float32Features;
+    private final boolean average;
+    private final double baseScore;
+    private final int[] roots;
+    private final int[] feature;
+    private final double[] threshold;
+    private final int[] left;
+    private final int[] right;
+    private final boolean[] defaultLeft;
+    private final double[] leafValues;
+
+    private TreeEnsemble(String library, List<String> featureColumns, boolean float32Features, boolean average,
+            double baseScore, int treeCount, int nodeCount, int leafCount)
+    {
+        this.library = library;
+        this.featureColumns = featureColumns;
+        this.float32Features = float32Features;
+        this.average = average;
+        this.baseScore = baseScore;
+        this.roots = new int[treeCount];
+        this.feature = new int[nodeCount];
+        this.threshold = new double[nodeCount];
+        this.left = new int[nodeCount];
+        this.right = new int[nodeCount];
+        this.defaultLeft = new boolean[nodeCount];
+        this.leafValues = new double[leafCount];
+    }
+
+    /**
+     * 由节点表构建模型
+     * decision为less（x < 阈值走左子树）时阈值换成下一个较小的double，统一按x <= 阈值比较
+     *
+     * @param dump 节点表JSON解析后的Map
+     * @throws IllegalArgumentException 格式、版本不支持或节点结构不合法
+     */
+    public static TreeEnsemble fromDump(Map<String, Object> dump)
+    {
+        if (dump == null || !FORMAT.equals(dump.get("format")) || toInt(dump.get("version")) != VERSION)
+        {
+            throw new IllegalArgumentException("不支持的树模型格式");
+        }
+        String decision = String.valueOf(dump.get("decision"));
+        if (!"less".equals(decision) && !"less_equal".equals(decision))
+        {
+            throw new IllegalArgumentException("不支持的分裂比较方式: " + decision);
+        }
+        String aggregation = String.valueOf(dump.get("aggregation"));
+        if (!"sum".equals(aggregation) && !"mean".equals(aggregation))
+        {
+            throw new IllegalArgumentException("不支持的树输出合并方式: " + aggregation);
+        }
+        List<String> featureColumns = new ArrayList<>();
+        for (Object column : list(dump.get("feature_columns")))
+        {
+            featureColumns.add(String.valueOf(column));
+        }
+        List<?> trees = list(dump.get("trees"));
+        if (featureColumns.isEmpty() || trees.isEmpty())
+        {
+            throw new IllegalArgumentException("树模型没有特征列或树");
+        }
+
+        // 第一遍：校验每棵树并求出从根可达节点的先序
+        List<int[]> orders = new ArrayList<>(trees.size());
+        List<Map<?, ?>> tables = new ArrayList<>(trees.size());
+        int nodeCount = 0;
+        int leafCount = 0;
+        for (Object tree : trees)
+        {
+            if (!(tree instanceof Map))
+            {
+                throw new IllegalArgumentException("树的节点表格式不正确");
+            }
+            Map<?, ?> table = (Map<?, ?>) tree;
+            int[] leftChildren = toInts(table.get("left"));
+            int[] rightChildren = toInts(table.get("right"));
+            int[] order = preorder(leftChildren, rightChildren);
+            for (int local : order)
+            {
+                if (leftChildren[local] < 0)
+                {
+                    leafCount++;
+                }
+                else
+                {
+                    nodeCount++;
+                }
+            }
+            orders.add(order);
+            tables.add(table);
+        }
+
+        // 第二遍：按先序分配全局下标并填充数组
+        TreeEnsemble ensemble = new TreeEnsemble(String.valueOf(dump.get("library")), featureColumns,
+                Boolean.TRUE.equals(dump.get("float32_features")), "mean".equals(aggregation),
+                toDouble(dump.get("base_score")), trees.size(), nodeCount, leafCount);
+        boolean strict = "less".equals(decision);
+        int d = featureColumns.size();
+        int nextNode = 0;
+        int nextLeaf = 0;
+        for (int t = 0; t < trees.size(); t++)
+        {
+            Map<?, ?> table = tables.get(t);
+            int[] order = orders.get(t);
+            int[] leftChildren = toInts(table.get("left"));
+            int[] rightChildren = toInts(table.get("right"));
+            int[] features = toInts(table.get("feature"));
+            double[] thresholds = toDoubles(table.get("threshold"));
+            int[] defaults = toInts(table.get("default_left"));
+            double[] values = toDoubles(table.get("value"));
+            int size = leftChildren.length;
+            if (features.length != size || thresholds.length != size || defaults.length != size
+                    || values.length != size)
+            {
+                throw new IllegalArgumentException("第" + t + "棵树的节点数组长度不一致");
+            }
+
+            int[] global = new int[size];
+            for (int local : order)
+            {
+                global[local] = leftChildren[local] < 0 ? ~nextLeaf++ : nextNode++;
+            }
+            for (int local : order)
+            {
+                int id = global[local];
+                if (id < 0)
+                {
+                    ensemble.leafValues[~id] = values[local];
+                    continue;
+                }
+                if (features[local] < 0 || features[local] >= d)
+                {
+                    throw new IllegalArgumentException("第" + t + "棵树的特征下标超出范围: " + features[local]);
+                }
+                ensemble.feature[id] = features[local];
+                ensemble.threshold[id] = strict ? Math.nextDown(thresholds[local]) : thresholds[local];
+                ensemble.left[id] = global[leftChildren[local]];
+                ensemble.right[id] = global[rightChildren[local]];
+                ensemble.defaultLeft[id] = defaults[local] != 0;
+            }
+            ensemble.roots[t] = global[0];
+        }
+        return ensemble;
+    }
+
+    /**
+     * 从根节点0出发的先序，左子树先于右子树；子节点越界或节点被重复引用时抛出异常
+     */
+    private static int[] preorder(int[] leftChildren, int[] rightChildren)
+    {
+        int size = leftChildren.length;
+        if (size == 0 || rightChildren.length != size)
+        {
+            throw new IllegalArgumentException("树的节点数组为空或长度不一致");
+        }
+        int[] order = new int[size];
+        boolean[] visited = new boolean[size];
+        int[] stack = new int[size];
+        int top = 0;
+        int count = 0;
+        stack[top++] = 0;
+        visited[0] = true;
+        while (top > 0)
+        {
+            int node = stack[--top];
+            order[count++] = node;
+            if (leftChildren[node] < 0)
+            {
+                continue;
+            }
+            int l = leftChildren[node];
+            int r = rightChildren[node];
+            if (l >= size || r < 0 || r >= size || l == r || visited[l] || visited[r])
+            {
+                throw new IllegalArgumentException("树的子节点引用不正确: " + node);
+            }
+            visited[l] = true;
+            visited[r] = true;
+            stack[top++] = r;
+            stack[top++] = l;
+        }
+        int[] reachable = new int[count];
+        System.arraycopy(order, 0, reachable, 0, count);
+        return reachable;
+    }
+
+    /**
+     * 预测单行
+     *
+     * @param row 各特征的值，顺序与getFeatureColumns()相同，NaN按训练时的缺失方向处理
+     */
+    public double predict(double[] row)
+    {
+        double[] x = row;
+        if (float32Features)
+        {
+            x = new double[row.length];
+            for (int c = 0; c < row.length; c++)
+            {
+                x[c] = (float) row[c];
+            }
+        }
+        double sum = 0;
+        for (int root : roots)
+        {
+            sum += leafValues[~descend(root, x, 0)];
+        }
+        return combine(sum);
+    }
+
+    /**
+     * 批量预测，多于一个分片时各分片在线程池中并行计算
+     *
+     * @param rows 按行连续存放的特征值，第i行占[i·特征数, (i+1)·特征数)
+     * @param n 行数
+     * @param pool 计算线程池
+     * @return 各行的预测值
+     */
+    public double[] predict(double[] rows, int n, ForkJoinPool pool)
+    {
+        double[] predictions = new double[n];
+        List<RecursiveAction> tasks = new ArrayList<>();
+        for (int from = 0; from < n; from += CHUNK_ROWS)
+        {
+            int start = from;
+            int end = Math.min(n, from + CHUNK_ROWS);
+            tasks.add(new RecursiveAction()
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute()
+                {
+                    int d = featureColumns.size();
+                    double[] block = new double[BLOCK_ROWS * d];
+                    double[] sums = new double[BLOCK_ROWS];
+                    for (int blockStart = start; blockStart < end; blockStart += BLOCK_ROWS)
+                    {
+                        int size = Math.min(BLOCK_ROWS, end - blockStart);
+                        int offset = blockStart * d;
+                        for (int k = 0; k < size * d; k++)
+                        {
+                            block[k] = float32Features ? (float) rows[offset + k] : rows[offset + k];
+                        }
+                        Arrays.fill(sums, 0, size, 0.0);
+                        for (int root : roots)
+                        {
+                            for (int i = 0; i < size; i++)
+                            {
+                                sums[i] += leafValues[~descend(root, block, i * d)];
+                            }
+                        }
+                        for (int i = 0; i < size; i++)
+                        {
+                            predictions[blockStart + i] = combine(sums[i]);
+                        }
+                    }
+                }
+            });
+        }
+        if (tasks.size() == 1)
+        {
+            // 少量行直接在调用线程计算，省去线程池调度
+            tasks.get(0).invoke();
+            return predictions;
+        }
+        pool.invoke(new RecursiveAction()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+        return predictions;
+    }
+
+    /**
+     * 从node走到叶子
+     *
+     * @return 叶子的编码~k
+     */
+    private int descend(int node, double[] x, int offset)
+    {
+        while (node >= 0)
+        {
+            double value = x[offset + feature[node]];
+            double split = threshold[node];
+            // NaN与任何阈值比较都为false，走训练时记录的缺失方向
+            if (value <= split)
+            {
+                node = left[node];
+            }
+            else if (value > split)
+            {
+                node = right[node];
+            }
+            else
+            {
+                node = defaultLeft[node] ? left[node] : right[node];
+            }
+        }
+        return node;
+    }
+
+    private double combine(double sum)
+    {
+        return average ? sum / roots.length : baseScore + sum;
+    }
+
+    private static List<?> list(Object value)
+    {
+        if (!(value instanceof List))
+        {
+            throw new IllegalArgumentException("树模型缺少数组字段");
+        }
+        return (List<?>) value;
+    }
+
+    private static int[] toInts(Object value)
+    {
+        List<?> values = list(value);
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++)
+        {
+            result[i] = toInt(values.get(i));
+        }
+        return result;
+    }
+
+    private static double[] toDoubles(Object value)
+    {
+        List<?> values = list(value);
+        double[] result = new double[values.size()];
+        for (int i = 0; i < result.length; i++)
+        {
+            result[i] = toDouble(values.get(i));
+        }
+        return result;
+    }
+
+    private static int toInt(Object value)
+    {
+        if (value instanceof Boolean)
+        {
+            return (Boolean) value ? 1 : 0;
+        }
+        return value instanceof Number ? ((Number) value).intValue() : -1;
+    }
+
+    private static double toDouble(Object value)
+    {
+        if (!(value instanceof Number))
+        {
+            throw new IllegalArgumentException("树模型的数值字段不正确: " + value);
+        }
+        return ((Number) value).doubleValue();
+    }
+
+    /**
+     * 训练时的特征列，预测时按同样顺序读取
+     */
+    public List<String> getFeatureColumns()
+    {
+        return Collections.unmodifiableList(featureColumns);
+    }
+
+    /**
+     * 训练库：xgboost、lightgbm或random_forest
+     */
+    public String getLibrary()
+    {
+        return library;
+    }
+
+    public int getTreeCount()
+    {
+        return roots.length;
+    }
+
+    /**
+     * 内部节点和叶子的总数
+     */
+    public int getNodeCount()
+    {
+        return feature.length + leafValues.length;
+    }
+
+    /**
+     * 节点表占用内存的估计值（字节）
+     */
+    public long getMemoryBytes()
+    {
+        return 4L * roots.length + 21L * feature.length + 8L * leafValues.length;
+    }
+}
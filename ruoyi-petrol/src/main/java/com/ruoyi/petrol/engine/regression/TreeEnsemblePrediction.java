@@ -0,0 +1,184 @@
+package com.ruoyi.petrol.engine.regression;
+
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 用树集成模型预测列式文件中的行
+ * 特征缺失的行跳过，其余行按块并行遍历全部树，结果结构与Python端BasePredictorAlgorithm的输出一致
+ *
+ * @author ruoyi
+ */
+public class TreeEnsemblePrediction
+{
+    private final List<String> featureColumns;
+    private final int[] rows;
+    private final double[][] inputs;
+    private final double[] predictions;
+    private final int skipped;
+
+    private TreeEnsemblePrediction(List<String> featureColumns, int[] rows, double[][] inputs, double[] predictions,
+            int skipped)
+    {
+        this.featureColumns = featureColumns;
+        this.rows = rows;
+        this.inputs = inputs;
+        this.predictions = predictions;
+        this.skipped = skipped;
+    }
+
+    /**
+     * 预测指定的行
+     *
+     * @param ensemble 树集成模型
+     * @param columnar 输入数据
+     * @param selectedRows 要预测的行号，为null时预测全部行；超出范围的行号忽略
+     * @param pool 计算线程池
+     */
+    public static TreeEnsemblePrediction compute(TreeEnsemble ensemble, ColumnarFile columnar, int[] selectedRows,
+            ForkJoinPool pool)
+    {
+        List<String> featureColumns = ensemble.getFeatureColumns();
+        int d = featureColumns.size();
+        int[] columns = new int[d];
+        for (int c = 0; c < d; c++)
+        {
+            columns[c] = columnar.getColumnIndex(featureColumns.get(c));
+            if (columns[c] < 0 || !columnar.isNumeric(columns[c]))
+            {
+                throw new IllegalArgumentException("列不存在或不是数值列: " + featureColumns.get(c));
+            }
+        }
+
+        int rowCount = columnar.getRowCount();
+        int[] candidates = selectedRows == null ? null
+                : Arrays.stream(selectedRows).filter(r -> r >= 0 && r < rowCount).toArray();
+        int total = candidates != null ? candidates.length : rowCount;
+
+        double[][] inputs = new double[d][total];
+        double[] points = new double[total * d];
+        int[] rows = new int[total];
+        int count = 0;
+        for (int k = 0; k < total; k++)
+        {
+            int r = candidates != null ? candidates[k] : k;
+            boolean valid = true;
+            for (int c = 0; c < d && valid; c++)
+            {
+                double value = columnar.getDouble(columns[c], r);
+                valid = !Double.isNaN(value);
+                points[count * d + c] = value;
+            }
+            if (!valid)
+            {
+                continue;
+            }
+            for (int c = 0; c < d; c++)
+            {
+                inputs[c][count] = points[count * d + c];
+            }
+            rows[count++] = r;
+        }
+        if (count == 0)
+        {
+            throw new IllegalArgumentException("没有可预测的行，特征列全部缺失");
+        }
+        for (int c = 0; c < d; c++)
+        {
+            inputs[c] = Arrays.copyOf(inputs[c], count);
+        }
+        double[] predictions = ensemble.predict(points, count, pool);
+        return new TreeEnsemblePrediction(featureColumns, Arrays.copyOf(rows, count), inputs, predictions,
+                total - count);
+    }
+
+    /**
+     * 预测结果：predictions、input_data（各行特征）、statistics（含与pandas describe相同的prediction_summary）
+     */
+    public Map<String, Object> toResult()
+    {
+        List<Double> values = new ArrayList<>(predictions.length);
+        List<Map<String, Object>> inputData = new ArrayList<>(predictions.length);
+        for (int k = 0; k < predictions.length; k++)
+        {
+            values.add(predictions[k]);
+            Map<String, Object> record = new LinkedHashMap<>();
+            for (int c = 0; c < featureColumns.size(); c++)
+            {
+                record.put(featureColumns.get(c), inputs[c][k]);
+            }
+            inputData.add(record);
+        }
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("message", String.format(Locale.ROOT, "Successfully made %d predictions.", predictions.length));
+        statistics.put("prediction_summary", describe());
+        statistics.put("task_type", "regression");
+        statistics.put("skipped_rows", skipped);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("predictions", values);
+        result.put("input_data", inputData);
+        result.put("statistics", statistics);
+        result.put("excel_report", new LinkedHashMap<>());
+        return result;
+    }
+
+    /**
+     * 预测值的描述统计，std为样本标准差
+     */
+    private Map<String, Object> describe()
+    {
+        int n = predictions.length;
+        double mean = 0;
+        for (double value : predictions)
+        {
+            mean += value;
+        }
+        mean /= n;
+        double squares = 0;
+        for (double value : predictions)
+        {
+            squares += (value - mean) * (value - mean);
+        }
+        double[] work = predictions.clone();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", (double) n);
+        summary.put("mean", mean);
+        summary.put("std", n > 1 ? Math.sqrt(squares / (n - 1)) : null);
+        summary.put("min", LeastSquaresFit.percentile(work, 0));
+        summary.put("25%", LeastSquaresFit.percentile(work, 25));
+        summary.put("50%", LeastSquaresFit.percentile(work, 50));
+        summary.put("75%", LeastSquaresFit.percentile(work, 75));
+        summary.put("max", LeastSquaresFit.percentile(work, 100));
+        return summary;
+    }
+
+    /**
+     * 被预测的行号
+     */
+    public int[] getRows()
+    {
+        return rows;
+    }
+
+    public double[] getPredictions()
+    {
+        return predictions;
+    }
+
+    /**
+     * 特征缺失而跳过的行数
+     */
+    public int getSkipped()
+    {
+        return skipped;
+    }
+}
@@ -0,0 +1,169 @@
+package com.ruoyi.petrol.engine.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 单列统计草图：缺失数、非数值数、矩累加器和KLL分位数草图
+ * 可按分区分别累加后合并
+ *
+ * @author ruoyi
+ */
+public class ColumnSketch
+{
+    private final String name;
+
+    /** 列是否按数值类型存储 */
+    private final boolean numericType;
+
+    private long missingCount;
+
+    private long nonNumericCount;
+
+    private final Moments moments;
+
+    private final KllSketch quantiles;
+
+    public ColumnSketch(String name, boolean numericType)
+    {
+        this(name, numericType, new Moments(), new KllSketch());
+    }
+
+    private ColumnSketch(String name, boolean numericType, Moments moments, KllSketch quantiles)
+    {
+        this.name = name;
+        this.numericType = numericType;
+        this.moments = moments;
+        this.quantiles = quantiles;
+    }
+
+    /**
+     * 累加一个值
+     *
+     * @param value 数值，文本无法解析为数值时为NaN
+     * @param missing 是否为缺失值
+     */
+    public void add(double value, boolean missing)
+    {
+        if (missing)
+        {
+            missingCount++;
+        }
+        else if (!Double.isFinite(value))
+        {
+            nonNumericCount++;
+        }
+        else
+        {
+            moments.add(value);
+            quantiles.update(value);
+        }
+    }
+
+    public void merge(ColumnSketch other)
+    {
+        missingCount += other.missingCount;
+        nonNumericCount += other.nonNumericCount;
+        moments.merge(other.moments);
+        quantiles.merge(other.quantiles);
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public long getMissingCount()
+    {
+        return missingCount;
+    }
+
+    public long getNonNumericCount()
+    {
+        return nonNumericCount;
+    }
+
+    public Moments getMoments()
+    {
+        return moments;
+    }
+
+    public KllSketch getQuantiles()
+    {
+        return quantiles;
+    }
+
+    /**
+     * 是否为数值列：按数值存储，或文本列中超过80%的非缺失值是数值
+     */
+    public boolean isNumeric()
+    {
+        long count = moments.getCount();
+        if (count == 0)
+        {
+            return false;
+        }
+        return numericType || count > (count + nonNumericCount) * 0.8;
+    }
+
+    /**
+     * 输出统计结果，字段与describe()一致
+     */
+    public Map<String, Object> toStatistics()
+    {
+        Map<String, Object> stats = new HashMap<>();
+        if (moments.getCount() == 0)
+        {
+            return stats;
+        }
+        stats.put("count", moments.getCount());
+        stats.put("mean", round(moments.getMean()));
+        stats.put("std", round(moments.getStd()));
+        stats.put("min", moments.getMin());
+        stats.put("25%", round(quantiles.getQuantile(0.25)));
+        stats.put("50%", round(quantiles.getQuantile(0.5)));
+        stats.put("75%", round(quantiles.getQuantile(0.75)));
+        stats.put("max", moments.getMax());
+        stats.put("skewness", round(moments.getSkewness()));
+        stats.put("kurtosis", round(moments.getKurtosis()));
+        stats.put("missingCount", missingCount);
+        return stats;
+    }
+
+    public void writeTo(DataOutput out) throws IOException
+    {
+        out.writeUTF(name);
+        out.writeBoolean(numericType);
+        out.writeLong(missingCount);
+        out.writeLong(nonNumericCount);
+        moments.writeTo(out);
+        quantiles.writeTo(out);
+    }
+
+    public static ColumnSketch readFrom(DataInput in) throws IOException
+    {
+        String name = in.readUTF();
+        boolean numericType = in.readBoolean();
+        long missingCount = in.readLong();
+        long nonNumericCount = in.readLong();
+        ColumnSketch sketch = new ColumnSketch(name, numericType, Moments.readFrom(in), KllSketch.readFrom(in));
+        sketch.missingCount = missingCount;
+        sketch.nonNumericCount = nonNumericCount;
+        return sketch;
+    }
+
+    /**
+     * 保留4位小数；超出long范围的值放大后会溢出，原样返回
+     */
+    private static double round(double value)
+    {
+        if (!Double.isFinite(value) || Math.abs(value) >= 1e14)
+        {
+            return value;
+        }
+        return Math.round(value * 10000.0) / 10000.0;
+    }
+}
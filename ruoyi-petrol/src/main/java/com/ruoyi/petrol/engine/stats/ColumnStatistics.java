@@ -0,0 +1,192 @@
+package com.ruoyi.petrol.engine.stats;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+
+/**
+ * 数据集全部列的统计草图
+ * 按列和行区间拆分并行累加，再按行序合并；结果保存为.pstat文件，
+ * 源文件未变化时后续统计请求直接读取草图，不再扫描数据
+ *
+ * @author ruoyi
+ */
+public class ColumnStatistics
+{
+    /** 草图文件扩展名 */
+    public static final String EXTENSION = ".pstat";
+
+    private static final int MAGIC = 0x54415453;
+    private static final int VERSION = 1;
+
+    private final long sourceLength;
+    private final long sourceModified;
+    private final long rowCount;
+    private final List<ColumnSketch> sketches;
+
+    public ColumnStatistics(long sourceLength, long sourceModified, long rowCount, List<ColumnSketch> sketches)
+    {
+        this.sourceLength = sourceLength;
+        this.sourceModified = sourceModified;
+        this.rowCount = rowCount;
+        this.sketches = Collections.unmodifiableList(sketches);
+    }
+
+    /**
+     * 扫描列式缓存计算所有列的草图，按列和行区间拆分为任务在指定线程池中并行执行
+     *
+     * @param source 源文件，用于记录版本
+     * @param columnar 源文件的列式缓存
+     * @param pool 计算线程池
+     */
+    public static ColumnStatistics compute(File source, ColumnarFile columnar, ForkJoinPool pool)
+    {
+        int rows = columnar.getRowCount();
+        List<ProfileTask> tasks = new ArrayList<>(columnar.getColumnCount());
+        for (int c = 0; c < columnar.getColumnCount(); c++)
+        {
+            tasks.add(new ProfileTask(columnar, c, 0, rows));
+        }
+        pool.invoke(new RecursiveAction()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+
+        List<ColumnSketch> sketches = new ArrayList<>(tasks.size());
+        for (ProfileTask task : tasks)
+        {
+            sketches.add(task.join());
+        }
+        return new ColumnStatistics(source.length(), source.lastModified(), rows, sketches);
+    }
+
+    /**
+     * 转换为数据集画像结构：totalRows、totalColumns、columns
+     * 列中出现无法解析为数值的文本时为string类型，数值列附带min/max/mean/count
+     */
+    public Map<String, Object> toProfile()
+    {
+        Map<String, Object> stats = new HashMap<>();
+        List<Map<String, Object>> columns = new ArrayList<>(sketches.size());
+        for (ColumnSketch sketch : sketches)
+        {
+            Map<String, Object> columnInfo = new HashMap<>();
+            boolean isNumeric = sketch.getNonNumericCount() == 0;
+            columnInfo.put("name", sketch.getName());
+            columnInfo.put("type", isNumeric ? "numeric" : "string");
+            columnInfo.put("missingCount", sketch.getMissingCount());
+            columnInfo.put("missingRate", (double) sketch.getMissingCount() / rowCount);
+
+            Moments moments = sketch.getMoments();
+            if (isNumeric && moments.getCount() > 0)
+            {
+                columnInfo.put("min", moments.getMin());
+                columnInfo.put("max", moments.getMax());
+                columnInfo.put("mean", moments.getMean());
+                columnInfo.put("count", moments.getCount());
+            }
+            columns.add(columnInfo);
+        }
+        stats.put("totalRows", rowCount);
+        stats.put("totalColumns", sketches.size());
+        stats.put("columns", columns);
+        return stats;
+    }
+
+    /**
+     * 是否由当前版本的源文件生成
+     */
+    public boolean matches(File source)
+    {
+        return source.length() == sourceLength && source.lastModified() == sourceModified;
+    }
+
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    public List<ColumnSketch> getSketches()
+    {
+        return sketches;
+    }
+
+    /**
+     * 按列名获取草图，不存在时返回null
+     */
+    public ColumnSketch getSketch(String name)
+    {
+        for (ColumnSketch sketch : sketches)
+        {
+            if (sketch.getName().equals(name))
+            {
+                return sketch;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 保存到文件，先写临时文件再原子替换
+     */
+    public void save(File file) throws IOException
+    {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sourceLength);
+            out.writeLong(sourceModified);
+            out.writeLong(rowCount);
+            out.writeInt(sketches.size());
+            for (ColumnSketch sketch : sketches)
+            {
+                sketch.writeTo(out);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static ColumnStatistics load(File file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                throw new IOException("统计草图文件格式不正确: " + file.getName());
+            }
+            long sourceLength = in.readLong();
+            long sourceModified = in.readLong();
+            long rowCount = in.readLong();
+            int count = in.readInt();
+            List<ColumnSketch> sketches = new ArrayList<>(count);
+            for (int c = 0; c < count; c++)
+            {
+                sketches.add(ColumnSketch.readFrom(in));
+            }
+            return new ColumnStatistics(sourceLength, sourceModified, rowCount, sketches);
+        }
+    }
+}
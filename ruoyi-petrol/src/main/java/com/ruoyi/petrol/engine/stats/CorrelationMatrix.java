@@ -0,0 +1,665 @@
+package com.ruoyi.petrol.engine.stats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+
+/**
+ * 相关系数矩阵
+ * 列两两组成的上三角按列块划分为瓦片，每个瓦片再按行区间拆分为任务在线程池中并行累加，
+ * 每对列只在两列都有值的行上累加平移后的一二阶矩和协矩（平移量为列的第一个有效值，避免大数相消）
+ *
+ * 皮尔逊系数直接由原始值计算；斯皮尔曼系数先把每列转换为秩（原始类型数组排序，相同值取平均秩），
+ * 再对秩计算皮尔逊系数。秩先按每列全部非缺失值计算，同时保留每列按值排序的行号；两列的有效行与
+ * 各自的非缺失行不一致时，沿各列的有序行号跳过另一列缺失的行即得到该对的秩，不需要重新排序
+ *
+ * @author ruoyi
+ */
+public class CorrelationMatrix
+{
+    /** 皮尔逊相关系数 */
+    public static final String PEARSON = "pearson";
+
+    /** 斯皮尔曼秩相关系数 */
+    public static final String SPEARMAN = "spearman";
+
+    /** 每个瓦片包含的列数 */
+    private static final int TILE_COLUMNS = 8;
+
+    /** 每个任务的行数 */
+    private static final int PARTITION_ROWS = 1 << 18;
+
+    /** 每次批量读取的行数 */
+    private static final int BATCH = 4096;
+
+    private final String method;
+    private final List<String> columns;
+    private final long rowCount;
+    private final double[][] values;
+    private final long[][] counts;
+
+    private CorrelationMatrix(String method, List<String> columns, long rowCount, double[][] values,
+            long[][] counts)
+    {
+        this.method = method;
+        this.columns = columns;
+        this.rowCount = rowCount;
+        this.values = values;
+        this.counts = counts;
+    }
+
+    /**
+     * 是否为支持的相关系数
+     */
+    public static boolean isSupported(String method)
+    {
+        return PEARSON.equals(method) || SPEARMAN.equals(method);
+    }
+
+    /**
+     * 计算指定列的相关系数矩阵
+     *
+     * @param columnar 列式缓存
+     * @param selected 参与计算的列号（应为数值列）
+     * @param method pearson或spearman
+     * @param pool 计算线程池
+     */
+    public static CorrelationMatrix compute(ColumnarFile columnar, int[] selected, String method, ForkJoinPool pool)
+    {
+        int k = selected.length;
+        int rows = columnar.getRowCount();
+        RankedColumns ranked = SPEARMAN.equals(method) ? ranks(columnar, selected, pool) : null;
+        ColumnSource source = ranked != null ? ranked : new ColumnarSource(columnar, selected);
+
+        // 平移量：每列第一个有效值
+        double[] shifts = new double[k];
+        double[] buffer = new double[Math.min(rows, BATCH)];
+        for (int c = 0; c < k; c++)
+        {
+            shifts[c] = firstValid(source, c, rows, buffer);
+        }
+
+        // 上三角的列块瓦片 × 行区间
+        int blocks = (k + TILE_COLUMNS - 1) / TILE_COLUMNS;
+        PairSums sums = new PairSums(k);
+        List<RecursiveAction> tasks = new ArrayList<>();
+        for (int bi = 0; bi < blocks; bi++)
+        {
+            for (int bj = bi; bj < blocks; bj++)
+            {
+                for (int from = 0; from < rows; from += PARTITION_ROWS)
+                {
+                    tasks.add(new TileTask(source, shifts, sums, bi * TILE_COLUMNS, Math.min(k, (bi + 1) * TILE_COLUMNS),
+                            bj * TILE_COLUMNS, Math.min(k, (bj + 1) * TILE_COLUMNS), from,
+                            Math.min(rows, from + PARTITION_ROWS)));
+                }
+            }
+        }
+        run(pool, tasks);
+
+        double[][] values = new double[k][k];
+        long[][] counts = new long[k][k];
+        for (int i = 0; i < k; i++)
+        {
+            for (int j = i; j < k; j++)
+            {
+                double r = sums.correlation(i, j);
+                values[i][j] = r;
+                values[j][i] = r;
+                counts[i][j] = sums.count(i, j);
+                counts[j][i] = counts[i][j];
+            }
+        }
+        if (ranked != null)
+        {
+            rerankPairwise(ranked, values, counts, pool);
+        }
+        List<String> names = new ArrayList<>(k);
+        for (int c : selected)
+        {
+            names.add(columnar.getColumnNames().get(c));
+        }
+        return new CorrelationMatrix(method, names, rows, values, counts);
+    }
+
+    /**
+     * 转换为结果结构：method、columns、matrix（无法计算的系数为null）、counts（每对列的有效行数）
+     */
+    public Map<String, Object> toResult()
+    {
+        Map<String, Object> result = new HashMap<>();
+        Double[][] matrix = new Double[values.length][];
+        for (int i = 0; i < values.length; i++)
+        {
+            matrix[i] = new Double[values.length];
+            for (int j = 0; j < values.length; j++)
+            {
+                matrix[i][j] = Double.isNaN(values[i][j]) ? null : values[i][j];
+            }
+        }
+        result.put("method", method);
+        result.put("columns", columns);
+        result.put("rowCount", rowCount);
+        result.put("matrix", matrix);
+        result.put("counts", counts);
+        return result;
+    }
+
+    public String getMethod()
+    {
+        return method;
+    }
+
+    public List<String> getColumns()
+    {
+        return columns;
+    }
+
+    /**
+     * 两列的相关系数，无法计算（有效行不足或方差为0）时为NaN
+     */
+    public double get(int i, int j)
+    {
+        return values[i][j];
+    }
+
+    private static double firstValid(ColumnSource source, int column, int rows, double[] buffer)
+    {
+        for (int from = 0; from < rows; from += buffer.length)
+        {
+            int to = Math.min(rows, from + buffer.length);
+            source.read(column, from, to, buffer);
+            for (int i = 0; i < to - from; i++)
+            {
+                if (!Double.isNaN(buffer[i]))
+                {
+                    return buffer[i];
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 每列按秩转换，各列并行
+     */
+    private static RankedColumns ranks(ColumnarFile columnar, int[] selected, ForkJoinPool pool)
+    {
+        int rows = columnar.getRowCount();
+        RankedColumns ranked = new RankedColumns(selected.length, rows);
+        List<RecursiveAction> tasks = new ArrayList<>(selected.length);
+        for (int c = 0; c < selected.length; c++)
+        {
+            int index = c;
+            tasks.add(new RecursiveAction()
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute()
+                {
+                    double[] values = new double[rows];
+                    columnar.readDoubles(selected[index], 0, rows, values, 0);
+                    ranked.rank(index, values);
+                }
+            });
+        }
+        run(pool, tasks);
+        return ranked;
+    }
+
+    /**
+     * 有缺失值的列对只在两列都有值的行上重新排秩，按列对的第一列分组并行，同组共用秩的缓冲区
+     * 列对的有效行数与两列各自的非缺失行数相同时，整列的秩就是逐对的秩，不需要重算
+     */
+    private static void rerankPairwise(RankedColumns ranked, double[][] values, long[][] counts, ForkJoinPool pool)
+    {
+        int k = values.length;
+        List<RecursiveAction> tasks = new ArrayList<>();
+        for (int i = 0; i < k; i++)
+        {
+            int a = i;
+            tasks.add(new RecursiveAction()
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute()
+                {
+                    double[] x = null;
+                    double[] y = null;
+                    for (int b = a + 1; b < k; b++)
+                    {
+                        if (counts[a][b] == counts[a][a] && counts[a][b] == counts[b][b])
+                        {
+                            continue;
+                        }
+                        if (x == null)
+                        {
+                            x = new double[ranked.rows];
+                            y = new double[ranked.rows];
+                        }
+                        double r = ranked.pairwiseSpearman(a, b, x, y);
+                        values[a][b] = r;
+                        values[b][a] = r;
+                    }
+                }
+            });
+        }
+        run(pool, tasks);
+    }
+
+    /**
+     * 在线程池中执行全部任务并等待完成
+     */
+    private static void run(ForkJoinPool pool, List<RecursiveAction> tasks)
+    {
+        pool.invoke(new RecursiveAction()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+     * 第一个不小于（upper为true时大于）value的位置
+     */
+    private static int bound(double[] sorted, int n, double value, boolean upper)
+    {
+        int lo = 0;
+        int hi = n;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (upper ? sorted[mid] <= value : sorted[mid] < value)
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 按列号批量读取数值，缺失值为NaN
+     */
+    private interface ColumnSource
+    {
+        void read(int column, int from, int to, double[] dest);
+    }
+
+    /**
+     * 各列的秩，以及逐对重新排秩用的非缺失行按值排序的行号、非缺失行位图和并列位图
+     */
+    private static class RankedColumns implements ColumnSource
+    {
+        private final int rows;
+        private final double[][] ranks;
+        private final int[][] orders;
+        private final long[][] present;
+        private final long[][] tied;
+
+        RankedColumns(int k, int rows)
+        {
+            this.rows = rows;
+            this.ranks = new double[k][];
+            this.orders = new int[k][];
+            this.present = new long[k][];
+            this.tied = new long[k][];
+        }
+
+        @Override
+        public void read(int column, int from, int to, double[] dest)
+        {
+            System.arraycopy(ranks[column], from, dest, 0, to - from);
+        }
+
+        /**
+         * 把一列的值就地替换为秩（从1开始，相同值取平均秩），缺失值保持NaN
+         * 有效值复制后排序，每个值的秩由其在有序数组中的首末位置得到，行号按首位置依次放入各组；
+         * 有序位置p与p-1的值相同时在并列位图中置位
+         */
+        void rank(int column, double[] values)
+        {
+            double[] sorted = new double[rows];
+            long[] mask = new long[words(rows)];
+            int n = 0;
+            for (int r = 0; r < rows; r++)
+            {
+                if (!Double.isNaN(values[r]))
+                {
+                    sorted[n++] = values[r];
+                    mask[r >>> 6] |= 1L << r;
+                }
+            }
+            Arrays.sort(sorted, 0, n);
+            long[] ties = new long[words(n)];
+            for (int p = 1; p < n; p++)
+            {
+                if (sorted[p] == sorted[p - 1])
+                {
+                    ties[p >>> 6] |= 1L << p;
+                }
+            }
+
+            // filled[first]为首位置为first的一组已放入的行数
+            int[] order = new int[n];
+            int[] filled = new int[n];
+            for (int r = 0; r < rows; r++)
+            {
+                double value = values[r];
+                if (Double.isNaN(value))
+                {
+                    continue;
+                }
+                int first = bound(sorted, n, value, false);
+                int last = bound(sorted, n, value, true);
+                order[first + filled[first]++] = r;
+                values[r] = (first + last + 1) / 2.0;
+            }
+            ranks[column] = values;
+            orders[column] = order;
+            present[column] = mask;
+            tied[column] = ties;
+        }
+
+        /**
+         * 两列在都有值的行上重新排秩后的斯皮尔曼系数，无法计算时为NaN
+         * x、y为按行号存放两列逐对秩的缓冲区，只有两列都有值的行被写入
+         */
+        double pairwiseSpearman(int a, int b, double[] x, double[] y)
+        {
+            int n = pairRanks(a, b, x);
+            pairRanks(b, a, y);
+            if (n < 2)
+            {
+                return Double.NaN;
+            }
+
+            // 秩的均值为(n+1)/2，按行号顺序遍历两列都有值的行
+            double mean = (n + 1) / 2.0;
+            double covariance = 0;
+            double varianceX = 0;
+            double varianceY = 0;
+            long[] maskA = present[a];
+            long[] maskB = present[b];
+            for (int w = 0; w < maskA.length; w++)
+            {
+                long bits = maskA[w] & maskB[w];
+                while (bits != 0)
+                {
+                    int row = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    double dx = x[row] - mean;
+                    double dy = y[row] - mean;
+                    covariance += dx * dy;
+                    varianceX += dx * dx;
+                    varianceY += dy * dy;
+                }
+            }
+            if (varianceX <= 0 || varianceY <= 0)
+            {
+                return Double.NaN;
+            }
+            return Math.max(-1, Math.min(1, covariance / Math.sqrt(varianceX * varianceY)));
+        }
+
+        /**
+         * 沿列own的有序行号跳过列other缺失的行，把逐对的秩按行号写入dest，返回两列都有值的行数
+         * 有序行号中被并列位图连在一起的行为一组相同值，取该组在剩余行中的平均秩
+         */
+        private int pairRanks(int own, int other, double[] dest)
+        {
+            int[] order = orders[own];
+            long[] ties = tied[own];
+            long[] mask = present[other];
+            int position = 0;
+            int start = 0;
+            while (start < order.length)
+            {
+                int end = start + 1;
+                while (end < order.length && isSet(ties, end))
+                {
+                    end++;
+                }
+                int size = 0;
+                for (int p = start; p < end; p++)
+                {
+                    size += isSet(mask, order[p]) ? 1 : 0;
+                }
+                double rank = position + (size + 1) / 2.0;
+                for (int p = start; p < end; p++)
+                {
+                    if (isSet(mask, order[p]))
+                    {
+                        dest[order[p]] = rank;
+                    }
+                }
+                position += size;
+                start = end;
+            }
+            return position;
+        }
+
+        private static int words(int bits)
+        {
+            return (bits + 63) >>> 6;
+        }
+
+        private static boolean isSet(long[] bits, int index)
+        {
+            return (bits[index >>> 6] & 1L << index) != 0;
+        }
+    }
+
+    private static class ColumnarSource implements ColumnSource
+    {
+        private final ColumnarFile columnar;
+        private final int[] selected;
+
+        ColumnarSource(ColumnarFile columnar, int[] selected)
+        {
+            this.columnar = columnar;
+            this.selected = selected;
+        }
+
+        @Override
+        public void read(int column, int from, int to, double[] dest)
+        {
+            columnar.readDoubles(selected[column], from, to, dest, 0);
+        }
+    }
+
+    /**
+     * 所有列对的累加和（上三角），瓦片任务在本地累加后一次合并
+     */
+    private static class PairSums
+    {
+        private final int k;
+        private final long[] n;
+        private final double[] sx;
+        private final double[] sy;
+        private final double[] sxx;
+        private final double[] syy;
+        private final double[] sxy;
+
+        PairSums(int k)
+        {
+            this.k = k;
+            int pairs = k * k;
+            this.n = new long[pairs];
+            this.sx = new double[pairs];
+            this.sy = new double[pairs];
+            this.sxx = new double[pairs];
+            this.syy = new double[pairs];
+            this.sxy = new double[pairs];
+        }
+
+        synchronized void add(int i, int j, long count, double x, double y, double xx, double yy, double xy)
+        {
+            int p = i * k + j;
+            n[p] += count;
+            sx[p] += x;
+            sy[p] += y;
+            sxx[p] += xx;
+            syy[p] += yy;
+            sxy[p] += xy;
+        }
+
+        long count(int i, int j)
+        {
+            return n[i * k + j];
+        }
+
+        double correlation(int i, int j)
+        {
+            int p = i * k + j;
+            if (n[p] < 2)
+            {
+                return Double.NaN;
+            }
+            double covariance = sxy[p] - sx[p] * sy[p] / n[p];
+            double varianceX = sxx[p] - sx[p] * sx[p] / n[p];
+            double varianceY = syy[p] - sy[p] * sy[p] / n[p];
+            if (varianceX <= 0 || varianceY <= 0)
+            {
+                return Double.NaN;
+            }
+            return Math.max(-1, Math.min(1, covariance / Math.sqrt(varianceX * varianceY)));
+        }
+    }
+
+    /**
+     * 一个瓦片（列块I × 列块J）在一段行区间上的累加
+     */
+    private static class TileTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ColumnSource source;
+        private final double[] shifts;
+        private final transient PairSums sums;
+        private final int iFrom;
+        private final int iTo;
+        private final int jFrom;
+        private final int jTo;
+        private final int from;
+        private final int to;
+
+        TileTask(ColumnSource source, double[] shifts, PairSums sums, int iFrom, int iTo, int jFrom, int jTo,
+                int from, int to)
+        {
+            this.source = source;
+            this.shifts = shifts;
+            this.sums = sums;
+            this.iFrom = iFrom;
+            this.iTo = iTo;
+            this.jFrom = jFrom;
+            this.jTo = jTo;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            int iCount = iTo - iFrom;
+            int jCount = jTo - jFrom;
+            boolean diagonal = iFrom == jFrom;
+            double[][] xs = new double[iCount][BATCH];
+            double[][] ys = diagonal ? xs : new double[jCount][BATCH];
+            int pairs = iCount * jCount;
+            long[] n = new long[pairs];
+            double[] sx = new double[pairs];
+            double[] sy = new double[pairs];
+            double[] sxx = new double[pairs];
+            double[] syy = new double[pairs];
+            double[] sxy = new double[pairs];
+
+            for (int start = from; start < to; start += BATCH)
+            {
+                int end = Math.min(to, start + BATCH);
+                int length = end - start;
+                for (int i = 0; i < iCount; i++)
+                {
+                    source.read(iFrom + i, start, end, xs[i]);
+                    shift(xs[i], length, shifts[iFrom + i]);
+                }
+                if (!diagonal)
+                {
+                    for (int j = 0; j < jCount; j++)
+                    {
+                        source.read(jFrom + j, start, end, ys[j]);
+                        shift(ys[j], length, shifts[jFrom + j]);
+                    }
+                }
+                for (int i = 0; i < iCount; i++)
+                {
+                    double[] x = xs[i];
+                    for (int j = diagonal ? i : 0; j < jCount; j++)
+                    {
+                        double[] y = ys[j];
+                        int p = i * jCount + j;
+                        long count = 0;
+                        double a = 0;
+                        double b = 0;
+                        double aa = 0;
+                        double bb = 0;
+                        double ab = 0;
+                        for (int r = 0; r < length; r++)
+                        {
+                            double xv = x[r];
+                            double yv = y[r];
+                            // NaN参与运算结果仍为NaN，用比较排除缺失值
+                            if (xv == xv && yv == yv)
+                            {
+                                count++;
+                                a += xv;
+                                b += yv;
+                                aa += xv * xv;
+                                bb += yv * yv;
+                                ab += xv * yv;
+                            }
+                        }
+                        n[p] += count;
+                        sx[p] += a;
+                        sy[p] += b;
+                        sxx[p] += aa;
+                        syy[p] += bb;
+                        sxy[p] += ab;
+                    }
+                }
+            }
+
+            for (int i = 0; i < iCount; i++)
+            {
+                for (int j = diagonal ? i : 0; j < jCount; j++)
+                {
+                    int p = i * jCount + j;
+                    sums.add(iFrom + i, jFrom + j, n[p], sx[p], sy[p], sxx[p], syy[p], sxy[p]);
+                }
+            }
+        }
+
+        private static void shift(double[] values, int length, double shift)
+        {
+            for (int r = 0; r < length; r++)
+            {
+                values[r] -= shift;
+            }
+        }
+    }
+}
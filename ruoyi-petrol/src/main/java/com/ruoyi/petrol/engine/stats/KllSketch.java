@@ -0,0 +1,323 @@
+package com.ruoyi.petrol.engine.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * KLL分位数草图
+ * 数据保存在若干层压缩器中，第h层的每个元素代表2^h个原始值；某层装满时排序，
+ * 交替取奇数位或偶数位元素提升到上一层。保留元素数为O(k)，
+ * k=200时分位数的秩误差约为1.3%，草图之间可以任意合并
+ *
+ * 未发生过压缩时（数据量不超过第0层容量）结果是精确的，按线性插值计算分位数
+ *
+ * @author ruoyi
+ */
+public class KllSketch
+{
+    /** 默认精度参数 */
+    public static final int DEFAULT_K = 200;
+
+    private static final int MIN_CAPACITY = 8;
+
+    private final int k;
+
+    private double[][] levels = new double[1][];
+
+    private int[] sizes = new int[1];
+
+    private int numLevels = 1;
+
+    private int retained;
+
+    private int totalCapacity;
+
+    private long n;
+
+    private double min = Double.POSITIVE_INFINITY;
+
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /** 压缩时交替选择奇偶位，保证结果可重现 */
+    private boolean oddOffset;
+
+    public KllSketch()
+    {
+        this(DEFAULT_K);
+    }
+
+    public KllSketch(int k)
+    {
+        this.k = k;
+        this.levels[0] = new double[capacity(0)];
+        this.totalCapacity = computeTotalCapacity();
+    }
+
+    public void update(double value)
+    {
+        n++;
+        if (value < min)
+        {
+            min = value;
+        }
+        if (value > max)
+        {
+            max = value;
+        }
+        append(0, value);
+        if (retained >= totalCapacity)
+        {
+            compress();
+        }
+    }
+
+    /**
+     * 合并另一个草图
+     */
+    public void merge(KllSketch other)
+    {
+        if (other.n == 0)
+        {
+            return;
+        }
+        for (int h = 0; h < other.numLevels; h++)
+        {
+            while (numLevels <= h)
+            {
+                addLevel();
+            }
+            for (int i = 0; i < other.sizes[h]; i++)
+            {
+                append(h, other.levels[h][i]);
+            }
+        }
+        n += other.n;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        while (retained >= totalCapacity)
+        {
+            compress();
+        }
+    }
+
+    public long getCount()
+    {
+        return n;
+    }
+
+    public double getMin()
+    {
+        return min;
+    }
+
+    public double getMax()
+    {
+        return max;
+    }
+
+    /**
+     * 估计分位数
+     *
+     * @param q 0到1之间的分位点
+     */
+    public double getQuantile(double q)
+    {
+        if (n == 0)
+        {
+            return Double.NaN;
+        }
+        if (q <= 0)
+        {
+            return min;
+        }
+        if (q >= 1)
+        {
+            return max;
+        }
+        if (numLevels == 1)
+        {
+            // 没有压缩过，保留的就是全部数据
+            double[] sorted = Arrays.copyOf(levels[0], sizes[0]);
+            Arrays.sort(sorted);
+            double index = q * (sorted.length - 1);
+            int lower = (int) Math.floor(index);
+            int upper = (int) Math.ceil(index);
+            double weight = index - lower;
+            return sorted[lower] * (1 - weight) + sorted[upper] * weight;
+        }
+
+        // 各层元素按值排序，累计权重达到q·n的元素即为估计值
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        int p = 0;
+        for (int h = 0; h < numLevels; h++)
+        {
+            for (int i = 0; i < sizes[h]; i++)
+            {
+                values[p] = levels[h][i];
+                weights[p] = 1L << h;
+                p++;
+            }
+        }
+        sortByValue(values, weights);
+        double target = q * n;
+        long cumulative = 0;
+        for (int i = 0; i < values.length; i++)
+        {
+            cumulative += weights[i];
+            if (cumulative >= target)
+            {
+                return values[i];
+            }
+        }
+        return max;
+    }
+
+    public void writeTo(DataOutput out) throws IOException
+    {
+        out.writeInt(k);
+        out.writeLong(n);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeBoolean(oddOffset);
+        out.writeInt(numLevels);
+        for (int h = 0; h < numLevels; h++)
+        {
+            out.writeInt(sizes[h]);
+            for (int i = 0; i < sizes[h]; i++)
+            {
+                out.writeDouble(levels[h][i]);
+            }
+        }
+    }
+
+    public static KllSketch readFrom(DataInput in) throws IOException
+    {
+        KllSketch sketch = new KllSketch(in.readInt());
+        sketch.n = in.readLong();
+        sketch.min = in.readDouble();
+        sketch.max = in.readDouble();
+        sketch.oddOffset = in.readBoolean();
+        int levelCount = in.readInt();
+        while (sketch.numLevels < levelCount)
+        {
+            sketch.addLevel();
+        }
+        for (int h = 0; h < levelCount; h++)
+        {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++)
+            {
+                sketch.append(h, in.readDouble());
+            }
+        }
+        return sketch;
+    }
+
+    /**
+     * 第h层容量，越低的层容量按2/3递减
+     */
+    private int capacity(int h)
+    {
+        int depth = numLevels - 1 - h;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(2.0 / 3.0, depth)));
+    }
+
+    private int computeTotalCapacity()
+    {
+        int total = 0;
+        for (int h = 0; h < numLevels; h++)
+        {
+            total += capacity(h);
+        }
+        return total;
+    }
+
+    private void addLevel()
+    {
+        levels = Arrays.copyOf(levels, numLevels + 1);
+        sizes = Arrays.copyOf(sizes, numLevels + 1);
+        levels[numLevels] = new double[MIN_CAPACITY];
+        numLevels++;
+        totalCapacity = computeTotalCapacity();
+    }
+
+    private void append(int h, double value)
+    {
+        if (levels[h] == null)
+        {
+            levels[h] = new double[MIN_CAPACITY];
+        }
+        if (sizes[h] == levels[h].length)
+        {
+            levels[h] = Arrays.copyOf(levels[h], levels[h].length * 2);
+        }
+        levels[h][sizes[h]++] = value;
+        retained++;
+    }
+
+    /**
+     * 压缩最低的一个已满层
+     */
+    private void compress()
+    {
+        for (int h = 0; h < numLevels; h++)
+        {
+            if (sizes[h] >= capacity(h))
+            {
+                if (h + 1 == numLevels)
+                {
+                    addLevel();
+                }
+                compact(h);
+                return;
+            }
+        }
+    }
+
+    private void compact(int h)
+    {
+        double[] items = levels[h];
+        int size = sizes[h];
+        Arrays.sort(items, 0, size);
+        // 奇数个元素时留下最大的一个，其余成对压缩
+        int pairs = size / 2;
+        int offset = oddOffset ? 1 : 0;
+        oddOffset = !oddOffset;
+        for (int i = 0; i < pairs; i++)
+        {
+            append(h + 1, items[2 * i + offset]);
+        }
+        retained -= pairs * 2;
+        if ((size & 1) == 1)
+        {
+            items[0] = items[size - 1];
+            sizes[h] = 1;
+        }
+        else
+        {
+            sizes[h] = 0;
+        }
+    }
+
+    private static void sortByValue(double[] values, long[] weights)
+    {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+        double[] sortedValues = new double[values.length];
+        long[] sortedWeights = new long[weights.length];
+        for (int i = 0; i < order.length; i++)
+        {
+            sortedValues[i] = values[order[i]];
+            sortedWeights[i] = weights[order[i]];
+        }
+        System.arraycopy(sortedValues, 0, values, 0, values.length);
+        System.arraycopy(sortedWeights, 0, weights, 0, weights.length);
+    }
+}
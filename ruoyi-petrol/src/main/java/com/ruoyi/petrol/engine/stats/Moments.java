@@ -0,0 +1,182 @@
+package com.ruoyi.petrol.engine.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 单遍矩累加器
+ * 按Welford方法增量更新均值和二至四阶中心矩之和，数值稳定；
+ * 两个累加器可以按Pébay公式合并，结果与对全部数据单遍计算一致
+ *
+ * @author ruoyi
+ */
+public class Moments
+{
+    private long n;
+    private double mean;
+    private double m2;
+    private double m3;
+    private double m4;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void add(double x)
+    {
+        long n1 = n;
+        n++;
+        double delta = x - mean;
+        double deltaN = delta / n;
+        double deltaN2 = deltaN * deltaN;
+        double term1 = delta * deltaN * n1;
+        mean += deltaN;
+        m4 += term1 * deltaN2 * ((double) n * n - 3 * n + 3) + 6 * deltaN2 * m2 - 4 * deltaN * m3;
+        m3 += term1 * deltaN * (n - 2) - 3 * deltaN * m2;
+        m2 += term1;
+        if (x < min)
+        {
+            min = x;
+        }
+        if (x > max)
+        {
+            max = x;
+        }
+    }
+
+    /**
+     * 合并另一个累加器
+     */
+    public void merge(Moments other)
+    {
+        if (other.n == 0)
+        {
+            return;
+        }
+        if (n == 0)
+        {
+            copyFrom(other);
+            return;
+        }
+        double na = n;
+        double nb = other.n;
+        double total = na + nb;
+        double delta = other.mean - mean;
+        double delta2 = delta * delta;
+
+        double newMean = mean + delta * nb / total;
+        double newM2 = m2 + other.m2 + delta2 * na * nb / total;
+        double newM3 = m3 + other.m3
+                + delta2 * delta * na * nb * (na - nb) / (total * total)
+                + 3 * delta * (na * other.m2 - nb * m2) / total;
+        double newM4 = m4 + other.m4
+                + delta2 * delta2 * na * nb * (na * na - na * nb + nb * nb) / (total * total * total)
+                + 6 * delta2 * (na * na * other.m2 + nb * nb * m2) / (total * total)
+                + 4 * delta * (na * other.m3 - nb * m3) / total;
+
+        n += other.n;
+        mean = newMean;
+        m2 = newM2;
+        m3 = newM3;
+        m4 = newM4;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount()
+    {
+        return n;
+    }
+
+    public double getMean()
+    {
+        return n == 0 ? Double.NaN : mean;
+    }
+
+    public double getMin()
+    {
+        return min;
+    }
+
+    public double getMax()
+    {
+        return max;
+    }
+
+    /**
+     * 总体方差
+     */
+    public double getVariance()
+    {
+        return n == 0 ? Double.NaN : m2 / n;
+    }
+
+    public double getStd()
+    {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * 样本偏度（调整的Fisher-Pearson系数）
+     */
+    public double getSkewness()
+    {
+        double std = getStd();
+        if (n < 3 || std == 0)
+        {
+            return 0;
+        }
+        double sum = m3 / (std * std * std);
+        return (n / ((double) (n - 1) * (n - 2))) * sum;
+    }
+
+    /**
+     * 样本超额峰度
+     */
+    public double getKurtosis()
+    {
+        double std = getStd();
+        if (n < 4 || std == 0)
+        {
+            return 0;
+        }
+        double variance = std * std;
+        double sum = m4 / (variance * variance);
+        return ((n * (double) (n + 1)) / ((double) (n - 1) * (n - 2) * (n - 3))) * sum
+                - (3 * (n - 1) * (double) (n - 1)) / ((double) (n - 2) * (n - 3));
+    }
+
+    public void writeTo(DataOutput out) throws IOException
+    {
+        out.writeLong(n);
+        out.writeDouble(mean);
+        out.writeDouble(m2);
+        out.writeDouble(m3);
+        out.writeDouble(m4);
+        out.writeDouble(min);
+        out.writeDouble(max);
+    }
+
+    public static Moments readFrom(DataInput in) throws IOException
+    {
+        Moments moments = new Moments();
+        moments.n = in.readLong();
+        moments.mean = in.readDouble();
+        moments.m2 = in.readDouble();
+        moments.m3 = in.readDouble();
+        moments.m4 = in.readDouble();
+        moments.min = in.readDouble();
+        moments.max = in.readDouble();
+        return moments;
+    }
+
+    private void copyFrom(Moments other)
+    {
+        n = other.n;
+        mean = other.mean;
+        m2 = other.m2;
+        m3 = other.m3;
+        m4 = other.m4;
+        min = other.min;
+        max = other.max;
+    }
+}
@@ -0,0 +1,66 @@
+package com.ruoyi.petrol.engine.stats;
+
+import java.util.concurrent.RecursiveTask;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+
+/**
+ * 单列画像任务
+ * 行数超过一个分区时对半拆分并行累加，子结果按行序合并
+ *
+ * @author ruoyi
+ */
+public class ProfileTask extends RecursiveTask<ColumnSketch>
+{
+    private static final long serialVersionUID = 1L;
+
+    /** 每个分区的行数 */
+    public static final int PARTITION_ROWS = 1 << 16;
+
+    private final transient ColumnarFile columnar;
+    private final int column;
+    private final int from;
+    private final int to;
+
+    public ProfileTask(ColumnarFile columnar, int column, int from, int to)
+    {
+        this.columnar = columnar;
+        this.column = column;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected ColumnSketch compute()
+    {
+        if (to - from > PARTITION_ROWS)
+        {
+            int mid = (from + to) >>> 1;
+            ProfileTask left = new ProfileTask(columnar, column, from, mid);
+            left.fork();
+            ColumnSketch right = new ProfileTask(columnar, column, mid, to).compute();
+            ColumnSketch result = left.join();
+            result.merge(right);
+            return result;
+        }
+
+        ColumnSketch sketch = new ColumnSketch(columnar.getColumnNames().get(column), columnar.isNumeric(column));
+        if (columnar.getType(column) == ColumnarFile.FLOAT64)
+        {
+            // 浮点列整段批量读出，NaN即缺失值
+            double[] values = new double[to - from];
+            columnar.readDoubles(column, from, to, values, 0);
+            for (double value : values)
+            {
+                sketch.add(value, Double.isNaN(value));
+            }
+        }
+        else
+        {
+            for (int r = from; r < to; r++)
+            {
+                sketch.add(columnar.getDouble(column, r), columnar.isNull(column, r));
+            }
+        }
+        return sketch;
+    }
+}
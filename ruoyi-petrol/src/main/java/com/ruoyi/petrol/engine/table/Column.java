@@ -0,0 +1,114 @@
+package com.ruoyi.petrol.engine.table;
+
+import java.util.Arrays;
+
+/**
+ * 内存列式表中的一列
+ * 值保存在基本类型数组中，缺失值用位图标记
+ *
+ * @author ruoyi
+ */
+public abstract class Column
+{
+    /** 列类型：数值 */
+    public static final String TYPE_NUMERIC = "numeric";
+
+    /** 列类型：文本 */
+    public static final String TYPE_STRING = "string";
+
+    private final String name;
+
+    protected final int size;
+
+    /** 缺失值位图，每个long对应64行，为null表示没有缺失值 */
+    private long[] nulls;
+
+    private int nullCount;
+
+    protected Column(String name, int size)
+    {
+        this.name = name;
+        this.size = size;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isNull(int row)
+    {
+        return nulls != null && (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public int getNullCount()
+    {
+        return nullCount;
+    }
+
+    /**
+     * 标记缺失值，由构建方在填充数据时调用
+     */
+    void setNull(int row)
+    {
+        if (nulls == null)
+        {
+            nulls = new long[(size + 63) >>> 6];
+        }
+        long mask = 1L << row;
+        if ((nulls[row >>> 6] & mask) == 0)
+        {
+            nulls[row >>> 6] |= mask;
+            nullCount++;
+        }
+    }
+
+    /**
+     * 列类型：numeric / string
+     */
+    public abstract String getType();
+
+    /**
+     * 是否可以按数值读取
+     */
+    public boolean isNumeric()
+    {
+        return TYPE_NUMERIC.equals(getType());
+    }
+
+    /**
+     * 读取数值，缺失值或非数值文本返回NaN
+     */
+    public abstract double getDouble(int row);
+
+    /**
+     * 读取单元格值，缺失返回null
+     */
+    public abstract Object getValue(int row);
+
+    /**
+     * 取出所有非缺失的有限数值，用于统计计算
+     */
+    public double[] toFiniteArray()
+    {
+        double[] values = new double[size];
+        int n = 0;
+        for (int r = 0; r < size; r++)
+        {
+            if (!isNull(r))
+            {
+                double value = getDouble(r);
+                if (Double.isFinite(value))
+                {
+                    values[n++] = value;
+                }
+            }
+        }
+        return n == size ? values : Arrays.copyOf(values, n);
+    }
+}
@@ -0,0 +1,192 @@
+package com.ruoyi.petrol.engine.table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+
+/**
+ * 内存列式数据表
+ * 数值列保存为double[]/long[]，文本列字典编码为int[]，缺失值用位图标记；
+ * 序列化为JSON时按列输出，不再为每行生成一个Map
+ *
+ * @author ruoyi
+ */
+@JsonSerialize(using = ColumnarTableSerializer.class)
+public class ColumnarTable
+{
+    private final int rowCount;
+
+    private final List<Column> columns;
+
+    private final Map<String, Column> columnsByName = new HashMap<>();
+
+    public ColumnarTable(int rowCount, List<Column> columns)
+    {
+        this.rowCount = rowCount;
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        for (Column column : columns)
+        {
+            columnsByName.putIfAbsent(column.getName(), column);
+        }
+    }
+
+    /**
+     * 从列式缓存文件读取，全部选中列都为空的行跳过
+     *
+     * @param file 列式缓存文件
+     * @param names 需要的列，为空时读取全部列，不存在的列忽略
+     * @param maxRows 最大行数
+     */
+    public static ColumnarTable read(ColumnarFile file, List<String> names, int maxRows)
+    {
+        int[] selected = selectColumns(file, names);
+
+        // 先确定要保留的行，再逐列拷贝，每列只顺序扫描一次映射块
+        int[] rows = new int[Math.max(0, Math.min(maxRows, file.getRowCount()))];
+        int rowCount = 0;
+        for (int r = 0; r < file.getRowCount() && rowCount < rows.length; r++)
+        {
+            for (int c : selected)
+            {
+                if (!file.isNull(c, r))
+                {
+                    rows[rowCount++] = r;
+                    break;
+                }
+            }
+        }
+        return read(file, selected, rows, rowCount);
+    }
+
+    /**
+     * 从列式缓存文件读取指定的行，如深度索引查出的区间
+     *
+     * @param file 列式缓存文件
+     * @param names 需要的列，为空时读取全部列，不存在的列忽略
+     * @param rows 行号，按输出顺序排列
+     */
+    public static ColumnarTable read(ColumnarFile file, List<String> names, int[] rows)
+    {
+        return read(file, selectColumns(file, names), rows, rows.length);
+    }
+
+    private static ColumnarTable read(ColumnarFile file, int[] selected, int[] rows, int rowCount)
+    {
+        List<Column> columns = new ArrayList<>(selected.length);
+        for (int c : selected)
+        {
+            columns.add(readColumn(file, c, rows, rowCount));
+        }
+        return new ColumnarTable(rowCount, columns);
+    }
+
+    private static int[] selectColumns(ColumnarFile file, List<String> names)
+    {
+        List<String> fileColumns = file.getColumnNames();
+        int[] selected = new int[fileColumns.size()];
+        int count = 0;
+        for (int c = 0; c < fileColumns.size(); c++)
+        {
+            if (names == null || names.isEmpty() || names.contains(fileColumns.get(c)))
+            {
+                selected[count++] = c;
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    private static Column readColumn(ColumnarFile file, int c, int[] rows, int rowCount)
+    {
+        String name = file.getColumnNames().get(c);
+        switch (file.getType(c))
+        {
+            case ColumnarFile.FLOAT64:
+            {
+                double[] values = new double[rowCount];
+                for (int i = 0; i < rowCount; i++)
+                {
+                    values[i] = file.getDouble(c, rows[i]);
+                }
+                return new DoubleColumn(name, values);
+            }
+            case ColumnarFile.INT64:
+            {
+                long[] values = new long[rowCount];
+                LongColumn column = new LongColumn(name, values);
+                for (int i = 0; i < rowCount; i++)
+                {
+                    if (file.isNull(c, rows[i]))
+                    {
+                        column.setNull(i);
+                    }
+                    else
+                    {
+                        values[i] = file.getLong(c, rows[i]);
+                    }
+                }
+                return column;
+            }
+            default:
+            {
+                int[] codes = new int[rowCount];
+                for (int i = 0; i < rowCount; i++)
+                {
+                    codes[i] = file.getCode(c, rows[i]);
+                }
+                return new DictionaryColumn(name, codes, file.getDictionary(c));
+            }
+        }
+    }
+
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    public List<Column> getColumns()
+    {
+        return columns;
+    }
+
+    public List<String> getColumnNames()
+    {
+        List<String> names = new ArrayList<>(columns.size());
+        for (Column column : columns)
+        {
+            names.add(column.getName());
+        }
+        return names;
+    }
+
+    /**
+     * 按列名获取列，不存在时返回null
+     */
+    public Column getColumn(String name)
+    {
+        return columnsByName.get(name);
+    }
+
+    /**
+     * 转换为按行的记录，仅用于兼容仍按行读取数据的调用方
+     */
+    public List<Map<String, Object>> toRecords()
+    {
+        List<Map<String, Object>> records = new ArrayList<>(rowCount);
+        for (int r = 0; r < rowCount; r++)
+        {
+            Map<String, Object> record = new LinkedHashMap<>();
+            for (Column column : columns)
+            {
+                record.put(column.getName(), column.getValue(r));
+            }
+            records.add(record);
+        }
+        return records;
+    }
+}
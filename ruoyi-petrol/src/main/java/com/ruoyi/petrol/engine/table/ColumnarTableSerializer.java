@@ -0,0 +1,95 @@
+package com.ruoyi.petrol.engine.table;
+
+import java.io.IOException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+/**
+ * 列式数据表按列序列化
+ *
+ * <pre>
+ * {"rowCount": n, "columns": [{"name": "GR", "type": "numeric", "values": [..]}, ...]}
+ * </pre>
+ *
+ * 直接从基本类型数组写出，缺失值和非有限数值输出为null
+ *
+ * @author ruoyi
+ */
+public class ColumnarTableSerializer extends JsonSerializer<ColumnarTable>
+{
+    @Override
+    public void serialize(ColumnarTable table, JsonGenerator gen, SerializerProvider serializers) throws IOException
+    {
+        gen.writeStartObject();
+        gen.writeNumberField("rowCount", table.getRowCount());
+        gen.writeArrayFieldStart("columns");
+        for (Column column : table.getColumns())
+        {
+            gen.writeStartObject();
+            gen.writeStringField("name", column.getName());
+            gen.writeStringField("type", column.getType());
+            gen.writeArrayFieldStart("values");
+            writeValues(column, gen);
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private void writeValues(Column column, JsonGenerator gen) throws IOException
+    {
+        int size = column.size();
+        if (column instanceof LongColumn)
+        {
+            LongColumn longs = (LongColumn) column;
+            for (int r = 0; r < size; r++)
+            {
+                if (longs.isNull(r))
+                {
+                    gen.writeNull();
+                }
+                else
+                {
+                    gen.writeNumber(longs.getLong(r));
+                }
+            }
+        }
+        else if (column instanceof DictionaryColumn)
+        {
+            DictionaryColumn texts = (DictionaryColumn) column;
+            for (int r = 0; r < size; r++)
+            {
+                double value = texts.getDouble(r);
+                if (Double.isFinite(value))
+                {
+                    gen.writeNumber(value);
+                }
+                else if (texts.isNull(r))
+                {
+                    gen.writeNull();
+                }
+                else
+                {
+                    gen.writeString(texts.getText(r));
+                }
+            }
+        }
+        else
+        {
+            for (int r = 0; r < size; r++)
+            {
+                double value = column.getDouble(r);
+                if (Double.isFinite(value))
+                {
+                    gen.writeNumber(value);
+                }
+                else
+                {
+                    gen.writeNull();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.ruoyi.petrol.engine.table;
+
+/**
+ * 字典编码的文本列
+ * 每行只保存int编码，相同文本共享一个字典条目；
+ * 字典条目可解析为数字时预先解析，按数值读取不再重复解析文本
+ *
+ * @author ruoyi
+ */
+public class DictionaryColumn extends Column
+{
+    private final int[] codes;
+
+    private final String[] dictionary;
+
+    /** 字典条目对应的数值，不是数字的为NaN */
+    private final double[] numbers;
+
+    /** 非缺失值中可解析为数字的行数 */
+    private int numericCount;
+
+    /**
+     * @param codes 每行的字典编码，缺失值为-1
+     * @param dictionary 字典
+     */
+    public DictionaryColumn(String name, int[] codes, String[] dictionary)
+    {
+        super(name, codes.length);
+        this.codes = codes;
+        this.dictionary = dictionary;
+        this.numbers = new double[dictionary.length];
+        for (int i = 0; i < dictionary.length; i++)
+        {
+            numbers[i] = parse(dictionary[i]);
+        }
+        for (int r = 0; r < codes.length; r++)
+        {
+            if (codes[r] < 0)
+            {
+                setNull(r);
+            }
+            else if (!Double.isNaN(numbers[codes[r]]))
+            {
+                numericCount++;
+            }
+        }
+    }
+
+    /**
+     * 超过80%的非缺失值是数字时按数值列处理
+     */
+    @Override
+    public String getType()
+    {
+        int present = size - getNullCount();
+        return present > 0 && numericCount > present * 0.8 ? TYPE_NUMERIC : TYPE_STRING;
+    }
+
+    @Override
+    public double getDouble(int row)
+    {
+        int code = codes[row];
+        return code < 0 ? Double.NaN : numbers[code];
+    }
+
+    /**
+     * 可解析为数字的返回Double，否则返回原文本
+     */
+    @Override
+    public Object getValue(int row)
+    {
+        int code = codes[row];
+        if (code < 0)
+        {
+            return null;
+        }
+        return Double.isNaN(numbers[code]) ? dictionary[code] : (Object) numbers[code];
+    }
+
+    public String getText(int row)
+    {
+        int code = codes[row];
+        return code < 0 ? null : dictionary[code];
+    }
+
+    public int getCode(int row)
+    {
+        return codes[row];
+    }
+
+    /**
+     * 字典，调用方不得修改
+     */
+    public String[] getDictionary()
+    {
+        return dictionary;
+    }
+
+    private static double parse(String text)
+    {
+        try
+        {
+            return Double.parseDouble(text);
+        }
+        catch (NumberFormatException e)
+        {
+            return Double.NaN;
+        }
+    }
+}
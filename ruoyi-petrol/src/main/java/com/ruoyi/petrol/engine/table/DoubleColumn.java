@@ -0,0 +1,50 @@
+package com.ruoyi.petrol.engine.table;
+
+/**
+ * 浮点数值列，缺失位置的值为NaN
+ *
+ * @author ruoyi
+ */
+public class DoubleColumn extends Column
+{
+    private final double[] values;
+
+    public DoubleColumn(String name, double[] values)
+    {
+        super(name, values.length);
+        this.values = values;
+        for (int r = 0; r < values.length; r++)
+        {
+            if (Double.isNaN(values[r]))
+            {
+                setNull(r);
+            }
+        }
+    }
+
+    @Override
+    public String getType()
+    {
+        return TYPE_NUMERIC;
+    }
+
+    @Override
+    public double getDouble(int row)
+    {
+        return values[row];
+    }
+
+    @Override
+    public Object getValue(int row)
+    {
+        return isNull(row) ? null : values[row];
+    }
+
+    /**
+     * 底层数组，调用方不得修改
+     */
+    public double[] getValues()
+    {
+        return values;
+    }
+}
@@ -0,0 +1,40 @@
+package com.ruoyi.petrol.engine.table;
+
+/**
+ * 整数值列，缺失值只在位图中标记
+ *
+ * @author ruoyi
+ */
+public class LongColumn extends Column
+{
+    private final long[] values;
+
+    public LongColumn(String name, long[] values)
+    {
+        super(name, values.length);
+        this.values = values;
+    }
+
+    @Override
+    public String getType()
+    {
+        return TYPE_NUMERIC;
+    }
+
+    @Override
+    public double getDouble(int row)
+    {
+        return isNull(row) ? Double.NaN : values[row];
+    }
+
+    @Override
+    public Object getValue(int row)
+    {
+        return isNull(row) ? null : values[row];
+    }
+
+    public long getLong(int row)
+    {
+        return values[row];
+    }
+}
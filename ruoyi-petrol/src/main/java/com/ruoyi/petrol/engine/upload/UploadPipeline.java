@@ -0,0 +1,303 @@
+package com.ruoyi.petrol.engine.upload;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+import com.ruoyi.petrol.engine.io.ColumnarWriter;
+import com.ruoyi.petrol.engine.io.CsvStreamReader;
+import com.ruoyi.petrol.engine.io.EncodingSniffer;
+import com.ruoyi.petrol.engine.stats.ColumnStatistics;
+
+/**
+ * 分片上传流水线
+ * 分片按位置写入目标文件后登记到流水线，流水线从已连续到达的分片起点向后推进：
+ * 按文件顺序更新整文件MD5，CSV文件同时喂入流式解析器生成列式缓存，
+ * 最后一个分片到达时整文件摘要即已就绪，.pcol缓存收尾和.pstat统计草图交给计算线程池，
+ * 不占用上传分片的请求线程；合并前close会等待其完成
+ *
+ * 分片乱序到达时暂停推进，等缺口补齐后一次读完后续已到达的分片（此时数据仍在页缓存中）
+ *
+ * @author ruoyi
+ */
+public class UploadPipeline implements Closeable
+{
+    /** 每次从目标文件读取的块大小 */
+    private static final int READ_SIZE = 1 << 20;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File partFile;
+    private final long chunkSize;
+    private final long fileSize;
+    private final int totalChunks;
+    private final boolean csv;
+    private final ForkJoinPool pool;
+
+    private final BitSet written = new BitSet();
+    private final MessageDigest digest;
+    private int nextIndex;
+    private String fileDigest;
+
+    /** 识别编码和分隔符前缓存的文件头 */
+    private byte[] head = new byte[0];
+    private ColumnarWriter writer;
+    private CsvStreamReader reader;
+    private String profileError;
+    private boolean profiled;
+    /** 收尾任务已提交、尚未结束 */
+    private boolean profiling;
+
+    /**
+     * @param partFile 分片写入的目标文件
+     * @param fileName 原始文件名，CSV文件边收边解析
+     * @param chunkSize 分片大小
+     * @param fileSize 文件大小
+     * @param totalChunks 总分片数
+     * @param pool 收尾列式缓存、计算统计草图使用的线程池
+     */
+    public UploadPipeline(File partFile, String fileName, long chunkSize, long fileSize, int totalChunks,
+            ForkJoinPool pool)
+    {
+        this.partFile = partFile;
+        this.chunkSize = chunkSize;
+        this.fileSize = fileSize;
+        this.totalChunks = totalChunks;
+        this.csv = fileName.toLowerCase().endsWith(".csv");
+        this.pool = pool;
+        try
+        {
+            this.digest = MessageDigest.getInstance("MD5");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 登记已写入的分片，不推进（用于恢复已落盘的分片）
+     */
+    public synchronized void markWritten(int index)
+    {
+        written.set(index);
+    }
+
+    /**
+     * 登记已写入的分片，并处理从当前位置开始所有连续到达的分片
+     */
+    public synchronized void chunkWritten(int index) throws IOException
+    {
+        written.set(index);
+        if (nextIndex >= totalChunks || !written.get(nextIndex))
+        {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(partFile.toPath(), StandardOpenOption.READ))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+            while (nextIndex < totalChunks && written.get(nextIndex))
+            {
+                long position = nextIndex * chunkSize;
+                long end = Math.min(position + chunkSize, fileSize);
+                while (position < end)
+                {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(READ_SIZE, end - position));
+                    int n = channel.read(buffer, position);
+                    if (n < 0)
+                    {
+                        throw new IOException("分片数据不完整: " + nextIndex);
+                    }
+                    position += n;
+                    consume(buffer.array(), n, position == fileSize);
+                }
+                nextIndex++;
+            }
+        }
+
+        if (nextIndex == totalChunks)
+        {
+            complete();
+        }
+    }
+
+    /**
+     * 是否所有分片都已按顺序处理
+     */
+    public synchronized boolean isComplete()
+    {
+        return fileDigest != null;
+    }
+
+    /**
+     * 整文件MD5（小写十六进制），未完成时返回null
+     */
+    public synchronized String getFileDigest()
+    {
+        return fileDigest;
+    }
+
+    /**
+     * 列式缓存和统计草图是否已生成
+     */
+    public synchronized boolean isProfiled()
+    {
+        return profiled;
+    }
+
+    /**
+     * 边收边解析失败的原因，未失败时返回null
+     */
+    public synchronized String getProfileError()
+    {
+        return profileError;
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        // 等待已提交的收尾任务，避免合并时附属文件还在写入
+        boolean interrupted = false;
+        while (profiling)
+        {
+            try
+            {
+                wait();
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+        release();
+    }
+
+    private void release() throws IOException
+    {
+        if (writer != null)
+        {
+            writer.close();
+            writer = null;
+        }
+        reader = null;
+    }
+
+    /**
+     * 字节数组转换为小写十六进制
+     */
+    public static String toHex(byte[] bytes)
+    {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private void consume(byte[] bytes, int length, boolean last)
+    {
+        digest.update(bytes, 0, length);
+        if (!csv || profileError != null)
+        {
+            return;
+        }
+        try
+        {
+            if (reader != null)
+            {
+                reader.feed(bytes, 0, length);
+                return;
+            }
+            // 编码和分隔符按文件头识别，文件头凑够识别所需的长度后再开始解析
+            int headLength = head.length;
+            head = Arrays.copyOf(head, headLength + length);
+            System.arraycopy(bytes, 0, head, headLength, length);
+            if (head.length >= EncodingSniffer.SNIFF_LENGTH || last)
+            {
+                byte[] sniff = Arrays.copyOf(head, Math.min(head.length, EncodingSniffer.SNIFF_LENGTH));
+                Charset charset = EncodingSniffer.detect(sniff);
+                writer = new ColumnarWriter(partFile, columnarSidecar());
+                reader = new CsvStreamReader(CsvStreamReader.detectDelimiter(sniff), charset, writer);
+                reader.feed(head, 0, head.length);
+                head = null;
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // 解析失败不影响上传，合并后按常规流程重新解析
+            profileError = e.getMessage();
+            closeQuietly();
+        }
+    }
+
+    private void complete()
+    {
+        fileDigest = toHex(digest.digest());
+        if (reader != null && profileError == null)
+        {
+            // 任务在chunkWritten返回、释放锁之后才开始
+            profiling = true;
+            pool.execute(this::profile);
+        }
+    }
+
+    /**
+     * 收尾列式缓存并计算统计草图，执行期间持有锁，close和状态查询会等待其完成
+     */
+    private synchronized void profile()
+    {
+        try
+        {
+            reader.finish();
+            // 写入期间目标文件一直在变化，完成时再记录源文件版本
+            writer.finish(partFile);
+            ColumnStatistics.compute(partFile, ColumnarFile.open(columnarSidecar()), pool)
+                    .save(new File(partFile.getPath() + ColumnStatistics.EXTENSION));
+            profiled = true;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            profileError = e.getMessage();
+        }
+        finally
+        {
+            closeQuietly();
+            profiling = false;
+            notifyAll();
+        }
+    }
+
+    private File columnarSidecar()
+    {
+        return new File(partFile.getPath() + ColumnarFile.EXTENSION);
+    }
+
+    private void closeQuietly()
+    {
+        try
+        {
+            release();
+        }
+        catch (IOException ignored)
+        {
+            // 只清理临时文件
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package com.ruoyi.petrol.engine.upload;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 分片上传会话
+ * 已接收的分片记录在位图中，同时保存每个分片的大小和MD5；每接收一个分片向日志文件追加一条记录，
+ * 服务重启后按日志恢复会话，检查和合并时不再逐个探测分片文件
+ *
+ * 日志格式：头部（魔数、版本、分片大小、文件大小、分片数、文件名），之后每个分片一条定长记录
+ * （分片号、大小、MD5），同一分片重复上传时以最后一条为准，末尾不完整的记录在恢复时丢弃
+ *
+ * @author ruoyi
+ */
+public class UploadSession implements Closeable
+{
+    /** 按位置写入时的目标文件后缀 */
+    public static final String PART_SUFFIX = ".part";
+
+    /** 会话日志文件后缀 */
+    public static final String JOURNAL_SUFFIX = ".journal";
+
+    /** 单个上传允许的最大分片数，会话按分片数预分配大小和MD5数组（每片20字节） */
+    public static final int MAX_CHUNKS = 1 << 14;
+
+    private static final int MAGIC = 0x50555053;
+    private static final int VERSION = 1;
+    private static final int DIGEST_LENGTH = 16;
+    private static final int RECORD_SIZE = 8 + DIGEST_LENGTH;
+
+    private final File directory;
+    private final String fileHash;
+    private final String fileName;
+    private final int totalChunks;
+    /** 分片大小，未知时为-1（分片各自保存为独立文件） */
+    private final long chunkSize;
+    private final long fileSize;
+
+    private final BitSet received;
+    private final int[] sizes;
+    private final byte[] digests;
+    private long receivedBytes;
+    private volatile long lastAccess = System.currentTimeMillis();
+
+    private FileChannel journal;
+    private UploadPipeline pipeline;
+
+    private UploadSession(File directory, String fileHash, String fileName, int totalChunks, long chunkSize,
+            long fileSize)
+    {
+        this.directory = directory;
+        this.fileHash = fileHash;
+        this.fileName = fileName;
+        this.totalChunks = totalChunks;
+        this.chunkSize = chunkSize;
+        this.fileSize = fileSize;
+        this.received = new BitSet(totalChunks);
+        this.sizes = new int[totalChunks];
+        this.digests = new byte[totalChunks * DIGEST_LENGTH];
+    }
+
+    /**
+     * 创建新会话并写入日志头部，目录中已有的会话日志被覆盖
+     *
+     * @param directory 分片存储目录
+     * @param chunkSize 分片大小，分片各自保存为独立文件时传-1
+     * @param fileSize 文件大小，未知时传-1
+     */
+    public static UploadSession create(File directory, String fileHash, String fileName, int totalChunks,
+            long chunkSize, long fileSize) throws IOException
+    {
+        if (totalChunks <= 0 || totalChunks > MAX_CHUNKS || (fileSize > 0 && totalChunks > fileSize))
+        {
+            throw new IOException("分片数不合法: " + totalChunks);
+        }
+        if (chunkSize > 0 && chunkCount(fileSize, chunkSize) != totalChunks)
+        {
+            throw new IOException(String.format("分片数与文件大小不匹配，文件大小: %d，分片大小: %d，分片数: %d",
+                    fileSize, chunkSize, totalChunks));
+        }
+
+        UploadSession session = new UploadSession(directory, fileHash, fileName, totalChunks, chunkSize, fileSize);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(chunkSize);
+            out.writeLong(fileSize);
+            out.writeInt(totalChunks);
+            out.writeUTF(fileName);
+        }
+        session.journal = FileChannel.open(session.getJournalFile().toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        writeFully(session.journal, ByteBuffer.wrap(bytes.toByteArray()));
+        session.journal.force(true);
+        return session;
+    }
+
+    /**
+     * 按文件大小和分片大小计算分片数
+     *
+     * @return 分片数，参数不合法时返回-1
+     */
+    public static long chunkCount(long fileSize, long chunkSize)
+    {
+        if (fileSize <= 0 || chunkSize <= 0)
+        {
+            return -1;
+        }
+        return (fileSize + chunkSize - 1) / chunkSize;
+    }
+
+    /**
+     * 按日志恢复会话
+     *
+     * @param directory 分片存储目录
+     * @return 会话，目录中没有日志时返回null
+     */
+    public static UploadSession load(File directory, String fileHash) throws IOException
+    {
+        File file = new File(directory, fileHash + JOURNAL_SUFFIX);
+        if (!file.exists())
+        {
+            return null;
+        }
+
+        UploadSession session;
+        long validLength;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                throw new IOException("上传会话日志格式不正确: " + file.getName());
+            }
+            long chunkSize = in.readLong();
+            long fileSize = in.readLong();
+            int totalChunks = in.readInt();
+            String fileName = in.readUTF();
+            if (totalChunks <= 0 || totalChunks > MAX_CHUNKS)
+            {
+                throw new IOException("上传会话日志格式不正确: " + file.getName());
+            }
+            session = new UploadSession(directory, fileHash, fileName, totalChunks, chunkSize, fileSize);
+            validLength = 4 + 4 + 8 + 8 + 4 + 2 + utfLength(fileName);
+
+            byte[] digest = new byte[DIGEST_LENGTH];
+            while (true)
+            {
+                int index;
+                int size;
+                try
+                {
+                    index = in.readInt();
+                    size = in.readInt();
+                    in.readFully(digest);
+                }
+                catch (EOFException e)
+                {
+                    break;
+                }
+                if (index < 0 || index >= totalChunks)
+                {
+                    break;
+                }
+                session.apply(index, size, digest);
+                validLength += RECORD_SIZE;
+            }
+        }
+
+        // 截掉末尾不完整的记录，之后的记录接着追加
+        session.journal = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+        session.journal.truncate(validLength);
+        session.journal.position(validLength);
+        return session;
+    }
+
+    /**
+     * 记录一个已落盘的分片
+     *
+     * @param index 分片号
+     * @param size 分片大小
+     * @param digest 分片MD5
+     */
+    public synchronized void record(int index, long size, byte[] digest) throws IOException
+    {
+        if (index < 0 || index >= totalChunks)
+        {
+            throw new IOException("分片号超出范围: " + index);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        buffer.putInt(index).putInt((int) size).put(digest, 0, DIGEST_LENGTH).flip();
+        writeFully(journal, buffer);
+        journal.force(false);
+        apply(index, (int) size, digest);
+        touch();
+    }
+
+    /**
+     * 分片是否已接收
+     */
+    public synchronized boolean isReceived(int index)
+    {
+        return received.get(index);
+    }
+
+    /**
+     * 已接收的分片号，升序
+     */
+    public synchronized List<Integer> getReceivedChunks()
+    {
+        List<Integer> chunks = new ArrayList<>(received.cardinality());
+        for (int i = received.nextSetBit(0); i >= 0; i = received.nextSetBit(i + 1))
+        {
+            chunks.add(i);
+        }
+        return chunks;
+    }
+
+    public synchronized int getReceivedCount()
+    {
+        return received.cardinality();
+    }
+
+    /**
+     * 已接收分片的总字节数
+     */
+    public synchronized long getReceivedBytes()
+    {
+        return receivedBytes;
+    }
+
+    public synchronized boolean isComplete()
+    {
+        return received.cardinality() == totalChunks;
+    }
+
+    /**
+     * 分片MD5，未接收时返回null
+     */
+    public synchronized byte[] getDigest(int index)
+    {
+        if (!received.get(index))
+        {
+            return null;
+        }
+        byte[] digest = new byte[DIGEST_LENGTH];
+        System.arraycopy(digests, index * DIGEST_LENGTH, digest, 0, DIGEST_LENGTH);
+        return digest;
+    }
+
+    /**
+     * 分片是否按位置直接写入目标文件
+     */
+    public boolean isPositional()
+    {
+        return chunkSize > 0;
+    }
+
+    /**
+     * 分片在文件中的起始位置
+     */
+    public long getChunkOffset(int index)
+    {
+        return index * chunkSize;
+    }
+
+    /**
+     * 分片应有的大小，只有最后一个分片可以不足分片大小
+     */
+    public long getExpectedSize(int index)
+    {
+        return Math.min(chunkSize, fileSize - getChunkOffset(index));
+    }
+
+    /**
+     * 按位置写入时的目标文件
+     */
+    public File getPartFile()
+    {
+        return new File(directory, fileHash + PART_SUFFIX);
+    }
+
+    /**
+     * 独立保存时的分片文件
+     */
+    public File getChunkFile(int index)
+    {
+        return new File(directory, fileHash + "_" + index);
+    }
+
+    public File getJournalFile()
+    {
+        return new File(directory, fileHash + JOURNAL_SUFFIX);
+    }
+
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    public String getFileHash()
+    {
+        return fileHash;
+    }
+
+    public String getFileName()
+    {
+        return fileName;
+    }
+
+    public int getTotalChunks()
+    {
+        return totalChunks;
+    }
+
+    public long getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    public long getFileSize()
+    {
+        return fileSize;
+    }
+
+    public long getLastAccess()
+    {
+        return lastAccess;
+    }
+
+    public void touch()
+    {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    public synchronized UploadPipeline getPipeline()
+    {
+        return pipeline;
+    }
+
+    public synchronized void setPipeline(UploadPipeline pipeline)
+    {
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (pipeline != null)
+        {
+            pipeline.close();
+        }
+        if (journal != null)
+        {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    private void apply(int index, int size, byte[] digest)
+    {
+        if (received.get(index))
+        {
+            receivedBytes -= sizes[index];
+        }
+        received.set(index);
+        sizes[index] = size;
+        receivedBytes += size;
+        System.arraycopy(digest, 0, digests, index * DIGEST_LENGTH, DIGEST_LENGTH);
+    }
+
+    private static int utfLength(String value)
+    {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c > 0x07FF ? 3 : 2;
+        }
+        return length;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+}
@@ -97,6 +97,22 @@ public interface PetrolDatasetMapper
      */
     public int checkDatasetUsage(Long datasetId);
 
+    /**
+     * 统计引用指定文件的数据集数量
+     *
+     * @param filePath 文件存储路径
+     * @return 数据集数量
+     */
+    public int countDatasetByFilePath(String filePath);
+
+    /**
+     * 统计指定用户创建的、引用指定文件的数据集数量
+     *
+     * @param petrolDataset 查询条件（filePath、createBy）
+     * @return 数据集数量
+     */
+    public int countDatasetByFilePathAndCreator(PetrolDataset petrolDataset);
+
     /**
      * 更新数据集统计信息
      *
@@ -34,8 +34,11 @@ public class ValidationUtils {
     
     // 允许的文件扩展名
     private static final List<String> ALLOWED_FILE_EXTENSIONS = Arrays.asList(
-        ".csv", ".xlsx", ".xls", ".txt", ".json", ".pkl", ".joblib", ".model"
+        ".csv", ".xlsx", ".xls", ".las", ".txt", ".json", ".pkl", ".joblib", ".model"
     );
+
+    // 数据集允许的文件扩展名（不带点，用于上传校验）
+    public static final String[] DATASET_FILE_EXTENSIONS = { "csv", "xlsx", "xls", "las" };
     
     // 最大文件大小 (100MB)
     private static final long MAX_FILE_SIZE = 100 * 1024 * 1024L;
@@ -0,0 +1,22 @@
+package com.ruoyi.petrol.service;
+
+import java.io.File;
+import java.io.IOException;
+import com.ruoyi.petrol.engine.stats.ColumnStatistics;
+
+/**
+ * 数据集列统计Service接口
+ * 对全部数据计算可合并的统计草图并持久化，统计请求直接由草图回答
+ *
+ * @author ruoyi
+ */
+public interface IColumnStatisticsService
+{
+    /**
+     * 获取数据文件所有列的统计草图，草图不存在或源文件已变化时重新计算
+     *
+     * @param source 源数据文件
+     * @return 统计草图
+     */
+    public ColumnStatistics getStatistics(File source) throws IOException;
+}
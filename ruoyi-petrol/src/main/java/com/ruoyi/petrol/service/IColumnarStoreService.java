@@ -0,0 +1,45 @@
+package com.ruoyi.petrol.service;
+
+import java.io.File;
+import java.io.IOException;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+
+/**
+ * 数据集列式缓存Service接口
+ * 数据集文件在上传/合并时转换为同目录下的.pcol列式缓存，之后的读取都走内存映射的缓存文件
+ *
+ * @author ruoyi
+ */
+public interface IColumnarStoreService
+{
+    /**
+     * 获取数据文件对应的列式缓存，缓存不存在或源文件已变化时重新生成
+     *
+     * @param source 源数据文件
+     * @return 列式缓存
+     */
+    public ColumnarFile open(File source) throws IOException;
+
+    /**
+     * 获取已生成的列式缓存，缓存不存在或已过期时返回null，不会触发生成
+     *
+     * @param source 源数据文件
+     * @return 列式缓存
+     */
+    public ColumnarFile openIfPresent(File source);
+
+    /**
+     * 移除已打开的缓存，源文件被删除时调用
+     *
+     * @param source 源数据文件
+     */
+    public void evict(File source);
+
+    /**
+     * 获取数据文件对应的缓存文件路径
+     *
+     * @param source 源数据文件
+     * @return 缓存文件
+     */
+    public File sidecarOf(File source);
+}
@@ -0,0 +1,29 @@
+package com.ruoyi.petrol.service;
+
+import java.io.File;
+import java.io.IOException;
+import com.ruoyi.petrol.engine.chart.CurvePyramid;
+
+/**
+ * 测井曲线瓦片金字塔Service接口
+ * 有深度列的数据集在入库后生成.ptile金字塔，缩放和平移时按视口读取对应层级的瓦片
+ *
+ * @author ruoyi
+ */
+public interface ICurvePyramidService
+{
+    /**
+     * 获取数据文件的瓦片金字塔，金字塔不存在或源文件已变化时重新生成
+     *
+     * @param source 源数据文件
+     * @return 瓦片金字塔，数据中没有深度列时返回null
+     */
+    public CurvePyramid getPyramid(File source) throws IOException;
+
+    /**
+     * 移除已打开的金字塔，源文件被删除时调用
+     *
+     * @param source 源数据文件
+     */
+    public void evict(File source);
+}
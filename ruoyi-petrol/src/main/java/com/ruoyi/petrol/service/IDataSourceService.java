@@ -2,6 +2,8 @@ package com.ruoyi.petrol.service;
 
 import java.util.List;
 import java.util.Map;
+import com.ruoyi.petrol.domain.dto.BinSpec;
+import com.ruoyi.petrol.engine.table.ColumnarTable;
 
 /**
  * 统一数据源服务接口
@@ -49,6 +51,89 @@ public interface IDataSourceService {
      */
     List<Map<String, Object>> readDataSourceData(String sourceId, String sourceType, 
                                                   List<String> columns, Integer maxRows);
+
+    /**
+     * 读取数据源的实际数据（列式）
+     * 
+     * @param sourceId 数据源ID
+     * @param sourceType 数据源类型
+     * @param columns 需要读取的列（可选）
+     * @param maxRows 最大行数（可选）
+     * @return 列式数据表
+     */
+    ColumnarTable readDataSourceTable(String sourceId, String sourceType,
+                                      List<String> columns, Integer maxRows);
+
+    /**
+     * 按深度区间读取数据源数据，通过深度索引直接定位，结果按深度升序
+     * 
+     * @param sourceId 数据源ID
+     * @param sourceType 数据源类型
+     * @param columns 需要读取的列（可选）
+     * @param minDepth 最小深度（可选，含）
+     * @param maxDepth 最大深度（可选，含）
+     * @param maxRows 最大行数（可选）
+     * @return 列式数据表
+     */
+    ColumnarTable readDataSourceRange(String sourceId, String sourceType, List<String> columns,
+                                      Double minDepth, Double maxDepth, Integer maxRows);
+
+    /**
+     * 按像素预算读取整条曲线的降采样数据，结果按横坐标顺序排列
+     * 每条数值曲线各自选出代表点（LTTB或每桶最小/最大值）；返回横坐标列和各曲线列，
+     * 行为所有曲线选中点的并集，每条曲线只在自己选中的行上有值，其余为空
+     * 
+     * @param sourceId 数据源ID
+     * @param sourceType 数据源类型
+     * @param columns 需要降采样的曲线（可选，默认为全部数值列）
+     * @param xColumn 横坐标列（可选，默认为深度列，没有深度列时按行号；指定的列不存在或不是数值列时报错）
+     * @param minDepth 最小深度（可选，含）
+     * @param maxDepth 最大深度（可选，含）
+     * @param points 每条曲线的点数预算
+     * @param method 降采样方法 (lttb/minmax)
+     * @return 列式数据表
+     */
+    ColumnarTable readDataSourceDownsampled(String sourceId, String sourceType, List<String> columns,
+                                            String xColumn, Double minDepth, Double maxDepth,
+                                            int points, String method);
+
+    /**
+     * 按视口读取曲线瓦片：窗口内采样点不多于像素数时返回原始值，否则从瓦片金字塔中选择对应层级
+     * 
+     * @param sourceId 数据源ID
+     * @param sourceType 数据源类型
+     * @param columns 需要的曲线（可选）
+     * @param minDepth 视口最小深度（可选，含）
+     * @param maxDepth 视口最大深度（可选，含）
+     * @param resolution 视口像素数
+     * @return 瓦片数据：level、bucketSize、depthStart、depthEnd、curves（每条曲线的min/max/mean）
+     */
+    Map<String, Object> readDataSourceTile(String sourceId, String sourceType, List<String> columns,
+                                           Double minDepth, Double maxDepth, int resolution);
+
+    /**
+     * 对全部数据分箱统计：一维直方图或二维矩形/六边形分箱，可附带每个箱内着色列的均值
+     * 结果按数据源版本和分箱参数缓存
+     * 
+     * @param sourceId 数据源ID
+     * @param sourceType 数据源类型
+     * @param spec 分箱参数
+     * @return 分箱结果，大小只与箱数有关
+     */
+    Map<String, Object> readDataSourceBins(String sourceId, String sourceType, BinSpec spec);
+
+    /**
+     * 计算数值列两两之间的相关系数矩阵（皮尔逊或斯皮尔曼），每对列只使用两列都有值的行
+     * 结果按数据源版本、方法和列缓存
+     * 
+     * @param sourceId 数据源ID
+     * @param sourceType 数据源类型
+     * @param columns 参与计算的列，为空时取全部数值列
+     * @param method pearson或spearman，为空时为pearson
+     * @return 相关系数矩阵
+     */
+    Map<String, Object> getDataSourceCorrelation(String sourceId, String sourceType, List<String> columns,
+                                                 String method);
     
     /**
      * 获取数据源的统计信息
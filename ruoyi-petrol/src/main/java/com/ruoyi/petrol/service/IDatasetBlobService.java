@@ -0,0 +1,58 @@
+package com.ruoyi.petrol.service;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 数据集文件库Service接口
+ * 数据集文件按服务端计算的内容SHA-256存储，内容相同的文件只保存一份，列式缓存、统计草图等附属文件随之共享；
+ * 文件的引用数即petrol_dataset中file_path指向它的记录数，加上正在创建数据集、尚未写入记录的占用数
+ *
+ * @author ruoyi
+ */
+public interface IDatasetBlobService
+{
+    /**
+     * 按上传时的文件MD5查找文件（秒传）
+     *
+     * @param md5 文件MD5（小写十六进制）
+     * @param extension 文件扩展名（小写，不含点）
+     * @return 存储路径（/profile/...），不存在时返回null
+     */
+    public String find(String md5, String extension);
+
+    /**
+     * 将文件存入文件库并占用一次，文件及其附属文件被移走；内容相同的文件已存在时丢弃传入的文件。
+     * 调用方创建数据集记录后，无论成功与否都要调用unpin
+     *
+     * @param file 待存储的文件
+     * @param md5 服务端计算的文件MD5（小写十六进制），用于秒传查找，可为null
+     * @param extension 文件扩展名（小写，不含点）
+     * @return 存储路径（/profile/...）
+     * @throws IOException 同摘要的文件已存在但大小不一致，或文件移动失败
+     */
+    public String store(File file, String md5, String extension) throws IOException;
+
+    /**
+     * 占用文件库中已有的文件（秒传），之后同样要调用unpin
+     *
+     * @param storedPath 存储路径
+     * @return 是否占用成功，文件已被删除时返回false
+     */
+    public boolean pin(String storedPath);
+
+    /**
+     * 解除store或pin的占用，没有数据集引用也没有其他占用时删除文件及其附属文件
+     *
+     * @param storedPath 存储路径
+     */
+    public void unpin(String storedPath);
+
+    /**
+     * 释放一次引用，没有数据集再引用该文件、也没有正在进行的占用时删除文件及其附属文件；不在文件库中的路径忽略
+     *
+     * @param storedPath 存储路径
+     * @return 是否删除了文件
+     */
+    public boolean release(String storedPath);
+}
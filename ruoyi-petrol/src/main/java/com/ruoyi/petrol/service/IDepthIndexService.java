@@ -0,0 +1,29 @@
+package com.ruoyi.petrol.service;
+
+import java.io.File;
+import java.io.IOException;
+import com.ruoyi.petrol.engine.index.DepthIndex;
+
+/**
+ * 数据集深度索引Service接口
+ * 测井类数据集在入库时识别深度列并生成.pidx深度索引，按深度区间读取时直接定位到对应的行
+ *
+ * @author ruoyi
+ */
+public interface IDepthIndexService
+{
+    /**
+     * 获取数据文件的深度索引，索引不存在或源文件已变化时重新生成
+     *
+     * @param source 源数据文件
+     * @return 深度索引，数据中没有深度列时返回null
+     */
+    public DepthIndex getIndex(File source) throws IOException;
+
+    /**
+     * 移除已打开的索引，源文件被删除时调用
+     *
+     * @param source 源数据文件
+     */
+    public void evict(File source);
+}
@@ -1,5 +1,7 @@
 package com.ruoyi.petrol.service;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import org.springframework.web.multipart.MultipartFile;
@@ -136,10 +138,13 @@ public interface IPetrolDatasetService
      * @param fileHash 文件哈希
      * @param fileName 文件名
      * @param totalChunks 总分片数
+     * @param chunkSize 分片大小（可选，与fileSize同时提供时分片直接写入目标文件）
+     * @param fileSize 文件大小（可选）
      * @return 结果
      */
     public Map<String, Object> uploadChunk(MultipartFile chunk, Integer chunkIndex, String chunkHash,
-                                         String fileHash, String fileName, Integer totalChunks);
+                                         String fileHash, String fileName, Integer totalChunks,
+                                         Long chunkSize, Long fileSize);
 
     /**
      * 检查已上传的分片
@@ -166,6 +171,18 @@ public interface IPetrolDatasetService
     public Map<String, Object> mergeChunksAndCreateDataset(String fileHash, String fileName, Integer totalChunks,
                                                           Long fileSize, String datasetName, String description, String category);
 
+    /**
+     * 由分析结果文件创建派生数据集，文件存入数据集文件库（文件被移走）后按普通数据集分析入库
+     * 
+     * @param file 派生数据文件
+     * @param parent 来源数据集，可以为null
+     * @param datasetName 数据集名称
+     * @param description 数据集描述
+     * @return 新建的数据集
+     */
+    public PetrolDataset createDerivedDataset(File file, PetrolDataset parent, String datasetName, String description)
+        throws IOException;
+
     /**
      * 更新数据集统计信息
      * 
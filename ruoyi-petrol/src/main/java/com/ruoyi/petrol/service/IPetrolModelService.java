@@ -2,6 +2,9 @@ package com.ruoyi.petrol.service;
 
 import java.util.List;
 import com.ruoyi.petrol.domain.PetrolModel;
+import com.ruoyi.petrol.engine.cluster.KMeansModel;
+import com.ruoyi.petrol.engine.neighbors.KnnModel;
+import com.ruoyi.petrol.engine.regression.TreeEnsemble;
 import org.springframework.web.multipart.MultipartFile;
 
 /**
@@ -20,6 +23,30 @@ public interface IPetrolModelService
      */
     public PetrolModel selectPetrolModelById(Long id);
 
+    /**
+     * 查询JVM训练的K-Means模型，聚类中心常驻内存
+     * 
+     * @param id 石油模型主键
+     * @return K-Means模型，模型不存在或不是JVM训练的K-Means模型时为null
+     */
+    public KMeansModel selectKMeansModel(Long id);
+
+    /**
+     * 查询JVM训练的KNN模型，近邻索引从模型文件加载一次后常驻内存
+     * 
+     * @param id 石油模型主键
+     * @return KNN模型，模型不存在、不是JVM训练的KNN模型或模型文件不可读时为null
+     */
+    public KnnModel selectKnnModel(Long id);
+
+    /**
+     * 查询树集成回归模型，训练时导出的节点表加载一次后常驻内存
+     * 
+     * @param id 石油模型主键
+     * @return 树集成模型，模型不存在、没有节点表或节点表不兼容时为null
+     */
+    public TreeEnsemble selectTreeEnsemble(Long id);
+
     /**
      * 查询石油模型列表
      * 
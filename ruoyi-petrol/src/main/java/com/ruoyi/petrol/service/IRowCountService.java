@@ -0,0 +1,31 @@
+package com.ruoyi.petrol.service;
+
+import java.io.File;
+import java.io.IOException;
+import com.ruoyi.petrol.engine.index.RowCountIndex;
+
+/**
+ * 数据文件行数Service接口
+ * 文件首次被访问时生成精确行数和块行号表，按路径和修改时间缓存
+ *
+ * @author ruoyi
+ */
+public interface IRowCountService
+{
+    /**
+     * 获取数据文件的精确行数索引，没有缓存时同步生成
+     *
+     * @param source 源数据文件
+     * @return 行数索引
+     */
+    public RowCountIndex getIndex(File source) throws IOException;
+
+    /**
+     * 获取数据文件的行数，不阻塞调用方
+     * 已有精确计数时直接返回；否则返回采样估算结果并在后台生成精确计数，完成后替换缓存
+     *
+     * @param source 源数据文件
+     * @return 行数索引（isExact区分精确值和估算值），无法估算时返回null
+     */
+    public RowCountIndex getRowCount(File source);
+}
@@ -0,0 +1,49 @@
+package com.ruoyi.petrol.service;
+
+import java.io.IOException;
+import com.ruoyi.petrol.engine.upload.UploadSession;
+
+/**
+ * 分片上传会话Service接口
+ * 按文件哈希登记进行中的分片上传，会话状态保存在内存中并写入日志，服务重启后可恢复
+ *
+ * @author ruoyi
+ */
+public interface IUploadSessionService
+{
+    /**
+     * 获取或创建上传会话，已有会话的分片参数不一致时丢弃旧会话重新开始；
+     * 文件大小超出上限、分片数与文件大小不符或进行中的会话过多时拒绝
+     *
+     * @param fileHash 文件哈希
+     * @param fileName 文件名
+     * @param totalChunks 总分片数
+     * @param chunkSize 分片大小（可选，提供时分片按位置写入目标文件）
+     * @param fileSize 文件大小
+     * @return 上传会话
+     */
+    public UploadSession openSession(String fileHash, String fileName, int totalChunks, Long chunkSize, Long fileSize)
+            throws IOException;
+
+    /**
+     * 获取已有的上传会话
+     *
+     * @param fileHash 文件哈希
+     * @return 上传会话，不存在时返回null
+     */
+    public UploadSession getSession(String fileHash) throws IOException;
+
+    /**
+     * 结束上传会话并删除分片存储
+     *
+     * @param fileHash 文件哈希
+     */
+    public void removeSession(String fileHash);
+
+    /**
+     * 清理超时未完成的上传会话及其分片存储
+     *
+     * @return 清理的会话数
+     */
+    public int expireSessions();
+}
@@ -3,7 +3,10 @@ package com.ruoyi.petrol.service.impl;
 import com.ruoyi.petrol.domain.AnalysisTask;
 import com.ruoyi.petrol.domain.PetrolModel;
 import com.ruoyi.petrol.domain.PetrolDataset;
+import com.ruoyi.petrol.engine.io.TabularFileReader;
+import com.ruoyi.petrol.engine.regression.LeastSquaresModel;
 import com.ruoyi.petrol.service.IAnalysisManagerService;
+import com.ruoyi.petrol.service.IColumnarStoreService;
 import com.ruoyi.petrol.service.IAnalysisTaskService;
 import com.ruoyi.petrol.service.IPetrolModelService;
 import com.ruoyi.petrol.service.IPetrolDatasetService;
@@ -15,8 +18,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.TypeReference;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import java.io.*;
 import java.util.*;
 import org.springframework.stereotype.Service;
@@ -38,6 +39,7 @@ public class AnalysisManagerServiceImpl implements IAnalysisManagerService {
     private final IPetrolModelService modelService;
     private final IPetrolDatasetService datasetService;
     private final RuoYiConfig ruoYiConfig;
+    private final IColumnarStoreService columnarStoreService;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Autowired
@@ -45,12 +47,14 @@ public class AnalysisManagerServiceImpl implements IAnalysisManagerService {
                                     IAnalysisTaskService taskService,
                                     IPetrolModelService modelService,
                                     IPetrolDatasetService datasetService,
-                                    RuoYiConfig ruoYiConfig) {
+                                    RuoYiConfig ruoYiConfig,
+                                    IColumnarStoreService columnarStoreService) {
         this.strategyFactory = strategyFactory;
         this.taskService = taskService;
         this.modelService = modelService;
         this.datasetService = datasetService;
         this.ruoYiConfig = ruoYiConfig;
+        this.columnarStoreService = columnarStoreService;
     }
     
     /**
@@ -241,38 +245,45 @@ public class AnalysisManagerServiceImpl implements IAnalysisManagerService {
 
             JsonNode modelArtifact = resultNode.get("model_artifact");
 
-            // 检查是否有模型文件
-            if (modelArtifact == null) {
-                log.warn("[任务ID: {}] 结果中没有model_artifact字段，跳过模型保存", task.getId());
-                log.debug("[任务ID: {}] 可用字段: {}", task.getId(), resultNode.fieldNames());
-                return;
-            }
+            // 获取模型参数和统计信息
+            JsonNode modelParams = resultNode.get("model_params");
+            JsonNode statistics = resultNode.get("statistics");
 
-            if (!modelArtifact.isObject() || modelArtifact.size() == 0) {
-                log.warn("[任务ID: {}] model_artifact字段为空或不是对象，跳过模型保存", task.getId());
-                return;
-            }
+            // 闭式回归模型的系数和K-Means模型的聚类中心全部在model_params中，没有模型文件；
+            // JVM训练的KNN模型同样带model_form，但近邻索引在model_artifact给出的模型文件中
+            boolean closedForm = modelParams != null && modelParams.hasNonNull(LeastSquaresModel.FORM_KEY)
+                && (modelArtifact == null || modelArtifact.size() == 0);
+            String modelPath = null;
+            if (!closedForm) {
+                // 检查是否有模型文件
+                if (modelArtifact == null) {
+                    log.warn("[任务ID: {}] 结果中没有model_artifact字段，跳过模型保存", task.getId());
+                    log.debug("[任务ID: {}] 可用字段: {}", task.getId(), resultNode.fieldNames());
+                    return;
+                }
 
-            // 获取模型文件信息
-            String modelFileName = null;
-            for (JsonNode fileNode : modelArtifact) {
-                if (fileNode.isTextual()) {
-                    modelFileName = fileNode.asText();
-                    break;
+                if (!modelArtifact.isObject() || modelArtifact.size() == 0) {
+                    log.warn("[任务ID: {}] model_artifact字段为空或不是对象，跳过模型保存", task.getId());
+                    return;
                 }
-            }
 
-            if (modelFileName == null) {
-                log.debug("[任务ID: {}] 未找到有效的模型文件名", task.getId());
-                return;
-            }
+                // 获取模型文件信息
+                String modelFileName = null;
+                for (JsonNode fileNode : modelArtifact) {
+                    if (fileNode.isTextual()) {
+                        modelFileName = fileNode.asText();
+                        break;
+                    }
+                }
 
-            // 构建模型文件的完整路径
-            String modelPath = task.getOutputDirPath() + "/" + modelFileName;
+                if (modelFileName == null) {
+                    log.debug("[任务ID: {}] 未找到有效的模型文件名", task.getId());
+                    return;
+                }
 
-            // 获取模型参数和统计信息
-            JsonNode modelParams = resultNode.get("model_params");
-            JsonNode statistics = resultNode.get("statistics");
+                // 构建模型文件的完整路径
+                modelPath = task.getOutputDirPath() + "/" + modelFileName;
+            }
 
             // 创建模型记录
             PetrolModel model = new PetrolModel();
@@ -280,6 +291,7 @@ public class AnalysisManagerServiceImpl implements IAnalysisManagerService {
             model.setAlgorithm(task.getAlgorithm());
             model.setModelType(determineModelType(task.getAlgorithm()));
             model.setModelPath(modelPath);
+            model.setModelParams(modelParams != null ? modelParams.toString() : null);
             model.setSourceTaskId(task.getId());
             model.setStatus("ACTIVE");
             model.setCreateTime(new Date());
@@ -334,7 +346,7 @@ public class AnalysisManagerServiceImpl implements IAnalysisManagerService {
 
             // 计算文件大小（如果可能）
             try {
-                String absolutePath = getAbsoluteOutputPath(modelPath.replace("/profile/", ""));
+                String absolutePath = modelPath != null ? getAbsoluteOutputPath(modelPath.replace("/profile/", "")) : null;
                 if (absolutePath != null) {
                     File modelFile = new File(absolutePath);
                     if (modelFile.exists()) {
@@ -470,43 +482,9 @@ public class AnalysisManagerServiceImpl implements IAnalysisManagerService {
                 return headers;
             }
 
-            String extension = getFileExtension(actualFilePath).toLowerCase();
-
-            if ("xlsx".equals(extension) || "xls".equals(extension)) {
-                // 解析Excel文件
-                try (Workbook workbook = WorkbookFactory.create(file)) {
-                    Sheet sheet = workbook.getSheetAt(0);
-                    Row headerRow = sheet.getRow(0);
-                    if (headerRow != null) {
-                        for (Cell cell : headerRow) {
-                            if (cell != null) {
-                                String cellValue = "";
-                                switch (cell.getCellType()) {
-                                    case STRING:
-                                        cellValue = cell.getStringCellValue();
-                                        break;
-                                    case NUMERIC:
-                                        cellValue = String.valueOf(cell.getNumericCellValue());
-                                        break;
-                                    default:
-                                        cellValue = cell.toString();
-                                }
-                                headers.add(cellValue);
-                            }
-                        }
-                    }
-                }
-            } else if ("csv".equals(extension)) {
-                // 解析CSV文件
-                try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                    String line = reader.readLine();
-                    if (line != null) {
-                        String[] values = line.split(",");
-                        for (String value : values) {
-                            headers.add(value.trim());
-                        }
-                    }
-                }
+            if (TabularFileReader.isSupported(file.getName())) {
+                // 列名直接取自列式缓存的尾部索引，无需重新解析原文件
+                headers.addAll(columnarStoreService.open(file).getColumnNames());
             }
         } catch (Exception e) {
             log.error("解析文件头信息失败: {}", e.getMessage());
@@ -570,14 +548,4 @@ public class AnalysisManagerServiceImpl implements IAnalysisManagerService {
         }
     }
 
-    /**
-     * 获取文件扩展名
-     */
-    private String getFileExtension(String fileName) {
-        if (fileName == null || fileName.lastIndexOf(".") == -1) {
-            return "";
-        }
-        return fileName.substring(fileName.lastIndexOf(".") + 1);
-    }
-
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.ruoyi.petrol.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.ruoyi.petrol.engine.stats.ColumnStatistics;
+import com.ruoyi.petrol.service.IColumnStatisticsService;
+import com.ruoyi.petrol.service.IColumnarStoreService;
+
+/**
+ * 数据集列统计Service业务层处理
+ * 依次查找内存缓存、.pstat草图文件，都不可用时扫描列式缓存重新计算
+ *
+ * @author ruoyi
+ */
+@Service
+public class ColumnStatisticsServiceImpl implements IColumnStatisticsService
+{
+    private static final Logger log = LoggerFactory.getLogger(ColumnStatisticsServiceImpl.class);
+
+    @Autowired
+    private IColumnarStoreService columnarStoreService;
+
+    @Autowired
+    @Qualifier("statisticsCache")
+    private Cache<String, Object> statisticsCache;
+
+    @Autowired
+    @Qualifier("computeForkJoinPool")
+    private ForkJoinPool computePool;
+
+    /** 正在加载或计算草图的key */
+    private final ConcurrentMap<String, ColumnStatistics> loading = new ConcurrentHashMap<>();
+
+    @Override
+    public ColumnStatistics getStatistics(File source) throws IOException
+    {
+        String key = "sketch:" + source.getAbsolutePath();
+        Object cached = statisticsCache.getIfPresent(key);
+        if (cached instanceof ColumnStatistics && ((ColumnStatistics) cached).matches(source))
+        {
+            return (ColumnStatistics) cached;
+        }
+
+        // 同一文件的并发请求在compute中排队，只计算一次；返回null使key在计算结束后移除，映射不会累积
+        ColumnStatistics[] result = new ColumnStatistics[1];
+        try
+        {
+            loading.compute(key, (k, current) -> {
+                try
+                {
+                    result[0] = loadOrCompute(k, source);
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        return result[0];
+    }
+
+    private ColumnStatistics loadOrCompute(String key, File source) throws IOException
+    {
+        Object cached = statisticsCache.getIfPresent(key);
+        if (cached instanceof ColumnStatistics && ((ColumnStatistics) cached).matches(source))
+        {
+            return (ColumnStatistics) cached;
+        }
+        File file = new File(source.getPath() + ColumnStatistics.EXTENSION);
+        ColumnStatistics statistics = null;
+        if (file.exists())
+        {
+            try
+            {
+                statistics = ColumnStatistics.load(file);
+            }
+            catch (IOException e)
+            {
+                log.warn("统计草图文件不可用，重新计算: {}, {}", file.getName(), e.getMessage());
+            }
+        }
+        if (statistics == null || !statistics.matches(source))
+        {
+            long start = System.currentTimeMillis();
+            statistics = ColumnStatistics.compute(source, columnarStoreService.open(source), computePool);
+            statistics.save(file);
+            log.info("计算统计草图: {}, {} 行, 耗时 {} ms", source.getName(), statistics.getRowCount(),
+                    System.currentTimeMillis() - start);
+        }
+        statisticsCache.put(key, statistics);
+        return statistics;
+    }
+}
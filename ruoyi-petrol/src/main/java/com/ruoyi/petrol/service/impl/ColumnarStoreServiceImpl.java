@@ -0,0 +1,149 @@
+package com.ruoyi.petrol.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+import com.ruoyi.petrol.engine.io.ColumnarWriter;
+import com.ruoyi.petrol.engine.io.TabularFileReader;
+import com.ruoyi.petrol.service.IColumnarStoreService;
+
+/**
+ * 数据集列式缓存Service业务层处理
+ * 已打开的缓存按源文件路径复用，映射的页由所有读取方共享；
+ * 最近不用的映射按数量和空闲时间淘汰，文件被删除时由文件库主动移除
+ *
+ * @author ruoyi
+ */
+@Service
+public class ColumnarStoreServiceImpl implements IColumnarStoreService
+{
+    private static final Logger log = LoggerFactory.getLogger(ColumnarStoreServiceImpl.class);
+
+    /** 同时保持打开的缓存数上限 */
+    private static final int MAX_OPEN_FILES = 256;
+
+    /** 已打开的缓存，key为源文件绝对路径；compute在Caffeine的asMap上同样按key原子执行 */
+    private final ConcurrentMap<String, ColumnarFile> openFiles = Caffeine.newBuilder()
+            .maximumSize(MAX_OPEN_FILES)
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .<String, ColumnarFile>build()
+            .asMap();
+
+    @Override
+    public ColumnarFile open(File source) throws IOException
+    {
+        String key = source.getAbsolutePath();
+        ColumnarFile cached = openFiles.get(key);
+        if (cached != null && cached.matches(source))
+        {
+            return cached;
+        }
+        if (!source.exists())
+        {
+            throw new IOException("文件不存在: " + key);
+        }
+        try
+        {
+            // 同一文件的并发请求只生成一次缓存
+            return openFiles.compute(key, (k, current) -> {
+                if (current != null && current.matches(source))
+                {
+                    return current;
+                }
+                try
+                {
+                    return loadOrBuild(source);
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public ColumnarFile openIfPresent(File source)
+    {
+        String key = source.getAbsolutePath();
+        ColumnarFile cached = openFiles.get(key);
+        if (cached != null && cached.matches(source))
+        {
+            return cached;
+        }
+        File sidecar = sidecarOf(source);
+        if (!sidecar.exists())
+        {
+            return null;
+        }
+        try
+        {
+            ColumnarFile existing = ColumnarFile.open(sidecar);
+            if (!existing.matches(source))
+            {
+                return null;
+            }
+            openFiles.put(key, existing);
+            return existing;
+        }
+        catch (IOException e)
+        {
+            log.warn("列式缓存文件不可用: {}, {}", sidecar.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void evict(File source)
+    {
+        openFiles.remove(source.getAbsolutePath());
+    }
+
+    @Override
+    public File sidecarOf(File source)
+    {
+        return new File(source.getPath() + ColumnarFile.EXTENSION);
+    }
+
+    private ColumnarFile loadOrBuild(File source) throws IOException
+    {
+        File sidecar = sidecarOf(source);
+        if (sidecar.exists())
+        {
+            try
+            {
+                ColumnarFile existing = ColumnarFile.open(sidecar);
+                if (existing.matches(source))
+                {
+                    return existing;
+                }
+                log.info("源文件已变化，重新生成列式缓存: {}", source.getName());
+            }
+            catch (IOException e)
+            {
+                log.warn("列式缓存文件不可用，重新生成: {}, {}", sidecar.getName(), e.getMessage());
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        // 写入器使用固定的临时文件名，只在该文件的compute中生成
+        try (ColumnarWriter writer = new ColumnarWriter(source, sidecar))
+        {
+            TabularFileReader.read(source, writer);
+            writer.finish();
+        }
+        log.info("生成列式缓存: {}, 耗时 {} ms", sidecar.getName(), System.currentTimeMillis() - start);
+        return ColumnarFile.open(sidecar);
+    }
+}
@@ -0,0 +1,117 @@
+package com.ruoyi.petrol.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ruoyi.petrol.engine.chart.CurvePyramid;
+import com.ruoyi.petrol.engine.index.DepthIndex;
+import com.ruoyi.petrol.service.IColumnarStoreService;
+import com.ruoyi.petrol.service.ICurvePyramidService;
+import com.ruoyi.petrol.service.IDepthIndexService;
+
+/**
+ * 测井曲线瓦片金字塔Service业务层处理
+ * 已打开的金字塔按源文件路径复用，文件内容内存映射，不随请求重新读取；
+ * 按数量和空闲时间淘汰，文件被删除时由文件库主动移除
+ *
+ * @author ruoyi
+ */
+@Service
+public class CurvePyramidServiceImpl implements ICurvePyramidService
+{
+    private static final Logger log = LoggerFactory.getLogger(CurvePyramidServiceImpl.class);
+
+    @Autowired
+    private IColumnarStoreService columnarStoreService;
+
+    @Autowired
+    private IDepthIndexService depthIndexService;
+
+    /** 同时保持打开的金字塔数上限 */
+    private static final int MAX_OPEN_PYRAMIDS = 256;
+
+    /** 已打开的金字塔，key为源文件绝对路径 */
+    private final ConcurrentMap<String, CurvePyramid> openPyramids = Caffeine.newBuilder()
+            .maximumSize(MAX_OPEN_PYRAMIDS)
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .<String, CurvePyramid>build()
+            .asMap();
+
+    @Override
+    public CurvePyramid getPyramid(File source) throws IOException
+    {
+        String key = source.getAbsolutePath();
+        CurvePyramid cached = openPyramids.get(key);
+        if (cached != null && cached.matches(source))
+        {
+            return cached;
+        }
+        try
+        {
+            // 没有深度列时返回null，compute不保留该key
+            return openPyramids.compute(key, (k, current) -> {
+                if (current != null && current.matches(source))
+                {
+                    return current;
+                }
+                try
+                {
+                    return loadOrBuild(source);
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void evict(File source)
+    {
+        openPyramids.remove(source.getAbsolutePath());
+    }
+
+    private CurvePyramid loadOrBuild(File source) throws IOException
+    {
+        DepthIndex index = depthIndexService.getIndex(source);
+        if (index == null)
+        {
+            return null;
+        }
+
+        File file = new File(source.getPath() + CurvePyramid.EXTENSION);
+        CurvePyramid pyramid = null;
+        if (file.exists())
+        {
+            try
+            {
+                pyramid = CurvePyramid.open(file);
+            }
+            catch (IOException e)
+            {
+                log.warn("瓦片金字塔文件不可用，重新生成: {}, {}", file.getName(), e.getMessage());
+            }
+        }
+        if (pyramid == null || !pyramid.matches(source))
+        {
+            long start = System.currentTimeMillis();
+            CurvePyramid.build(source, columnarStoreService.open(source), index, file);
+            pyramid = CurvePyramid.open(file);
+            log.info("生成瓦片金字塔: {}, {} 个采样点, 耗时 {} ms", source.getName(), pyramid.getCount(),
+                    System.currentTimeMillis() - start);
+        }
+        return pyramid;
+    }
+}
@@ -4,21 +4,40 @@ import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.TypeReference;
 import com.ruoyi.petrol.domain.AnalysisTask;
 import com.ruoyi.petrol.domain.PetrolDataset;
+import com.ruoyi.petrol.domain.dto.BinSpec;
+import com.ruoyi.petrol.engine.chart.BinGrid;
+import com.ruoyi.petrol.engine.chart.CurvePyramid;
+import com.ruoyi.petrol.engine.chart.Downsampler;
+import com.ruoyi.petrol.engine.index.DepthIndex;
+import com.ruoyi.petrol.engine.index.RowCountIndex;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+import com.ruoyi.petrol.engine.stats.ColumnSketch;
+import com.ruoyi.petrol.engine.stats.CorrelationMatrix;
+import com.ruoyi.petrol.engine.stats.ColumnStatistics;
+import com.ruoyi.petrol.engine.table.Column;
+import com.ruoyi.petrol.engine.table.ColumnarTable;
+import com.ruoyi.petrol.engine.table.DoubleColumn;
 import com.ruoyi.petrol.service.IAnalysisTaskService;
+import com.ruoyi.petrol.service.IColumnStatisticsService;
+import com.ruoyi.petrol.service.IColumnarStoreService;
+import com.ruoyi.petrol.service.ICurvePyramidService;
 import com.ruoyi.petrol.service.IDataSourceService;
+import com.ruoyi.petrol.service.IDepthIndexService;
 import com.ruoyi.petrol.service.IPetrolDatasetService;
+import com.ruoyi.petrol.service.IRowCountService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.github.benmanes.caffeine.cache.Cache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import org.apache.poi.ss.usermodel.*;
-
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 统一数据源服务实现（只支持分析任务）
@@ -37,6 +56,33 @@ public class DataSourceServiceImpl implements IDataSourceService {
     @Autowired
     private IPetrolDatasetService petrolDatasetService;
 
+    @Autowired
+    private IColumnarStoreService columnarStoreService;
+
+    @Autowired
+    private IColumnStatisticsService columnStatisticsService;
+
+    @Autowired
+    private IDepthIndexService depthIndexService;
+
+    @Autowired
+    private IRowCountService rowCountService;
+
+    @Autowired
+    private ICurvePyramidService curvePyramidService;
+
+    @Autowired
+    @Qualifier("visualizationCache")
+    private Cache<String, Object> visualizationCache;
+
+    @Autowired
+    @Qualifier("statisticsCache")
+    private Cache<String, Object> statisticsCache;
+
+    @Autowired
+    @Qualifier("computeForkJoinPool")
+    private ForkJoinPool computePool;
+
     @Value("${ruoyi.profile}")
     private String uploadPath;
     
@@ -77,7 +123,7 @@ public class DataSourceServiceImpl implements IDataSourceService {
                         try {
                             List<String> headers = JSON.parseArray(task.getInputFileHeadersJson(), String.class);
                             source.put("columnCount", headers.size());
-                            source.put("rowCount", estimateRowCount(task.getInputFilePath()));
+                            putRowCount(source, task.getInputFilePath());
                         } catch (Exception e) {
                             log.warn("解析任务头信息失败: {}", task.getId());
                         }
@@ -163,7 +209,7 @@ public class DataSourceServiceImpl implements IDataSourceService {
                 try {
                     List<String> headers = JSON.parseArray(task.getInputFileHeadersJson(), String.class);
                     info.put("columnCount", headers.size());
-                    info.put("rowCount", estimateRowCount(task.getInputFilePath()));
+                    putRowCount(info, task.getInputFilePath());
                 } catch (Exception e) {
                     log.warn("解析任务头信息失败: {}", task.getId());
                 }
@@ -221,10 +267,7 @@ public class DataSourceServiceImpl implements IDataSourceService {
             // 如果没有头信息，尝试从实际数据中获取
             if (allColumns.isEmpty()) {
                 try {
-                    List<Map<String, Object>> sampleData = readDataSourceData(sourceId, sourceType, null, 5);
-                    if (!sampleData.isEmpty()) {
-                        allColumns = new ArrayList<>(sampleData.get(0).keySet());
-                    }
+                    allColumns = readDataSourceTable(sourceId, sourceType, null, 5).getColumnNames();
                 } catch (Exception e) {
                     log.warn("无法从数据中获取列信息: {}", e.getMessage());
                 }
@@ -233,8 +276,8 @@ public class DataSourceServiceImpl implements IDataSourceService {
             // 检测数值列
             if (!allColumns.isEmpty()) {
                 try {
-                    List<Map<String, Object>> sampleData = readDataSourceData(sourceId, sourceType, allColumns, 10);
-                    numericColumns = detectNumericColumns(sampleData, allColumns);
+                    ColumnarTable sampleData = readDataSourceTable(sourceId, sourceType, allColumns, 10);
+                    numericColumns = detectNumericColumns(sampleData);
                 } catch (Exception e) {
                     log.warn("检测数值列失败: {}", e.getMessage());
                     // 如果检测失败，假设常见的石油数据列为数值列
@@ -298,57 +341,337 @@ public class DataSourceServiceImpl implements IDataSourceService {
     /**
      * 检测数值列
      */
-    private List<String> detectNumericColumns(List<Map<String, Object>> sampleData, List<String> allColumns) {
+    private List<String> detectNumericColumns(ColumnarTable sampleData) {
         List<String> numericColumns = new ArrayList<>();
+        for (Column column : sampleData.getColumns()) {
+            // 文本列中超过80%的值是数值时也认为是数值列
+            if (column.isNumeric() && column.getNullCount() < column.size()) {
+                numericColumns.add(column.getName());
+            }
+        }
+        return numericColumns;
+    }
+    
+    /**
+     * 读取数据源数据，按行返回
+     */
+    @Override
+    public List<Map<String, Object>> readDataSourceData(String sourceId, String sourceType, 
+                                                        List<String> columns, Integer maxRows) {
+        return readDataSourceTable(sourceId, sourceType, columns, maxRows).toRecords();
+    }
 
-        if (sampleData.isEmpty()) {
-            return numericColumns;
+    /**
+     * 读取数据源数据，按列返回
+     */
+    @Override
+    public ColumnarTable readDataSourceTable(String sourceId, String sourceType,
+                                             List<String> columns, Integer maxRows) {
+        String filePath = getDataSourceFilePath(sourceId, sourceType);
+        if (filePath == null) {
+            return new ColumnarTable(0, Collections.emptyList());
         }
 
-        for (String column : allColumns) {
-            int numericCount = 0;
-            int totalCount = 0;
+        return readTable(filePath, columns, maxRows != null ? maxRows : 100);
+    }
 
-            for (Map<String, Object> row : sampleData) {
-                Object value = row.get(column);
-                if (value != null) {
-                    totalCount++;
-                    if (value instanceof Number) {
-                        numericCount++;
-                    } else {
-                        try {
-                            Double.parseDouble(value.toString());
-                            numericCount++;
-                        } catch (NumberFormatException e) {
-                            // 不是数值
-                        }
-                    }
+    /**
+     * 按深度区间读取数据源数据
+     */
+    @Override
+    public ColumnarTable readDataSourceRange(String sourceId, String sourceType, List<String> columns,
+                                             Double minDepth, Double maxDepth, Integer maxRows) {
+        String filePath = getDataSourceFilePath(sourceId, sourceType);
+        if (filePath == null) {
+            return new ColumnarTable(0, Collections.emptyList());
+        }
+
+        File file = resolveFile(filePath);
+        try {
+            DepthIndex index = depthIndexService.getIndex(file);
+            if (index == null) {
+                throw new RuntimeException("数据源中没有识别到深度列，无法按深度区间读取");
+            }
+            int[] rows = index.rowsInRange(minDepth, maxDepth, maxRows != null ? maxRows : Integer.MAX_VALUE);
+            ColumnarTable table = ColumnarTable.read(columnarStoreService.open(file), columns, rows);
+            log.info("按深度区间读取数据: 深度列={}, 区间=[{}, {}], {} 行", index.getColumn(), minDepth, maxDepth,
+                table.getRowCount());
+            return table;
+        } catch (IOException e) {
+            log.error("按深度区间读取数据失败: {}", filePath, e);
+            throw new RuntimeException("按深度区间读取数据失败: " + filePath, e);
+        }
+    }
+    
+    /**
+     * 读取降采样后的曲线数据
+     * 有深度索引时按深度顺序取区间内的全部行，否则按文件行序；每条数值曲线单独降采样，
+     * 输出横坐标列和各曲线列，曲线只在自己选中的行上有值，其余为空，有值的单元格不超过 曲线数 × 点数预算
+     */
+    @Override
+    public ColumnarTable readDataSourceDownsampled(String sourceId, String sourceType, List<String> columns,
+                                                   String xColumn, Double minDepth, Double maxDepth,
+                                                   int points, String method) {
+        if (!Downsampler.isSupported(method)) {
+            throw new IllegalArgumentException("不支持的降采样方法: " + method);
+        }
+        String filePath = getDataSourceFilePath(sourceId, sourceType);
+        if (filePath == null) {
+            return new ColumnarTable(0, Collections.emptyList());
+        }
+
+        File file = resolveFile(filePath);
+        try {
+            ColumnarFile columnar = columnarStoreService.open(file);
+            DepthIndex index = depthIndexService.getIndex(file);
+            int xIndex;
+            if (xColumn != null) {
+                xIndex = columnar.getColumnIndex(xColumn);
+                if (xIndex < 0 || !columnar.isNumeric(xIndex)) {
+                    throw new IllegalArgumentException("横坐标列不存在或不是数值列: " + xColumn);
                 }
+            } else {
+                xIndex = index != null ? index.getColumnIndex() : -1;
             }
 
-            // 如果超过80%的值是数值，则认为是数值列
-            if (totalCount > 0 && (double) numericCount / totalCount > 0.8) {
-                numericColumns.add(column);
+            // 确定曲线顺序：order为空时即文件行序
+            int[] order = null;
+            if (index != null && xIndex == index.getColumnIndex()) {
+                order = index.rowsInRange(minDepth, maxDepth, Integer.MAX_VALUE);
+            } else if (minDepth != null || maxDepth != null) {
+                throw new RuntimeException("数据源中没有识别到深度列，无法按深度区间读取");
             }
+            int length = order != null ? order.length : columnar.getRowCount();
+
+            double[] x = new double[length];
+            gatherDoubles(columnar, xIndex, order, x);
+            double[] y = new double[length];
+            BitSet selected = new BitSet(length);
+            List<Integer> curves = new ArrayList<>();
+            List<int[]> positions = new ArrayList<>();
+            List<double[]> values = new ArrayList<>();
+            for (int c = 0; c < columnar.getColumnCount(); c++) {
+                if (c == xIndex || !columnar.isNumeric(c)
+                    || (columns != null && !columns.isEmpty() && !columns.contains(columnar.getColumnNames().get(c)))) {
+                    continue;
+                }
+                gatherDoubles(columnar, c, order, y);
+                int[] curve = Downsampler.downsample(method, x, y, length, points);
+                double[] curveValues = new double[curve.length];
+                for (int i = 0; i < curve.length; i++) {
+                    curveValues[i] = y[curve[i]];
+                    selected.set(curve[i]);
+                }
+                curves.add(c);
+                positions.add(curve);
+                values.add(curveValues);
+            }
+
+            // 选中行的并集按横坐标顺序排列，每条曲线只填入自己选中的点
+            int rowCount = selected.cardinality();
+            int[] union = new int[rowCount];
+            int count = 0;
+            for (int p = selected.nextSetBit(0); p >= 0; p = selected.nextSetBit(p + 1)) {
+                union[count++] = p;
+            }
+            List<Column> output = new ArrayList<>(curves.size() + 1);
+            if (xIndex >= 0) {
+                double[] xValues = new double[rowCount];
+                for (int i = 0; i < rowCount; i++) {
+                    xValues[i] = x[union[i]];
+                }
+                output.add(new DoubleColumn(columnar.getColumnNames().get(xIndex), xValues));
+            }
+            for (int k = 0; k < curves.size(); k++) {
+                int[] curve = positions.get(k);
+                double[] curveValues = values.get(k);
+                double[] column = new double[rowCount];
+                Arrays.fill(column, Double.NaN);
+                for (int i = 0, r = 0; i < curve.length; i++) {
+                    while (union[r] != curve[i]) {
+                        r++;
+                    }
+                    column[r] = curveValues[i];
+                }
+                output.add(new DoubleColumn(columnar.getColumnNames().get(curves.get(k)), column));
+            }
+            log.info("降采样读取数据: 方法={}, 点数预算={}, 曲线 {} 条, 原始 {} 行, 输出 {} 行", method, points,
+                curves.size(), length, rowCount);
+            return new ColumnarTable(rowCount, output);
+        } catch (IOException e) {
+            log.error("降采样读取数据失败: {}", filePath, e);
+            throw new RuntimeException("降采样读取数据失败: " + filePath, e);
         }
+    }
 
-        return numericColumns;
+    /**
+     * 按视口读取曲线瓦片
+     */
+    @Override
+    public Map<String, Object> readDataSourceTile(String sourceId, String sourceType, List<String> columns,
+                                                  Double minDepth, Double maxDepth, int resolution) {
+        String filePath = getDataSourceFilePath(sourceId, sourceType);
+        if (filePath == null) {
+            throw new IllegalArgumentException("数据源没有关联的数据文件: " + sourceId);
+        }
+
+        File file = resolveFile(filePath);
+        try {
+            DepthIndex index = depthIndexService.getIndex(file);
+            if (index == null) {
+                throw new RuntimeException("数据源中没有识别到深度列，无法按深度读取瓦片");
+            }
+            // 视口内的采样点不多于像素数时直接返回原始值
+            if (index.countInRange(minDepth, maxDepth) <= resolution) {
+                int[] rows = index.rowsInRange(minDepth, maxDepth, resolution);
+                return CurvePyramid.rawTile(columnarStoreService.open(file), index.getColumnIndex(), rows, columns);
+            }
+            return curvePyramidService.getPyramid(file).tile(minDepth, maxDepth, resolution, columns);
+        } catch (IOException e) {
+            log.error("读取曲线瓦片失败: {}", filePath, e);
+            throw new RuntimeException("读取曲线瓦片失败: " + filePath, e);
+        }
     }
-    
+
     /**
-     * 读取数据源数据（只支持分析任务）
+     * 分箱统计，范围未指定时取统计草图中的最小/最大值
      */
     @Override
-    public List<Map<String, Object>> readDataSourceData(String sourceId, String sourceType, 
-                                                        List<String> columns, Integer maxRows) {
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> readDataSourceBins(String sourceId, String sourceType, BinSpec spec) {
+        if (spec.getXColumn() == null) {
+            throw new IllegalArgumentException("未指定横轴列");
+        }
         String filePath = getDataSourceFilePath(sourceId, sourceType);
         if (filePath == null) {
-            return new ArrayList<>();
+            throw new IllegalArgumentException("数据源没有关联的数据文件: " + sourceId);
+        }
+
+        File file = resolveFile(filePath);
+        String key = "bins:" + file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified() + ":"
+            + spec.getCacheKey();
+        Object cached = visualizationCache.getIfPresent(key);
+        if (cached != null) {
+            return (Map<String, Object>) cached;
+        }
+
+        try {
+            ColumnarFile columnar = columnarStoreService.open(file);
+            int x = requireNumericColumn(columnar, spec.getXColumn());
+            int y = spec.getYColumn() != null ? requireNumericColumn(columnar, spec.getYColumn()) : -1;
+            int z = spec.getZColumn() != null ? requireNumericColumn(columnar, spec.getZColumn()) : -1;
+
+            ColumnStatistics statistics = columnStatisticsService.getStatistics(file);
+            double xMin = spec.getXMin() != null ? spec.getXMin() : columnMin(statistics, spec.getXColumn());
+            double xMax = spec.getXMax() != null ? spec.getXMax() : columnMax(statistics, spec.getXColumn());
+            double yMin = y < 0 ? 0 : spec.getYMin() != null ? spec.getYMin() : columnMin(statistics, spec.getYColumn());
+            double yMax = y < 0 ? 0 : spec.getYMax() != null ? spec.getYMax() : columnMax(statistics, spec.getYColumn());
+            BinGrid grid = new BinGrid(spec.getShape(), spec.getXBins(), xMin, xMax, y < 0 ? 0 : spec.getYBins(),
+                yMin, yMax);
+
+            long start = System.currentTimeMillis();
+            Map<String, Object> result = grid.compute(columnar, x, y, z, computePool);
+            result.put("xColumn", spec.getXColumn());
+            result.put("yColumn", spec.getYColumn());
+            result.put("zColumn", spec.getZColumn());
+            visualizationCache.put(key, result);
+            log.info("分箱统计: {}, 箱数 {}, {} 行, 耗时 {} ms", spec.getCacheKey(), grid.getCellCount(),
+                columnar.getRowCount(), System.currentTimeMillis() - start);
+            return result;
+        } catch (IOException e) {
+            log.error("分箱统计失败: {}", filePath, e);
+            throw new RuntimeException("分箱统计失败: " + filePath, e);
         }
-        
-        return readExcelData(filePath, columns, maxRows != null ? maxRows : 100);
     }
-    
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getDataSourceCorrelation(String sourceId, String sourceType, List<String> columns,
+                                                        String method) {
+        String correlationMethod = method != null ? method.toLowerCase() : CorrelationMatrix.PEARSON;
+        if (!CorrelationMatrix.isSupported(correlationMethod)) {
+            throw new IllegalArgumentException("不支持的相关系数: " + method);
+        }
+        String filePath = getDataSourceFilePath(sourceId, sourceType);
+        if (filePath == null) {
+            throw new IllegalArgumentException("数据源没有关联的数据文件: " + sourceId);
+        }
+
+        File file = resolveFile(filePath);
+        String key = "corr:" + file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified() + ":"
+            + correlationMethod + ":" + (columns != null ? String.join(",", columns) : "*");
+        Object cached = statisticsCache.getIfPresent(key);
+        if (cached != null) {
+            return (Map<String, Object>) cached;
+        }
+
+        try {
+            ColumnarFile columnar = columnarStoreService.open(file);
+            int[] selected;
+            if (columns != null && !columns.isEmpty()) {
+                selected = new int[columns.size()];
+                for (int i = 0; i < selected.length; i++) {
+                    selected[i] = requireNumericColumn(columnar, columns.get(i));
+                }
+            } else {
+                // 未指定时取全部数值列
+                List<Integer> numeric = new ArrayList<>();
+                for (int c = 0; c < columnar.getColumnCount(); c++) {
+                    if (columnar.isNumeric(c)) {
+                        numeric.add(c);
+                    }
+                }
+                selected = numeric.stream().mapToInt(Integer::intValue).toArray();
+            }
+
+            long start = System.currentTimeMillis();
+            Map<String, Object> result = CorrelationMatrix.compute(columnar, selected, correlationMethod, computePool)
+                .toResult();
+            statisticsCache.put(key, result);
+            log.info("相关系数矩阵: {}, {} 列, {} 行, 耗时 {} ms", correlationMethod, selected.length,
+                columnar.getRowCount(), System.currentTimeMillis() - start);
+            return result;
+        } catch (IOException e) {
+            log.error("计算相关系数矩阵失败: {}", filePath, e);
+            throw new RuntimeException("计算相关系数矩阵失败: " + filePath, e);
+        }
+    }
+
+    private int requireNumericColumn(ColumnarFile columnar, String name) {
+        int column = columnar.getColumnIndex(name);
+        if (column < 0 || !columnar.isNumeric(column)) {
+            throw new IllegalArgumentException("列不存在或不是数值列: " + name);
+        }
+        return column;
+    }
+
+    private double columnMin(ColumnStatistics statistics, String name) {
+        ColumnSketch sketch = statistics.getSketch(name);
+        return sketch != null && sketch.getMoments().getCount() > 0 ? sketch.getMoments().getMin() : 0;
+    }
+
+    private double columnMax(ColumnStatistics statistics, String name) {
+        ColumnSketch sketch = statistics.getSketch(name);
+        return sketch != null && sketch.getMoments().getCount() > 0 ? sketch.getMoments().getMax() : 0;
+    }
+
+    /**
+     * 按曲线顺序取出一列数值，列号为-1时以序号作为横坐标
+     */
+    private void gatherDoubles(ColumnarFile columnar, int column, int[] order, double[] dest) {
+        if (column < 0) {
+            for (int i = 0; i < dest.length; i++) {
+                dest[i] = i;
+            }
+        } else if (order == null) {
+            columnar.readDoubles(column, 0, dest.length, dest, 0);
+        } else {
+            for (int i = 0; i < order.length; i++) {
+                dest[i] = columnar.getDouble(column, order[i]);
+            }
+        }
+    }
+
     /**
      * 获取数据源统计信息（支持分析任务和数据集）
      */
@@ -362,14 +685,14 @@ public class DataSourceServiceImpl implements IDataSourceService {
                 throw new IllegalArgumentException("分析任务不存在: " + taskId);
             }
 
-            // 读取数据并计算统计信息
-            List<Map<String, Object>> data = readDataSourceData(sourceId, sourceType, columns, 1000);
+            // 基于全部数据的统计草图计算统计信息
+            ColumnStatistics data = readDataSourceStatistics(sourceId, sourceType);
             Map<String, Object> stats = calculateStatistics(data, columns);
 
             // 添加任务基本信息
             stats.put("algorithm", task.getAlgorithm());
             stats.put("status", task.getStatus());
-            stats.put("dataRows", data.size());
+            stats.put("dataRows", data.getRowCount());
 
             // 如果有任务结果，也包含进来
             if (task.getResultsJson() != null) {
@@ -389,8 +712,8 @@ public class DataSourceServiceImpl implements IDataSourceService {
                 throw new IllegalArgumentException("数据集不存在: " + datasetId);
             }
 
-            // 读取数据并计算统计信息
-            List<Map<String, Object>> data = readDataSourceData(sourceId, sourceType, columns, 1000);
+            // 基于全部数据的统计草图计算统计信息
+            ColumnStatistics data = readDataSourceStatistics(sourceId, sourceType);
             Map<String, Object> stats = calculateStatistics(data, columns);
 
             // 添加数据集基本信息
@@ -399,7 +722,7 @@ public class DataSourceServiceImpl implements IDataSourceService {
             stats.put("fileType", dataset.getFileType());
             stats.put("totalRows", dataset.getTotalRows());
             stats.put("totalColumns", dataset.getTotalColumns());
-            stats.put("dataRows", data.size());
+            stats.put("dataRows", data.getRowCount());
             stats.put("qualityScore", dataset.getDataQualityScore());
 
             return stats;
@@ -409,159 +732,37 @@ public class DataSourceServiceImpl implements IDataSourceService {
     }
 
     /**
-     * 计算数据的统计信息
+     * 读取数据源所有列的统计草图
      */
-    private Map<String, Object> calculateStatistics(List<Map<String, Object>> data, List<String> columns) {
-        Map<String, Object> statistics = new HashMap<>();
-
-        if (data.isEmpty()) {
-            return statistics;
-        }
-
-        // 获取所有数值列
-        Set<String> numericColumns = new HashSet<>();
-        if (columns != null && !columns.isEmpty()) {
-            numericColumns.addAll(columns);
-        } else {
-            // 自动检测数值列
-            Map<String, Object> firstRow = data.get(0);
-            for (String key : firstRow.keySet()) {
-                Object value = firstRow.get(key);
-                if (value instanceof Number || isNumericString(value)) {
-                    numericColumns.add(key);
-                }
-            }
-        }
-
-        // 为每个数值列计算统计信息
-        for (String column : numericColumns) {
-            List<Double> values = new ArrayList<>();
-
-            // 提取数值
-            for (Map<String, Object> row : data) {
-                Object value = row.get(column);
-                if (value != null) {
-                    try {
-                        double numValue;
-                        if (value instanceof Number) {
-                            numValue = ((Number) value).doubleValue();
-                        } else {
-                            numValue = Double.parseDouble(value.toString());
-                        }
-                        if (!Double.isNaN(numValue) && Double.isFinite(numValue)) {
-                            values.add(numValue);
-                        }
-                    } catch (NumberFormatException e) {
-                        // 忽略非数值
-                    }
-                }
-            }
-
-            if (!values.isEmpty()) {
-                Map<String, Object> columnStats = calculateColumnStatistics(values);
-                statistics.put(column, columnStats);
-            }
+    private ColumnStatistics readDataSourceStatistics(String sourceId, String sourceType) {
+        String filePath = getDataSourceFilePath(sourceId, sourceType);
+        if (filePath == null) {
+            return new ColumnStatistics(0, 0, 0, Collections.emptyList());
         }
-
-        return statistics;
-    }
-
-    /**
-     * 计算单列的统计信息
-     */
-    private Map<String, Object> calculateColumnStatistics(List<Double> values) {
-        Map<String, Object> stats = new HashMap<>();
-
-        if (values.isEmpty()) {
-            return stats;
+        try {
+            return columnStatisticsService.getStatistics(resolveFile(filePath));
+        } catch (IOException e) {
+            log.error("计算统计信息失败: {}", filePath, e);
+            throw new RuntimeException("计算统计信息失败: " + filePath, e);
         }
-
-        // 排序
-        List<Double> sorted = new ArrayList<>(values);
-        Collections.sort(sorted);
-
-        int n = values.size();
-
-        // 基本统计量
-        double sum = values.stream().mapToDouble(Double::doubleValue).sum();
-        double mean = sum / n;
-        double variance = values.stream().mapToDouble(v -> Math.pow(v - mean, 2)).sum() / n;
-        double std = Math.sqrt(variance);
-
-        // 分位数
-        double q25 = percentile(sorted, 0.25);
-        double median = percentile(sorted, 0.5);
-        double q75 = percentile(sorted, 0.75);
-
-        // 偏度和峰度
-        double skewness = calculateSkewness(values, mean, std);
-        double kurtosis = calculateKurtosis(values, mean, std);
-
-        stats.put("count", n);
-        stats.put("mean", Math.round(mean * 10000.0) / 10000.0);
-        stats.put("std", Math.round(std * 10000.0) / 10000.0);
-        stats.put("min", sorted.get(0));
-        stats.put("25%", Math.round(q25 * 10000.0) / 10000.0);
-        stats.put("50%", Math.round(median * 10000.0) / 10000.0);
-        stats.put("75%", Math.round(q75 * 10000.0) / 10000.0);
-        stats.put("max", sorted.get(n - 1));
-        stats.put("skewness", Math.round(skewness * 10000.0) / 10000.0);
-        stats.put("kurtosis", Math.round(kurtosis * 10000.0) / 10000.0);
-
-        return stats;
     }
 
     /**
-     * 计算分位数
+     * 计算数据的统计信息
      */
-    private double percentile(List<Double> sortedValues, double p) {
-        int n = sortedValues.size();
-        double index = p * (n - 1);
-        int lower = (int) Math.floor(index);
-        int upper = (int) Math.ceil(index);
-        double weight = index - lower;
+    private Map<String, Object> calculateStatistics(ColumnStatistics data, List<String> columns) {
+        Map<String, Object> statistics = new HashMap<>();
 
-        if (upper >= n) {
-            return sortedValues.get(n - 1);
+        for (ColumnSketch sketch : data.getSketches()) {
+            // 指定了列时全部计算，否则自动检测数值列
+            boolean selected = columns != null && !columns.isEmpty()
+                ? columns.contains(sketch.getName()) : sketch.isNumeric();
+            if (selected && sketch.getMoments().getCount() > 0) {
+                statistics.put(sketch.getName(), sketch.toStatistics());
+            }
         }
 
-        return sortedValues.get(lower) * (1 - weight) + sortedValues.get(upper) * weight;
-    }
-
-    /**
-     * 计算偏度
-     */
-    private double calculateSkewness(List<Double> values, double mean, double std) {
-        if (std == 0 || values.size() < 3) return 0;
-
-        int n = values.size();
-        double sum = values.stream().mapToDouble(v -> Math.pow((v - mean) / std, 3)).sum();
-        return (n / ((double)(n - 1) * (n - 2))) * sum;
-    }
-
-    /**
-     * 计算峰度
-     */
-    private double calculateKurtosis(List<Double> values, double mean, double std) {
-        if (std == 0 || values.size() < 4) return 0;
-
-        int n = values.size();
-        double sum = values.stream().mapToDouble(v -> Math.pow((v - mean) / std, 4)).sum();
-        return ((n * (n + 1)) / ((double)(n - 1) * (n - 2) * (n - 3))) * sum -
-               (3 * (n - 1) * (n - 1)) / ((double)(n - 2) * (n - 3));
-    }
-
-    /**
-     * 判断是否为数值字符串
-     */
-    private boolean isNumericString(Object value) {
-        if (value == null) return false;
-        try {
-            Double.parseDouble(value.toString());
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
+        return statistics;
     }
     
     // 辅助方法
@@ -588,50 +789,31 @@ public class DataSourceServiceImpl implements IDataSourceService {
     }
     
     /**
-     * 🟡 待优化 - 估算文件行数
-     *
-     * 当前实现：
-     * - 返回固定值1000，这是一个简化的实现
-     * - 不是模拟数据，而是功能占位符
-     *
-     * TODO 优化建议：
-     * - 实际读取文件并计算行数
-     * - 对于大文件，可以采样估算
-     * - 缓存结果以提高性能
-     * - 支持不同文件格式的行数计算
+     * 写入数据文件的行数：已有精确计数时直接使用，否则先给出采样估算并在后台精确计数
      *
+     * @param target 数据源信息
      * @param filePath 文件路径
-     * @return 估算的行数
      */
-    private int estimateRowCount(String filePath) {
-        // TODO: 实现真实的文件行数计算逻辑
-        // 当前返回固定值作为占位符，实际项目中应该优化
-        log.debug("TODO: 需要实现真实的文件行数估算逻辑，当前返回固定值");
-        return 1000;
+    private void putRowCount(Map<String, Object> target, String filePath) {
+        File file = new File(convertToAbsolutePath(filePath));
+        if (!file.isFile()) {
+            return;
+        }
+        RowCountIndex index = rowCountService.getRowCount(file);
+        if (index != null) {
+            target.put("rowCount", index.getRowCount());
+            target.put("rowCountExact", index.isExact());
+        }
     }
 
-    private List<Map<String, Object>> readExcelData(String filePath, List<String> columns, int maxRows) {
+    private ColumnarTable readTable(String filePath, List<String> columns, int maxRows) {
         try {
-            // 处理文件路径 - 转换为绝对路径
-            String absolutePath = convertToAbsolutePath(filePath);
-            log.info("🔍 读取Excel文件 - 原始路径: {}, 绝对路径: {}", filePath, absolutePath);
-
-            // 检查文件是否存在
-            File file = new File(absolutePath);
-            if (!file.exists()) {
-                log.error("❌ 文件不存在: {}", absolutePath);
-                throw new RuntimeException("文件不存在: " + absolutePath);
-            }
+            File file = resolveFile(filePath);
 
-            if (!file.canRead()) {
-                log.error("❌ 文件无法读取: {}", absolutePath);
-                throw new RuntimeException("文件无法读取: " + absolutePath);
-            }
-
-            log.info("✅ 文件存在且可读: {}", absolutePath);
-
-            // 使用POI读取Excel文件
-            return readExcelWithPOI(file, columns, maxRows);
+            // 从列式缓存读取，缓存缺失或过期时自动重建
+            ColumnarTable table = ColumnarTable.read(columnarStoreService.open(file), columns, maxRows);
+            log.info("成功读取数据: {} 行 × {} 列", table.getRowCount(), table.getColumns().size());
+            return table;
 
         } catch (Exception e) {
             log.error("读取Excel文件失败: {}", filePath, e);
@@ -640,143 +822,29 @@ public class DataSourceServiceImpl implements IDataSourceService {
     }
 
     /**
-     * 使用POI读取Excel文件
+     * 解析数据文件的绝对路径并检查是否可读
      */
-    private List<Map<String, Object>> readExcelWithPOI(File file, List<String> columns, int maxRows) {
-        List<Map<String, Object>> data = new ArrayList<>();
-
-        Workbook workbook = null;
-        try {
-            // 使用只读模式打开Excel文件，避免保存时的错误
-            FileInputStream fis = new FileInputStream(file);
-            workbook = WorkbookFactory.create(fis);
-            fis.close(); // 立即关闭文件流
-            Sheet sheet = workbook.getSheetAt(0);
-            Row headerRow = sheet.getRow(0);
-
-            if (headerRow == null) {
-                log.error("Excel文件没有标题行: {}", file.getAbsolutePath());
-                return data;
-            }
-
-            // 获取列名
-            List<String> headers = new ArrayList<>();
-            for (Cell cell : headerRow) {
-                String cellValue = getCellValueAsString(cell);
-                headers.add(cellValue);
-            }
-
-            log.info("Excel文件列名: {}", headers);
-
-            // 读取数据行
-            int rowCount = 0;
-            for (int i = 1; i <= sheet.getLastRowNum() && rowCount < maxRows; i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
-
-                Map<String, Object> rowData = new HashMap<>();
-                boolean hasValidData = false;
-
-                for (int j = 0; j < headers.size(); j++) {
-                    String header = headers.get(j);
-
-                    // 如果指定了列，只读取这些列
-                    if (columns != null && !columns.isEmpty() && !columns.contains(header)) {
-                        continue;
-                    }
-
-                    Cell cell = row.getCell(j);
-                    Object value = getCellValue(cell);
-
-                    if (value != null && !value.toString().isEmpty()) {
-                        hasValidData = true;
-                    }
-
-                    rowData.put(header, value);
-                }
-
-                if (hasValidData) {
-                    data.add(rowData);
-                    rowCount++;
-                }
-            }
-
-            log.info("成功读取Excel数据: {} 行", data.size());
-
-        } catch (Exception e) {
-            log.error("读取Excel文件失败: {}", file.getAbsolutePath(), e);
-            throw new RuntimeException("读取Excel文件失败: " + file.getAbsolutePath(), e);
-        } finally {
-            // 安全关闭工作簿，避免保存操作
-            if (workbook != null) {
-                try {
-                    workbook.close();
-                } catch (Exception e) {
-                    // 忽略关闭时的错误，因为我们只是读取数据
-                    log.debug("关闭Excel工作簿时出现错误（可忽略）: {}", e.getMessage());
-                }
-            }
+    private File resolveFile(String filePath) {
+        // 处理文件路径 - 转换为绝对路径
+        String absolutePath = convertToAbsolutePath(filePath);
+        log.info("🔍 读取数据文件 - 原始路径: {}, 绝对路径: {}", filePath, absolutePath);
+
+        // 检查文件是否存在
+        File file = new File(absolutePath);
+        if (!file.exists()) {
+            log.error("❌ 文件不存在: {}", absolutePath);
+            throw new RuntimeException("文件不存在: " + absolutePath);
         }
 
-        return data;
-    }
-
-    /**
-     * 获取单元格值作为字符串
-     */
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) return "";
-
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue();
-            case NUMERIC:
-                return String.valueOf(cell.getNumericCellValue());
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                try {
-                    return String.valueOf(cell.getNumericCellValue());
-                } catch (Exception e) {
-                    return cell.getStringCellValue();
-                }
-            default:
-                return "";
+        if (!file.canRead()) {
+            log.error("❌ 文件无法读取: {}", absolutePath);
+            throw new RuntimeException("文件无法读取: " + absolutePath);
         }
-    }
 
-    /**
-     * 获取单元格值
-     */
-    private Object getCellValue(Cell cell) {
-        if (cell == null) return null;
-
-        switch (cell.getCellType()) {
-            case NUMERIC:
-                return cell.getNumericCellValue();
-            case STRING:
-                String stringValue = cell.getStringCellValue();
-                // 尝试转换为数字
-                try {
-                    return Double.parseDouble(stringValue);
-                } catch (NumberFormatException e) {
-                    return stringValue;
-                }
-            case BOOLEAN:
-                return cell.getBooleanCellValue();
-            case FORMULA:
-                try {
-                    return cell.getNumericCellValue();
-                } catch (Exception e) {
-                    return cell.getStringCellValue();
-                }
-            default:
-                return null;
-        }
+        log.info("✅ 文件存在且可读: {}", absolutePath);
+        return file;
     }
 
-
-
     /**
      * 转换为绝对路径
      */
@@ -0,0 +1,373 @@
+package com.ruoyi.petrol.service.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import com.ruoyi.petrol.engine.chart.CurvePyramid;
+import com.ruoyi.petrol.engine.index.DepthIndex;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+import com.ruoyi.petrol.engine.io.PreviewSnapshot;
+import com.ruoyi.petrol.engine.stats.ColumnStatistics;
+import com.ruoyi.petrol.engine.upload.UploadPipeline;
+import com.ruoyi.petrol.mapper.PetrolDatasetMapper;
+import com.ruoyi.petrol.service.IColumnarStoreService;
+import com.ruoyi.petrol.service.ICurvePyramidService;
+import com.ruoyi.petrol.service.IDatasetBlobService;
+import com.ruoyi.petrol.service.IDepthIndexService;
+
+/**
+ * 数据集文件库Service业务层处理
+ * 文件保存为upload/blobs/<SHA-256前两位>/<SHA-256>.<扩展名>，附属文件与之同名加后缀；
+ * upload/blobs/md5/<MD5前两位>/<MD5>.<扩展名>记录上传时的MD5对应的文件名，供秒传查找
+ *
+ * 引用的登记和检查都在按文件名分段的锁内进行：store、pin在锁内登记占用，
+ * release、unpin在同一把锁内确认没有数据集记录也没有占用后才删除
+ *
+ * @author ruoyi
+ */
+@Service
+public class DatasetBlobServiceImpl implements IDatasetBlobService
+{
+    private static final Logger log = LoggerFactory.getLogger(DatasetBlobServiceImpl.class);
+
+    /** 文件库相对profile的路径 */
+    private static final String BLOB_DIR = "upload/blobs";
+
+    /** MD5索引相对文件库的路径 */
+    private static final String MD5_DIR = "md5";
+
+    /** 记录文件MD5的附属文件，删除文件时据此移除MD5索引 */
+    private static final String MD5_SIDECAR = ".md5";
+
+    /** 随数据文件一起移动和删除的附属文件 */
+    private static final String[] SIDECARS = { ColumnarFile.EXTENSION, ColumnStatistics.EXTENSION,
+            DepthIndex.EXTENSION, PreviewSnapshot.EXTENSION, CurvePyramid.EXTENSION, MD5_SIDECAR };
+
+    private static final Pattern MD5 = Pattern.compile("[0-9a-f]{32}");
+
+    private static final Pattern EXTENSION = Pattern.compile("[0-9a-z]{1,10}");
+
+    /** 文件库中的文件名：SHA-256，或旧版本按MD5存储的文件 */
+    private static final Pattern BLOB_NAME = Pattern.compile("[0-9a-f]{32}([0-9a-f]{32})?\\.[0-9a-z]{1,10}");
+
+    /** 锁的分段数 */
+    private static final int LOCK_STRIPES = 64;
+
+    @Value("${ruoyi.profile}")
+    private String profile;
+
+    @Autowired
+    private PetrolDatasetMapper petrolDatasetMapper;
+
+    @Autowired
+    private IColumnarStoreService columnarStoreService;
+
+    @Autowired
+    private IDepthIndexService depthIndexService;
+
+    @Autowired
+    private ICurvePyramidService curvePyramidService;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /** 正在创建数据集、尚未写入记录的占用数，key为文件名，只在对应的锁内修改 */
+    private final ConcurrentMap<String, Integer> pins = new ConcurrentHashMap<>();
+
+    public DatasetBlobServiceImpl()
+    {
+        for (int i = 0; i < LOCK_STRIPES; i++)
+        {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public String find(String md5, String extension)
+    {
+        if (md5 == null || !MD5.matcher(md5).matches() || extension == null
+                || !EXTENSION.matcher(extension).matches())
+        {
+            return null;
+        }
+        File alias = md5File(md5, extension);
+        if (alias.isFile())
+        {
+            try
+            {
+                String name = new String(Files.readAllBytes(alias.toPath()), StandardCharsets.UTF_8).trim();
+                File blob = BLOB_NAME.matcher(name).matches() ? blobFile(name) : null;
+                if (blob != null && blob.exists())
+                {
+                    return storedPath(blob);
+                }
+            }
+            catch (IOException e)
+            {
+                log.warn("读取MD5索引失败: {}, {}", alias.getName(), e.getMessage());
+            }
+        }
+        // 旧版本按MD5存储的文件
+        File legacy = blobFile(md5 + "." + extension);
+        return legacy.exists() ? storedPath(legacy) : null;
+    }
+
+    @Override
+    public String store(File file, String md5, String extension) throws IOException
+    {
+        if (extension == null || !EXTENSION.matcher(extension).matches())
+        {
+            throw new IOException("文件扩展名不合法: " + extension);
+        }
+        File blob = blobFile(sha256Of(file) + "." + extension);
+        synchronized (lockOf(blob))
+        {
+            if (blob.exists())
+            {
+                // 摘要相同而大小不同说明文件库中的文件已损坏，不覆盖、不删除，由管理员处理
+                if (blob.length() != file.length())
+                {
+                    throw new IOException("文件库中同摘要的文件大小不一致: " + blob.getName());
+                }
+                // 相同内容已存在，新文件及其附属文件直接丢弃
+                deleteWithSidecars(file);
+                log.info("数据集文件内容已存在，复用: {}", blob.getName());
+            }
+            else
+            {
+                blob.getParentFile().mkdirs();
+                // 附属文件先移动，数据文件最后移动，数据文件存在即代表存储完整；移动不改变文件版本
+                for (String sidecar : SIDECARS)
+                {
+                    File source = new File(file.getPath() + sidecar);
+                    if (source.exists())
+                    {
+                        move(source, new File(blob.getPath() + sidecar));
+                    }
+                }
+                move(file, blob);
+                log.info("数据集文件存入文件库: {}", blob.getName());
+            }
+            if (md5 != null && MD5.matcher(md5).matches())
+            {
+                writeMd5Index(blob, md5, extension);
+            }
+            pins.merge(blob.getName(), 1, Integer::sum);
+        }
+        return storedPath(blob);
+    }
+
+    @Override
+    public boolean pin(String storedPath)
+    {
+        File blob = blobOf(storedPath);
+        if (blob == null)
+        {
+            return false;
+        }
+        synchronized (lockOf(blob))
+        {
+            if (!blob.exists())
+            {
+                return false;
+            }
+            pins.merge(blob.getName(), 1, Integer::sum);
+            return true;
+        }
+    }
+
+    @Override
+    public void unpin(String storedPath)
+    {
+        File blob = blobOf(storedPath);
+        if (blob == null)
+        {
+            return;
+        }
+        synchronized (lockOf(blob))
+        {
+            pins.computeIfPresent(blob.getName(), (name, count) -> count > 1 ? count - 1 : null);
+            deleteIfUnreferenced(blob, storedPath);
+        }
+    }
+
+    @Override
+    public boolean release(String storedPath)
+    {
+        File blob = blobOf(storedPath);
+        if (blob == null)
+        {
+            return false;
+        }
+        synchronized (lockOf(blob))
+        {
+            return deleteIfUnreferenced(blob, storedPath);
+        }
+    }
+
+    /**
+     * 没有占用也没有数据集记录引用时删除文件，调用方持有该文件的锁
+     */
+    private boolean deleteIfUnreferenced(File blob, String storedPath)
+    {
+        if (pins.containsKey(blob.getName()) || !blob.exists()
+                || petrolDatasetMapper.countDatasetByFilePath(storedPath) > 0)
+        {
+            return false;
+        }
+        columnarStoreService.evict(blob);
+        depthIndexService.evict(blob);
+        curvePyramidService.evict(blob);
+        deleteMd5Index(blob);
+        deleteWithSidecars(blob);
+        log.info("数据集文件没有引用，已删除: {}", blob.getName());
+        return true;
+    }
+
+    /**
+     * 存储路径对应的文件，不在文件库中的路径返回null
+     */
+    private File blobOf(String storedPath)
+    {
+        String prefix = "/profile/" + BLOB_DIR + "/";
+        if (storedPath == null || !storedPath.startsWith(prefix))
+        {
+            return null;
+        }
+        String name = storedPath.substring(storedPath.lastIndexOf('/') + 1);
+        if (!BLOB_NAME.matcher(name).matches() || !storedPath.equals(prefix + name.substring(0, 2) + "/" + name))
+        {
+            return null;
+        }
+        return blobFile(name);
+    }
+
+    private File blobFile(String name)
+    {
+        return new File(profile + File.separator + BLOB_DIR + File.separator + name.substring(0, 2), name);
+    }
+
+    private File md5File(String md5, String extension)
+    {
+        return new File(profile + File.separator + BLOB_DIR + File.separator + MD5_DIR + File.separator
+                + md5.substring(0, 2), md5 + "." + extension);
+    }
+
+    private static String storedPath(File blob)
+    {
+        String name = blob.getName();
+        return "/profile/" + BLOB_DIR + "/" + name.substring(0, 2) + "/" + name;
+    }
+
+    /**
+     * MD5索引只用于秒传查找，写入失败不影响存储
+     */
+    private void writeMd5Index(File blob, String md5, String extension)
+    {
+        try
+        {
+            File index = md5File(md5, extension);
+            index.getParentFile().mkdirs();
+            Files.write(index.toPath(), blob.getName().getBytes(StandardCharsets.UTF_8));
+            Files.write(new File(blob.getPath() + MD5_SIDECAR).toPath(), md5.getBytes(StandardCharsets.UTF_8));
+        }
+        catch (IOException e)
+        {
+            log.warn("写入MD5索引失败: {}, {}", blob.getName(), e.getMessage());
+        }
+    }
+
+    private void deleteMd5Index(File blob)
+    {
+        File sidecar = new File(blob.getPath() + MD5_SIDECAR);
+        if (!sidecar.isFile())
+        {
+            return;
+        }
+        try
+        {
+            String md5 = new String(Files.readAllBytes(sidecar.toPath()), StandardCharsets.UTF_8).trim();
+            String name = blob.getName();
+            if (MD5.matcher(md5).matches())
+            {
+                File index = md5File(md5, name.substring(name.lastIndexOf('.') + 1));
+                if (index.isFile() && name.equals(
+                        new String(Files.readAllBytes(index.toPath()), StandardCharsets.UTF_8).trim()))
+                {
+                    index.delete();
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("删除MD5索引失败: {}, {}", blob.getName(), e.getMessage());
+        }
+    }
+
+    private Object lockOf(File blob)
+    {
+        return locks[(blob.getName().hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+
+    /**
+     * 计算文件SHA-256（小写十六进制）
+     */
+    private static String sha256Of(File file) throws IOException
+    {
+        MessageDigest sha256;
+        try
+        {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new FileInputStream(file))
+        {
+            byte[] buffer = new byte[65536];
+            int n;
+            while ((n = in.read(buffer)) != -1)
+            {
+                sha256.update(buffer, 0, n);
+            }
+        }
+        return UploadPipeline.toHex(sha256.digest());
+    }
+
+    private static void move(File source, File target) throws IOException
+    {
+        try
+        {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            // 跨文件系统时无法原子移动
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteWithSidecars(File file)
+    {
+        for (String sidecar : SIDECARS)
+        {
+            new File(file.getPath() + sidecar).delete();
+        }
+        file.delete();
+    }
+}
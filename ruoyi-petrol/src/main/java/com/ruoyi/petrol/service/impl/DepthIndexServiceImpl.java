@@ -0,0 +1,134 @@
+package com.ruoyi.petrol.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ruoyi.petrol.engine.index.DepthIndex;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+import com.ruoyi.petrol.service.IColumnarStoreService;
+import com.ruoyi.petrol.service.IDepthIndexService;
+
+/**
+ * 数据集深度索引Service业务层处理
+ * 已打开的索引按源文件路径复用；没有深度列的文件也记录下来，避免重复识别。
+ * 两者都按数量和空闲时间淘汰，文件被删除时由文件库主动移除
+ *
+ * @author ruoyi
+ */
+@Service
+public class DepthIndexServiceImpl implements IDepthIndexService
+{
+    private static final Logger log = LoggerFactory.getLogger(DepthIndexServiceImpl.class);
+
+    @Autowired
+    private IColumnarStoreService columnarStoreService;
+
+    /** 同时保持打开的索引数上限 */
+    private static final int MAX_OPEN_INDEXES = 256;
+
+    /** 已打开的索引，key为源文件绝对路径，没有深度列时为empty */
+    private final ConcurrentMap<String, Optional<DepthIndex>> openIndexes = Caffeine.newBuilder()
+            .maximumSize(MAX_OPEN_INDEXES)
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .<String, Optional<DepthIndex>>build()
+            .asMap();
+
+    /** 没有深度列的文件对应的列式缓存，用于判断是否过期 */
+    private final ConcurrentMap<String, ColumnarFile> unindexed = Caffeine.newBuilder()
+            .maximumSize(MAX_OPEN_INDEXES)
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .<String, ColumnarFile>build()
+            .asMap();
+
+    @Override
+    public DepthIndex getIndex(File source) throws IOException
+    {
+        String key = source.getAbsolutePath();
+        Optional<DepthIndex> cached = openIndexes.get(key);
+        if (cached != null && isCurrent(key, cached, source))
+        {
+            return cached.orElse(null);
+        }
+        try
+        {
+            return openIndexes.compute(key, (k, current) -> {
+                if (current != null && isCurrent(k, current, source))
+                {
+                    return current;
+                }
+                try
+                {
+                    return loadOrBuild(k, source);
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            }).orElse(null);
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void evict(File source)
+    {
+        String key = source.getAbsolutePath();
+        openIndexes.remove(key);
+        unindexed.remove(key);
+    }
+
+    private boolean isCurrent(String key, Optional<DepthIndex> index, File source)
+    {
+        if (index.isPresent())
+        {
+            return index.get().matches(source);
+        }
+        ColumnarFile columnar = unindexed.get(key);
+        return columnar != null && columnar.matches(source);
+    }
+
+    private Optional<DepthIndex> loadOrBuild(String key, File source) throws IOException
+    {
+        File file = new File(source.getPath() + DepthIndex.EXTENSION);
+        if (file.exists())
+        {
+            try
+            {
+                DepthIndex existing = DepthIndex.open(file);
+                if (existing.matches(source))
+                {
+                    return Optional.of(existing);
+                }
+            }
+            catch (IOException e)
+            {
+                log.warn("深度索引文件不可用，重新生成: {}, {}", file.getName(), e.getMessage());
+            }
+        }
+
+        ColumnarFile columnar = columnarStoreService.open(source);
+        int column = DepthIndex.detectDepthColumn(columnar);
+        if (column < 0)
+        {
+            unindexed.put(key, columnar);
+            return Optional.empty();
+        }
+        long start = System.currentTimeMillis();
+        DepthIndex.build(source, columnar, column, file);
+        DepthIndex index = DepthIndex.open(file);
+        log.info("生成深度索引: {}, 深度列 {}, {} 行, 耗时 {} ms", source.getName(), index.getColumn(),
+                index.getCount(), System.currentTimeMillis() - start);
+        return Optional.of(index);
+    }
+}
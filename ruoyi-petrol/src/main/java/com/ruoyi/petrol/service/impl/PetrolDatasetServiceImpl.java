@@ -2,14 +2,20 @@ package com.ruoyi.petrol.service.impl;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.poi.ss.usermodel.*;
@@ -22,11 +28,27 @@ import org.springframework.web.multipart.MultipartFile;
 import com.ruoyi.common.utils.DateUtils;
 import com.ruoyi.common.utils.SecurityUtils;
 import com.ruoyi.common.utils.file.FileUploadUtils;
-import com.ruoyi.common.utils.file.MimeTypeUtils;
 
 import com.ruoyi.petrol.domain.PetrolDataset;
+import com.ruoyi.petrol.engine.index.DepthIndex;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+import com.ruoyi.petrol.engine.io.LasFile;
+import com.ruoyi.petrol.engine.io.LasReader;
+import com.ruoyi.petrol.engine.io.PreviewCollector;
+import com.ruoyi.petrol.engine.io.PreviewSnapshot;
+import com.ruoyi.petrol.engine.io.TabularFileReader;
+import com.ruoyi.petrol.engine.io.XlsxStreamReader;
+import com.ruoyi.petrol.engine.stats.ColumnStatistics;
+import com.ruoyi.petrol.engine.upload.UploadPipeline;
+import com.ruoyi.petrol.engine.upload.UploadSession;
 import com.ruoyi.petrol.mapper.PetrolDatasetMapper;
+import com.ruoyi.petrol.service.IColumnStatisticsService;
+import com.ruoyi.petrol.service.IColumnarStoreService;
+import com.ruoyi.petrol.service.IDatasetBlobService;
+import com.ruoyi.petrol.service.ICurvePyramidService;
+import com.ruoyi.petrol.service.IDepthIndexService;
 import com.ruoyi.petrol.service.IPetrolDatasetService;
+import com.ruoyi.petrol.service.IUploadSessionService;
 import com.ruoyi.petrol.security.ValidationUtils;
 import com.ruoyi.petrol.aspect.PerformanceAspect.PerformanceMonitor;
 import org.slf4j.Logger;
@@ -46,6 +68,24 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
     @Autowired
     private PetrolDatasetMapper petrolDatasetMapper;
 
+    @Autowired
+    private IColumnarStoreService columnarStoreService;
+
+    @Autowired
+    private IColumnStatisticsService columnStatisticsService;
+
+    @Autowired
+    private IDepthIndexService depthIndexService;
+
+    @Autowired
+    private ICurvePyramidService curvePyramidService;
+
+    @Autowired
+    private IUploadSessionService uploadSessionService;
+
+    @Autowired
+    private IDatasetBlobService datasetBlobService;
+
     @Value("${ruoyi.profile}")
     private String profile;
 
@@ -161,7 +201,10 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
                 throw new RuntimeException("数据集ID " + id + " 正在被使用，无法删除");
             }
         }
-        return petrolDatasetMapper.deletePetrolDatasetByIds(ids);
+        List<PetrolDataset> datasets = petrolDatasetMapper.selectPetrolDatasetByIds(ids);
+        int rows = petrolDatasetMapper.deletePetrolDatasetByIds(ids);
+        releaseFiles(datasets);
+        return rows;
     }
 
     /**
@@ -179,7 +222,23 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
         if (usageCount > 0) {
             throw new RuntimeException("数据集正在被使用，无法删除");
         }
-        return petrolDatasetMapper.deletePetrolDatasetById(id);
+        PetrolDataset dataset = petrolDatasetMapper.selectPetrolDatasetById(id);
+        int rows = petrolDatasetMapper.deletePetrolDatasetById(id);
+        if (dataset != null) {
+            releaseFiles(Collections.singletonList(dataset));
+        }
+        return rows;
+    }
+
+    /**
+     * 释放已删除数据集引用的文件，文件库中的文件没有其他数据集引用时删除
+     */
+    private void releaseFiles(List<PetrolDataset> datasets) {
+        for (PetrolDataset dataset : datasets) {
+            if (dataset.getFilePath() != null) {
+                datasetBlobService.release(dataset.getFilePath());
+            }
+        }
     }
 
     /**
@@ -204,6 +263,7 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
 
         // 删除所有数据集记录
         int deletedCount = petrolDatasetMapper.deleteAllDatasets();
+        releaseFiles(allDatasets);
 
         log.info("✅ 成功删除 {} 个数据集记录", deletedCount);
         return deletedCount;
@@ -223,6 +283,7 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
     public Map<String, Object> uploadDataset(MultipartFile file, String datasetName, String description, String category)
     {
         Map<String, Object> result = new HashMap<>();
+        String storedPath = null;
 
         try {
             // 调试信息：检查原始MultipartFile
@@ -251,7 +312,7 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
             String uploadDir = profile + "/datasets/";
             System.out.println("🔍 [DEBUG] 开始上传文件到: " + uploadDir);
             String fileName = FileUploadUtils.uploadWithTransaction(uploadDir, file,
-                MimeTypeUtils.DEFAULT_ALLOWED_EXTENSION, false);
+                ValidationUtils.DATASET_FILE_EXTENSIONS, false);
             System.out.println("🔍 [DEBUG] 文件上传完成，返回文件名: " + fileName);
 
             // fileName 返回的是相对于profile的路径，如：/profile/datasets/xxx.xlsx
@@ -295,6 +356,25 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
                 log.info("✅ Excel文件格式验证通过: {}", file.getOriginalFilename());
             }
 
+            // 验证LAS文件格式
+            if (originalFilename != null && originalFilename.toLowerCase().endsWith(".las")) {
+                File uploadedFile = new File(actualFilePath);
+                if (!validateLasFile(uploadedFile)) {
+                    uploadedFile.delete();
+
+                    result.put("success", false);
+                    result.put("message", "上传的LAS文件格式不正确，请检查~V/~W/~C/~A段是否完整");
+                    return result;
+                }
+            }
+
+            // 按内容存入数据集文件库，相同内容的文件只保存一份
+            File uploadedFile = new File(actualFilePath);
+            fileName = datasetBlobService.store(uploadedFile, md5Of(uploadedFile),
+                getFileExtension(originalFilename).toLowerCase());
+            storedPath = fileName;
+            actualFilePath = convertToActualFilePath(fileName);
+
             // 分析文件内容
             Map<String, Object> analysisResult = analyzeDatasetFile(actualFilePath);
 
@@ -337,6 +417,11 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
             log.error("上传数据集失败", e);
             result.put("success", false);
             result.put("message", "上传失败: " + e.getMessage());
+        } finally {
+            // 数据集记录已写入时文件由记录引用，否则文件没有引用而被删除
+            if (storedPath != null) {
+                datasetBlobService.unpin(storedPath);
+            }
         }
 
         return result;
@@ -439,10 +524,10 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
             String extension = getFileExtension(filePath).toLowerCase();
             Map<String, Object> stats = new HashMap<>();
 
-            if ("csv".equals(extension)) {
-                stats = analyzeCsvFile(file.getAbsolutePath());
-            } else if ("xlsx".equals(extension) || "xls".equals(extension)) {
-                stats = analyzeExcelFile(file.getAbsolutePath());
+            if ("csv".equals(extension) || "xlsx".equals(extension) || "xls".equals(extension)) {
+                stats = analyzeTabularFile(file.getAbsolutePath());
+            } else if ("las".equals(extension)) {
+                stats = analyzeLasFile(file.getAbsolutePath());
             } else {
                 result.put("success", false);
                 result.put("message", "不支持的文件格式");
@@ -462,117 +547,72 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
     }
 
     /**
-     * 分析Excel文件
+     * 分析CSV/Excel文件：流式读取一遍生成列式缓存，再在缓存的列数据上并行计算列画像
      */
-    private Map<String, Object> analyzeExcelFile(String filePath) throws IOException {
-        Map<String, Object> stats = new HashMap<>();
-        List<Map<String, Object>> columns = new ArrayList<>();
-
-        try (FileInputStream fis = new FileInputStream(filePath);
-             Workbook workbook = WorkbookFactory.create(fis)) {
-            Sheet sheet = workbook.getSheetAt(0);
-
-            // 获取总行数和列数
-            int totalRows = sheet.getLastRowNum() + 1;
-            Row headerRow = sheet.getRow(0);
-            int totalColumns = headerRow != null ? headerRow.getLastCellNum() : 0;
-
-            stats.put("totalRows", totalRows - 1); // 减去标题行
-            stats.put("totalColumns", totalColumns);
-
-            // 分析列信息
-            if (headerRow != null) {
-                for (int i = 0; i < totalColumns; i++) {
-                    Cell cell = headerRow.getCell(i);
-                    String columnName = cell != null ? cell.getStringCellValue() : "Column_" + (i + 1);
-
-                    Map<String, Object> columnInfo = analyzeExcelColumn(sheet, i, columnName, totalRows);
-                    columns.add(columnInfo);
-                }
-            }
+    private Map<String, Object> analyzeTabularFile(String filePath) throws IOException {
+        File file = new File(filePath);
+        // 分片上传时已经边收边生成的列式缓存直接复用，否则解析文件生成
+        columnarStoreService.open(file);
+        return profileStats(file);
+    }
 
-            stats.put("columns", columns);
-            stats.put("missingValues", calculateMissingValues(columns));
-            stats.put("qualityScore", calculateQualityScore(stats));
+    /**
+     * 分析LAS测井文件，列名为曲线助记符，并附带曲线单位和描述
+     * 列式缓存与CSV/Excel一样通过列式缓存服务按文件复用，曲线定义只读取头部各段
+     */
+    private Map<String, Object> analyzeLasFile(String filePath) throws IOException {
+        File file = new File(filePath);
+        columnarStoreService.open(file);
+        LasFile las = LasReader.read(file, 0);
+
+        Map<String, Object> stats = profileStats(file);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> columns = (List<Map<String, Object>>) stats.get("columns");
+        for (int i = 0; i < columns.size() && i < las.getCurves().size(); i++) {
+            LasFile.Curve curve = las.getCurves().get(i);
+            columns.get(i).put("unit", curve.getUnit());
+            columns.get(i).put("description", curve.getDescription());
         }
-
+        stats.put("wellInfo", las.getWellInfo());
         return stats;
     }
 
     /**
-     * 分析Excel列
+     * 计算列画像并补充缺失值总数和质量评分，统计草图同时持久化供后续统计请求使用
      */
-    private Map<String, Object> analyzeExcelColumn(Sheet sheet, int columnIndex, String columnName, int totalRows) {
-        Map<String, Object> columnInfo = new HashMap<>();
-        columnInfo.put("name", columnName);
-
-        int missingCount = 0;
-        List<Double> numericValues = new ArrayList<>();
-        boolean isNumeric = true;
-
-        // 分析数据类型和统计信息（跳过标题行）
-        for (int rowIndex = 1; rowIndex < totalRows; rowIndex++) {
-            Row row = sheet.getRow(rowIndex);
-            if (row == null) {
-                missingCount++;
-                continue;
-            }
-
-            Cell cell = row.getCell(columnIndex);
-            if (cell == null || cell.getCellType() == CellType.BLANK) {
-                missingCount++;
-                continue;
-            }
-
-            try {
-                if (cell.getCellType() == CellType.NUMERIC) {
-                    numericValues.add(cell.getNumericCellValue());
-                } else if (cell.getCellType() == CellType.STRING) {
-                    String value = cell.getStringCellValue();
-                    try {
-                        numericValues.add(Double.parseDouble(value));
-                    } catch (NumberFormatException e) {
-                        isNumeric = false;
-                    }
-                } else {
-                    isNumeric = false;
-                }
-            } catch (Exception e) {
-                isNumeric = false;
-            }
-        }
-
-        columnInfo.put("type", isNumeric ? "numeric" : "string");
-        columnInfo.put("missingCount", missingCount);
-        columnInfo.put("missingRate", (double) missingCount / (totalRows - 1));
-
-        if (isNumeric && !numericValues.isEmpty()) {
-            DoubleSummaryStatistics stats = numericValues.stream().mapToDouble(Double::doubleValue).summaryStatistics();
-            columnInfo.put("min", stats.getMin());
-            columnInfo.put("max", stats.getMax());
-            columnInfo.put("mean", stats.getAverage());
-            columnInfo.put("count", stats.getCount());
+    private Map<String, Object> profileStats(File file) throws IOException {
+        Map<String, Object> stats = columnStatisticsService.getStatistics(file).toProfile();
+        // 测井类数据同时生成深度索引
+        DepthIndex depthIndex = depthIndexService.getIndex(file);
+        if (depthIndex != null) {
+            stats.put("depthColumn", depthIndex.getColumn());
+            stats.put("minDepth", depthIndex.getMinDepth());
+            stats.put("maxDepth", depthIndex.getMaxDepth());
+            // 入库时生成曲线瓦片金字塔，缩放浏览时直接读取
+            curvePyramidService.getPyramid(file);
         }
-
-        return columnInfo;
+        savePreviewSnapshot(file);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> columns = (List<Map<String, Object>>) stats.get("columns");
+        stats.put("missingValues", calculateMissingValues(columns));
+        stats.put("qualityScore", calculateQualityScore(stats));
+        return stats;
     }
 
     /**
-     * 分析CSV文件
+     * 生成预览快照：标题行和前若干行数据，从列式缓存读取
      */
-    private Map<String, Object> analyzeCsvFile(String filePath) throws IOException {
-        Map<String, Object> stats = new HashMap<>();
-        List<Map<String, Object>> columns = new ArrayList<>();
-
-        // 简化的CSV分析实现
-        // 实际项目中可以使用Apache Commons CSV等库
-        stats.put("totalRows", 100); // 临时值
-        stats.put("totalColumns", 5); // 临时值
-        stats.put("columns", columns);
-        stats.put("missingValues", 0);
-        stats.put("qualityScore", 95.0);
-
-        return stats;
+    private void savePreviewSnapshot(File file) {
+        try {
+            ColumnarFile columnar = columnarStoreService.open(file);
+            PreviewCollector collector = new PreviewCollector(PreviewSnapshot.MAX_ROWS);
+            columnar.emit(collector, PreviewSnapshot.MAX_ROWS - 1);
+            boolean complete = columnar.getRowCount() <= PreviewSnapshot.MAX_ROWS - 1;
+            new PreviewSnapshot(file, collector.getRows(), complete)
+                .save(new File(file.getPath() + PreviewSnapshot.EXTENSION));
+        } catch (IOException e) {
+            log.warn("生成预览快照失败: {}, {}", file.getName(), e.getMessage());
+        }
     }
 
     /**
@@ -642,12 +682,9 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
     }
 
     /**
-     * 读取文件预览数据
+     * 读取文件预览数据（标题行 + 前rows-1个数据行），从列式缓存读取
      */
     private List<List<Object>> readFilePreview(String filePath, int rows) throws IOException {
-        List<List<Object>> data = new ArrayList<>();
-        String extension = getFileExtension(filePath).toLowerCase();
-
         // 确保使用绝对路径
         File file = new File(filePath);
         if (!file.isAbsolute()) {
@@ -660,66 +697,32 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
             throw new IOException("文件不存在: " + file.getAbsolutePath());
         }
 
-        if ("xlsx".equals(extension) || "xls".equals(extension)) {
-            try (FileInputStream fis = new FileInputStream(file);
-                 Workbook workbook = WorkbookFactory.create(fis)) {
-                Sheet sheet = workbook.getSheetAt(0);
-                int maxRows = Math.min(rows, sheet.getLastRowNum() + 1);
-
-                for (int i = 0; i < maxRows; i++) {
-                    Row row = sheet.getRow(i);
-                    List<Object> rowData = new ArrayList<>();
-
-                    if (row != null) {
-                        for (int j = 0; j < row.getLastCellNum(); j++) {
-                            Cell cell = row.getCell(j);
-                            Object value = getCellValue(cell);
-                            rowData.add(value);
-                        }
-                    }
-                    data.add(rowData);
-                }
-            }
-        } else if ("csv".equals(extension)) {
-            // 处理CSV文件
-            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                String line;
-                int rowCount = 0;
-
-                while ((line = reader.readLine()) != null && rowCount < rows) {
-                    List<Object> rowData = new ArrayList<>();
-                    // 简单的CSV解析（不处理引号内的逗号）
-                    String[] values = line.split(",");
-                    for (String value : values) {
-                        rowData.add(value.trim());
-                    }
-                    data.add(rowData);
-                    rowCount++;
+        if (!TabularFileReader.isSupported(file.getName())) {
+            return new ArrayList<>();
+        }
+
+        // 优先使用入库时生成的预览快照
+        File snapshotFile = new File(file.getPath() + PreviewSnapshot.EXTENSION);
+        if (snapshotFile.exists()) {
+            try {
+                PreviewSnapshot snapshot = PreviewSnapshot.load(snapshotFile);
+                if (snapshot.matches(file) && snapshot.covers(rows)) {
+                    return snapshot.getRows(rows);
                 }
+            } catch (IOException e) {
+                log.warn("预览快照不可用: {}, {}", snapshotFile.getName(), e.getMessage());
             }
         }
 
-        return data;
-    }
-
-    /**
-     * 获取单元格值
-     */
-    private Object getCellValue(Cell cell) {
-        if (cell == null) return null;
-
-        switch (cell.getCellType()) {
-            case NUMERIC:
-                return cell.getNumericCellValue();
-            case STRING:
-                return cell.getStringCellValue();
-            case BOOLEAN:
-                return cell.getBooleanCellValue();
-            case BLANK:
-                return null;
-            default:
-                return cell.toString();
+        // 快照行数不够时从已有的列式缓存读取，没有缓存时流式读取文件头部，读够行数即停止
+        PreviewCollector collector = new PreviewCollector(rows);
+        ColumnarFile columnar = columnarStoreService.openIfPresent(file);
+        if (columnar != null) {
+            columnar.emit(collector, Math.max(rows - 1, 0));
+        } else {
+            TabularFileReader.read(file, collector);
         }
+        return collector.getRows();
     }
 
     @Override
@@ -801,25 +804,52 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
      */
     @Override
     public Map<String, Object> uploadChunk(MultipartFile chunk, Integer chunkIndex, String chunkHash,
-                                         String fileHash, String fileName, Integer totalChunks) {
+                                         String fileHash, String fileName, Integer totalChunks,
+                                         Long chunkSize, Long fileSize) {
         Map<String, Object> result = new HashMap<>();
 
         try {
-            // 创建分片存储目录
-            String chunkDir = profile + File.separator + "chunks" + File.separator + fileHash;
-            File chunkDirFile = new File(chunkDir);
-            if (!chunkDirFile.exists()) {
-                chunkDirFile.mkdirs();
+            // 先校验分片参数再打开会话，避免不合法的请求创建会话和分片目录
+            if (totalChunks == null || totalChunks <= 0 || totalChunks > UploadSession.MAX_CHUNKS) {
+                throw new RuntimeException("分片数不合法: " + totalChunks);
             }
+            if (chunkIndex == null || chunkIndex < 0 || chunkIndex >= totalChunks) {
+                throw new RuntimeException("分片索引超出范围: " + chunkIndex);
+            }
+            if (fileSize == null || fileSize <= 0) {
+                throw new RuntimeException("文件大小不合法: " + fileSize);
+            }
+            if (chunkSize != null && UploadSession.chunkCount(fileSize, chunkSize) != totalChunks) {
+                throw new RuntimeException(String.format("分片数与文件大小不匹配，文件大小: %d，分片大小: %d，分片数: %d",
+                    fileSize, chunkSize, totalChunks));
+            }
+            UploadSession session = uploadSessionService.openSession(fileHash, fileName, totalChunks, chunkSize, fileSize);
 
-            // 保存分片文件
-            String chunkFileName = fileHash + "_" + chunkIndex;
-            File chunkFile = new File(chunkDir, chunkFileName);
-
-            // 使用安全的方式保存分片文件，避免transferTo可能导致的损坏
-            saveChunkSecurely(chunk, chunkFile);
+            if (session.isPositional()) {
+                // 已知分片大小时直接写入目标文件的对应位置
+                if (chunk.getSize() != session.getExpectedSize(chunkIndex)) {
+                    throw new RuntimeException(String.format("分片大小不正确，期望: %d，实际: %d",
+                        session.getExpectedSize(chunkIndex), chunk.getSize()));
+                }
+                byte[] digest = writeChunkAtOffset(chunk, session.getPartFile(),
+                    session.getChunkOffset(chunkIndex), session.getFileSize());
+                verifyChunkHash(chunkHash, digest, chunkIndex);
+                session.record(chunkIndex, chunk.getSize(), digest);
+                session.getPipeline().chunkWritten(chunkIndex);
+            } else {
+                // 使用安全的方式保存分片文件，避免transferTo可能导致的损坏
+                File chunkFile = session.getChunkFile(chunkIndex);
+                byte[] digest = saveChunkSecurely(chunk, chunkFile);
+                try {
+                    verifyChunkHash(chunkHash, digest, chunkIndex);
+                } catch (RuntimeException e) {
+                    chunkFile.delete();
+                    throw e;
+                }
+                session.record(chunkIndex, chunk.getSize(), digest);
+            }
 
-            log.info("分片上传成功: {} ({}/{})", chunkFileName, chunkIndex + 1, totalChunks);
+            log.info("分片上传成功: {} ({}/{})", fileName, chunkIndex + 1, totalChunks);
 
             result.put("success", true);
             result.put("message", "分片上传成功");
@@ -847,19 +877,17 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
         Map<String, Object> result = new HashMap<>();
 
         try {
-            String chunkDir = profile + File.separator + "chunks" + File.separator + fileHash;
-            File chunkDirFile = new File(chunkDir);
-
-            List<Integer> uploadedChunks = new ArrayList<>();
+            // 分片接收状态由上传会话记录，不再逐个探测分片文件
+            UploadSession session = uploadSessionService.getSession(fileHash);
+            List<Integer> uploadedChunks = session != null && session.getTotalChunks() == totalChunks
+                ? session.getReceivedChunks() : new ArrayList<>();
 
-            if (chunkDirFile.exists()) {
+            // 当前用户已上传过相同内容的文件时视为全部分片已上传，客户端直接合并
+            if (session == null && findOwnedBlob(fileHash, getFileExtension(fileName).toLowerCase(), null) != null) {
                 for (int i = 0; i < totalChunks; i++) {
-                    String chunkFileName = fileHash + "_" + i;
-                    File chunkFile = new File(chunkDir, chunkFileName);
-                    if (chunkFile.exists()) {
-                        uploadedChunks.add(i);
-                    }
+                    uploadedChunks.add(i);
                 }
+                result.put("instant", true);
             }
 
             result.put("uploadedChunks", uploadedChunks);
@@ -885,139 +913,62 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
     public Map<String, Object> mergeChunksAndCreateDataset(String fileHash, String fileName, Integer totalChunks,
                                                           Long fileSize, String datasetName, String description, String category) {
         Map<String, Object> result = new HashMap<>();
+        String relativePath = null;
 
         try {
-            // 检查所有分片是否都已上传
-            Map<String, Object> checkResult = checkUploadedChunks(fileHash, fileName, totalChunks);
-            if (!(Boolean) checkResult.get("isComplete")) {
-                result.put("success", false);
-                result.put("message", "分片不完整，无法合并");
-                return result;
-            }
-
-            // 创建最终文件目录
-            String uploadDir = profile + File.separator + "upload" + File.separator + "datasets";
-            File uploadDirFile = new File(uploadDir);
-            if (!uploadDirFile.exists()) {
-                uploadDirFile.mkdirs();
-            }
-
-            // 合并分片 - 使用临时文件确保原子性
-            String finalFileName = System.currentTimeMillis() + "_" + fileName;
-            File finalFile = new File(uploadDir, finalFileName);
-            File tempFile = new File(uploadDir, finalFileName + ".tmp");
-
-            String chunkDir = profile + File.separator + "chunks" + File.separator + fileHash;
-            long totalWrittenBytes = 0;
-
-            try (FileOutputStream fos = new FileOutputStream(tempFile);
-                 BufferedOutputStream bos = new BufferedOutputStream(fos, 65536)) { // 64KB缓冲区
-
-                // 验证所有分片文件存在且大小正确
-                long expectedTotalSize = 0;
-                for (int i = 0; i < totalChunks; i++) {
-                    String chunkFileName = fileHash + "_" + i;
-                    File chunkFile = new File(chunkDir, chunkFileName);
-
-                    if (!chunkFile.exists()) {
-                        throw new RuntimeException("分片文件不存在: " + chunkFileName);
-                    }
-
-                    if (!chunkFile.canRead()) {
-                        throw new RuntimeException("分片文件无法读取: " + chunkFileName);
-                    }
-
-                    expectedTotalSize += chunkFile.length();
-                }
-
-                // 验证预期总大小
-                if (expectedTotalSize != fileSize) {
-                    throw new RuntimeException(String.format("分片总大小不匹配，期望: %d，实际: %d",
-                        fileSize, expectedTotalSize));
+            UploadSession session = uploadSessionService.getSession(fileHash);
+            String extension = getFileExtension(fileName).toLowerCase();
+            relativePath = session == null ? findInstantUpload(fileHash, extension, fileSize) : null;
+            if (relativePath != null) {
+                log.info("文件内容已存在，直接引用: {} -> {}", fileName, relativePath);
+            } else {
+                // 检查所有分片是否都已上传
+                if (session == null || session.getTotalChunks() != totalChunks || !session.isComplete()) {
+                    result.put("success", false);
+                    result.put("message", "分片不完整，无法合并");
+                    return result;
                 }
 
-                // 按顺序合并分片
-                for (int i = 0; i < totalChunks; i++) {
-                    String chunkFileName = fileHash + "_" + i;
-                    File chunkFile = new File(chunkDir, chunkFileName);
-
-                    try (FileInputStream fis = new FileInputStream(chunkFile);
-                         BufferedInputStream bis = new BufferedInputStream(fis, 65536)) {
-
-                        byte[] buffer = new byte[65536]; // 使用更大的缓冲区
-                        int bytesRead;
-                        while ((bytesRead = bis.read(buffer)) != -1) {
-                            bos.write(buffer, 0, bytesRead);
-                            totalWrittenBytes += bytesRead;
-                        }
+                File assembled;
+                String digest = null;
+                if (session.isPositional()) {
+                    // 分片已按位置写入目标文件，只需校验大小
+                    assembled = session.getPartFile();
+                    if (assembled.length() != fileSize) {
+                        throw new RuntimeException(String.format("分片总大小不匹配，期望: %d，实际: %d",
+                            fileSize, assembled.length()));
                     }
-
-                    log.debug("分片 {} 合并完成，大小: {} 字节", i, chunkFile.length());
-                }
-
-                // 确保所有数据都写入磁盘
-                bos.flush();
-                fos.getFD().sync();
-            }
-
-            // 验证写入的字节数
-            if (totalWrittenBytes != fileSize) {
-                tempFile.delete();
-                throw new RuntimeException(String.format("写入字节数不匹配，期望: %d，实际: %d",
-                    fileSize, totalWrittenBytes));
-            }
-
-            // 验证临时文件大小
-            if (tempFile.length() != fileSize) {
-                tempFile.delete();
-                throw new RuntimeException(String.format("临时文件大小不匹配，期望: %d，实际: %d",
-                    fileSize, tempFile.length()));
-            }
-
-            // 原子性地重命名临时文件为最终文件
-            try {
-                if (finalFile.exists()) {
-                    finalFile.delete();
+                    UploadPipeline pipeline = session.getPipeline();
+                    pipeline.close();
+                    digest = pipeline.getFileDigest();
+                    if (pipeline.getProfileError() != null) {
+                        log.warn("上传时解析文件失败，合并后重新解析: {}", pipeline.getProfileError());
+                    }
+                } else {
+                    assembled = new File(session.getDirectory(), fileHash + ".merged");
+                    mergeChunkFiles(session, fileSize, assembled);
                 }
 
-                if (!tempFile.renameTo(finalFile)) {
-                    // 如果重命名失败，尝试使用NIO
-                    java.nio.file.Files.move(tempFile.toPath(), finalFile.toPath(),
-                        java.nio.file.StandardCopyOption.REPLACE_EXISTING,
-                        java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+                // 上传过程中未能按顺序计算出摘要时读取文件计算
+                if (digest == null) {
+                    digest = md5Of(assembled);
                 }
-            } catch (Exception e) {
-                // 清理临时文件
-                if (tempFile.exists()) {
-                    tempFile.delete();
+                if (isMd5(fileHash) && !fileHash.equalsIgnoreCase(digest)) {
+                    log.warn("文件校验失败，期望: {}，实际: {}", fileHash, digest);
+                    // 已上传的数据有误，清理后由客户端重新上传
+                    cleanupChunks(fileHash);
+                    throw new RuntimeException("文件校验失败，请重新上传");
                 }
-                throw new RuntimeException("文件重命名失败: " + e.getMessage(), e);
-            }
-
-            // 验证文件大小
-            if (finalFile.length() != fileSize) {
-                finalFile.delete();
-                result.put("success", false);
-                result.put("message", "文件合并后大小不匹配，期望: " + fileSize + "，实际: " + finalFile.length());
-                return result;
-            }
 
-            // 验证Excel文件格式（如果是Excel文件）
-            if (fileName.toLowerCase().endsWith(".xlsx") || fileName.toLowerCase().endsWith(".xls")) {
-                if (!validateExcelFile(finalFile)) {
-                    finalFile.delete();
-                    result.put("success", false);
-                    result.put("message", "Excel文件格式验证失败，文件可能在合并过程中损坏");
-                    return result;
-                }
+                // 按内容存入数据集文件库，上传过程中生成的列式缓存和统计草图一起移入
+                relativePath = datasetBlobService.store(assembled, digest, extension);
             }
 
-            // 分析文件并创建数据集
-            String relativePath = "/profile/upload/datasets/" + finalFileName;
-            Map<String, Object> analysisResult = analyzeDatasetFile(finalFile.getAbsolutePath());
+            // 分析文件并创建数据集，已有的列式缓存和统计草图直接复用
+            Map<String, Object> analysisResult = analyzeDatasetFile(convertToActualFilePath(relativePath));
 
             if (!(Boolean) analysisResult.get("success")) {
-                finalFile.delete();
+                cleanupChunks(fileHash);
                 result.put("success", false);
                 result.put("message", "文件分析失败: " + analysisResult.get("message"));
                 return result;
@@ -1060,15 +1011,156 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
             log.error("合并分片失败", e);
             result.put("success", false);
             result.put("message", "合并分片失败: " + e.getMessage());
+        } finally {
+            // 存入或秒传引用后任何一步失败，没有数据集记录引用的文件在这里删除
+            if (relativePath != null) {
+                datasetBlobService.unpin(relativePath);
+            }
         }
 
         return result;
     }
 
+    @Override
+    @CacheEvict(value = "datasetList", allEntries = true)
+    public PetrolDataset createDerivedDataset(File file, PetrolDataset parent, String datasetName, String description)
+        throws IOException {
+        String fileName = file.getName();
+        long fileSize = file.length();
+        String extension = getFileExtension(fileName).toLowerCase();
+        String relativePath = datasetBlobService.store(file, md5Of(file), extension);
+        try {
+            return insertDerivedDataset(relativePath, fileName, fileSize, extension, parent, datasetName, description);
+        } finally {
+            datasetBlobService.unpin(relativePath);
+        }
+    }
+
+    /**
+     * 分析派生数据文件并写入数据集记录
+     */
+    private PetrolDataset insertDerivedDataset(String relativePath, String fileName, long fileSize, String extension,
+        PetrolDataset parent, String datasetName, String description) throws IOException {
+        Map<String, Object> analysisResult = analyzeDatasetFile(convertToActualFilePath(relativePath));
+        if (!(Boolean) analysisResult.get("success")) {
+            throw new IOException("派生数据文件分析失败: " + analysisResult.get("message"));
+        }
+
+        PetrolDataset dataset = new PetrolDataset();
+        dataset.setDatasetName(datasetName);
+        dataset.setDatasetDescription(description);
+        dataset.setFileName(fileName);
+        dataset.setFilePath(relativePath);
+        dataset.setFileSize(fileSize);
+        dataset.setFileType(extension.toUpperCase());
+        dataset.setDatasetCategory(parent != null ? parent.getDatasetCategory() : null);
+        dataset.setStatus("ACTIVE");
+        dataset.setIsPublic(0);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> stats = (Map<String, Object>) analysisResult.get("stats");
+        if (stats != null) {
+            dataset.setTotalRows(((Number) stats.getOrDefault("totalRows", 0)).longValue());
+            dataset.setTotalColumns(((Number) stats.getOrDefault("totalColumns", 0)).longValue());
+            dataset.setColumnInfo(objectMapper.writeValueAsString(stats.get("columns")));
+            dataset.setDataQualityScore(new BigDecimal(stats.getOrDefault("qualityScore", 0).toString()));
+        }
+
+        // 分析任务在后台线程中执行，没有登录用户，创建者沿用来源数据集
+        dataset.setCreateTime(DateUtils.getNowDate());
+        dataset.setCreateBy(parent != null ? parent.getCreateBy() : "system");
+        petrolDatasetMapper.insertPetrolDataset(dataset);
+        log.info("派生数据集创建成功: {} -> {}", datasetName, relativePath);
+        return dataset;
+    }
+
+    /**
+     * 将分片写入目标文件的指定位置，写入的同时计算分片MD5
+     * 目标文件首次写入时预分配为完整大小，各分片可以乱序、并发写入
+     *
+     * @return 分片MD5
+     */
+    private byte[] writeChunkAtOffset(MultipartFile chunk, File partFile, long offset, long fileSize) throws IOException {
+        long length = chunk.getSize();
+        if (offset < 0 || offset + length > fileSize) {
+            throw new RuntimeException(String.format("分片位置超出文件范围，偏移: %d，大小: %d，文件大小: %d",
+                offset, length, fileSize));
+        }
+
+        MessageDigest digest = newMd5();
+        try (RandomAccessFile raf = new RandomAccessFile(partFile, "rw");
+             InputStream inputStream = new DigestInputStream(chunk.getInputStream(), digest);
+             ReadableByteChannel source = Channels.newChannel(inputStream)) {
+            if (raf.length() < fileSize) {
+                raf.setLength(fileSize);
+            }
+
+            FileChannel channel = raf.getChannel();
+            long written = 0;
+            while (written < length) {
+                long n = channel.transferFrom(source, offset + written, length - written);
+                if (n <= 0) {
+                    throw new IOException("分片数据不完整，期望: " + length + "，实际: " + written);
+                }
+                written += n;
+            }
+
+            // 确保数据写入磁盘后才记录分片完成
+            channel.force(false);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * 按顺序合并独立保存的分片文件，在内核中直接拷贝，不经过用户态缓冲区
+     */
+    private void mergeChunkFiles(UploadSession session, long fileSize, File mergedFile) throws IOException {
+        // 验证分片总大小
+        long expectedTotalSize = session.getReceivedBytes();
+        if (expectedTotalSize != fileSize) {
+            throw new RuntimeException(String.format("分片总大小不匹配，期望: %d，实际: %d",
+                fileSize, expectedTotalSize));
+        }
+
+        // 使用临时文件确保原子性
+        File tempFile = new File(mergedFile.getPath() + ".tmp");
+        try {
+            try (FileChannel target = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long position = 0;
+                for (int i = 0; i < session.getTotalChunks(); i++) {
+                    File chunkFile = session.getChunkFile(i);
+                    try (FileChannel source = FileChannel.open(chunkFile.toPath(), StandardOpenOption.READ)) {
+                        long size = source.size();
+                        long copied = 0;
+                        while (copied < size) {
+                            copied += source.transferTo(copied, size - copied, target);
+                        }
+                        position += size;
+                    }
+                }
+                if (position != fileSize || target.size() != fileSize) {
+                    throw new RuntimeException(String.format("写入字节数不匹配，期望: %d，实际: %d",
+                        fileSize, target.size()));
+                }
+                target.force(false);
+            }
+            java.nio.file.Files.move(tempFile.toPath(), mergedFile.toPath(),
+                java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            if (tempFile.exists()) {
+                tempFile.delete();
+            }
+        }
+    }
+
     /**
      * 安全地保存分片文件
+     *
+     * @return 分片MD5
      */
-    private void saveChunkSecurely(MultipartFile chunk, File chunkFile) throws IOException {
+    private byte[] saveChunkSecurely(MultipartFile chunk, File chunkFile) throws IOException {
         // 确保父目录存在
         File parentDir = chunkFile.getParentFile();
         if (!parentDir.exists()) {
@@ -1076,7 +1168,8 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
         }
 
         // 使用缓冲流进行文件复制，确保数据完整性
-        try (InputStream inputStream = chunk.getInputStream();
+        MessageDigest digest = newMd5();
+        try (InputStream inputStream = new DigestInputStream(chunk.getInputStream(), digest);
              BufferedInputStream bis = new BufferedInputStream(inputStream, 8192);
              FileOutputStream fos = new FileOutputStream(chunkFile);
              BufferedOutputStream bos = new BufferedOutputStream(fos, 8192)) {
@@ -1099,6 +1192,86 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
             }
             throw e;
         }
+        return digest.digest();
+    }
+
+    /**
+     * 校验分片MD5，客户端传入的分片哈希不是MD5时（旧版客户端只传分片标识）跳过校验
+     */
+    private void verifyChunkHash(String chunkHash, byte[] digest, int chunkIndex) {
+        String actual = UploadPipeline.toHex(digest);
+        if (isMd5(chunkHash) && !chunkHash.equalsIgnoreCase(actual)) {
+            throw new RuntimeException(String.format("分片 %d 校验失败，期望: %s，实际: %s", chunkIndex, chunkHash, actual));
+        }
+    }
+
+    /**
+     * 秒传：客户端提供的文件哈希对应当前用户已有的文件时占用并返回其存储路径，调用方之后要unpin
+     */
+    private String findInstantUpload(String fileHash, String extension, Long fileSize) {
+        String storedPath = findOwnedBlob(fileHash, extension, fileSize);
+        return storedPath != null && datasetBlobService.pin(storedPath) ? storedPath : null;
+    }
+
+    /**
+     * 按客户端提供的MD5查找文件库中的文件，只认当前用户自己的数据集引用的文件：
+     * 客户端只提供了哈希和大小，不能证明持有文件内容，不能借此引用其他用户的文件
+     *
+     * @param fileSize 文件大小，为null时不校验
+     */
+    private String findOwnedBlob(String fileHash, String extension, Long fileSize) {
+        if (!isMd5(fileHash)) {
+            return null;
+        }
+        String storedPath = datasetBlobService.find(fileHash.toLowerCase(), extension);
+        if (storedPath == null
+                || (fileSize != null && new File(convertToActualFilePath(storedPath)).length() != fileSize)) {
+            return null;
+        }
+        PetrolDataset query = new PetrolDataset();
+        query.setFilePath(storedPath);
+        query.setCreateBy(SecurityUtils.getUsername());
+        return petrolDatasetMapper.countDatasetByFilePathAndCreator(query) > 0 ? storedPath : null;
+    }
+
+    /**
+     * 计算文件MD5
+     */
+    private static String md5Of(File file) throws IOException {
+        MessageDigest md5 = newMd5();
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[65536];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                md5.update(buffer, 0, n);
+            }
+        }
+        return UploadPipeline.toHex(md5.digest());
+    }
+
+    private static boolean isMd5(String hash) {
+        return hash != null && hash.matches("[0-9a-fA-F]{32}");
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 验证LAS文件格式：能解析出曲线定义和数据段
+     */
+    private boolean validateLasFile(File file) {
+        try {
+            LasFile las = LasReader.read(file, 1);
+            return !las.getCurves().isEmpty();
+        } catch (Exception e) {
+            log.error("LAS文件格式验证失败: {}", e.getMessage());
+            return false;
+        }
     }
 
     /**
@@ -1109,7 +1282,12 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
             System.out.println("🔍 [DEBUG] validateExcelFile - 开始验证: " + file.getAbsolutePath());
             System.out.println("🔍 [DEBUG] validateExcelFile - 文件大小: " + file.length() + " 字节");
 
-            // 使用POI尝试打开Excel文件 - 使用InputStream避免修改原文件
+            // xlsx只打开OPC包并流式解析第一个工作表的首行，不把整个工作簿加载进内存
+            if (file.getName().toLowerCase().endsWith(".xlsx")) {
+                return XlsxStreamReader.validate(file);
+            }
+
+            // xls（OLE2格式，最多65536行）仍用POI打开 - 使用InputStream避免修改原文件
             Workbook workbook;
             try (FileInputStream fis = new FileInputStream(file)) {
                 workbook = WorkbookFactory.create(fis);
@@ -1149,19 +1327,7 @@ public class PetrolDatasetServiceImpl implements IPetrolDatasetService
      */
     private void cleanupChunks(String fileHash) {
         try {
-            String chunkDir = profile + File.separator + "chunks" + File.separator + fileHash;
-            File chunkDirFile = new File(chunkDir);
-
-            if (chunkDirFile.exists()) {
-                File[] chunkFiles = chunkDirFile.listFiles();
-                if (chunkFiles != null) {
-                    for (File chunkFile : chunkFiles) {
-                        chunkFile.delete();
-                    }
-                }
-                chunkDirFile.delete();
-            }
-
+            uploadSessionService.removeSession(fileHash);
             log.info("分片文件清理完成: {}", fileHash);
         } catch (Exception e) {
             log.warn("清理分片文件失败: {}", e.getMessage());
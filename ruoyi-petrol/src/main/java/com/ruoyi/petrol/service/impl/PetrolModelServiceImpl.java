@@ -3,16 +3,26 @@ package com.ruoyi.petrol.service.impl;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
 import com.ruoyi.common.utils.DateUtils;
 import com.ruoyi.common.utils.SecurityUtils;
 import com.ruoyi.common.utils.file.FileUploadUtils;
 import com.ruoyi.common.utils.file.MimeTypeUtils;
 import com.ruoyi.petrol.mapper.PetrolModelMapper;
 import com.ruoyi.petrol.domain.PetrolModel;
+import com.ruoyi.petrol.engine.cluster.KMeansModel;
+import com.ruoyi.petrol.engine.neighbors.KnnModel;
+import com.ruoyi.petrol.engine.regression.TreeEnsemble;
 import com.ruoyi.petrol.service.IPetrolModelService;
 
 /**
@@ -24,9 +34,21 @@ import com.ruoyi.petrol.service.IPetrolModelService;
 @Service
 public class PetrolModelServiceImpl implements IPetrolModelService 
 {
+    private static final Logger log = LoggerFactory.getLogger(PetrolModelServiceImpl.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     @Autowired
     private PetrolModelMapper petrolModelMapper;
 
+    @Autowired
+    @Qualifier("modelCache")
+    private Cache<String, Object> modelCache;
+
+    @Autowired
+    @Qualifier("modelIndexCache")
+    private Cache<String, Object> modelIndexCache;
+
     @Value("${ruoyi.profile}")
     private String uploadPath;
 
@@ -42,6 +64,150 @@ public class PetrolModelServiceImpl implements IPetrolModelService
         return petrolModelMapper.selectPetrolModelById(id);
     }
 
+    /**
+     * 查询JVM训练的K-Means模型
+     * 解析后的模型放入modelCache，重复预测时不再查库和解析model_params
+     * 
+     * @param id 石油模型主键
+     * @return K-Means模型，模型不存在或不是JVM训练的K-Means模型时为null
+     */
+    @Override
+    public KMeansModel selectKMeansModel(Long id)
+    {
+        String key = kmeansKey(id);
+        Object cached = modelCache.getIfPresent(key);
+        if (cached instanceof KMeansModel)
+        {
+            return (KMeansModel) cached;
+        }
+        PetrolModel model = petrolModelMapper.selectPetrolModelById(id);
+        if (model == null || model.getModelParams() == null)
+        {
+            return null;
+        }
+        try
+        {
+            Map<String, Object> params = objectMapper.readValue(model.getModelParams(),
+                    new TypeReference<Map<String, Object>>() {});
+            if (!KMeansModel.isKMeans(params))
+            {
+                return null;
+            }
+            KMeansModel kmeans = KMeansModel.fromParams(params);
+            modelCache.put(key, kmeans);
+            return kmeans;
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            log.warn("模型 {} 的K-Means参数无法解析: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 查询JVM训练的KNN模型
+     * 模型文件中的近邻索引只加载一次，之后的预测从modelIndexCache取（按内存占用淘汰）
+     * 
+     * @param id 石油模型主键
+     * @return KNN模型，模型不存在、不是JVM训练的KNN模型或模型文件不可读时为null
+     */
+    @Override
+    public KnnModel selectKnnModel(Long id)
+    {
+        String key = knnKey(id);
+        Object cached = modelIndexCache.getIfPresent(key);
+        if (cached instanceof KnnModel)
+        {
+            return (KnnModel) cached;
+        }
+        PetrolModel model = petrolModelMapper.selectPetrolModelById(id);
+        if (model == null || model.getModelParams() == null || model.getModelPath() == null)
+        {
+            return null;
+        }
+        // 同一模型的并发请求在compute中排队，只加载一次；不是KNN模型或加载失败时返回null，不放入缓存
+        Object loaded = modelIndexCache.asMap().compute(key, (k, current) -> {
+            if (current instanceof KnnModel)
+            {
+                return current;
+            }
+            try
+            {
+                Map<String, Object> params = objectMapper.readValue(model.getModelParams(),
+                        new TypeReference<Map<String, Object>>() {});
+                if (!KnnModel.isKnn(params))
+                {
+                    return null;
+                }
+                File file = resolveModelFile(model.getModelPath());
+                long start = System.currentTimeMillis();
+                KnnModel knn = KnnModel.load(file);
+                log.info("已加载KNN模型 {}: {} 个训练点，约 {} KB，耗时 {} ms", id, knn.getIndex().getRowCount(),
+                        knn.getIndex().getMemoryBytes() >> 10, System.currentTimeMillis() - start);
+                return knn;
+            }
+            catch (IOException e)
+            {
+                log.warn("模型 {} 的KNN模型文件无法读取: {}", id, e.getMessage());
+                return null;
+            }
+        });
+        return loaded instanceof KnnModel ? (KnnModel) loaded : null;
+    }
+
+    /**
+     * 查询树集成回归模型（XGBoost、LightGBM、随机森林）
+     * 训练时与joblib模型文件一同导出的节点表只解析一次，之后的预测从modelIndexCache取
+     * 
+     * @param id 石油模型主键
+     * @return 树集成模型，模型不存在、没有节点表或节点表不兼容时为null
+     */
+    @Override
+    public TreeEnsemble selectTreeEnsemble(Long id)
+    {
+        String key = treesKey(id);
+        Object cached = modelIndexCache.getIfPresent(key);
+        if (cached instanceof TreeEnsemble)
+        {
+            return (TreeEnsemble) cached;
+        }
+        PetrolModel model = petrolModelMapper.selectPetrolModelById(id);
+        if (model == null || model.getModelPath() == null)
+        {
+            return null;
+        }
+        File modelFile = resolveModelFile(model.getModelPath());
+        String name = modelFile.getName();
+        int dot = name.lastIndexOf('.');
+        File dumpFile = new File(modelFile.getParentFile(),
+                (dot > 0 ? name.substring(0, dot) : name) + TreeEnsemble.EXTENSION);
+        if (!dumpFile.isFile())
+        {
+            return null;
+        }
+        Object loaded = modelIndexCache.asMap().compute(key, (k, current) -> {
+            if (current instanceof TreeEnsemble)
+            {
+                return current;
+            }
+            try
+            {
+                long start = System.currentTimeMillis();
+                TreeEnsemble ensemble = TreeEnsemble.fromDump(objectMapper.readValue(dumpFile,
+                        new TypeReference<Map<String, Object>>() {}));
+                log.info("已加载树集成模型 {}: {} {} 棵树，{} 个节点，耗时 {} ms", id, ensemble.getLibrary(),
+                        ensemble.getTreeCount(), ensemble.getNodeCount(), System.currentTimeMillis() - start);
+                return ensemble;
+            }
+            catch (IOException | IllegalArgumentException e)
+            {
+                log.warn("模型 {} 的树节点表无法加载: {}", id, e.getMessage());
+                return null;
+            }
+        });
+        return loaded instanceof TreeEnsemble ? (TreeEnsemble) loaded : null;
+    }
+
     /**
      * 查询石油模型列表
      * 
@@ -89,7 +255,12 @@ public class PetrolModelServiceImpl implements IPetrolModelService
     public int updatePetrolModel(PetrolModel petrolModel)
     {
         petrolModel.setUpdateTime(DateUtils.getNowDate());
-        return petrolModelMapper.updatePetrolModel(petrolModel);
+        int rows = petrolModelMapper.updatePetrolModel(petrolModel);
+        if (petrolModel.getId() != null)
+        {
+            evict(petrolModel.getId());
+        }
+        return rows;
     }
 
     /**
@@ -111,7 +282,11 @@ public class PetrolModelServiceImpl implements IPetrolModelService
                 }
             }
         }
-        return petrolModelMapper.deletePetrolModelByIds(ids);
+        int rows = petrolModelMapper.deletePetrolModelByIds(ids);
+        for (Long id : ids) {
+            evict(id);
+        }
+        return rows;
     }
 
     /**
@@ -131,7 +306,9 @@ public class PetrolModelServiceImpl implements IPetrolModelService
                 modelFile.delete();
             }
         }
-        return petrolModelMapper.deletePetrolModelById(id);
+        int rows = petrolModelMapper.deletePetrolModelById(id);
+        evict(id);
+        return rows;
     }
 
     /**
@@ -228,4 +405,38 @@ public class PetrolModelServiceImpl implements IPetrolModelService
 
         return true;
     }
+
+    /**
+     * 模型修改或删除后移除缓存的K-Means模型（modelCache）、KNN近邻索引和树集成节点表（modelIndexCache）
+     * 须在数据库更新、删除及模型文件删除之后调用，否则并发的预测可能把旧模型重新加载回缓存
+     */
+    private void evict(Long id)
+    {
+        modelCache.invalidate(kmeansKey(id));
+        modelIndexCache.invalidate(knnKey(id));
+        modelIndexCache.invalidate(treesKey(id));
+    }
+
+    /**
+     * 模型路径为/profile/开头的资源路径时换成上传目录下的文件
+     */
+    private File resolveModelFile(String path)
+    {
+        return path.startsWith("/profile/") ? new File(uploadPath, path.substring("/profile/".length())) : new File(path);
+    }
+
+    private static String kmeansKey(Long id)
+    {
+        return "kmeans:" + id;
+    }
+
+    private static String knnKey(Long id)
+    {
+        return "knn:" + id;
+    }
+
+    private static String treesKey(Long id)
+    {
+        return "trees:" + id;
+    }
 }
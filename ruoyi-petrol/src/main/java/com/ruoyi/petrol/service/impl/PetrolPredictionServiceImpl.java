@@ -1,12 +1,15 @@
 package com.ruoyi.petrol.service.impl;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.Date;
 import java.io.File;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -17,6 +20,16 @@ import com.ruoyi.petrol.mapper.PetrolModelMapper;
 import com.ruoyi.petrol.domain.PetrolPrediction;
 import com.ruoyi.petrol.domain.PetrolModel;
 import com.ruoyi.petrol.domain.PetrolDataset;
+import com.ruoyi.petrol.engine.cluster.KMeansModel;
+import com.ruoyi.petrol.engine.cluster.KMeansPrediction;
+import com.ruoyi.petrol.engine.neighbors.KnnModel;
+import com.ruoyi.petrol.engine.neighbors.KnnPrediction;
+import com.ruoyi.petrol.engine.regression.LeastSquaresModel;
+import com.ruoyi.petrol.engine.regression.LeastSquaresPrediction;
+import com.ruoyi.petrol.engine.regression.TreeEnsemble;
+import com.ruoyi.petrol.engine.regression.TreeEnsemblePrediction;
+import com.ruoyi.petrol.service.IColumnarStoreService;
+import com.ruoyi.petrol.service.IPetrolModelService;
 import com.ruoyi.petrol.service.IPetrolPredictionService;
 import com.ruoyi.petrol.service.IPetrolDatasetService;
 import com.ruoyi.petrol.service.PythonExecutorService;
@@ -45,6 +58,19 @@ public class PetrolPredictionServiceImpl implements IPetrolPredictionService
     @Autowired
     private IPetrolDatasetService petrolDatasetService;
 
+    @Autowired
+    private IColumnarStoreService columnarStoreService;
+
+    @Autowired
+    private IPetrolModelService petrolModelService;
+
+    @Autowired
+    @Qualifier("computeForkJoinPool")
+    private ForkJoinPool computePool;
+
+    @Value("${ruoyi.profile}")
+    private String profile;
+
     private ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -174,6 +200,16 @@ public class PetrolPredictionServiceImpl implements IPetrolPredictionService
             
             insertPetrolPrediction(prediction);
 
+            if (closedFormModel(model) != null || petrolModelService.selectKMeansModel(model.getId()) != null
+                || petrolModelService.selectKnnModel(model.getId()) != null) {
+                prediction.setStatus("FAILED");
+                prediction.setErrorMessage("该模型在JVM内训练，Python端无法加载，请选择数据集进行预测");
+                updatePetrolPrediction(prediction);
+                result.put("success", false);
+                result.put("message", prediction.getErrorMessage());
+                return result;
+            }
+
             // 调用Python API执行批量预测
             Map<String, Object> pythonRequest = new HashMap<>();
             pythonRequest.put("model_path", model.getModelPath());
@@ -1155,6 +1191,110 @@ public class PetrolPredictionServiceImpl implements IPetrolPredictionService
         }
     }
 
+    /**
+     * 模型参数中有闭式回归系数时返回对应模型，否则返回null
+     */
+    private LeastSquaresModel closedFormModel(PetrolModel model) {
+        if (model.getModelParams() == null || model.getModelParams().isEmpty()) {
+            return null;
+        }
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> params = objectMapper.readValue(model.getModelParams(), Map.class);
+            return LeastSquaresModel.isClosedForm(params) ? LeastSquaresModel.fromParams(params) : null;
+        } catch (Exception e) {
+            log.warn("解析模型参数失败，模型ID: {}，{}", model.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 用闭式回归模型预测所选数据集的行，结果结构与Python API的预测结果相同
+     */
+    private Map<String, Object> predictClosedForm(LeastSquaresModel closedForm, PetrolModel model,
+                                                  Map<String, Object> predictionParams,
+                                                  List<Integer> predictionIndices) throws Exception {
+        File file = datasetFile(predictionParams);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> modelParams = objectMapper.readValue(model.getModelParams(), Map.class);
+        List<String> featureColumns = new ArrayList<>();
+        for (Object column : (List<?>) modelParams.get("feature_columns")) {
+            featureColumns.add(column.toString());
+        }
+        int[] rows = predictionIndices != null && !predictionIndices.isEmpty()
+            ? predictionIndices.stream().mapToInt(Integer::intValue).toArray() : null;
+
+        LeastSquaresPrediction result = LeastSquaresPrediction.compute(closedForm, columnarStoreService.open(file),
+            featureColumns, rows);
+        log.info("✅ 闭式回归预测完成: 预测 {} 行，跳过 {} 行", result.getPredictions().length, result.getSkipped());
+        return result.toResult();
+    }
+
+    /**
+     * 用常驻内存的K-Means聚类中心为所选数据集的行分配簇，结果结构与Python API的预测结果相同
+     */
+    private Map<String, Object> predictKMeans(KMeansModel kmeans, Map<String, Object> predictionParams,
+                                              List<Integer> predictionIndices) throws Exception {
+        File file = datasetFile(predictionParams);
+        int[] rows = predictionIndices != null && !predictionIndices.isEmpty()
+            ? predictionIndices.stream().mapToInt(Integer::intValue).toArray() : null;
+
+        KMeansPrediction result = KMeansPrediction.compute(kmeans, columnarStoreService.open(file), rows);
+        log.info("✅ K-Means聚类预测完成: 预测 {} 行，跳过 {} 行", result.getLabels().length, result.getSkipped());
+        return result.toResult();
+    }
+
+    /**
+     * 用常驻内存的KNN近邻索引为所选数据集的行分类，结果结构与Python API的预测结果相同
+     */
+    private Map<String, Object> predictKnn(KnnModel knn, Map<String, Object> predictionParams,
+                                           List<Integer> predictionIndices) throws Exception {
+        File file = datasetFile(predictionParams);
+        int[] rows = predictionIndices != null && !predictionIndices.isEmpty()
+            ? predictionIndices.stream().mapToInt(Integer::intValue).toArray() : null;
+
+        KnnPrediction result = KnnPrediction.compute(knn, columnarStoreService.open(file), rows, computePool);
+        log.info("✅ KNN分类预测完成: 预测 {} 行，跳过 {} 行", result.getLabels().length, result.getSkipped());
+        return result.toResult();
+    }
+
+    /**
+     * 用常驻内存的树节点表为所选数据集的行做回归预测，结果结构与Python API的预测结果相同
+     */
+    private Map<String, Object> predictTreeEnsemble(TreeEnsemble trees, Map<String, Object> predictionParams,
+                                                    List<Integer> predictionIndices) throws Exception {
+        File file = datasetFile(predictionParams);
+        int[] rows = predictionIndices != null && !predictionIndices.isEmpty()
+            ? predictionIndices.stream().mapToInt(Integer::intValue).toArray() : null;
+
+        TreeEnsemblePrediction result = TreeEnsemblePrediction.compute(trees, columnarStoreService.open(file), rows,
+            computePool);
+        log.info("✅ 树集成回归预测完成: 预测 {} 行，跳过 {} 行", result.getPredictions().length, result.getSkipped());
+        return result.toResult();
+    }
+
+    /**
+     * 预测参数中所选数据集的数据文件
+     */
+    private File datasetFile(Map<String, Object> predictionParams) throws Exception {
+        if (!predictionParams.containsKey("datasetId")) {
+            throw new Exception("没有模型文件的模型预测需要选择数据集");
+        }
+        Long datasetId = Long.valueOf(predictionParams.get("datasetId").toString());
+        PetrolDataset dataset = petrolDatasetService.selectPetrolDatasetById(datasetId);
+        if (dataset == null || dataset.getFilePath() == null) {
+            throw new Exception("数据集不存在: " + datasetId);
+        }
+        String storedPath = dataset.getFilePath();
+        File file = storedPath.startsWith("/profile/")
+            ? new File(profile, storedPath.substring("/profile/".length())) : new File(storedPath);
+        if (!file.isFile()) {
+            throw new Exception("数据文件不存在: " + storedPath);
+        }
+        return file;
+    }
+
     /**
      * 根据行选择策略生成预测索引
      */
@@ -1860,7 +2000,29 @@ public class PetrolPredictionServiceImpl implements IPetrolPredictionService
 
             // 调用Python API执行预测
             Map<String, Object> pythonResult;
-            if (prediction.getInputDataPath() != null) {
+            LeastSquaresModel closedForm = closedFormModel(model);
+            KMeansModel kmeans = closedForm == null ? petrolModelService.selectKMeansModel(model.getId()) : null;
+            KnnModel knn = closedForm == null && kmeans == null ? petrolModelService.selectKnnModel(model.getId()) : null;
+            // 树模型的joblib文件仍可由Python加载，只有选择了数据集时才在JVM内预测
+            TreeEnsemble trees = closedForm == null && kmeans == null && knn == null
+                && predictionParams.containsKey("datasetId") ? petrolModelService.selectTreeEnsemble(model.getId()) : null;
+            if (closedForm != null) {
+                // 闭式回归模型只有系数，直接在JVM内预测
+                log.info("🔍 闭式回归模型，在JVM内执行预测");
+                pythonResult = predictClosedForm(closedForm, model, predictionParams, predictionIndices);
+            } else if (kmeans != null) {
+                // K-Means模型只有聚类中心，直接在JVM内预测
+                log.info("🔍 K-Means模型，在JVM内执行预测");
+                pythonResult = predictKMeans(kmeans, predictionParams, predictionIndices);
+            } else if (knn != null) {
+                // KNN模型的近邻索引已加载到内存，直接在JVM内预测
+                log.info("🔍 KNN模型，在JVM内执行预测");
+                pythonResult = predictKnn(knn, predictionParams, predictionIndices);
+            } else if (trees != null) {
+                // 树集成模型带有导出的节点表，直接在JVM内预测
+                log.info("🔍 树集成模型（{}），在JVM内执行预测", trees.getLibrary());
+                pythonResult = predictTreeEnsemble(trees, predictionParams, predictionIndices);
+            } else if (prediction.getInputDataPath() != null) {
                 // 文件预测
                 log.info("🔍 使用文件预测模式");
                 pythonResult = pythonExecutorService.batchPredict(pythonRequest, null);
@@ -0,0 +1,163 @@
+package com.ruoyi.petrol.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.ruoyi.petrol.engine.index.RowCountIndex;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+import com.ruoyi.petrol.service.IColumnarStoreService;
+import com.ruoyi.petrol.service.IRowCountService;
+
+/**
+ * 数据文件行数Service业务层处理
+ * 精确计数以路径和修改时间为key存放在fileMetadataCache中；已有列式缓存时取其行数，
+ * 否则CSV文件直接扫描源文件，其他格式先生成列式缓存。首次访问时先返回采样估算，精确计数交给后台线程池
+ *
+ * @author ruoyi
+ */
+@Service
+public class RowCountServiceImpl implements IRowCountService
+{
+    private static final Logger log = LoggerFactory.getLogger(RowCountServiceImpl.class);
+
+    @Autowired
+    private IColumnarStoreService columnarStoreService;
+
+    @Autowired
+    @Qualifier("fileMetadataCache")
+    private Cache<String, Object> fileMetadataCache;
+
+    @Autowired
+    @Qualifier("threadPoolTaskExecutor")
+    private ThreadPoolTaskExecutor threadPoolTaskExecutor;
+
+    /** 正在后台计数的文件，避免重复提交 */
+    private final Set<String> counting = ConcurrentHashMap.newKeySet();
+
+    /** 正在计数的key */
+    private final ConcurrentMap<String, RowCountIndex> building = new ConcurrentHashMap<>();
+
+    @Override
+    public RowCountIndex getIndex(File source) throws IOException
+    {
+        String key = cacheKey(source);
+        RowCountIndex cached = getCached(key, source);
+        if (cached != null)
+        {
+            return cached;
+        }
+
+        // 同一文件的并发请求在compute中排队，只计数一次；返回null使key在计数结束后移除，映射不会累积
+        RowCountIndex[] result = new RowCountIndex[1];
+        try
+        {
+            building.compute(key, (k, current) -> {
+                try
+                {
+                    result[0] = getCached(k, source);
+                    if (result[0] == null)
+                    {
+                        long start = System.currentTimeMillis();
+                        result[0] = build(source);
+                        fileMetadataCache.put(k, result[0]);
+                        log.info("统计文件行数: {}, {} 行, 耗时 {} ms", source.getName(), result[0].getRowCount(),
+                                System.currentTimeMillis() - start);
+                    }
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        return result[0];
+    }
+
+    @Override
+    public RowCountIndex getRowCount(File source)
+    {
+        String key = cacheKey(source);
+        RowCountIndex cached = getCached(key, source);
+        if (cached != null)
+        {
+            return cached;
+        }
+
+        // 已有列式缓存时直接取行数，不需要估算和扫描
+        ColumnarFile columnar = columnarStoreService.openIfPresent(source);
+        if (columnar != null)
+        {
+            RowCountIndex index = RowCountIndex.of(source, columnar);
+            fileMetadataCache.put(key, index);
+            return index;
+        }
+
+        if (counting.add(key))
+        {
+            threadPoolTaskExecutor.execute(() -> {
+                try
+                {
+                    getIndex(source);
+                }
+                catch (Exception e)
+                {
+                    log.warn("统计文件行数失败: {}, {}", source.getName(), e.getMessage());
+                }
+                finally
+                {
+                    counting.remove(key);
+                }
+            });
+        }
+
+        try
+        {
+            return RowCountIndex.estimate(source);
+        }
+        catch (IOException e)
+        {
+            log.warn("估算文件行数失败: {}, {}", source.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private RowCountIndex build(File source) throws IOException
+    {
+        ColumnarFile columnar = columnarStoreService.openIfPresent(source);
+        if (columnar == null && RowCountIndex.isScannable(source))
+        {
+            return RowCountIndex.build(source);
+        }
+        return RowCountIndex.of(source, columnar != null ? columnar : columnarStoreService.open(source));
+    }
+
+    private RowCountIndex getCached(String key, File source)
+    {
+        Object cached = fileMetadataCache.getIfPresent(key);
+        if (cached instanceof RowCountIndex && ((RowCountIndex) cached).matches(source))
+        {
+            return (RowCountIndex) cached;
+        }
+        return null;
+    }
+
+    private static String cacheKey(File source)
+    {
+        return "rows:" + source.getAbsolutePath() + ":" + source.lastModified();
+    }
+}
@@ -0,0 +1,289 @@
+package com.ruoyi.petrol.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import com.ruoyi.petrol.engine.upload.UploadPipeline;
+import com.ruoyi.petrol.engine.upload.UploadSession;
+import com.ruoyi.petrol.service.IUploadSessionService;
+
+/**
+ * 分片上传会话Service业务层处理
+ * 会话按需从日志恢复；后台定时清理超时的会话，以及服务重启后没有再被访问的分片目录
+ *
+ * @author ruoyi
+ */
+@Service
+public class UploadSessionServiceImpl implements IUploadSessionService
+{
+    private static final Logger log = LoggerFactory.getLogger(UploadSessionServiceImpl.class);
+
+    /** 文件哈希只允许字母、数字、下划线和连字符，避免拼接出分片目录以外的路径 */
+    private static final Pattern FILE_HASH = Pattern.compile("[0-9A-Za-z_-]{1,64}");
+
+    @Value("${ruoyi.profile}")
+    private String profile;
+
+    /** 会话超时时间（小时） */
+    @Value("${petrol.upload.session-timeout:24}")
+    private int sessionTimeout;
+
+    /** 分片上传的文件大小上限（字节） */
+    @Value("${petrol.upload.max-file-size:4294967296}")
+    private long maxFileSize;
+
+    /** 同时进行的上传会话数上限 */
+    @Value("${petrol.upload.max-sessions:64}")
+    private int maxSessions;
+
+    @Autowired
+    @Qualifier("computeForkJoinPool")
+    private ForkJoinPool computePool;
+
+    @Autowired
+    @Qualifier("scheduledExecutorService")
+    private ScheduledExecutorService scheduledExecutorService;
+
+    /** 进行中的上传会话，key为文件哈希；同一文件的会话创建、恢复和移除在compute中串行，不再另外加锁 */
+    private final ConcurrentMap<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init()
+    {
+        scheduledExecutorService.scheduleWithFixedDelay(() -> {
+            try
+            {
+                expireSessions();
+            }
+            catch (Exception e)
+            {
+                log.warn("清理上传会话失败: {}", e.getMessage());
+            }
+        }, 10, 60, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public UploadSession openSession(String fileHash, String fileName, int totalChunks, Long chunkSize, Long fileSize)
+            throws IOException
+    {
+        if (fileSize == null || fileSize <= 0 || fileSize > maxFileSize)
+        {
+            throw new IOException(String.format("文件大小不合法或超出上限（%d MB）: %s", maxFileSize >> 20, fileSize));
+        }
+        long size = chunkSize != null && fileSize != null ? chunkSize : -1;
+        long length = fileSize != null ? fileSize : -1;
+        UploadSession session = getSession(fileHash);
+        if (session != null && session.getTotalChunks() == totalChunks && session.getChunkSize() == size
+                && session.getFileSize() == length)
+        {
+            session.touch();
+            return session;
+        }
+
+        // 参数变化时旧会话在同一次compute中关闭并替换，不占用会话数；超限或创建失败时不放入map，异常在compute外抛出
+        IOException[] error = new IOException[1];
+        session = sessions.compute(fileHash, (k, current) -> {
+            if (current != null && current.getTotalChunks() == totalChunks && current.getChunkSize() == size
+                    && current.getFileSize() == length)
+            {
+                return current;
+            }
+            if (current != null)
+            {
+                log.info("分片参数变化，重新开始上传: {}", k);
+                discard(k, current);
+            }
+            else if (sessions.size() >= maxSessions)
+            {
+                error[0] = new IOException("进行中的上传过多，请稍后再试");
+                return null;
+            }
+            try
+            {
+                File directory = directoryOf(k);
+                directory.mkdirs();
+                UploadSession created = UploadSession.create(directory, k, fileName, totalChunks, size, length);
+                attachPipeline(created);
+                return created;
+            }
+            catch (IOException e)
+            {
+                error[0] = e;
+                return null;
+            }
+        });
+        if (error[0] != null)
+        {
+            throw error[0];
+        }
+        return session;
+    }
+
+    @Override
+    public UploadSession getSession(String fileHash) throws IOException
+    {
+        UploadSession session = sessions.get(fileHash);
+        if (session != null)
+        {
+            return session;
+        }
+
+        // 日志中没有会话时返回null，不放入map
+        try
+        {
+            return sessions.computeIfAbsent(fileHash, k -> {
+                try
+                {
+                    UploadSession loaded = UploadSession.load(directoryOf(k), k);
+                    if (loaded != null)
+                    {
+                        attachPipeline(loaded);
+                        log.info("从日志恢复上传会话: {} ({}/{})", loaded.getFileName(), loaded.getReceivedCount(),
+                                loaded.getTotalChunks());
+                    }
+                    return loaded;
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void removeSession(String fileHash)
+    {
+        sessions.compute(fileHash, (k, current) -> {
+            discard(k, current);
+            return null;
+        });
+    }
+
+    @Override
+    public int expireSessions()
+    {
+        long deadline = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(sessionTimeout);
+        int expired = 0;
+        for (Map.Entry<String, UploadSession> entry : sessions.entrySet())
+        {
+            if (entry.getValue().getLastAccess() < deadline)
+            {
+                removeSession(entry.getKey());
+                expired++;
+            }
+        }
+
+        // 没有加载到内存的分片目录按最后修改时间判断
+        File[] directories = new File(profile, "chunks").listFiles(File::isDirectory);
+        if (directories != null)
+        {
+            for (File directory : directories)
+            {
+                String fileHash = directory.getName();
+                if (!sessions.containsKey(fileHash) && FILE_HASH.matcher(fileHash).matches()
+                        && lastModified(directory) < deadline)
+                {
+                    removeSession(fileHash);
+                    expired++;
+                }
+            }
+        }
+        if (expired > 0)
+        {
+            log.info("清理超时上传会话: {} 个", expired);
+        }
+        return expired;
+    }
+
+    /**
+     * 按位置写入的会话挂上上传流水线，已落盘的分片登记后由下一个分片触发推进
+     */
+    private void attachPipeline(UploadSession session)
+    {
+        if (!session.isPositional())
+        {
+            return;
+        }
+        UploadPipeline pipeline = new UploadPipeline(session.getPartFile(), session.getFileName(),
+                session.getChunkSize(), session.getFileSize(), session.getTotalChunks(), computePool);
+        for (int index : session.getReceivedChunks())
+        {
+            pipeline.markWritten(index);
+        }
+        session.setPipeline(pipeline);
+    }
+
+    private File directoryOf(String fileHash)
+    {
+        if (fileHash == null || !FILE_HASH.matcher(fileHash).matches())
+        {
+            throw new RuntimeException("文件哈希不合法: " + fileHash);
+        }
+        return new File(profile + File.separator + "chunks" + File.separator + fileHash);
+    }
+
+    /**
+     * 关闭会话（可以为null）并删除分片目录，调用方持有该文件哈希在sessions中的compute
+     */
+    private void discard(String fileHash, UploadSession session)
+    {
+        if (session != null)
+        {
+            try
+            {
+                session.close();
+            }
+            catch (IOException e)
+            {
+                log.warn("关闭上传会话失败: {}", e.getMessage());
+            }
+        }
+        deleteDirectory(directoryOf(fileHash));
+    }
+
+    private static long lastModified(File directory)
+    {
+        long latest = directory.lastModified();
+        File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                latest = Math.max(latest, file.lastModified());
+            }
+        }
+        return latest;
+    }
+
+    private static void deleteDirectory(File directory)
+    {
+        File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
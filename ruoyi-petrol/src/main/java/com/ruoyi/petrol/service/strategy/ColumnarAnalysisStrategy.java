@@ -0,0 +1,106 @@
+package com.ruoyi.petrol.service.strategy;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ruoyi.common.config.RuoYiConfig;
+import com.ruoyi.petrol.domain.AnalysisTask;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+import com.ruoyi.petrol.service.IColumnarStoreService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 在JVM内执行的分析策略基类
+ * 直接从任务输入文件的列式缓存读取数据，结果JSON与Python算法的标准输出结构一致，
+ * 任务结果展示和saveModelFromResults无需区分算法由哪一端执行
+ *
+ * @author ruoyi
+ */
+public abstract class ColumnarAnalysisStrategy implements AnalysisStrategy {
+
+    protected final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private RuoYiConfig ruoYiConfig;
+
+    @Autowired
+    protected IColumnarStoreService columnarStoreService;
+
+    @Autowired
+    @Qualifier("computeForkJoinPool")
+    protected ForkJoinPool computePool;
+
+    /**
+     * 解析任务参数
+     */
+    protected Map<String, Object> readParams(AnalysisTask task) throws IOException {
+        Map<String, Object> params = new HashMap<>();
+        if (task.getInputParamsJson() != null && !task.getInputParamsJson().isEmpty()) {
+            params.putAll(objectMapper.readValue(task.getInputParamsJson(), new TypeReference<Map<String, Object>>() {}));
+        }
+        return params;
+    }
+
+    /**
+     * 打开任务输入文件的列式缓存，缓存不存在或已过期时重新生成
+     */
+    protected ColumnarFile openInput(AnalysisTask task) throws IOException {
+        File file = resolveProfileFile(task.getInputFilePath());
+        if (!file.isFile()) {
+            throw new IOException("输入文件不存在: " + task.getInputFilePath());
+        }
+        return columnarStoreService.open(file);
+    }
+
+    /**
+     * 将 /profile/ 开头的web相对路径转换为文件或目录
+     */
+    protected File resolveProfileFile(String profilePath) throws IOException {
+        if (profilePath == null || !profilePath.startsWith("/profile/")) {
+            throw new IOException("无法解析路径，因为它不是一个规范的Profile路径 (必须以 /profile/ 开头): " + profilePath);
+        }
+        return new File(ruoYiConfig.getProfile(), profilePath.substring("/profile/".length())).getCanonicalFile();
+    }
+
+    /**
+     * 按列名查找数值列
+     */
+    protected int requireNumericColumn(ColumnarFile columnar, String name) {
+        int column = name != null ? columnar.getColumnIndex(name) : -1;
+        if (column < 0 || !columnar.isNumeric(column)) {
+            throw new IllegalArgumentException("列不存在或不是数值列: " + name);
+        }
+        return column;
+    }
+
+    /**
+     * 标准输出结构，对应Python端BaseAlgorithm._standardize_output_format
+     */
+    protected Map<String, Object> standardOutput(String algorithmType, Map<String, Object> statistics,
+                                                 Map<String, Object> modelParams) {
+        Map<String, Object> output = new LinkedHashMap<>();
+        output.put("algorithm_type", algorithmType);
+        output.put("algorithm_name", "Trainer");
+        output.put("statistics", statistics);
+        output.put("metrics", statistics);
+        output.put("model_params", modelParams);
+        output.put("visualizations", new LinkedHashMap<>());
+        output.put("excel_report", new LinkedHashMap<>());
+        output.put("model_artifact", new LinkedHashMap<>());
+        return output;
+    }
+
+    /**
+     * 缺失值输出为null
+     */
+    protected static Double valueOrNull(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? null : value;
+    }
+}
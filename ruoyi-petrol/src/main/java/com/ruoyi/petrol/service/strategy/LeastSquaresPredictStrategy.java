@@ -0,0 +1,101 @@
+package com.ruoyi.petrol.service.strategy;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.ruoyi.petrol.domain.AnalysisTask;
+import com.ruoyi.petrol.domain.PetrolModel;
+import com.ruoyi.petrol.engine.regression.LeastSquaresModel;
+import com.ruoyi.petrol.engine.regression.LeastSquaresPrediction;
+import com.ruoyi.petrol.service.IPetrolModelService;
+import com.ruoyi.petrol.service.PythonExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 闭式最小二乘回归预测策略基类
+ * 按model_id找到模型，model_params中有闭式系数时在JVM内预测；
+ * 之前由Python训练、只有模型文件的模型仍按model_path交给Python端预测
+ *
+ * @author ruoyi
+ */
+public abstract class LeastSquaresPredictStrategy extends ColumnarAnalysisStrategy {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeastSquaresPredictStrategy.class);
+
+    @Autowired
+    private IPetrolModelService modelService;
+
+    @Autowired
+    private PythonExecutorService pythonExecutorService;
+
+    /**
+     * Python端预测脚本路径
+     */
+    public abstract String getPythonScriptPath();
+
+    /**
+     * 日志和错误信息中的算法名
+     */
+    protected abstract String getDisplayName();
+
+    @Override
+    public String execute(AnalysisTask task) throws Exception {
+        try {
+            Map<String, Object> params = readParams(task);
+
+            // --- Backward Compatibility & Parameter Unification ---
+            if (!params.containsKey("feature_columns") && params.containsKey("x_column")) {
+                params.put("feature_columns", Collections.singletonList(params.get("x_column")));
+                params.remove("x_column");
+            }
+
+            PetrolModel model = params.get("model_id") != null
+                ? modelService.selectPetrolModelById(Long.valueOf(params.get("model_id").toString())) : null;
+            Map<String, Object> modelParams = model != null && model.getModelParams() != null
+                ? objectMapper.readValue(model.getModelParams(), new TypeReference<Map<String, Object>>() {}) : null;
+            if (LeastSquaresModel.isClosedForm(modelParams)) {
+                return predict(task, params, modelParams);
+            }
+
+            if (!params.containsKey("model_path")) {
+                logger.warn("任务 {} 的 model_path 参数未提供。", task.getId());
+            }
+            task.setInputParamsJson(objectMapper.writeValueAsString(params));
+            return pythonExecutorService.executeScript("predict_processor", getPythonScriptPath(), task);
+        } catch (Exception e) {
+            logger.error("执行{}预测策略失败", getDisplayName(), e);
+            throw new Exception("执行" + getDisplayName() + "预测策略失败", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private String predict(AnalysisTask task, Map<String, Object> params, Map<String, Object> modelParams)
+        throws Exception {
+        long start = System.currentTimeMillis();
+        LeastSquaresModel model = LeastSquaresModel.fromParams(modelParams);
+        // 自变量列的顺序必须与训练时一致，以模型记录为准
+        List<String> featureColumns = new ArrayList<>();
+        for (Object column : (List<Object>) modelParams.get("feature_columns")) {
+            featureColumns.add(column.toString());
+        }
+
+        int[] rows = null;
+        if (params.get("prediction_indices") instanceof List) {
+            List<Object> indices = (List<Object>) params.get("prediction_indices");
+            rows = new int[indices.size()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = ((Number) indices.get(i)).intValue();
+            }
+        }
+
+        LeastSquaresPrediction prediction = LeastSquaresPrediction.compute(model, openInput(task), featureColumns, rows);
+        logger.info("{}预测完成，任务ID: {}，预测 {} 行，跳过 {} 行，耗时 {} ms", getDisplayName(), task.getId(),
+            prediction.getPredictions().length, prediction.getSkipped(), System.currentTimeMillis() - start);
+        return objectMapper.writeValueAsString(prediction.toResult());
+    }
+}
@@ -0,0 +1,239 @@
+package com.ruoyi.petrol.service.strategy;
+
+import com.ruoyi.petrol.domain.AnalysisTask;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+import com.ruoyi.petrol.engine.regression.LeastSquaresFit;
+import com.ruoyi.petrol.engine.regression.LeastSquaresModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 闭式最小二乘回归训练策略基类
+ * 参数和结果JSON与Python版regression.linear/polynomial/logarithmic/exponential相同，
+ * 模型系数写入model_params，由saveModelFromResults保存到petrol_model，不生成模型文件
+ *
+ * @author ruoyi
+ */
+public abstract class LeastSquaresTrainStrategy extends ColumnarAnalysisStrategy {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeastSquaresTrainStrategy.class);
+
+    /** 结果中输入样本的行数 */
+    private static final int INPUT_SAMPLE_ROWS = 100;
+
+    /** 拟合曲线的采样点数 */
+    private static final int CURVE_POINTS = 200;
+
+    /**
+     * 日志和错误信息中的算法名
+     */
+    protected abstract String getDisplayName();
+
+    /**
+     * 训练模型
+     *
+     * @param statistics 追加到结果statistics末尾的字段
+     * @param modelParams 追加到结果model_params末尾的字段
+     */
+    protected abstract LeastSquaresFit fit(Map<String, Object> params, double[][] columns, double[] target, int rows,
+                                           Map<String, Object> statistics, Map<String, Object> modelParams);
+
+    /**
+     * 补充各算法特有的参数默认值
+     */
+    protected void applyDefaults(Map<String, Object> params) {
+    }
+
+    /**
+     * 按单一形式训练
+     *
+     * @param holdout 是否与Python端一样截断异常值并划分测试集（线性和多项式回归）；否则在全部有效行上拟合和评估
+     */
+    protected LeastSquaresFit fitForm(String form, boolean holdout, Map<String, Object> params, double[][] columns,
+                                      double[] target, int rows) {
+        int degree = params.get("degree") != null ? (int) Double.parseDouble(params.get("degree").toString()) : 0;
+        double testSize = holdout ? testSize(params) : 0;
+        return LeastSquaresFit.compute(form, degree, columns, target, rows, holdout, testSize, seed(params), computePool);
+    }
+
+    protected static double testSize(Map<String, Object> params) {
+        return Double.parseDouble(params.get("test_size").toString());
+    }
+
+    protected static long seed(Map<String, Object> params) {
+        return (long) Double.parseDouble(params.get("random_state").toString());
+    }
+
+    @Override
+    public String execute(AnalysisTask task) throws Exception {
+        try {
+            Map<String, Object> params = readParams(task);
+
+            // --- Backward Compatibility & Parameter Unification ---
+            if (!params.containsKey("feature_columns") && params.containsKey("x_column")) {
+                params.put("feature_columns", Collections.singletonList(params.get("x_column")));
+                params.remove("x_column");
+            }
+            if (!params.containsKey("target_column") && params.containsKey("y_column")) {
+                params.put("target_column", params.get("y_column"));
+                params.remove("y_column");
+            }
+            params.putIfAbsent("test_size", 0.2);
+            params.putIfAbsent("random_state", 42);
+            applyDefaults(params);
+            task.setInputParamsJson(objectMapper.writeValueAsString(params));
+
+            List<String> featureColumns = toColumnList(params.get("feature_columns"));
+            String targetColumn = params.get("target_column") != null ? params.get("target_column").toString() : null;
+            if (featureColumns.isEmpty() || targetColumn == null) {
+                throw new IllegalArgumentException("Parameters 'feature_columns' and 'target_column' are required.");
+            }
+
+            long start = System.currentTimeMillis();
+            ColumnarFile columnar = openInput(task);
+            int rows = columnar.getRowCount();
+            double[][] columns = new double[featureColumns.size()][rows];
+            for (int j = 0; j < columns.length; j++) {
+                columnar.readDoubles(requireNumericColumn(columnar, featureColumns.get(j)), 0, rows, columns[j], 0);
+            }
+            double[] target = new double[rows];
+            columnar.readDoubles(requireNumericColumn(columnar, targetColumn), 0, rows, target, 0);
+
+            Map<String, Object> extraStatistics = new LinkedHashMap<>();
+            Map<String, Object> extraModelParams = new LinkedHashMap<>();
+            LeastSquaresFit fit = fit(params, columns, target, rows, extraStatistics, extraModelParams);
+            LeastSquaresModel model = fit.getModel();
+
+            Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("r2_score", valueOrNull(fit.getR2()));
+            if (model.equation() != null) {
+                statistics.put("equation", model.equation());
+            }
+            statistics.put("mean_squared_error", fit.getMeanSquaredError());
+            statistics.put("mean_absolute_error", fit.getMeanAbsoluteError());
+            statistics.put("rmse", fit.getRootMeanSquaredError());
+            statistics.put("sample_count", fit.getRowCount());
+            statistics.put("train_count", fit.getTrainCount());
+            statistics.put("evaluation_count", fit.getEvaluationRows().length);
+            statistics.putAll(extraStatistics);
+
+            Map<String, Object> modelParams = model.toParams();
+            modelParams.put("feature_columns", featureColumns);
+            modelParams.put("target_column", targetColumn);
+            modelParams.putAll(extraModelParams);
+
+            Map<String, Object> output = standardOutput("regression", statistics, modelParams);
+            double[][] features = fit.getFeatures();
+            double[] actual = fit.getTarget();
+            int[] evaluationRows = fit.getEvaluationRows();
+            double[] predictions = fit.getPredictions();
+            List<Double> predictionList = new ArrayList<>(evaluationRows.length);
+            List<Double> actualList = new ArrayList<>(evaluationRows.length);
+            List<List<Double>> featureValues = new ArrayList<>(evaluationRows.length);
+            for (int k = 0; k < evaluationRows.length; k++) {
+                int i = evaluationRows[k];
+                predictionList.add(predictions[k]);
+                actualList.add(actual[i]);
+                List<Double> point = new ArrayList<>(features.length);
+                for (double[] feature : features) {
+                    point.add(feature[i]);
+                }
+                featureValues.add(point);
+            }
+            output.put("predictions", predictionList);
+            output.put("actual_values", actualList);
+            output.put("feature_values", featureValues);
+            output.put("input_sample", inputSample(columnar, featureColumns, targetColumn));
+            decorate(output, fit, featureColumns, targetColumn);
+
+            logger.info("{}训练完成，任务ID: {}，有效样本 {} 行，R² = {}，耗时 {} ms", getDisplayName(), task.getId(),
+                fit.getRowCount(), fit.getR2(), System.currentTimeMillis() - start);
+            return objectMapper.writeValueAsString(output);
+        } catch (Exception e) {
+            logger.error("执行{}训练策略失败", getDisplayName(), e);
+            throw new Exception("执行" + getDisplayName() + "训练策略失败", e);
+        }
+    }
+
+    /**
+     * 各形式特有的输出字段，与Python端对应算法相同
+     */
+    private void decorate(Map<String, Object> output, LeastSquaresFit fit, List<String> featureColumns,
+                          String targetColumn) {
+        String form = fit.getModel().getForm();
+        if (LeastSquaresModel.POLYNOMIAL.equals(form)) {
+            // 与sklearn PolynomialFeatures + LinearRegression的coef_一致：常数项位置为0，截距单独给出
+            double[] raw = fit.getModel().rawCoefficients();
+            List<Double> coefficients = new ArrayList<>(raw.length);
+            coefficients.add(0.0);
+            for (int k = 1; k < raw.length; k++) {
+                coefficients.add(raw[k]);
+            }
+            output.put("coefficients", coefficients);
+        } else if (LeastSquaresModel.LOGARITHMIC.equals(form) || LeastSquaresModel.EXPONENTIAL.equals(form)) {
+            putCurve(output, fit);
+            if (LeastSquaresModel.EXPONENTIAL.equals(form)) {
+                output.put("feature_columns", featureColumns);
+                output.put("target_column", targetColumn);
+            }
+        }
+    }
+
+    /**
+     * 自变量区间上均匀取点的拟合曲线，对应Python端的sorted_x/sorted_y_pred
+     */
+    private void putCurve(Map<String, Object> output, LeastSquaresFit fit) {
+        double[] x = fit.getFeatures()[0];
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : x) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        int points = max > min ? CURVE_POINTS : 1;
+        List<Double> sortedX = new ArrayList<>(points);
+        List<Double> sortedPrediction = new ArrayList<>(points);
+        double[] point = new double[1];
+        for (int k = 0; k < points; k++) {
+            point[0] = points > 1 ? min + (max - min) * k / (points - 1) : min;
+            sortedX.add(point[0]);
+            sortedPrediction.add(valueOrNull(fit.getModel().predict(point)));
+        }
+        output.put("sorted_x", sortedX);
+        output.put("sorted_y_pred", sortedPrediction);
+    }
+
+    private List<Map<String, Object>> inputSample(ColumnarFile columnar, List<String> featureColumns,
+                                                  String targetColumn) {
+        List<String> names = new ArrayList<>(featureColumns);
+        names.add(targetColumn);
+        int rows = Math.min(INPUT_SAMPLE_ROWS, columnar.getRowCount());
+        List<Map<String, Object>> sample = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            for (String name : names) {
+                record.put(name, valueOrNull(columnar.getDouble(columnar.getColumnIndex(name), r)));
+            }
+            sample.add(record);
+        }
+        return sample;
+    }
+
+    private static List<String> toColumnList(Object value) {
+        List<String> columns = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                columns.add(item.toString());
+            }
+        } else if (value != null && !value.toString().trim().isEmpty()) {
+            columns.add(value.toString().trim());
+        }
+        return columns;
+    }
+}
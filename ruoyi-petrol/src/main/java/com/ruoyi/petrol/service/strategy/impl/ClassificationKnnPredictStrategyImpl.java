@@ -1,23 +1,34 @@
 package com.ruoyi.petrol.service.strategy.impl;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ruoyi.petrol.domain.AnalysisTask;
+import com.ruoyi.petrol.engine.neighbors.KnnModel;
+import com.ruoyi.petrol.engine.neighbors.KnnPrediction;
+import com.ruoyi.petrol.service.IPetrolModelService;
 import com.ruoyi.petrol.service.PythonExecutorService;
-import com.ruoyi.petrol.service.strategy.AnalysisStrategy;
+import com.ruoyi.petrol.service.strategy.ColumnarAnalysisStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * KNN分类预测策略
+ * 按model_id取已加载到内存的近邻索引，在JVM内并行查询；
+ * 之前由Python训练、只有joblib模型文件的模型仍按model_path交给Python端预测
+ *
+ * @author ruoyi
+ */
 @Service("predict_knn_predict")
-public class ClassificationKnnPredictStrategyImpl implements AnalysisStrategy {
+public class ClassificationKnnPredictStrategyImpl extends ColumnarAnalysisStrategy {
 
     private static final Logger logger = LoggerFactory.getLogger(ClassificationKnnPredictStrategyImpl.class);
 
+    @Autowired
+    private IPetrolModelService modelService;
+
     @Autowired
     private PythonExecutorService pythonExecutorService;
 
@@ -36,23 +47,39 @@ public class ClassificationKnnPredictStrategyImpl implements AnalysisStrategy {
     @Override
     public String execute(AnalysisTask task) throws Exception {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            Map<String, Object> params = new HashMap<>();
+            Map<String, Object> params = readParams(task);
 
-            if (task.getInputParamsJson() != null && !task.getInputParamsJson().isEmpty()) {
-                params.putAll(objectMapper.readValue(task.getInputParamsJson(), new TypeReference<Map<String, Object>>() {}));
+            KnnModel model = params.get("model_id") != null
+                ? modelService.selectKnnModel(Long.valueOf(params.get("model_id").toString())) : null;
+            if (model != null) {
+                return predict(task, params, model);
             }
 
             if (!params.containsKey("model_path")) {
                 logger.warn("任务 {} 的 model_path 参数未提供。", task.getId());
             }
-
             task.setInputParamsJson(objectMapper.writeValueAsString(params));
-
             return pythonExecutorService.executeScript("predict_processor", getPythonScriptPath(), task);
         } catch (Exception e) {
             logger.error("执行KNN分类预测策略失败", e);
             throw new Exception("执行KNN分类预测策略失败", e);
         }
     }
-} 
\ No newline at end of file
+
+    private String predict(AnalysisTask task, Map<String, Object> params, KnnModel model) throws Exception {
+        long start = System.currentTimeMillis();
+        int[] rows = null;
+        if (params.get("prediction_indices") instanceof List) {
+            List<?> indices = (List<?>) params.get("prediction_indices");
+            rows = new int[indices.size()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = ((Number) indices.get(i)).intValue();
+            }
+        }
+
+        KnnPrediction prediction = KnnPrediction.compute(model, openInput(task), rows, computePool);
+        logger.info("KNN分类预测完成，任务ID: {}，预测 {} 行，跳过 {} 行，耗时 {} ms", task.getId(),
+            prediction.getLabels().length, prediction.getSkipped(), System.currentTimeMillis() - start);
+        return objectMapper.writeValueAsString(prediction.toResult());
+    }
+}
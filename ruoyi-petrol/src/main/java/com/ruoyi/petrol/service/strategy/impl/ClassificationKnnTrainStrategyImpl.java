@@ -1,59 +1,149 @@
 package com.ruoyi.petrol.service.strategy.impl;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ruoyi.petrol.domain.AnalysisTask;
-import com.ruoyi.petrol.service.PythonExecutorService;
-import com.ruoyi.petrol.service.strategy.AnalysisStrategy;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+import com.ruoyi.petrol.engine.neighbors.ClassificationMetrics;
+import com.ruoyi.petrol.engine.neighbors.KnnModel;
+import com.ruoyi.petrol.engine.neighbors.KnnTraining;
+import com.ruoyi.petrol.service.strategy.ColumnarAnalysisStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * KNN分类训练策略
+ * 在JVM内完成编码、分层划分、标准化和评估，参数和结果JSON与Python版classification.knn相同；
+ * 标准化后的训练点建成KD树或球树，与模型一起写入结果目录下的.pknn模型文件，预测时直接加载索引
+ *
+ * @author ruoyi
+ */
 @Service("classification_knn_train")
-public class ClassificationKnnTrainStrategyImpl implements AnalysisStrategy {
+public class ClassificationKnnTrainStrategyImpl extends ColumnarAnalysisStrategy {
 
     private static final Logger logger = LoggerFactory.getLogger(ClassificationKnnTrainStrategyImpl.class);
 
-    @Autowired
-    private PythonExecutorService pythonExecutorService;
-
     private static final String STRATEGY_NAME = "classification_knn_train";
-    private static final String PYTHON_SCRIPT_PATH = "classification.knn";
+
+    /** 结果目录中的模型文件名 */
+    private static final String MODEL_FILE = "knn_classification_model" + KnnModel.EXTENSION;
+
+    /** 结果中输入样本的行数 */
+    private static final int INPUT_SAMPLE_ROWS = 100;
 
     @Override
     public String getStrategyName() {
         return STRATEGY_NAME;
     }
 
-    public String getPythonScriptPath() {
-        return PYTHON_SCRIPT_PATH;
-    }
-
     @Override
     public String execute(AnalysisTask task) throws Exception {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            Map<String, Object> params = new HashMap<>();
-
-            if (task.getInputParamsJson() != null && !task.getInputParamsJson().isEmpty()) {
-                params.putAll(objectMapper.readValue(task.getInputParamsJson(), new TypeReference<Map<String, Object>>() {}));
-            }
+            Map<String, Object> params = readParams(task);
 
             // Set default parameters if not provided
             params.putIfAbsent("n_neighbors", 5);
             params.putIfAbsent("test_size", 0.2);
             params.putIfAbsent("random_state", 42);
-
             task.setInputParamsJson(objectMapper.writeValueAsString(params));
 
-            return pythonExecutorService.executeScript("train_processor", getPythonScriptPath(), task);
+            List<String> featureColumns = new ArrayList<>();
+            if (params.get("feature_columns") instanceof List) {
+                for (Object column : (List<?>) params.get("feature_columns")) {
+                    featureColumns.add(column.toString());
+                }
+            } else if (params.get("feature_columns") != null) {
+                featureColumns = Collections.singletonList(params.get("feature_columns").toString());
+            }
+            String targetColumn = params.get("target_column") != null ? params.get("target_column").toString() : null;
+            if (featureColumns.isEmpty() || targetColumn == null) {
+                throw new IllegalArgumentException("Parameters 'feature_columns' and 'target_column' are required.");
+            }
+            int neighbors = (int) Double.parseDouble(params.get("n_neighbors").toString());
+            double testSize = Double.parseDouble(params.get("test_size").toString());
+            long seed = (long) Double.parseDouble(params.get("random_state").toString());
+
+            long start = System.currentTimeMillis();
+            ColumnarFile columnar = openInput(task);
+            KnnTraining training = KnnTraining.fit(columnar, featureColumns, targetColumn, neighbors, testSize, seed,
+                computePool);
+            KnnModel model = training.getModel();
+            model.save(new File(resolveProfileFile(task.getOutputDirPath()), MODEL_FILE));
+
+            ClassificationMetrics metrics = training.getMetrics();
+            Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("accuracy", metrics.getAccuracy());
+            statistics.put("precision", metrics.getPrecision());
+            statistics.put("recall", metrics.getRecall());
+            statistics.put("f1_score", metrics.getF1());
+            statistics.put("confusion_matrix", metrics.confusionList());
+            statistics.put("sample_count", training.getRowCount());
+            statistics.put("test_count", training.getTestCount());
+
+            Map<String, Object> output = standardOutput("classification", statistics, model.toParams());
+            Map<String, Object> artifact = new LinkedHashMap<>();
+            artifact.put("model_file", MODEL_FILE);
+            output.put("model_artifact", artifact);
+
+            int testCount = training.getTestCount();
+            int d = featureColumns.size();
+            int classCount = model.getClassCount();
+            double[] points = training.getTestPoints();
+            double[] probabilities = training.getProbabilities();
+            List<Integer> predictionList = new ArrayList<>(testCount);
+            List<Integer> actualList = new ArrayList<>(testCount);
+            List<List<Double>> probabilityList = new ArrayList<>(testCount);
+            List<List<Double>> featureValues = new ArrayList<>(testCount);
+            for (int i = 0; i < testCount; i++) {
+                predictionList.add(training.getPredictions()[i]);
+                actualList.add(training.getTestLabels()[i]);
+                List<Double> probability = new ArrayList<>(classCount);
+                for (int c = 0; c < classCount; c++) {
+                    probability.add(probabilities[i * classCount + c]);
+                }
+                probabilityList.add(probability);
+                List<Double> point = new ArrayList<>(d);
+                for (int c = 0; c < d; c++) {
+                    point.add(points[i * d + c]);
+                }
+                featureValues.add(point);
+            }
+            output.put("predictions", predictionList);
+            output.put("actual_values", actualList);
+            output.put("feature_values", featureValues);
+            output.put("input_sample", inputSample(columnar, featureColumns, targetColumn));
+            output.put("probabilities", probabilityList);
+            output.put("class_names", model.getClassNames());
+
+            logger.info("KNN分类训练完成，任务ID: {}，有效样本 {} 行，{}索引，准确率 {}，耗时 {} ms", task.getId(),
+                training.getRowCount(), model.getIndex().getTypeName(), metrics.getAccuracy(),
+                System.currentTimeMillis() - start);
+            return objectMapper.writeValueAsString(output);
         } catch (Exception e) {
             logger.error("执行KNN分类训练策略失败", e);
             throw new Exception("执行KNN分类训练策略失败", e);
         }
     }
-} 
\ No newline at end of file
+
+    private List<Map<String, Object>> inputSample(ColumnarFile columnar, List<String> featureColumns,
+                                                  String targetColumn) {
+        List<String> names = new ArrayList<>(featureColumns);
+        names.add(targetColumn);
+        int rows = Math.min(INPUT_SAMPLE_ROWS, columnar.getRowCount());
+        List<Map<String, Object>> sample = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            for (String name : names) {
+                record.put(name, columnar.getValue(columnar.getColumnIndex(name), r));
+            }
+            sample.add(record);
+        }
+        return sample;
+    }
+}
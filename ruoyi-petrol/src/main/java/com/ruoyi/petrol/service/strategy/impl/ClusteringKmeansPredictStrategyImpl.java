@@ -1,23 +1,34 @@
 package com.ruoyi.petrol.service.strategy.impl;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ruoyi.petrol.domain.AnalysisTask;
+import com.ruoyi.petrol.engine.cluster.KMeansModel;
+import com.ruoyi.petrol.engine.cluster.KMeansPrediction;
+import com.ruoyi.petrol.service.IPetrolModelService;
 import com.ruoyi.petrol.service.PythonExecutorService;
-import com.ruoyi.petrol.service.strategy.AnalysisStrategy;
+import com.ruoyi.petrol.service.strategy.ColumnarAnalysisStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * K-Means聚类预测策略
+ * 按model_id取常驻内存的聚类中心在JVM内分配簇；
+ * 之前由Python训练、只有模型文件的模型仍按model_path交给Python端预测
+ *
+ * @author ruoyi
+ */
 @Service("predict_kmeans_predict")
-public class ClusteringKmeansPredictStrategyImpl implements AnalysisStrategy {
+public class ClusteringKmeansPredictStrategyImpl extends ColumnarAnalysisStrategy {
 
     private static final Logger logger = LoggerFactory.getLogger(ClusteringKmeansPredictStrategyImpl.class);
 
+    @Autowired
+    private IPetrolModelService modelService;
+
     @Autowired
     private PythonExecutorService pythonExecutorService;
 
@@ -36,23 +47,39 @@ public class ClusteringKmeansPredictStrategyImpl implements AnalysisStrategy {
     @Override
     public String execute(AnalysisTask task) throws Exception {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            Map<String, Object> params = new HashMap<>();
+            Map<String, Object> params = readParams(task);
 
-            if (task.getInputParamsJson() != null && !task.getInputParamsJson().isEmpty()) {
-                params.putAll(objectMapper.readValue(task.getInputParamsJson(), new TypeReference<Map<String, Object>>() {}));
+            KMeansModel model = params.get("model_id") != null
+                ? modelService.selectKMeansModel(Long.valueOf(params.get("model_id").toString())) : null;
+            if (model != null) {
+                return predict(task, params, model);
             }
 
             if (!params.containsKey("model_path")) {
                 logger.warn("任务 {} 的 model_path 参数未提供。", task.getId());
             }
-
             task.setInputParamsJson(objectMapper.writeValueAsString(params));
-
             return pythonExecutorService.executeScript("predict_processor", getPythonScriptPath(), task);
         } catch (Exception e) {
             logger.error("执行K-Means聚类预测策略失败", e);
             throw new Exception("执行K-Means聚类预测策略失败", e);
         }
     }
-} 
\ No newline at end of file
+
+    private String predict(AnalysisTask task, Map<String, Object> params, KMeansModel model) throws Exception {
+        long start = System.currentTimeMillis();
+        int[] rows = null;
+        if (params.get("prediction_indices") instanceof List) {
+            List<?> indices = (List<?>) params.get("prediction_indices");
+            rows = new int[indices.size()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = ((Number) indices.get(i)).intValue();
+            }
+        }
+
+        KMeansPrediction prediction = KMeansPrediction.compute(model, openInput(task), rows);
+        logger.info("K-Means聚类预测完成，任务ID: {}，预测 {} 行，跳过 {} 行，耗时 {} ms", task.getId(),
+            prediction.getLabels().length, prediction.getSkipped(), System.currentTimeMillis() - start);
+        return objectMapper.writeValueAsString(prediction.toResult());
+    }
+}
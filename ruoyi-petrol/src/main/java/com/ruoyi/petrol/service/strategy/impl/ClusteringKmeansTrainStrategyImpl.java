@@ -1,58 +1,190 @@
 package com.ruoyi.petrol.service.strategy.impl;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ruoyi.petrol.domain.AnalysisTask;
-import com.ruoyi.petrol.service.PythonExecutorService;
-import com.ruoyi.petrol.service.strategy.AnalysisStrategy;
+import com.ruoyi.petrol.engine.cluster.ClusterData;
+import com.ruoyi.petrol.engine.cluster.ClusterMetrics;
+import com.ruoyi.petrol.engine.cluster.KMeans;
+import com.ruoyi.petrol.engine.cluster.KMeansModel;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+import com.ruoyi.petrol.service.strategy.ColumnarAnalysisStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * K-Means聚类训练策略
+ * 在JVM内完成标准化、k-means++初始化和Hamerly加速迭代，参数和结果JSON与Python版clustering.kmeans相同；
+ * 聚类中心和标准化参数写入model_params，预测时不需要模型文件。
+ * 提供k_range=[最小k, 最大k]时额外对每个k各训练一次，输出k_evaluation供肘部法和轮廓系数选k
+ *
+ * @author ruoyi
+ */
 @Service("clustering_kmeans_train")
-public class ClusteringKmeansTrainStrategyImpl implements AnalysisStrategy {
+public class ClusteringKmeansTrainStrategyImpl extends ColumnarAnalysisStrategy {
 
     private static final Logger logger = LoggerFactory.getLogger(ClusteringKmeansTrainStrategyImpl.class);
 
-    @Autowired
-    private PythonExecutorService pythonExecutorService;
-
     private static final String STRATEGY_NAME = "clustering_kmeans_train";
-    private static final String PYTHON_SCRIPT_PATH = "clustering.kmeans";
+
+    /** 结果中输入样本的行数 */
+    private static final int INPUT_SAMPLE_ROWS = 100;
+
+    /** k_range允许的最大k */
+    private static final int MAX_SWEEP_CLUSTERS = 50;
 
     @Override
     public String getStrategyName() {
         return STRATEGY_NAME;
     }
 
-    public String getPythonScriptPath() {
-        return PYTHON_SCRIPT_PATH;
-    }
-
     @Override
     public String execute(AnalysisTask task) throws Exception {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            Map<String, Object> params = new HashMap<>();
-
-            if (task.getInputParamsJson() != null && !task.getInputParamsJson().isEmpty()) {
-                params.putAll(objectMapper.readValue(task.getInputParamsJson(), new TypeReference<Map<String, Object>>() {}));
-            }
+            Map<String, Object> params = readParams(task);
 
             // Set default parameters if not provided
             params.putIfAbsent("n_clusters", 3);
             params.putIfAbsent("random_state", 42);
-
+            params.putIfAbsent("n_init", 10);
             task.setInputParamsJson(objectMapper.writeValueAsString(params));
 
-            return pythonExecutorService.executeScript("train_processor", getPythonScriptPath(), task);
+            List<String> featureColumns = toColumnList(params.get("feature_columns"));
+            if (featureColumns.isEmpty()) {
+                throw new IllegalArgumentException("Parameter 'feature_columns' is required.");
+            }
+            int clusters = toInt(params.get("n_clusters"));
+            long seed = (long) Double.parseDouble(params.get("random_state").toString());
+            int runs = Math.max(1, toInt(params.get("n_init")));
+
+            long start = System.currentTimeMillis();
+            ColumnarFile columnar = openInput(task);
+            int[] columns = new int[featureColumns.size()];
+            for (int j = 0; j < columns.length; j++) {
+                columns[j] = requireNumericColumn(columnar, featureColumns.get(j));
+            }
+            ClusterData data = ClusterData.load(columnar, columns);
+            int n = data.getRowCount();
+            int d = data.getDimension();
+            double[] points = data.getPoints();
+            if (n < clusters) {
+                throw new IllegalArgumentException("有效样本数 " + n + " 少于聚类数 " + clusters);
+            }
+
+            KMeans kmeans = KMeans.fit(points, n, d, clusters, runs, seed, computePool);
+            KMeansModel model = new KMeansModel(featureColumns, data.getMean(), data.getScale(),
+                kmeans.getCentroids());
+            int[] labels = kmeans.getLabels();
+
+            Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("inertia", kmeans.getInertia());
+            if (clusters > 1) {
+                ClusterMetrics metrics = ClusterMetrics.compute(points, n, d, labels, clusters, seed, computePool);
+                statistics.put("silhouette_score", valueOrNull(metrics.getSilhouette()));
+                statistics.put("calinski_harabasz_score", valueOrNull(metrics.getCalinskiHarabasz()));
+                statistics.put("davies_bouldin_score", valueOrNull(metrics.getDaviesBouldin()));
+            }
+            statistics.put("n_iter", kmeans.getIterations());
+            statistics.put("sample_count", n);
+
+            Map<String, Object> output = standardOutput("clustering", statistics, model.toParams());
+            List<Integer> labelList = new ArrayList<>(n);
+            List<List<Double>> featureValues = new ArrayList<>(n);
+            long[] sizes = new long[clusters];
+            for (int i = 0; i < n; i++) {
+                labelList.add(labels[i]);
+                sizes[labels[i]]++;
+                List<Double> point = new ArrayList<>(d);
+                for (int c = 0; c < d; c++) {
+                    point.add(points[i * d + c]);
+                }
+                featureValues.add(point);
+            }
+            Map<String, Object> clusterSizes = new LinkedHashMap<>();
+            for (int j = 0; j < clusters; j++) {
+                clusterSizes.put(String.valueOf(j), sizes[j]);
+            }
+            output.put("predictions", labelList);
+            output.put("cluster_labels", labelList);
+            output.put("cluster_centers", model.centerList());
+            output.put("feature_values", featureValues);
+            output.put("cluster_sizes", clusterSizes);
+            output.put("input_sample", inputSample(columnar, featureColumns));
+            if (params.get("k_range") instanceof List) {
+                output.put("k_evaluation", evaluate((List<?>) params.get("k_range"), points, n, d, seed));
+            }
+
+            logger.info("K-Means聚类训练完成，任务ID: {}，有效样本 {} 行，k = {}，迭代 {} 次，inertia = {}，耗时 {} ms",
+                task.getId(), n, clusters, kmeans.getIterations(), kmeans.getInertia(),
+                System.currentTimeMillis() - start);
+            return objectMapper.writeValueAsString(output);
         } catch (Exception e) {
             logger.error("执行K-Means聚类训练策略失败", e);
             throw new Exception("执行K-Means聚类训练策略失败", e);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 对k_range内每个k各训练一次（k-means++只初始化一次），记录inertia和聚类指标
+     */
+    private List<Map<String, Object>> evaluate(List<?> range, double[] points, int n, int d, long seed) {
+        if (range.size() != 2) {
+            throw new IllegalArgumentException("Parameter 'k_range' must be [min_k, max_k].");
+        }
+        int from = Math.max(2, toInt(range.get(0)));
+        int to = Math.min(Math.min(toInt(range.get(1)), MAX_SWEEP_CLUSTERS), n);
+        List<Map<String, Object>> evaluation = new ArrayList<>();
+        for (int k = from; k <= to; k++) {
+            long start = System.currentTimeMillis();
+            KMeans kmeans = KMeans.fit(points, n, d, k, 1, seed, computePool);
+            ClusterMetrics metrics = ClusterMetrics.compute(points, n, d, kmeans.getLabels(), k, seed, computePool);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("k", k);
+            entry.put("inertia", kmeans.getInertia());
+            entry.put("silhouette_score", valueOrNull(metrics.getSilhouette()));
+            entry.put("calinski_harabasz_score", valueOrNull(metrics.getCalinskiHarabasz()));
+            entry.put("davies_bouldin_score", valueOrNull(metrics.getDaviesBouldin()));
+            evaluation.add(entry);
+            logger.debug("K-Means选k: k = {}，inertia = {}，耗时 {} ms", k, kmeans.getInertia(),
+                System.currentTimeMillis() - start);
+        }
+        return evaluation;
+    }
+
+    private List<Map<String, Object>> inputSample(ColumnarFile columnar, List<String> featureColumns) {
+        int rows = Math.min(INPUT_SAMPLE_ROWS, columnar.getRowCount());
+        List<Map<String, Object>> sample = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            for (String name : featureColumns) {
+                record.put(name, valueOrNull(columnar.getDouble(columnar.getColumnIndex(name), r)));
+            }
+            sample.add(record);
+        }
+        return sample;
+    }
+
+    private static int toInt(Object value) {
+        return (int) Double.parseDouble(value.toString());
+    }
+
+    private static List<String> toColumnList(Object value) {
+        List<String> columns = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                columns.add(item.toString());
+            }
+        } else if (value != null && !value.toString().trim().isEmpty()) {
+            for (String item : value.toString().split(",")) {
+                if (!item.trim().isEmpty()) {
+                    columns.add(item.trim());
+                }
+            }
+        }
+        return columns;
+    }
+}
@@ -1,54 +1,43 @@
 package com.ruoyi.petrol.service.strategy.impl;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.ruoyi.petrol.domain.AnalysisTask;
-import com.ruoyi.petrol.service.PythonExecutorService;
-import com.ruoyi.petrol.service.strategy.AnalysisStrategy;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.ruoyi.petrol.engine.regression.AutomaticRegression;
+import com.ruoyi.petrol.engine.regression.LeastSquaresFit;
+import com.ruoyi.petrol.service.strategy.LeastSquaresTrainStrategy;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * 自动回归选择策略，在JVM内一次扫描拟合全部候选回归模型，按R²选出最优
+ * 结果为胜出模型的训练结果，另附best_model_selected、all_models_tried，与Python端feature_engineering.automatic_regression相同
+ *
+ * @author ruoyi
+ */
 @Service("feature_engineering_automatic_regression_train")
-public class FeatureEngineeringAutomaticRegressionStrategyImpl implements AnalysisStrategy {
-
-    private static final Logger logger = LoggerFactory.getLogger(FeatureEngineeringAutomaticRegressionStrategyImpl.class);
-
-    @Autowired
-    private PythonExecutorService pythonExecutorService;
+public class FeatureEngineeringAutomaticRegressionStrategyImpl extends LeastSquaresTrainStrategy {
 
     private static final String STRATEGY_NAME = "feature_engineering_automatic_regression_train";
-    private static final String PYTHON_SCRIPT_PATH = "feature_engineering.automatic_regression";
 
     @Override
     public String getStrategyName() {
         return STRATEGY_NAME;
     }
 
-    public String getPythonScriptPath() {
-        return PYTHON_SCRIPT_PATH;
+    @Override
+    protected String getDisplayName() {
+        return "自动回归选择";
     }
 
     @Override
-    public String execute(AnalysisTask task) throws Exception {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            Map<String, Object> params = new HashMap<>();
-
-            if (task.getInputParamsJson() != null && !task.getInputParamsJson().isEmpty()) {
-                params.putAll(objectMapper.readValue(task.getInputParamsJson(), new TypeReference<Map<String, Object>>() {}));
-            }
-            
-            task.setInputParamsJson(objectMapper.writeValueAsString(params));
-
-            return pythonExecutorService.executeScript("train_processor", getPythonScriptPath(), task);
-        } catch (Exception e) {
-            logger.error("执行自动回归选择策略失败", e);
-            throw new Exception("执行自动回归选择策略失败", e);
-        }
+    protected LeastSquaresFit fit(Map<String, Object> params, double[][] columns, double[] target, int rows,
+                                  Map<String, Object> statistics, Map<String, Object> modelParams) {
+        AutomaticRegression selection = AutomaticRegression.compute(columns, target, rows, testSize(params),
+            seed(params), computePool);
+        statistics.put("best_model_selected", selection.getBestModel());
+        statistics.put("all_models_tried", selection.getModelsTried());
+        modelParams.put("algorithm_type", "automatic_regression");
+        modelParams.put("best_model", selection.getBestModel());
+        modelParams.put("total_models_tested", AutomaticRegression.getCandidateCount());
+        return selection.getBestFit();
     }
-} 
\ No newline at end of file
+}
@@ -1,56 +1,251 @@
 package com.ruoyi.petrol.service.strategy.impl;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ruoyi.petrol.domain.AnalysisTask;
-import com.ruoyi.petrol.service.PythonExecutorService;
-import com.ruoyi.petrol.service.strategy.AnalysisStrategy;
+import com.ruoyi.petrol.domain.PetrolDataset;
+import com.ruoyi.petrol.engine.feature.FractalDimension;
+import com.ruoyi.petrol.engine.feature.SlidingFractalDimension;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+import com.ruoyi.petrol.service.IPetrolDatasetService;
+import com.ruoyi.petrol.service.strategy.ColumnarAnalysisStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
+/**
+ * 分形维数计算策略
+ * 在JVM内按盒计数法计算，参数和结果JSON与Python版feature_engineering.fractal_dimension相同；
+ * 指定window_size（及window_step）时另外计算沿深度的滑动窗口分形维数曲线，
+ * 曲线保存为来源数据集的派生数据集，可以像普通曲线一样按深度读取和显示
+ *
+ * @author ruoyi
+ */
 @Service("feature_engineering_fractal_dimension_train")
-public class FeatureEngineeringFractalDimensionStrategyImpl implements AnalysisStrategy {
+public class FeatureEngineeringFractalDimensionStrategyImpl extends ColumnarAnalysisStrategy {
 
     private static final Logger logger = LoggerFactory.getLogger(FeatureEngineeringFractalDimensionStrategyImpl.class);
 
-    @Autowired
-    private PythonExecutorService pythonExecutorService;
-
     private static final String STRATEGY_NAME = "feature_engineering_fractal_dimension_train";
-    private static final String PYTHON_SCRIPT_PATH = "feature_engineering.fractal_dimension";
+
+    /** 结果中输入样本的行数 */
+    private static final int INPUT_SAMPLE_ROWS = 100;
+
+    /** 派生曲线列名后缀 */
+    private static final String PROFILE_SUFFIX = "_FD";
+
+    @Autowired
+    private IPetrolDatasetService datasetService;
 
     @Override
     public String getStrategyName() {
         return STRATEGY_NAME;
     }
 
-    public String getPythonScriptPath() {
-        return PYTHON_SCRIPT_PATH;
-    }
-
     @Override
     public String execute(AnalysisTask task) throws Exception {
         try {
-            // This algorithm does not have tunable parameters from the user side in this implementation
-            // But we keep the structure for consistency
-            ObjectMapper objectMapper = new ObjectMapper();
-            Map<String, Object> params = new HashMap<>();
+            Map<String, Object> params = readParams(task);
+            String column = (String) params.get("column_name");
+            String depthColumn = (String) params.get("depth_column");
+            if (column == null) {
+                throw new IllegalArgumentException("Parameter 'column_name' is required for Fractal Dimension calculation.");
+            }
+            if (depthColumn == null) {
+                throw new IllegalArgumentException("Parameter 'depth_column' is required for data filtering.");
+            }
+
+            long start = System.currentTimeMillis();
+            ColumnarFile columnar = openInput(task);
+            int rows = columnar.getRowCount();
+            double[] depths = new double[rows];
+            double[] values = new double[rows];
+            columnar.readDoubles(requireNumericColumn(columnar, depthColumn), 0, rows, depths, 0);
+            columnar.readDoubles(requireNumericColumn(columnar, column), 0, rows, values, 0);
 
-            if (task.getInputParamsJson() != null && !task.getInputParamsJson().isEmpty()) {
-                params.putAll(objectMapper.readValue(task.getInputParamsJson(), new TypeReference<Map<String, Object>>() {}));
+            // 未指定或为0时取深度列的最小/最大值
+            double minDepth = toDouble(params.get("min_depth"));
+            double maxDepth = toDouble(params.get("max_depth"));
+            if (Double.isNaN(minDepth) || minDepth == 0 || Double.isNaN(maxDepth) || maxDepth == 0) {
+                double low = Double.POSITIVE_INFINITY;
+                double high = Double.NEGATIVE_INFINITY;
+                for (double depth : depths) {
+                    if (!Double.isNaN(depth)) {
+                        low = Math.min(low, depth);
+                        high = Math.max(high, depth);
+                    }
+                }
+                minDepth = Double.isNaN(minDepth) || minDepth == 0 ? low : minDepth;
+                maxDepth = Double.isNaN(maxDepth) || maxDepth == 0 ? high : maxDepth;
+            }
+
+            // 按深度区间筛选，保留文件行序；曲线值去掉缺失值
+            List<Double> depthValues = new ArrayList<>();
+            List<Map<String, Object>> inputSample = new ArrayList<>();
+            double[] series = new double[rows];
+            double[] seriesDepths = new double[rows];
+            int count = 0;
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int r = 0; r < rows; r++) {
+                double depth = depths[r];
+                if (!(depth >= minDepth && depth <= maxDepth)) {
+                    continue;
+                }
+                depthValues.add(depth);
+                if (inputSample.size() < INPUT_SAMPLE_ROWS) {
+                    Map<String, Object> record = new LinkedHashMap<>();
+                    record.put(depthColumn, depth);
+                    record.put(column, valueOrNull(values[r]));
+                    inputSample.add(record);
+                }
+                double value = values[r];
+                if (!Double.isNaN(value)) {
+                    seriesDepths[count] = depth;
+                    series[count++] = value;
+                    sum += value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+            if (depthValues.isEmpty()) {
+                throw new IllegalArgumentException(String.format(Locale.ROOT,
+                    "No data available in the depth range %s - %s.", minDepth, maxDepth));
             }
+            if (count == 0) {
+                throw new IllegalArgumentException("No valid data in column '" + column + "' for the specified depth range.");
+            }
+
+            double mean = sum / count;
+            double squares = 0;
+            List<Double> featureValues = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                squares += (series[i] - mean) * (series[i] - mean);
+                featureValues.add(series[i]);
+            }
+            double std = count > 1 ? Math.sqrt(squares / (count - 1)) : Double.NaN;
+
+            FractalDimension fractal = FractalDimension.compute(series, count, computePool);
+            double dimension = fractal.getBoxCountingDimension();
 
-            task.setInputParamsJson(objectMapper.writeValueAsString(params));
+            Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("fractal_dimension", dimension);
+            statistics.put("box_counting_dimension", dimension);
+            statistics.put("correlation_dimension", fractal.getCorrelationDimension());
+            statistics.put("correlation_coefficient", fractal.getCorrelationCoefficient());
+            statistics.put("sample_count", count);
+            statistics.put("min_value", min);
+            statistics.put("max_value", max);
+            statistics.put("mean_value", mean);
+            statistics.put("std_dev", valueOrNull(std));
+            statistics.put("depth_range", String.format(Locale.ROOT, "%.2f - %.2f", minDepth, maxDepth));
 
-            return pythonExecutorService.executeScript("train_processor", getPythonScriptPath(), task);
+            Map<String, Object> modelParams = new LinkedHashMap<>();
+            modelParams.put("depth_column", depthColumn);
+            modelParams.put("column_name", column);
+            modelParams.put("min_depth", minDepth);
+            modelParams.put("max_depth", maxDepth);
+            modelParams.put("feature_columns", params.get("feature_columns"));
+            modelParams.put("target_column", params.get("target_column"));
+
+            Map<String, Object> output = standardOutput("feature_engineering", statistics, modelParams);
+            output.put("feature_values", featureValues);
+            output.put("input_sample", inputSample);
+            output.put("fractal_dimension", dimension);
+            output.put("correlation_coefficient", fractal.getCorrelationCoefficient());
+            output.put("depth_values", depthValues);
+
+            // 窗口点数为0时只计算整段分形维数
+            double windowSize = toDouble(params.get("window_size"));
+            if (windowSize > 0) {
+                int window = (int) windowSize;
+                int step = params.get("window_step") != null ? (int) toDouble(params.get("window_step")) : 1;
+                modelParams.put("window_size", window);
+                modelParams.put("window_step", step);
+                writeProfile(task, column, depthColumn, series, seriesDepths, count, window, step, statistics, output);
+            }
+
+            logger.info("分形维数计算完成，任务ID: {}，列: {}，样本数: {}，维数: {}，耗时 {} ms", task.getId(), column, count,
+                dimension, System.currentTimeMillis() - start);
+            return objectMapper.writeValueAsString(output);
         } catch (Exception e) {
             logger.error("执行分形维数计算策略失败", e);
             throw new Exception("执行分形维数计算策略失败", e);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 计算滑动窗口分形维数曲线，每个窗口的值对应窗口中心采样点的深度
+     * 曲线写成CSV（深度列、曲线列），任务来自数据集时登记为派生数据集，否则作为结果文件保留在输出目录
+     */
+    @SuppressWarnings("unchecked")
+    private void writeProfile(AnalysisTask task, String column, String depthColumn, double[] series,
+                              double[] seriesDepths, int count, int window, int step, Map<String, Object> statistics,
+                              Map<String, Object> output) throws Exception {
+        long start = System.currentTimeMillis();
+        double[] dimensions = SlidingFractalDimension.compute(series, count, window, step, computePool);
+        if (dimensions.length == 0) {
+            throw new IllegalArgumentException("有效样本数少于窗口采样点数: " + count + " < " + window);
+        }
+
+        String profileColumn = column + PROFILE_SUFFIX;
+        File outputDir = resolveProfileFile(task.getOutputDirPath());
+        File file = new File(outputDir, column + "_fractal_profile.csv");
+        List<Double> profileDepths = new ArrayList<>(dimensions.length);
+        List<Double> profileValues = new ArrayList<>(dimensions.length);
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(depthColumn + "," + profileColumn);
+            writer.newLine();
+            for (int w = 0; w < dimensions.length; w++) {
+                double depth = seriesDepths[SlidingFractalDimension.centerOf(w, window, step)];
+                profileDepths.add(depth);
+                profileValues.add(dimensions[w]);
+                writer.write(Double.toString(depth));
+                writer.write(',');
+                writer.write(Double.toString(dimensions[w]));
+                writer.newLine();
+            }
+        }
+
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("column", profileColumn);
+        profile.put("depth_values", profileDepths);
+        profile.put("fractal_dimension", profileValues);
+        if (task.getDatasetId() != null) {
+            PetrolDataset parent = datasetService.selectPetrolDatasetById(task.getDatasetId());
+            String name = (parent != null ? parent.getDatasetName() : "数据集" + task.getDatasetId()) + "_"
+                + profileColumn + "_" + task.getId();
+            PetrolDataset derived = datasetService.createDerivedDataset(file, parent, name, String.format(
+                "由分析任务 #%d 生成的%s滑动窗口分形维数曲线（窗口%d点，步长%d点）", task.getId(), column, window, step));
+            profile.put("dataset_id", derived.getId());
+            profile.put("dataset_name", derived.getDatasetName());
+        } else {
+            ((Map<String, Object>) output.get("excel_report")).put("fractal_profile", file.getName());
+        }
+        output.put("fractal_profile", profile);
+        statistics.put("window_count", dimensions.length);
+
+        logger.info("滑动窗口分形维数计算完成，任务ID: {}，窗口{}点，步长{}点，{} 个窗口，耗时 {} ms", task.getId(), window,
+            step, dimensions.length, System.currentTimeMillis() - start);
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value != null && !value.toString().trim().isEmpty()) {
+            return Double.parseDouble(value.toString().trim());
+        }
+        return Double.NaN;
+    }
+}
@@ -1,26 +1,15 @@
 package com.ruoyi.petrol.service.strategy.impl;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.ruoyi.petrol.domain.AnalysisTask;
-import com.ruoyi.petrol.service.PythonExecutorService;
-import com.ruoyi.petrol.service.strategy.AnalysisStrategy;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.ruoyi.petrol.service.strategy.LeastSquaresPredictStrategy;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * Polynomial Regression预测策略
+ *
+ * @author ruoyi
+ */
 @Service("predict_polynomial_regression_predict")
-public class PolynomialRegressionPredictStrategyImpl implements AnalysisStrategy {
-
-    private static final Logger logger = LoggerFactory.getLogger(PolynomialRegressionPredictStrategyImpl.class);
-
-    @Autowired
-    private PythonExecutorService pythonExecutorService;
+public class PolynomialRegressionPredictStrategyImpl extends LeastSquaresPredictStrategy {
 
     private static final String STRATEGY_NAME = "predict_polynomial_regression_predict";
 
@@ -29,36 +18,13 @@ public class PolynomialRegressionPredictStrategyImpl implements AnalysisStrategy
         return STRATEGY_NAME;
     }
 
+    @Override
     public String getPythonScriptPath() {
         return "regression.polynomial";
     }
 
     @Override
-    public String execute(AnalysisTask task) throws Exception {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            Map<String, Object> params = new HashMap<>();
-
-            if (task.getInputParamsJson() != null && !task.getInputParamsJson().isEmpty()) {
-                params.putAll(objectMapper.readValue(task.getInputParamsJson(), new TypeReference<Map<String, Object>>() {}));
-            }
-
-            // --- Backward Compatibility & Parameter Unification ---
-            if (!params.containsKey("feature_columns") && params.containsKey("x_column")) {
-                params.put("feature_columns", Collections.singletonList(params.get("x_column")));
-                params.remove("x_column");
-            }
-            
-            if (!params.containsKey("model_path")) {
-                logger.warn("任务 {} 的 model_path 参数未提供。", task.getId());
-            }
-
-            task.setInputParamsJson(objectMapper.writeValueAsString(params));
-
-            return pythonExecutorService.executeScript("predict_processor", getPythonScriptPath(), task);
-        } catch (Exception e) {
-            logger.error("执行Polynomial Regression预测策略失败", e);
-            throw new Exception("执行Polynomial Regression预测策略失败", e);
-        }
+    protected String getDisplayName() {
+        return "Polynomial Regression";
     }
-}
\ No newline at end of file
+}
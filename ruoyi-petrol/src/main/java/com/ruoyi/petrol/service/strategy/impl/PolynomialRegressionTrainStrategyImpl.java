@@ -1,26 +1,19 @@
 package com.ruoyi.petrol.service.strategy.impl;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.ruoyi.petrol.domain.AnalysisTask;
-import com.ruoyi.petrol.service.PythonExecutorService;
-import com.ruoyi.petrol.service.strategy.AnalysisStrategy;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.ruoyi.petrol.engine.regression.LeastSquaresFit;
+import com.ruoyi.petrol.engine.regression.LeastSquaresModel;
+import com.ruoyi.petrol.service.strategy.LeastSquaresTrainStrategy;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * 多项式回归训练策略，在JVM内按勒让德基的闭式最小二乘求解
+ *
+ * @author ruoyi
+ */
 @Service("regression_polynomial_regression_train")
-public class PolynomialRegressionTrainStrategyImpl implements AnalysisStrategy {
-
-    private static final Logger logger = LoggerFactory.getLogger(PolynomialRegressionTrainStrategyImpl.class);
-
-    @Autowired
-    private PythonExecutorService pythonExecutorService;
+public class PolynomialRegressionTrainStrategyImpl extends LeastSquaresTrainStrategy {
 
     private static final String STRATEGY_NAME = "regression_polynomial_regression_train";
 
@@ -29,42 +22,19 @@ public class PolynomialRegressionTrainStrategyImpl implements AnalysisStrategy {
         return STRATEGY_NAME;
     }
 
-    public String getPythonScriptPath() {
-        return "regression.polynomial";
+    @Override
+    protected String getDisplayName() {
+        return "Polynomial Regression";
     }
 
     @Override
-    public String execute(AnalysisTask task) throws Exception {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            Map<String, Object> params = new HashMap<>();
-
-            if (task.getInputParamsJson() != null && !task.getInputParamsJson().isEmpty()) {
-                params.putAll(objectMapper.readValue(task.getInputParamsJson(), new TypeReference<Map<String, Object>>() {}));
-            }
-
-            // --- Backward Compatibility & Parameter Unification ---
-            if (!params.containsKey("feature_columns") && params.containsKey("x_column")) {
-                params.put("feature_columns", Collections.singletonList(params.get("x_column")));
-                params.remove("x_column");
-            }
-
-            if (!params.containsKey("target_column") && params.containsKey("y_column")) {
-                params.put("target_column", params.get("y_column"));
-                params.remove("y_column");
-            }
-
-            // Add algorithm-specific and default parameters
-            params.putIfAbsent("degree", 2); // Default polynomial degree
-            params.putIfAbsent("test_size", 0.2);
-            params.putIfAbsent("random_state", 42);
-
-            task.setInputParamsJson(objectMapper.writeValueAsString(params));
+    protected void applyDefaults(Map<String, Object> params) {
+        params.putIfAbsent("degree", 2); // Default polynomial degree
+    }
 
-            return pythonExecutorService.executeScript("train_processor", getPythonScriptPath(), task);
-        } catch (Exception e) {
-            logger.error("执行Polynomial Regression训练策略失败", e);
-            throw new Exception("执行Polynomial Regression训练策略失败", e);
-        }
+    @Override
+    protected LeastSquaresFit fit(Map<String, Object> params, double[][] columns, double[] target, int rows,
+                                  Map<String, Object> statistics, Map<String, Object> modelParams) {
+        return fitForm(LeastSquaresModel.POLYNOMIAL, true, params, columns, target, rows);
     }
-} 
\ No newline at end of file
+}
@@ -47,6 +47,8 @@ public class XGBoostRegressionTrainStrategyImpl implements AnalysisStrategy {
         params.putIfAbsent("max_depth", 3);
         params.putIfAbsent("test_size", 0.2);
         params.putIfAbsent("random_state", 42);
+        // 同时导出树节点表，预测时由JVM直接加载
+        params.putIfAbsent("export_tree_dump", true);
 
         task.setInputParamsJson(objectMapper.writeValueAsString(params));
 
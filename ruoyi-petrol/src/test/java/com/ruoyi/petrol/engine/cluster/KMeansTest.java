@@ -0,0 +1,135 @@
+package com.ruoyi.petrol.engine.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+/**
+ * K-Means聚类测试，与暴力计算的最近中心和簇内平方和对照
+ *
+ * @author ruoyi
+ */
+class KMeansTest
+{
+    private static final double[][] CENTRES = { { 0, 0, 0 }, { 8, 0, 0 }, { 0, 8, 0 }, { 0, 0, 8 } };
+
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    @Test
+    void recoversSeparatedBlobs()
+    {
+        int perBlob = 500;
+        int d = 3;
+        int n = perBlob * CENTRES.length;
+        double[] points = blobs(perBlob, 0.5, new Random(1));
+        KMeans kmeans = KMeans.fit(points, n, d, CENTRES.length, 3, 42, pool);
+
+        // 同一团的点分到同一簇，不同团分到不同簇
+        int[] labels = kmeans.getLabels();
+        boolean[] used = new boolean[CENTRES.length];
+        for (int b = 0; b < CENTRES.length; b++)
+        {
+            int label = labels[b * perBlob];
+            assertTrue(!used[label], "两个团分到了同一簇");
+            used[label] = true;
+            for (int i = b * perBlob; i < (b + 1) * perBlob; i++)
+            {
+                assertEquals(label, labels[i]);
+            }
+            double[] centroid = new double[d];
+            System.arraycopy(kmeans.getCentroids(), label * d, centroid, 0, d);
+            assertArrayEquals(CENTRES[b], centroid, 0.1);
+        }
+    }
+
+    @Test
+    void labelsAreNearestCentroidsAndInertiaMatches()
+    {
+        // 重叠的团使迭代多轮，检验Hamerly剪枝后的归属与暴力计算一致
+        int d = 3;
+        int n = 20000;
+        double[] points = blobs(n / CENTRES.length, 4, new Random(2));
+        int k = 6;
+        KMeans kmeans = KMeans.fit(points, n, d, k, 1, 7, pool);
+        assertTrue(kmeans.getIterations() > 1);
+
+        double[] centroids = kmeans.getCentroids();
+        int[] labels = kmeans.getLabels();
+        double inertia = 0;
+        for (int i = 0; i < n; i++)
+        {
+            double nearestDistance = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < k; j++)
+            {
+                nearestDistance = Math.min(nearestDistance, distance(points, i, centroids, j, d));
+            }
+            // 比较距离而不是簇号，到两个中心等距时任一归属都正确
+            assertEquals(nearestDistance, distance(points, i, centroids, labels[i], d), 1e-9, "点" + i);
+            inertia += nearestDistance;
+        }
+        assertEquals(inertia, kmeans.getInertia(), 1e-6 * inertia);
+    }
+
+    @Test
+    void sameSeedGivesSameResult()
+    {
+        double[] points = blobs(300, 2, new Random(3));
+        int n = 300 * CENTRES.length;
+        KMeans first = KMeans.fit(points, n, 3, 5, 2, 99, pool);
+        KMeans second = KMeans.fit(points, n, 3, 5, 2, 99, pool);
+        assertArrayEquals(first.getLabels(), second.getLabels());
+        assertArrayEquals(first.getCentroids(), second.getCentroids(), 0);
+    }
+
+    @Test
+    void rejectsMoreClustersThanPoints()
+    {
+        double[] points = { 0, 1, 2 };
+        assertThrows(IllegalArgumentException.class, () -> KMeans.fit(points, 3, 1, 4, 1, 0, pool));
+        assertThrows(IllegalArgumentException.class, () -> KMeans.fit(points, 3, 1, 0, 1, 0, pool));
+    }
+
+    @Test
+    void metricsMatchKnownAnswer()
+    {
+        double[] points = { 0, 1, 10, 11 };
+        int[] labels = { 0, 0, 1, 1 };
+        ClusterMetrics metrics = ClusterMetrics.compute(points, 4, 1, labels, 2, 0, pool);
+        assertEquals(2, metrics.getClusterCount());
+        assertEquals(((1 - 1 / 10.5) + (1 - 1 / 9.5)) / 2, metrics.getSilhouette(), 1e-12);
+        assertEquals(200, metrics.getCalinskiHarabasz(), 1e-9);
+        assertEquals(0.1, metrics.getDaviesBouldin(), 1e-12);
+    }
+
+    private static double[] blobs(int perBlob, double spread, Random random)
+    {
+        int d = CENTRES[0].length;
+        double[] points = new double[perBlob * CENTRES.length * d];
+        for (int b = 0; b < CENTRES.length; b++)
+        {
+            for (int i = b * perBlob; i < (b + 1) * perBlob; i++)
+            {
+                for (int c = 0; c < d; c++)
+                {
+                    points[i * d + c] = CENTRES[b][c] + spread * random.nextGaussian();
+                }
+            }
+        }
+        return points;
+    }
+
+    private static double distance(double[] points, int i, double[] centroids, int j, int d)
+    {
+        double distance = 0;
+        for (int c = 0; c < d; c++)
+        {
+            double delta = points[i * d + c] - centroids[j * d + c];
+            distance += delta * delta;
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,77 @@
+package com.ruoyi.petrol.engine.feature;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 分形维数（盒计数法）测试，期望值按numpy的logspace/unique规则用纯Python逐步算出
+ *
+ * @author ruoyi
+ */
+class FractalDimensionTest
+{
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    @Test
+    void boxSizesMatchNumpyLogspace()
+    {
+        // np.unique(np.logspace(0, log10(m), 20, dtype=int))：10**log10(m)可能略小于m，截断后最大值为m-1
+        assertArrayEquals(new int[] { 1 }, FractalDimension.boxSizes(1));
+        assertArrayEquals(new int[] { 1, 2, 3, 4, 5, 6, 7 }, FractalDimension.boxSizes(8));
+        assertArrayEquals(new int[] { 1, 2, 3, 4, 5, 6, 7, 9, 10, 12, 15, 17, 21, 25 }, FractalDimension.boxSizes(25));
+        assertArrayEquals(new int[] { 1, 2, 3, 4, 5, 7, 10, 13, 18, 24, 32, 43, 58, 78, 104, 139, 186, 249 },
+                FractalDimension.boxSizes(250));
+        assertArrayEquals(new int[] { 1, 2, 4, 6, 8, 12, 18, 26, 37, 54, 78, 112, 162, 233, 335, 483, 695, 1000 },
+                FractalDimension.boxSizes(1000));
+        assertArrayEquals(new int[] { 1, 2, 3, 5, 7, 11, 17, 26, 40, 61, 92, 140, 211, 319, 481, 727, 1097, 1656,
+                2501 }, FractalDimension.boxSizes(2501));
+        assertArrayEquals(new int[] { 1, 2, 4, 6, 11, 18, 29, 48, 78, 127, 206, 335, 545, 885, 1438, 2335, 3792, 6158,
+                10000 }, FractalDimension.boxSizes(10000));
+    }
+
+    @Test
+    void countsOccupiedBoxesOnFixedSeries()
+    {
+        // 最小值0、最大值9，最大值归一化为1落在第s层；s=4时第2列(8..11)的值6,5,3,5占据第2层3个点、第1层1个点
+        double[] values = { 0, 3, 1, 4, 1, 5, 9, 2, 6, 5, 3, 5, 8, 9, 7, 9 };
+        FractalDimension fractal = FractalDimension.compute(values, values.length, pool);
+        assertArrayEquals(new int[] { 1, 2, 3, 4 }, fractal.getBoxSizes());
+        assertArrayEquals(new long[] { 16, 13, 11, 9 }, fractal.getBoxCounts());
+        assertArrayEquals(new double[] { 16 / 256.0, 22 / 256.0, 28 / 256.0, 32 / 256.0 }, fractal.getCollisionSums(),
+                1e-15);
+        assertEquals(0.39972581525599415, fractal.getBoxCountingDimension(), 1e-12);
+        assertEquals(0.9824289352237933, fractal.getCorrelationCoefficient(), 1e-12);
+        assertEquals(0.5055206738922103, fractal.getCorrelationDimension(), 1e-12);
+    }
+
+    @Test
+    void fewerThanEightPointsFallBack()
+    {
+        // n/4=1时只有盒子大小1，无法拟合
+        for (int length = 4; length < 8; length++)
+        {
+            double[] values = new double[length];
+            for (int i = 0; i < length; i++)
+            {
+                values[i] = i * i % 5;
+            }
+            FractalDimension fractal = FractalDimension.compute(values, length, pool);
+            assertArrayEquals(new int[] { 1 }, fractal.getBoxSizes());
+            assertEquals(1.0, fractal.getBoxCountingDimension());
+            assertEquals(0.0, fractal.getCorrelationCoefficient());
+            assertEquals(1.0, fractal.getCorrelationDimension());
+        }
+    }
+
+    @Test
+    void rejectsShortOrConstantSeries()
+    {
+        assertThrows(IllegalArgumentException.class,
+                () -> FractalDimension.compute(new double[] { 1, 2, 3 }, 3, pool));
+        assertThrows(IllegalArgumentException.class,
+                () -> FractalDimension.compute(new double[] { 2, 2, 2, 2, 2, 2, 2, 2 }, 8, pool));
+    }
+}
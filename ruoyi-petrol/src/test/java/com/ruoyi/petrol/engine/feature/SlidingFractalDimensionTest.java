@@ -0,0 +1,164 @@
+package com.ruoyi.petrol.engine.feature;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 滑动窗口分形维数测试，与逐窗口从头计数的盒计数对照
+ *
+ * @author ruoyi
+ */
+class SlidingFractalDimensionTest
+{
+    /** 窗口点数和步长：步长为1、不整除窗口、等于窗口、大于窗口 */
+    private static final int[][] WINDOW_STEPS = { { 16, 1 }, { 32, 5 }, { 20, 7 }, { 64, 64 }, { 16, 24 }, { 9, 2 } };
+
+    @Test
+    void matchesBoxCountPerWindow()
+    {
+        double[] values = randomWalk(2000, 3);
+        // 并行度4时每段约为窗口数的1/16，各组参数都会跨越多段
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            for (int[] windowStep : WINDOW_STEPS)
+            {
+                int window = windowStep[0];
+                int step = windowStep[1];
+                // 有效长度小于数组长度，末尾的值不参与归一化
+                int length = values.length - 37;
+                double[] dimensions = SlidingFractalDimension.compute(values, length, window, step, pool);
+                assertEquals(SlidingFractalDimension.windowCount(length, window, step), dimensions.length);
+                assertEquals((length - window) / step + 1, dimensions.length);
+                double[] expected = reference(values, length, window, step);
+                for (int w = 0; w < dimensions.length; w++)
+                {
+                    assertEquals(expected[w], dimensions[w], 1e-12, "窗口" + window + " 步长" + step + " 第" + w + "个");
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void centersFallInsideWindows()
+    {
+        int length = 1000;
+        for (int[] windowStep : WINDOW_STEPS)
+        {
+            int window = windowStep[0];
+            int step = windowStep[1];
+            int windows = SlidingFractalDimension.windowCount(length, window, step);
+            for (int w = 0; w < windows; w++)
+            {
+                int center = SlidingFractalDimension.centerOf(w, window, step);
+                int start = w * step;
+                // 中心之前window/2个点，之后(window-1)/2个点
+                assertEquals(window / 2, center - start);
+                assertEquals((window - 1) / 2, start + window - 1 - center);
+                assertTrue(center < length, "窗口" + window + " 步长" + step + " 第" + w + "个越界");
+            }
+        }
+        // 偶数点数取中间两点中靠后的一个，奇数点数取正中
+        assertEquals(8, SlidingFractalDimension.centerOf(0, 16, 5));
+        assertEquals(4, SlidingFractalDimension.centerOf(0, 9, 2));
+        assertEquals(10 * 24 + 8, SlidingFractalDimension.centerOf(10, 16, 24));
+    }
+
+    @Test
+    void shortSeriesHasNoWindows()
+    {
+        double[] dimensions = SlidingFractalDimension.compute(randomWalk(15, 1), 15, 16, 1, ForkJoinPool.commonPool());
+        assertEquals(0, dimensions.length);
+    }
+
+    @Test
+    void rejectsInvalidWindow()
+    {
+        double[] values = randomWalk(100, 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> SlidingFractalDimension.compute(values, 100, SlidingFractalDimension.MIN_WINDOW - 1, 1,
+                        ForkJoinPool.commonPool()));
+        assertThrows(IllegalArgumentException.class,
+                () -> SlidingFractalDimension.compute(values, 100, 16, 0, ForkJoinPool.commonPool()));
+    }
+
+    /**
+     * 逐窗口从头计数：数值按整条曲线（前length个点）的最小/最大值归一化，盒子的列为全局采样序号i/s。
+     * 实现中的环形数组有window/s+2列，一个窗口最多跨这么多列，按列号取模后不会混在一起，结果应相同
+     */
+    private static double[] reference(double[] values, int length, int window, int step)
+    {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i++)
+        {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+        }
+        double range = max > min ? max - min : 1;
+        int[] sizes = FractalDimension.boxSizes(window / 4);
+        int windows = (length - window) / step + 1;
+        double[] dimensions = new double[windows];
+        for (int w = 0; w < windows; w++)
+        {
+            int start = w * step;
+            double[] x = new double[sizes.length];
+            double[] y = new double[sizes.length];
+            for (int k = 0; k < sizes.length; k++)
+            {
+                int size = sizes[k];
+                Set<Long> boxes = new HashSet<>();
+                for (int i = start; i < start + window; i++)
+                {
+                    int level = (int) ((values[i] - min) / range * size);
+                    boxes.add((long) (i / size) * (size + 1) + level);
+                }
+                x[k] = Math.log(1.0 / size);
+                y[k] = Math.log(boxes.size());
+            }
+            dimensions[w] = Math.abs(slope(x, y));
+        }
+        return dimensions;
+    }
+
+    private static double slope(double[] x, double[] y)
+    {
+        int n = x.length;
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < n; i++)
+        {
+            meanX += x[i] / n;
+            meanY += y[i] / n;
+        }
+        double sxx = 0;
+        double sxy = 0;
+        for (int i = 0; i < n; i++)
+        {
+            sxx += (x[i] - meanX) * (x[i] - meanX);
+            sxy += (x[i] - meanX) * (y[i] - meanY);
+        }
+        return sxy / sxx;
+    }
+
+    private static double[] randomWalk(int length, long seed)
+    {
+        Random random = new Random(seed);
+        double[] values = new double[length];
+        for (int i = 1; i < length; i++)
+        {
+            values[i] = values[i - 1] + random.nextGaussian();
+        }
+        return values;
+    }
+}
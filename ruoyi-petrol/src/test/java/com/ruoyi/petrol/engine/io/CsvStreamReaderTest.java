@@ -0,0 +1,194 @@
+package com.ruoyi.petrol.engine.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * CSV流式解析测试
+ * 同一输入按1字节、几个字节和整块喂入，结果都应与期望相同（分块边界可能落在引号、CRLF、BOM或双字节字符中间）
+ *
+ * @author ruoyi
+ */
+class CsvStreamReaderTest
+{
+    private static final Charset GBK = Charset.forName("GBK");
+
+    @Test
+    void quotedFieldsAndLineEndings()
+    {
+        String csv = "name,value\r\n"
+                + "\"a,b\",1.5\r\n"
+                + "\"say \"\"hi\"\"\",\"2\"\r\n"
+                + "\r\n"
+                + "\"line1\r\nline2\",-3e2\r\n"
+                + "plain,\n"
+                + "\" \", 7 \r"
+                + "last,\"\"";
+        assertRows(csv.getBytes(StandardCharsets.UTF_8), ',', StandardCharsets.UTF_8,
+                row("name", "value"),
+                row("a,b", 1.5),
+                row("say \"hi\"", 2.0),
+                row("line1\r\nline2", -300.0),
+                row("plain", null),
+                row(" ", 7.0),
+                row("last", null));
+    }
+
+    @Test
+    void utf8ByteOrderMarkIsSkipped()
+    {
+        byte[] body = "深度,GR\n1200.5,80\n".getBytes(StandardCharsets.UTF_8);
+        byte[] csv = new byte[body.length + 3];
+        csv[0] = (byte) 0xEF;
+        csv[1] = (byte) 0xBB;
+        csv[2] = (byte) 0xBF;
+        System.arraycopy(body, 0, csv, 3, body.length);
+        assertRows(csv, ',', StandardCharsets.UTF_8, row("深度", "GR"), row(1200.5, 80.0));
+
+        // 以EF BB开头但不是BOM的字符（U+FEF0）原样保留
+        assertRows("ﻰx,1\n".getBytes(StandardCharsets.UTF_8), ',', StandardCharsets.UTF_8, row("ﻰx", 1.0));
+    }
+
+    @Test
+    void gbkTrailBytesAreNotDelimiters()
+    {
+        // GBK的第二个字节在0x40到0xFE之间，逗号和引号不会出现在第二个字节，候选分隔符中只有|(0x7C)会：
+        // 東为96 7C，億为83 7C，墊为89 7C
+        String csv = "井名|深度\r\n"
+                + "東區|1200.5\r\n"
+                + "\"億,\"\"墊\"\"\"|\"7\"\n"
+                + "墊|\n";
+        byte[] bytes = csv.getBytes(GBK);
+        assertEquals(0x7C, bytes["井名|深度\r\n".getBytes(GBK).length + 1]);
+        assertRows(bytes, '|', GBK,
+                row("井名", "深度"),
+                row("東區", 1200.5),
+                row("億,\"墊\"", 7.0),
+                row("墊", null));
+    }
+
+    @Test
+    void chunkBoundariesDoNotChangeLargeInput()
+    {
+        // 随机组合引号、转义、字段内换行、CRLF和中文，1字节喂入与1 MB块喂入的结果相同
+        Random random = new Random(5);
+        StringBuilder csv = new StringBuilder("id,text,value\r\n");
+        List<Object[]> expected = new ArrayList<>();
+        expected.add(row("id", "text", "value"));
+        String[] texts = { "砂岩", "a,b", "say \"hi\"", "two\nlines", "泥岩\r\n灰岩", "plain" };
+        for (int r = 0; r < 5000; r++)
+        {
+            String text = texts[random.nextInt(texts.length)];
+            double value = Math.round(random.nextGaussian() * 1e6) / 1e3;
+            csv.append(r).append(',');
+            csv.append('"').append(text.replace("\"", "\"\"")).append('"').append(',');
+            csv.append(value).append(random.nextBoolean() ? "\r\n" : "\n");
+            expected.add(row((double) r, text, value));
+        }
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+        List<Object[]> whole = parse(bytes, ',', StandardCharsets.UTF_8, CsvStreamReader.BLOCK_SIZE);
+        assertRowsEqual(expected, whole, "整块");
+        assertRowsEqual(expected, parse(bytes, ',', StandardCharsets.UTF_8, 1), "1字节");
+    }
+
+    private static Object[] row(Object... cells)
+    {
+        return cells;
+    }
+
+    /**
+     * 按1、2、3、7字节和整块喂入，分别与期望比较
+     */
+    private static void assertRows(byte[] bytes, char delimiter, Charset charset, Object[]... expected)
+    {
+        for (int chunk : new int[] { 1, 2, 3, 7, bytes.length })
+        {
+            assertRowsEqual(Arrays.asList(expected), parse(bytes, delimiter, charset, chunk), chunk + "字节分块");
+        }
+    }
+
+    private static void assertRowsEqual(List<Object[]> expected, List<Object[]> actual, String message)
+    {
+        assertEquals(expected.size(), actual.size(), message + " 行数");
+        for (int r = 0; r < expected.size(); r++)
+        {
+            assertEquals(Arrays.asList(expected.get(r)), Arrays.asList(actual.get(r)), message + " 第" + r + "行");
+        }
+    }
+
+    private static List<Object[]> parse(byte[] bytes, char delimiter, Charset charset, int chunk)
+    {
+        Recorder recorder = new Recorder();
+        CsvStreamReader reader = new CsvStreamReader(delimiter, charset, recorder);
+        for (int offset = 0; offset < bytes.length; offset += chunk)
+        {
+            reader.feed(bytes, offset, Math.min(chunk, bytes.length - offset));
+        }
+        reader.finish();
+        return recorder.rows;
+    }
+
+    /**
+     * 记录每行的单元格：数值为Double，文本为String，未回调的单元格为null
+     */
+    private static class Recorder implements RowHandler
+    {
+        private final List<Object[]> rows = new ArrayList<>();
+        private final List<Object> current = new ArrayList<>();
+        private int columns;
+
+        @Override
+        public void startRow(int rowIndex)
+        {
+            current.clear();
+        }
+
+        @Override
+        public void numberCell(int columnIndex, double value)
+        {
+            set(columnIndex, value);
+        }
+
+        @Override
+        public void textCell(int columnIndex, String value)
+        {
+            set(columnIndex, value);
+        }
+
+        @Override
+        public void otherCell(int columnIndex, String value)
+        {
+            set(columnIndex, value);
+        }
+
+        @Override
+        public boolean endRow(int rowIndex)
+        {
+            if (rowIndex == 0)
+            {
+                columns = current.size();
+            }
+            while (current.size() < columns)
+            {
+                current.add(null);
+            }
+            rows.add(current.toArray());
+            return true;
+        }
+
+        private void set(int columnIndex, Object value)
+        {
+            while (current.size() <= columnIndex)
+            {
+                current.add(null);
+            }
+            current.set(columnIndex, value);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.ruoyi.petrol.engine.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 字节级数值解析测试，结果须与Double.parseDouble逐位相同
+ *
+ * @author ruoyi
+ */
+class NumberParserTest
+{
+    @Test
+    void boundaryInputsMatchParseDouble()
+    {
+        String[] inputs = {
+            // 快速路径：尾数不超过2^53且10的指数在±22以内
+            "0", "-0", "+0.0", "1", "-1", "007", "0.1", ".5", "5.", "1.5e3", "1.5E+3", "-2.5e-3", "1e22", "1e-22",
+            "9007199254740992", "9007199254740992e22", "9007199254740992e-22", "123.456", "0.000000000000000000001",
+            // 指数超出±22
+            "1e23", "1e-23", "4.9e-324", "2e-324", "2.2250738585072014E-308", "2.2250738585072011e-308",
+            "1.7976931348623157e308", "1.7976931348623159e308", "1e400", "1e-400", "1e99999999",
+            // 17位及以上有效数字，尾数超过2^53
+            "9007199254740993", "12345678901234567", "0.12345678901234567", "1.0000000000000002",
+            "0.1000000000000000055511151231257827", "123456789012345678901234567890",
+            "1234567890123456789012.345e-10", "3.14159265358979323846264338327950288",
+            "0.30000000000000004", "2.000000000000000000000000001", "100000000000000000000000",
+            "1000000000000000000000000.000000000000000000001"
+        };
+        for (String input : inputs)
+        {
+            assertSameBits(input);
+        }
+    }
+
+    @Test
+    void randomInputsMatchParseDouble()
+    {
+        Random random = new Random(9);
+        for (int n = 0; n < 20000; n++)
+        {
+            // 任意double的最短表示，以及随机位数的尾数配随机指数
+            double value = Double.longBitsToDouble(random.nextLong());
+            if (!Double.isNaN(value) && !Double.isInfinite(value))
+            {
+                assertSameBits(Double.toString(value));
+            }
+            StringBuilder digits = new StringBuilder();
+            int length = 1 + random.nextInt(20);
+            for (int i = 0; i < length; i++)
+            {
+                digits.append((char) ('0' + random.nextInt(10)));
+            }
+            if (random.nextBoolean())
+            {
+                digits.insert(random.nextInt(length + 1), '.');
+            }
+            assertSameBits(digits + "e" + (random.nextInt(81) - 40));
+        }
+    }
+
+    @Test
+    void invalidInputsReturnNaN()
+    {
+        for (String input : new String[] { "", "-", "+", ".", "e5", "1e", "1e+", "1.2.3", "1,5", "12abc", "0x10",
+            "NaN", "Infinity", "1d", " 1" })
+        {
+            byte[] bytes = input.getBytes(StandardCharsets.ISO_8859_1);
+            assertTrue(Double.isNaN(NumberParser.parse(bytes, 0, bytes.length)), input);
+        }
+    }
+
+    @Test
+    void parsesSliceOfBuffer()
+    {
+        byte[] bytes = "x,-12.75,y".getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(-12.75, NumberParser.parse(bytes, 2, 8), 0);
+    }
+
+    private static void assertSameBits(String input)
+    {
+        byte[] bytes = input.getBytes(StandardCharsets.ISO_8859_1);
+        long expected = Double.doubleToRawLongBits(Double.parseDouble(input));
+        long actual = Double.doubleToRawLongBits(NumberParser.parse(bytes, 0, bytes.length));
+        assertEquals(expected, actual, input);
+    }
+}
@@ -0,0 +1,162 @@
+package com.ruoyi.petrol.engine.neighbors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+/**
+ * KD树和球树测试，近邻结果与暴力搜索对照
+ *
+ * @author ruoyi
+ */
+class SpatialIndexTest
+{
+    private static final int K = 7;
+
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    @Test
+    void kdTreeMatchesBruteForce()
+    {
+        double[] points = points(20000, 4, new Random(1));
+        SpatialIndex index = build(points, 4);
+        assertEquals(SpatialIndex.KD_TREE, index.getType());
+        assertMatchesBruteForce(index, points, 4, new Random(2));
+    }
+
+    @Test
+    void ballTreeMatchesBruteForce()
+    {
+        int d = SpatialIndex.KD_TREE_MAX_DIMENSION + 5;
+        double[] points = points(5000, d, new Random(3));
+        SpatialIndex index = build(points, d);
+        assertEquals(SpatialIndex.BALL_TREE, index.getType());
+        assertMatchesBruteForce(index, points, d, new Random(4));
+    }
+
+    @Test
+    void duplicatePointsAndSmallIndexes()
+    {
+        // 大量重复坐标时中位数划分两侧相等，点数少于k时返回全部点
+        double[] points = new double[200 * 2];
+        for (int i = 0; i < 200; i++)
+        {
+            points[2 * i] = i % 3;
+            points[2 * i + 1] = i % 2;
+        }
+        assertMatchesBruteForce(build(points, 2), points, 2, new Random(5));
+        double[] few = { 0, 0, 1, 1, 2, 2 };
+        SpatialIndex index = build(few, 2);
+        NeighborHeap heap = new NeighborHeap(K);
+        index.query(new double[] { 0.9, 0.9 }, 0, heap);
+        assertEquals(3, heap.size());
+    }
+
+    @Test
+    void serializationRoundTrips() throws IOException
+    {
+        for (int d : new int[] { 3, SpatialIndex.KD_TREE_MAX_DIMENSION + 1 })
+        {
+            double[] points = points(3000, d, new Random(d));
+            SpatialIndex index = build(points, d);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            index.writeTo(new DataOutputStream(bytes));
+            SpatialIndex loaded = SpatialIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            assertEquals(index.getType(), loaded.getType());
+            assertEquals(index.getRowCount(), loaded.getRowCount());
+            assertEquals(index.getMemoryBytes(), loaded.getMemoryBytes());
+            assertMatchesBruteForce(loaded, points, d, new Random(d + 1));
+        }
+    }
+
+    private SpatialIndex build(double[] points, int d)
+    {
+        int n = points.length / d;
+        int[] labels = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            labels[i] = i;
+        }
+        return SpatialIndex.build(points, labels, n, d, pool);
+    }
+
+    /**
+     * 随机查询点的k个近邻：平方距离与暴力搜索的前k个一致，标签指向的原始点与返回的距离一致
+     */
+    private static void assertMatchesBruteForce(SpatialIndex index, double[] points, int d, Random random)
+    {
+        int n = points.length / d;
+        NeighborHeap heap = new NeighborHeap(K);
+        double[] query = new double[d];
+        for (int q = 0; q < 100; q++)
+        {
+            if (q % 2 == 0)
+            {
+                // 一半查询取已有的点，检验距离为0的情况
+                System.arraycopy(points, random.nextInt(n) * d, query, 0, d);
+            }
+            else
+            {
+                for (int c = 0; c < d; c++)
+                {
+                    query[c] = 4 * random.nextGaussian();
+                }
+            }
+            double[] all = new double[n];
+            for (int i = 0; i < n; i++)
+            {
+                all[i] = distance(points, i * d, query, d);
+            }
+            Arrays.sort(all);
+            int expectedSize = Math.min(K, n);
+
+            index.query(query, 0, heap);
+            assertEquals(expectedSize, heap.size());
+            double[] found = new double[heap.size()];
+            for (int i = 0; i < heap.size(); i++)
+            {
+                found[i] = heap.distance(i);
+                int label = index.getLabel(heap.position(i));
+                assertEquals(found[i], distance(points, label * d, query, d), 1e-12);
+            }
+            Arrays.sort(found);
+            assertArrayEquals(Arrays.copyOf(all, expectedSize), found, 1e-12);
+        }
+    }
+
+    private static double distance(double[] points, int offset, double[] query, int d)
+    {
+        double distance = 0;
+        for (int c = 0; c < d; c++)
+        {
+            double delta = points[offset + c] - query[c];
+            distance += delta * delta;
+        }
+        return distance;
+    }
+
+    /**
+     * 带聚集结构的测试点，使剪枝在不同深度都起作用
+     */
+    private static double[] points(int n, int d, Random random)
+    {
+        double[] points = new double[n * d];
+        for (int i = 0; i < n; i++)
+        {
+            double centre = random.nextInt(5) * 3;
+            for (int c = 0; c < d; c++)
+            {
+                points[i * d + c] = centre + random.nextGaussian() * (c + 1) / d;
+            }
+        }
+        return points;
+    }
+}
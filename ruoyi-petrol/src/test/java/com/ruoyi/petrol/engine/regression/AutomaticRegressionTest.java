@@ -0,0 +1,125 @@
+package com.ruoyi.petrol.engine.regression;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 自动回归测试：共享一次扫描得到的各候选R²与单独训练时一致
+ *
+ * @author ruoyi
+ */
+class AutomaticRegressionTest
+{
+    private static final double TEST_SIZE = 0.2;
+
+    private static final long SEED = 42;
+
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    @Test
+    void sharedPassMatchesSeparateFits()
+    {
+        Random random = new Random(11);
+        int n = 3000;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            x[i] = 0.5 + 10 * random.nextDouble();
+            y[i] = 1 + 0.8 * x[i] - 0.05 * x[i] * x[i] + 0.2 * random.nextGaussian();
+        }
+        x[7] = Double.NaN;
+        y[19] = Double.NaN;
+
+        AutomaticRegression regression = AutomaticRegression.compute(new double[][] { x }, y, n, TEST_SIZE, SEED,
+                pool);
+        List<Map<String, Object>> tried = regression.getModelsTried();
+        assertEquals(AutomaticRegression.getCandidateCount(), tried.size());
+
+        String[] forms = { LeastSquaresModel.LINEAR, LeastSquaresModel.LOGARITHMIC, LeastSquaresModel.POLYNOMIAL,
+                LeastSquaresModel.POLYNOMIAL, LeastSquaresModel.EXPONENTIAL };
+        int[] degrees = { 1, 1, 2, 3, 1 };
+        for (int c = 0; c < forms.length; c++)
+        {
+            boolean holdout = c != 1 && c != 4;
+            LeastSquaresFit separate = LeastSquaresFit.compute(forms[c], degrees[c], new double[][] { x }, y, n,
+                    holdout, holdout ? TEST_SIZE : 0, SEED, pool);
+            Object r2 = tried.get(c).get("r2_score");
+            assertTrue(r2 instanceof Double, tried.get(c).get("model") + ": " + r2);
+            assertEquals(separate.getR2(), (Double) r2, 1e-6, (String) tried.get(c).get("model"));
+        }
+
+        LeastSquaresFit best = regression.getBestFit();
+        assertEquals(best.getR2(), maxR2(tried), 1e-12);
+    }
+
+    @Test
+    void picksExactLogarithmicCurve()
+    {
+        int n = 200;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            x[i] = 1 + i * 0.5;
+            y[i] = 2 + 3 * Math.log(x[i]);
+        }
+        AutomaticRegression regression = AutomaticRegression.compute(new double[][] { x }, y, n, TEST_SIZE, SEED,
+                pool);
+        assertEquals(AutomaticRegression.LOGARITHMIC, regression.getBestModel());
+        assertArrayEquals(new double[] { 2, 3 }, regression.getBestFit().getModel().rawCoefficients(), 1e-9);
+    }
+
+    @Test
+    void multipleFeaturesOnlyFitLinear()
+    {
+        Random random = new Random(5);
+        int n = 100;
+        double[][] columns = new double[2][n];
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            columns[0][i] = random.nextDouble();
+            columns[1][i] = random.nextDouble();
+            values[i] = 1 + 2 * columns[0][i] - columns[1][i] + 0.1 * random.nextGaussian();
+        }
+        AutomaticRegression regression = AutomaticRegression.compute(columns, values, n, TEST_SIZE, SEED, pool);
+        assertEquals(AutomaticRegression.LINEAR, regression.getBestModel());
+        for (Map<String, Object> candidate : regression.getModelsTried())
+        {
+            if (!AutomaticRegression.LINEAR.equals(candidate.get("model")))
+            {
+                assertTrue(String.valueOf(candidate.get("r2_score")).startsWith("Error: "));
+            }
+        }
+    }
+
+    @Test
+    void failsWhenNoCandidateFits()
+    {
+        double[] x = { 2, 2, 2, 2, 2 };
+        double[] y = { 1, 2, 3, 4, 5 };
+        assertThrows(IllegalArgumentException.class,
+                () -> AutomaticRegression.compute(new double[][] { x }, y, y.length, TEST_SIZE, SEED, pool));
+    }
+
+    private static double maxR2(List<Map<String, Object>> tried)
+    {
+        double max = Double.NEGATIVE_INFINITY;
+        for (Map<String, Object> candidate : tried)
+        {
+            if (candidate.get("r2_score") instanceof Double)
+            {
+                max = Math.max(max, (Double) candidate.get("r2_score"));
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,97 @@
+package com.ruoyi.petrol.engine.regression;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 闭式最小二乘回归测试
+ * 参考系数为有理数精确求解正规方程的结果
+ *
+ * @author ruoyi
+ */
+class LeastSquaresFitTest
+{
+    private static final double[] X = { 0.5, 1.0, 1.5, 2.0, 2.5, 3.0, 3.5, 4.0, 4.5, 5.0, 5.5, 6.0 };
+    private static final double[] Y = { 2.9, 4.2, 4.8, 6.1, 7.3, 7.9, 9.2, 10.1, 10.8, 12.2, 13.1, 13.8 };
+
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    @Test
+    void linearFitMatchesKnownAnswer()
+    {
+        LeastSquaresFit fit = fit(LeastSquaresModel.LINEAR, 1, X, Y);
+        assertArrayEquals(new double[] { 2.0560606060606057, 1.9930069930069931 }, fit.getModel().rawCoefficients(),
+                1e-9);
+        assertEquals(0.9974367706748882, fit.getR2(), 1e-9);
+        assertEquals(0.030409867909867733, fit.getMeanSquaredError(), 1e-9);
+        assertEquals(0.1619852369852364, fit.getMeanAbsoluteError(), 1e-9);
+    }
+
+    @Test
+    void polynomialFitMatchesKnownAnswer()
+    {
+        LeastSquaresFit fit = fit(LeastSquaresModel.POLYNOMIAL, 2, X, Y);
+        assertArrayEquals(new double[] { 1.8863636363636367, 2.138461538461538, -0.022377622377622326 },
+                fit.getModel().rawCoefficients(), 1e-9);
+    }
+
+    @Test
+    void logarithmicFitMatchesKnownAnswer()
+    {
+        LeastSquaresFit fit = fit(LeastSquaresModel.LOGARITHMIC, 1, X, Y);
+        assertArrayEquals(new double[] { 4.1358081598198995, 4.522090556010296 }, fit.getModel().rawCoefficients(),
+                1e-9);
+    }
+
+    @Test
+    void multipleLinearFitMatchesKnownAnswer()
+    {
+        double[][] columns = { { 1, 2, 3, 4, 5, 6, 7, 8 }, { 3, 1, 4, 1, 5, 9, 2, 6 } };
+        double[] values = { 10.1, 9.8, 14.2, 12.9, 18.1, 24.8, 17.9, 24.2 };
+        LeastSquaresFit fit = LeastSquaresFit.compute(LeastSquaresModel.LINEAR, 1, columns, values, values.length,
+                false, 0, 42, pool);
+        assertArrayEquals(new double[] { 5.417716535433071, 1.4965223097112859, 1.1220472440944884 },
+                fit.getModel().rawCoefficients(), 1e-9);
+    }
+
+    @Test
+    void exponentialFitRecoversExactCurve()
+    {
+        double[] x = new double[40];
+        double[] y = new double[x.length];
+        for (int i = 0; i < x.length; i++)
+        {
+            x[i] = i * 0.1;
+            y[i] = 2 * Math.exp(0.5 * x[i]) + 1;
+        }
+        LeastSquaresFit fit = fit(LeastSquaresModel.EXPONENTIAL, 1, x, y);
+        assertArrayEquals(new double[] { 2, 0.5, 1 }, fit.getModel().rawCoefficients(), 1e-5);
+        assertEquals(1, fit.getR2(), 1e-9);
+    }
+
+    @Test
+    void skipsRowsWithMissingValues()
+    {
+        double[] x = { 1, 2, Double.NaN, 4, 5 };
+        double[] y = { 3, 5, 100, 9, Double.NaN };
+        LeastSquaresFit fit = fit(LeastSquaresModel.LINEAR, 1, x, y);
+        assertArrayEquals(new int[] { 0, 1, 3 }, fit.getSourceRows());
+        assertArrayEquals(new double[] { 1, 2 }, fit.getModel().rawCoefficients(), 1e-9);
+    }
+
+    @Test
+    void rejectsConstantFeature()
+    {
+        double[] x = { 2, 2, 2, 2 };
+        double[] y = { 1, 2, 3, 4 };
+        assertThrows(IllegalArgumentException.class, () -> fit(LeastSquaresModel.LINEAR, 1, x, y));
+    }
+
+    private LeastSquaresFit fit(String form, int degree, double[] x, double[] y)
+    {
+        return LeastSquaresFit.compute(form, degree, new double[][] { x }, y, y.length, false, 0, 42, pool);
+    }
+}
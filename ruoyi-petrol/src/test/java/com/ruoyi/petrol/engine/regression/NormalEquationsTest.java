@@ -0,0 +1,94 @@
+package com.ruoyi.petrol.engine.regression;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 最小二乘充分统计量测试
+ *
+ * @author ruoyi
+ */
+class NormalEquationsTest
+{
+    private static final double[] X = { 1, 2, 3, 4, 5, 6, 7, 8 };
+    private static final double[] Z = { 3, 1, 4, 1, 5, 9, 2, 6 };
+    private static final double[] Y = { 10.1, 9.8, 14.2, 12.9, 18.1, 24.8, 17.9, 24.2 };
+
+    @Test
+    void solvesExactLinearSystem()
+    {
+        NormalEquations equations = new NormalEquations(3);
+        for (int i = 0; i < X.length; i++)
+        {
+            equations.add(new double[] { 1, X[i], Z[i] }, 1 + 2 * X[i] - 3 * Z[i]);
+        }
+        double[] beta = equations.solve();
+        assertArrayEquals(new double[] { 1, 2, -3 }, beta, 1e-9);
+        assertEquals(0, equations.residualSumOfSquares(beta), 1e-9);
+    }
+
+    @Test
+    void matchesExactLeastSquaresSolution()
+    {
+        // 参考值为有理数精确求解正规方程的结果
+        NormalEquations equations = fill(0, X.length);
+        assertArrayEquals(new double[] { 5.417716535433071, 1.4965223097112859, 1.1220472440944884 },
+                equations.solve(), 1e-9);
+        assertEquals(X.length, equations.getCount());
+    }
+
+    @Test
+    void mergedPartsEqualSinglePass()
+    {
+        NormalEquations whole = fill(0, X.length);
+        NormalEquations merged = fill(0, 3);
+        merged.merge(fill(3, X.length));
+        double[] beta = whole.solve();
+        assertArrayEquals(beta, merged.solve(), 1e-12);
+        assertEquals(whole.residualSumOfSquares(beta), merged.residualSumOfSquares(beta), 1e-9);
+        assertEquals(whole.totalSumOfSquares(), merged.totalSumOfSquares(), 1e-9);
+        assertEquals(whole.getCount(), merged.getCount());
+    }
+
+    @Test
+    void leadingBlockEqualsSmallerSystem()
+    {
+        NormalEquations small = new NormalEquations(2);
+        for (int i = 0; i < X.length; i++)
+        {
+            small.add(new double[] { 1, X[i] }, Y[i]);
+        }
+        assertArrayEquals(small.solve(), fill(0, X.length).leading(2).solve(), 1e-12);
+    }
+
+    @Test
+    void rejectsSingularDesign()
+    {
+        NormalEquations equations = new NormalEquations(2);
+        for (double y : Y)
+        {
+            equations.add(new double[] { 1, 5 }, y);
+        }
+        assertThrows(IllegalArgumentException.class, equations::solve);
+    }
+
+    @Test
+    void rejectsTooFewRows()
+    {
+        NormalEquations equations = new NormalEquations(3);
+        equations.add(new double[] { 1, 2, 3 }, 1);
+        assertThrows(IllegalArgumentException.class, equations::solve);
+    }
+
+    private static NormalEquations fill(int from, int to)
+    {
+        NormalEquations equations = new NormalEquations(3);
+        for (int i = from; i < to; i++)
+        {
+            equations.add(new double[] { 1, X[i], Z[i] }, Y[i]);
+        }
+        return equations;
+    }
+}
@@ -0,0 +1,148 @@
+package com.ruoyi.petrol.engine.regression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 树集成推理测试
+ * 夹具为Python端导出格式的节点表，test_rows为测试行（null表示缺失），expected为Python按各库的比较规则
+ * （XGBoost按float32比较x < 阈值，LightGBM按double比较x <= 阈值，sklearn按float32比较x <= 阈值）遍历节点表得到的预测值；
+ * 测试行包含恰好等于阈值、float32舍入后等于阈值以及阈值两侧相邻的double
+ *
+ * @author ruoyi
+ */
+class TreeEnsembleTest
+{
+    private static final String[] FIXTURES = { "xgboost", "lightgbm", "random_forest" };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    @Test
+    void singleRowScoresMatchPython() throws IOException
+    {
+        for (String name : FIXTURES)
+        {
+            Map<String, Object> dump = load(name);
+            TreeEnsemble ensemble = TreeEnsemble.fromDump(dump);
+            assertEquals(name, ensemble.getLibrary());
+            double[][] rows = rows(dump);
+            double[] expected = expected(dump);
+            for (int i = 0; i < rows.length; i++)
+            {
+                assertEquals(expected[i], ensemble.predict(rows[i]), 1e-12, name + " 第" + i + "行");
+            }
+        }
+    }
+
+    @Test
+    void batchScoresMatchSingleRows() throws IOException
+    {
+        for (String name : FIXTURES)
+        {
+            Map<String, Object> dump = load(name);
+            TreeEnsemble ensemble = TreeEnsemble.fromDump(dump);
+            double[][] rows = rows(dump);
+            // 重复到多个分片，覆盖不满一块的尾部
+            int d = ensemble.getFeatureColumns().size();
+            int n = rows.length * 150 + 7;
+            double[] flat = new double[n * d];
+            for (int i = 0; i < n; i++)
+            {
+                System.arraycopy(rows[i % rows.length], 0, flat, i * d, d);
+            }
+            double[] predictions = ensemble.predict(flat, n, pool);
+            double[] expected = expected(dump);
+            for (int i = 0; i < n; i++)
+            {
+                assertEquals(expected[i % rows.length], predictions[i], 1e-12, name + " 第" + i + "行");
+            }
+        }
+    }
+
+    @Test
+    void rejectsMalformedDumps() throws IOException
+    {
+        Map<String, Object> unsupported = load("xgboost");
+        unsupported.put("decision", "greater");
+        assertThrows(IllegalArgumentException.class, () -> TreeEnsemble.fromDump(unsupported));
+
+        Map<String, Object> version = load("xgboost");
+        version.put("version", 2);
+        assertThrows(IllegalArgumentException.class, () -> TreeEnsemble.fromDump(version));
+
+        // 子节点指回根节点形成环
+        Map<String, Object> cyclic = load("lightgbm");
+        Map<String, Object> tree = tree(cyclic, 0);
+        @SuppressWarnings("unchecked")
+        List<Object> right = (List<Object>) tree.get("right");
+        right.set(0, 0);
+        assertThrows(IllegalArgumentException.class, () -> TreeEnsemble.fromDump(cyclic));
+
+        Map<String, Object> feature = load("random_forest");
+        @SuppressWarnings("unchecked")
+        List<Object> features = (List<Object>) tree(feature, 0).get("feature");
+        features.set(0, 3);
+        assertThrows(IllegalArgumentException.class, () -> TreeEnsemble.fromDump(feature));
+    }
+
+    private Map<String, Object> load(String name) throws IOException
+    {
+        try (InputStream in = getClass().getResourceAsStream("/trees/" + name + TreeEnsemble.EXTENSION))
+        {
+            return objectMapper.readValue(in, new TypeReference<LinkedHashMap<String, Object>>()
+            {
+            });
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> tree(Map<String, Object> dump, int index)
+    {
+        return (Map<String, Object>) ((List<Object>) dump.get("trees")).get(index);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static double[][] rows(Map<String, Object> dump)
+    {
+        List<List<Number>> rows = (List<List<Number>>) dump.get("test_rows");
+        double[][] values = new double[rows.size()][];
+        for (int i = 0; i < rows.size(); i++)
+        {
+            values[i] = new double[rows.get(i).size()];
+            Arrays.fill(values[i], Double.NaN);
+            for (int c = 0; c < values[i].length; c++)
+            {
+                Number value = rows.get(i).get(c);
+                if (value != null)
+                {
+                    values[i][c] = value.doubleValue();
+                }
+            }
+        }
+        return values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static double[] expected(Map<String, Object> dump)
+    {
+        List<Number> expected = (List<Number>) dump.get("expected");
+        double[] values = new double[expected.size()];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = expected.get(i).doubleValue();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,236 @@
+package com.ruoyi.petrol.engine.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import com.ruoyi.petrol.engine.io.ColumnarFile;
+import com.ruoyi.petrol.engine.io.ColumnarWriter;
+import com.ruoyi.petrol.engine.io.CsvStreamReader;
+
+/**
+ * 相关系数矩阵测试，与逐对剔除缺失值后的直接计算对照
+ *
+ * @author ruoyi
+ */
+class CorrelationMatrixTest
+{
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    @Test
+    void perfectlyCorrelatedColumns() throws IOException
+    {
+        double[][] data = { { 1, 2, 3, 4, 5, 6 }, { 3, 5, 7, 9, 11, 13 }, { 36, 25, 16, 9, 4, 1 } };
+        ColumnarFile columnar = write(data);
+        CorrelationMatrix pearson = CorrelationMatrix.compute(columnar, new int[] { 0, 1, 2 },
+                CorrelationMatrix.PEARSON, pool);
+        assertEquals(1, pearson.get(0, 1), 1e-12);
+        assertEquals(1, pearson.get(1, 1), 1e-12);
+        CorrelationMatrix spearman = CorrelationMatrix.compute(columnar, new int[] { 0, 1, 2 },
+                CorrelationMatrix.SPEARMAN, pool);
+        assertEquals(1, spearman.get(0, 1), 1e-12);
+        assertEquals(-1, spearman.get(0, 2), 1e-12);
+    }
+
+    @Test
+    void matchesPairwiseCompleteReference() throws IOException
+    {
+        // b、c有缺失值且缺失位置不同，d取整后有大量相同值
+        Random random = new Random(7);
+        int n = 500;
+        double[][] data = new double[4][n];
+        for (int r = 0; r < n; r++)
+        {
+            double a = random.nextGaussian();
+            data[0][r] = a;
+            data[1][r] = random.nextInt(5) == 0 ? Double.NaN : a * a + 0.3 * random.nextGaussian();
+            data[2][r] = random.nextInt(10) == 0 ? Double.NaN : Math.exp(a) + random.nextGaussian();
+            data[3][r] = Math.round(2 * a + random.nextGaussian());
+        }
+        ColumnarFile columnar = write(data);
+        int[] selected = { 0, 1, 2, 3 };
+        for (String method : new String[] { CorrelationMatrix.PEARSON, CorrelationMatrix.SPEARMAN })
+        {
+            CorrelationMatrix matrix = CorrelationMatrix.compute(columnar, selected, method, pool);
+            @SuppressWarnings("unchecked")
+            long[][] counts = (long[][]) matrix.toResult().get("counts");
+            for (int i = 0; i < selected.length; i++)
+            {
+                for (int j = 0; j < selected.length; j++)
+                {
+                    double[][] pair = complete(data[i], data[j]);
+                    double expected = CorrelationMatrix.SPEARMAN.equals(method)
+                            ? pearson(rank(pair[0]), rank(pair[1])) : pearson(pair[0], pair[1]);
+                    assertEquals(expected, matrix.get(i, j), 1e-12, method + " (" + i + ", " + j + ")");
+                    assertEquals(pair[0].length, counts[i][j], method + " (" + i + ", " + j + ") 有效行数");
+                }
+            }
+        }
+    }
+
+    @Test
+    void sparseColumnsRerankWithoutResorting() throws IOException
+    {
+        // 60列各约七成缺失且缺失位置互不相同，1770个列对都要逐对重新排秩。沿预排序的行号过滤只需线性时间，
+        // 斯皮尔曼的耗时应与皮尔逊同一量级；每对重新读取并排序两列时要慢一个数量级
+        Random random = new Random(11);
+        int k = 60;
+        int n = 50000;
+        double[][] data = new double[k][n];
+        for (int c = 0; c < k; c++)
+        {
+            for (int r = 0; r < n; r++)
+            {
+                double value = Math.sin(r * 0.001) + random.nextGaussian();
+                data[c][r] = random.nextInt(10) < 7 ? Double.NaN : c % 3 == 0 ? Math.round(value * 4) : value;
+            }
+        }
+        ColumnarFile columnar = write(data);
+        int[] selected = new int[k];
+        for (int c = 0; c < k; c++)
+        {
+            selected[c] = c;
+        }
+        CorrelationMatrix matrix = null;
+        long pearsonNanos = Long.MAX_VALUE;
+        long spearmanNanos = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < 2; attempt++)
+        {
+            long start = System.nanoTime();
+            CorrelationMatrix.compute(columnar, selected, CorrelationMatrix.PEARSON, pool);
+            pearsonNanos = Math.min(pearsonNanos, System.nanoTime() - start);
+            start = System.nanoTime();
+            matrix = CorrelationMatrix.compute(columnar, selected, CorrelationMatrix.SPEARMAN, pool);
+            spearmanNanos = Math.min(spearmanNanos, System.nanoTime() - start);
+        }
+        assertTrue(spearmanNanos < 5 * pearsonNanos,
+                "斯皮尔曼 " + spearmanNanos / 1000000 + " ms，皮尔逊 " + pearsonNanos / 1000000 + " ms");
+
+        int[][] pairs = { { 0, 1 }, { 0, 3 }, { 2, 59 }, { 30, 31 }, { 45, 57 } };
+        for (int[] pair : pairs)
+        {
+            double[][] complete = complete(data[pair[0]], data[pair[1]]);
+            assertEquals(pearson(rank(complete[0]), rank(complete[1])), matrix.get(pair[0], pair[1]), 1e-12,
+                    "(" + pair[0] + ", " + pair[1] + ")");
+        }
+    }
+
+    @Test
+    void constantColumnHasNoCoefficient() throws IOException
+    {
+        double[][] data = { { 1, 2, 3, 4 }, { 5, 5, 5, 5 } };
+        CorrelationMatrix matrix = CorrelationMatrix.compute(write(data), new int[] { 0, 1 },
+                CorrelationMatrix.PEARSON, pool);
+        assertEquals(Double.NaN, matrix.get(0, 1), 0);
+        Map<String, Object> result = matrix.toResult();
+        assertNull(((Double[][]) result.get("matrix"))[0][1]);
+    }
+
+    /**
+     * 按列写出CSV并生成列式缓存
+     */
+    private static ColumnarFile write(double[][] data) throws IOException
+    {
+        File directory = Files.createTempDirectory("correlation").toFile();
+        directory.deleteOnExit();
+        File csv = new File(directory, "data.csv");
+        File pcol = new File(directory, "data.csv" + ColumnarFile.EXTENSION);
+        csv.deleteOnExit();
+        pcol.deleteOnExit();
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(csv.toPath(), StandardCharsets.UTF_8)))
+        {
+            StringBuilder header = new StringBuilder();
+            for (int c = 0; c < data.length; c++)
+            {
+                header.append(c == 0 ? "" : ",").append("c").append(c);
+            }
+            writer.println(header);
+            for (int r = 0; r < data[0].length; r++)
+            {
+                StringBuilder line = new StringBuilder();
+                for (int c = 0; c < data.length; c++)
+                {
+                    line.append(c == 0 ? "" : ",").append(Double.isNaN(data[c][r]) ? "" : Double.toString(data[c][r]));
+                }
+                writer.println(line);
+            }
+        }
+        try (ColumnarWriter writer = new ColumnarWriter(csv, pcol))
+        {
+            CsvStreamReader.read(csv, writer);
+            writer.finish();
+        }
+        return ColumnarFile.open(pcol);
+    }
+
+    /**
+     * 两列都有值的行
+     */
+    private static double[][] complete(double[] x, double[] y)
+    {
+        double[] a = new double[x.length];
+        double[] b = new double[y.length];
+        int n = 0;
+        for (int r = 0; r < x.length; r++)
+        {
+            if (!Double.isNaN(x[r]) && !Double.isNaN(y[r]))
+            {
+                a[n] = x[r];
+                b[n] = y[r];
+                n++;
+            }
+        }
+        return new double[][] { Arrays.copyOf(a, n), Arrays.copyOf(b, n) };
+    }
+
+    /**
+     * 平均秩，逐个比较计数
+     */
+    private static double[] rank(double[] values)
+    {
+        double[] ranks = new double[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            int less = 0;
+            int equal = 0;
+            for (double other : values)
+            {
+                less += other < values[i] ? 1 : 0;
+                equal += other == values[i] ? 1 : 0;
+            }
+            ranks[i] = less + (equal + 1) / 2.0;
+        }
+        return ranks;
+    }
+
+    private static double pearson(double[] x, double[] y)
+    {
+        int n = x.length;
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < n; i++)
+        {
+            meanX += x[i] / n;
+            meanY += y[i] / n;
+        }
+        double covariance = 0;
+        double varianceX = 0;
+        double varianceY = 0;
+        for (int i = 0; i < n; i++)
+        {
+            covariance += (x[i] - meanX) * (y[i] - meanY);
+            varianceX += (x[i] - meanX) * (x[i] - meanX);
+            varianceY += (y[i] - meanY) * (y[i] - meanY);
+        }
+        return covariance / Math.sqrt(varianceX * varianceY);
+    }
+}
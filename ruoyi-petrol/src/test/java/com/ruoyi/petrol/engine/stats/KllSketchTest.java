@@ -0,0 +1,157 @@
+package com.ruoyi.petrol.engine.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * KLL分位数草图测试
+ *
+ * @author ruoyi
+ */
+class KllSketchTest
+{
+    private static final double[] QUANTILES = { 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99 };
+
+    /** k=200时秩误差约1.3%，留出余量 */
+    private static final double RANK_TOLERANCE = 0.02;
+
+    @Test
+    void smallSketchIsExact()
+    {
+        KllSketch sketch = new KllSketch();
+        for (double value : new double[] { 7, 1, 3, 9, 5 })
+        {
+            sketch.update(value);
+        }
+        assertEquals(5, sketch.getQuantile(0.5), 0);
+        assertEquals(3, sketch.getQuantile(0.25), 0);
+        assertEquals(4, sketch.getQuantile(0.375), 1e-12);
+        assertEquals(1, sketch.getQuantile(0), 0);
+        assertEquals(9, sketch.getQuantile(1), 0);
+    }
+
+    @Test
+    void singlePassStaysWithinRankError()
+    {
+        double[] values = values(200000, 1);
+        KllSketch sketch = new KllSketch();
+        for (double value : values)
+        {
+            sketch.update(value);
+        }
+        assertRankError(sketch, values);
+    }
+
+    @Test
+    void mergedPartsMatchSinglePass()
+    {
+        double[] values = values(200000, 2);
+        KllSketch single = new KllSketch();
+        KllSketch merged = new KllSketch();
+        int parts = 8;
+        int size = values.length / parts;
+        for (int p = 0; p < parts; p++)
+        {
+            KllSketch part = new KllSketch();
+            for (int i = p * size; i < (p + 1) * size; i++)
+            {
+                part.update(values[i]);
+                single.update(values[i]);
+            }
+            merged.merge(part);
+        }
+        merged.merge(new KllSketch());
+
+        assertEquals(single.getCount(), merged.getCount());
+        assertEquals(single.getMin(), merged.getMin(), 0);
+        assertEquals(single.getMax(), merged.getMax(), 0);
+        assertRankError(single, values);
+        assertRankError(merged, values);
+    }
+
+    @Test
+    void serializationRoundTrips() throws IOException
+    {
+        KllSketch sketch = new KllSketch();
+        for (double value : values(50000, 3))
+        {
+            sketch.update(value);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        KllSketch loaded = KllSketch.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(sketch.getCount(), loaded.getCount());
+        for (double q : QUANTILES)
+        {
+            assertEquals(sketch.getQuantile(q), loaded.getQuantile(q), 0);
+        }
+    }
+
+    /**
+     * 估计值在排序数组中的秩与目标分位点之差不超过容差
+     */
+    private static void assertRankError(KllSketch sketch, double[] values)
+    {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES)
+        {
+            double estimate = sketch.getQuantile(q);
+            int lower = lowerBound(sorted, estimate);
+            int upper = upperBound(sorted, estimate);
+            double target = q * sorted.length;
+            double error = target < lower ? lower - target : target > upper ? target - upper : 0;
+            assertTrue(error / sorted.length <= RANK_TOLERANCE, "q=" + q + " 秩误差 " + error / sorted.length);
+        }
+    }
+
+    private static int lowerBound(double[] sorted, double value)
+    {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0)
+        {
+            return -index - 1;
+        }
+        while (index > 0 && sorted[index - 1] == value)
+        {
+            index--;
+        }
+        return index;
+    }
+
+    private static int upperBound(double[] sorted, double value)
+    {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0)
+        {
+            return -index - 1;
+        }
+        while (index < sorted.length && sorted[index] == value)
+        {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * 偏态分布的测试数据
+     */
+    private static double[] values(int n, long seed)
+    {
+        Random random = new Random(seed);
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            values[i] = Math.exp(random.nextGaussian());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,89 @@
+package com.ruoyi.petrol.engine.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 单遍矩累加器测试
+ *
+ * @author ruoyi
+ */
+class MomentsTest
+{
+    @Test
+    void computesKnownMeanAndVariance()
+    {
+        Moments moments = new Moments();
+        for (double value : new double[] { 2, 4, 4, 4, 5, 5, 7, 9 })
+        {
+            moments.add(value);
+        }
+        assertEquals(8, moments.getCount());
+        assertEquals(5, moments.getMean(), 1e-12);
+        assertEquals(4, moments.getVariance(), 1e-12);
+        assertEquals(2, moments.getStd(), 1e-12);
+        assertEquals(2, moments.getMin(), 0);
+        assertEquals(9, moments.getMax(), 0);
+    }
+
+    @Test
+    void mergedPartsEqualSinglePass()
+    {
+        // 平移1e6检验大数下的数值稳定性，分块大小不等
+        Random random = new Random(42);
+        double[] values = new double[10000];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = 1e6 + Math.exp(random.nextGaussian());
+        }
+        Moments single = new Moments();
+        for (double value : values)
+        {
+            single.add(value);
+        }
+        int[] bounds = { 0, 1, 37, 2500, 2501, 7000, values.length };
+        Moments merged = new Moments();
+        for (int p = 0; p + 1 < bounds.length; p++)
+        {
+            Moments part = new Moments();
+            for (int i = bounds[p]; i < bounds[p + 1]; i++)
+            {
+                part.add(values[i]);
+            }
+            merged.merge(part);
+        }
+        merged.merge(new Moments());
+
+        assertEquals(single.getCount(), merged.getCount());
+        assertEquals(single.getMean(), merged.getMean(), 1e-8);
+        assertEquals(single.getVariance(), merged.getVariance(), 1e-9 * single.getVariance());
+        assertEquals(single.getSkewness(), merged.getSkewness(), 1e-6);
+        assertEquals(single.getKurtosis(), merged.getKurtosis(), 1e-6);
+        assertEquals(single.getMin(), merged.getMin(), 0);
+        assertEquals(single.getMax(), merged.getMax(), 0);
+    }
+
+    @Test
+    void serializationRoundTrips() throws IOException
+    {
+        Moments moments = new Moments();
+        for (int i = 1; i <= 100; i++)
+        {
+            moments.add(i * i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        moments.writeTo(new DataOutputStream(bytes));
+        Moments loaded = Moments.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(moments.getCount(), loaded.getCount());
+        assertEquals(moments.getMean(), loaded.getMean(), 0);
+        assertEquals(moments.getVariance(), loaded.getVariance(), 0);
+        assertEquals(moments.getSkewness(), loaded.getSkewness(), 0);
+        assertEquals(moments.getKurtosis(), loaded.getKurtosis(), 0);
+    }
+}
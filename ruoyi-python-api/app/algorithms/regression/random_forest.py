@@ -12,6 +12,7 @@ from app.algorithms.base_algorithm import BaseAlgorithm
 from app.visualizations.plot_factory import plot_regression
 from app.algorithms.base_predictor import BasePredictorAlgorithm
 from app.utils.data_cleaner import clean_regression_data, validate_data_for_ml
+from app.utils.tree_dump import export_tree_dump
 
 class Trainer(BaseAlgorithm):
     """
@@ -206,8 +207,15 @@ class Trainer(BaseAlgorithm):
         output_path = output_dir / file_name
         
         dump(model, output_path)
-        
-        return { "model_file": file_name }
+
+        artifact = { "model_file": file_name }
+        # 同时导出节点表，Java端可直接加载预测，不必经过Python
+        if self.params.get('export_tree_dump', True):
+            feature_cols = computed_data['model_params']['feature_columns']
+            tree_dump = export_tree_dump(model, "random_forest", feature_cols, output_dir, file_name)
+            if tree_dump:
+                artifact["tree_dump"] = tree_dump
+        return artifact
 
 class Predictor(BasePredictorAlgorithm):
     """
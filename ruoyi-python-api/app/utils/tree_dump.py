@@ -0,0 +1,195 @@
+# app/utils/tree_dump.py
+import json
+from pathlib import Path
+from typing import List, Optional
+
+import numpy as np
+
+# 导出文件的格式标识和版本，Java端TreeEnsemble按此校验
+DUMP_FORMAT = "tree_ensemble"
+DUMP_VERSION = 1
+
+# 节点总数上限，不限深度的随机森林可能有上千万个节点，此时JSON过大，仍用joblib模型预测
+MAX_DUMP_NODES = 2_000_000
+
+# 恒等输出（不做sigmoid/exp变换）的LightGBM回归目标
+_LIGHTGBM_IDENTITY_OBJECTIVES = ("regression", "regression_l1", "huber", "fair", "quantile", "mape")
+
+
+def tree_dump_file_name(model_file_name: str) -> str:
+    """
+    树表文件名：与模型文件同目录、同名，扩展名为.trees.json
+    """
+    return Path(model_file_name).stem + ".trees.json"
+
+
+def export_tree_dump(model, library: str, feature_cols: List[str], output_dir: Path,
+                     model_file_name: str) -> Optional[str]:
+    """
+    把训练好的树模型导出为统一的节点表，供Java端直接加载预测
+
+    每棵树为平铺的数组：left/right为子节点下标（叶子为-1），feature为特征下标，threshold为分裂阈值，
+    default_left为特征缺失时是否走左子树，value为叶子输出。
+    decision为"less"时x < threshold走左子树（XGBoost），为"less_equal"时x <= threshold走左子树；
+    float32_features表示比较前特征先转为float32（XGBoost、sklearn都是如此）。
+
+    Args:
+        model: XGBRegressor、LGBMRegressor或RandomForestRegressor
+        library: "xgboost"、"lightgbm"或"random_forest"
+        feature_cols: 训练时的特征列，顺序与特征下标一致
+        output_dir: 输出目录
+        model_file_name: joblib模型文件名
+
+    Returns:
+        树表文件名；模型含无法表示的结构（类别分裂、非恒等输出等）或导出失败时返回None，
+        此时预测继续使用joblib模型
+    """
+    try:
+        if library == "xgboost":
+            dump = _xgboost_dump(model)
+        elif library == "lightgbm":
+            dump = _lightgbm_dump(model)
+        elif library == "random_forest":
+            dump = _random_forest_dump(model)
+        else:
+            return None
+    except Exception as e:
+        print(f"警告: 导出树模型失败，预测将继续使用joblib模型: {e}")
+        return None
+
+    node_count = sum(len(tree["left"]) for tree in dump["trees"])
+    if node_count > MAX_DUMP_NODES:
+        print(f"警告: 树模型共 {node_count} 个节点，超过导出上限，预测将继续使用joblib模型")
+        return None
+
+    result = {
+        "format": DUMP_FORMAT,
+        "version": DUMP_VERSION,
+        "library": library,
+        "feature_columns": list(feature_cols),
+    }
+    result.update(dump)
+    file_name = tree_dump_file_name(model_file_name)
+    with open(output_dir / file_name, "w", encoding="utf-8") as f:
+        json.dump(result, f, separators=(",", ":"))
+    return file_name
+
+
+def _xgboost_dump(model) -> dict:
+    """
+    从XGBoost的JSON模型中读取节点数组，叶子输出保存在叶子节点的split_conditions中
+    """
+    booster = model.get_booster()
+    raw = booster.save_raw(raw_format="json")
+    learner = json.loads(bytes(raw).decode("utf-8"))["learner"]
+
+    objective = learner["objective"]["name"]
+    if objective != "reg:squarederror":
+        raise ValueError(f"不支持的XGBoost目标函数: {objective}")
+    # 新版本的base_score形如"[5E-1]"
+    base_score = float(str(learner["learner_model_param"]["base_score"]).strip("[]"))
+
+    trees = []
+    for tree in learner["gradient_booster"]["model"]["trees"]:
+        if any(int(t) != 0 for t in tree.get("split_type", [])):
+            raise ValueError("不支持类别特征分裂")
+        left = [int(v) for v in tree["left_children"]]
+        right = [int(v) for v in tree["right_children"]]
+        conditions = np.asarray(tree["split_conditions"], dtype=np.float32)
+        leaf = [l == -1 for l in left]
+        trees.append({
+            "left": left,
+            "right": right,
+            "feature": [-1 if leaf[i] else int(v) for i, v in enumerate(tree["split_indices"])],
+            "threshold": [0.0 if leaf[i] else float(v) for i, v in enumerate(conditions)],
+            "default_left": [int(v) for v in tree["default_left"]],
+            "value": [float(v) if leaf[i] else 0.0 for i, v in enumerate(conditions)],
+        })
+    return {
+        "decision": "less",
+        "float32_features": True,
+        "aggregation": "sum",
+        "base_score": base_score,
+        "trees": trees,
+    }
+
+
+def _lightgbm_dump(model) -> dict:
+    """
+    从LightGBM的dump_model()中读取嵌套的树结构并平铺
+    """
+    dumped = model.booster_.dump_model()
+    objective = str(dumped.get("objective", "regression")).split(" ")[0]
+    if objective not in _LIGHTGBM_IDENTITY_OBJECTIVES:
+        raise ValueError(f"不支持的LightGBM目标函数: {objective}")
+
+    trees = []
+    for info in dumped["tree_info"]:
+        tree = {"left": [], "right": [], "feature": [], "threshold": [], "default_left": [], "value": []}
+        _flatten_lightgbm_node(info["tree_structure"], tree)
+        trees.append(tree)
+    return {
+        "decision": "less_equal",
+        "float32_features": False,
+        "aggregation": "mean" if dumped.get("average_output") else "sum",
+        "base_score": 0.0,
+        "trees": trees,
+    }
+
+
+def _flatten_lightgbm_node(node: dict, tree: dict) -> int:
+    index = len(tree["left"])
+    for key in tree:
+        tree[key].append(-1 if key in ("left", "right", "feature") else 0)
+    if "split_index" not in node:
+        tree["value"][index] = float(node["leaf_value"])
+        return index
+
+    if node.get("decision_type", "<=") != "<=":
+        raise ValueError("不支持类别特征分裂")
+    threshold = float(node["threshold"])
+    missing_type = node.get("missing_type", "None")
+    if missing_type == "NaN":
+        default_left = bool(node.get("default_left", True))
+    elif missing_type == "None":
+        # 缺失值按0处理
+        default_left = 0.0 <= threshold
+    else:
+        # missing_type为Zero时0值也走默认方向，节点表无法表示
+        raise ValueError(f"不支持的缺失值处理方式: {missing_type}")
+
+    tree["feature"][index] = int(node["split_feature"])
+    tree["threshold"][index] = threshold
+    tree["default_left"][index] = int(default_left)
+    tree["left"][index] = _flatten_lightgbm_node(node["left_child"], tree)
+    tree["right"][index] = _flatten_lightgbm_node(node["right_child"], tree)
+    return index
+
+
+def _random_forest_dump(model) -> dict:
+    """
+    从sklearn各棵决策树的tree_数组中读取节点，预测值为各树的平均
+    """
+    trees = []
+    for estimator in model.estimators_:
+        t = estimator.tree_
+        if t.n_outputs != 1:
+            raise ValueError("不支持多输出回归")
+        left = [int(v) for v in t.children_left]
+        leaf = [l == -1 for l in left]
+        missing_left = getattr(t, "missing_go_to_left", None)
+        trees.append({
+            "left": left,
+            "right": [int(v) for v in t.children_right],
+            "feature": [-1 if leaf[i] else int(v) for i, v in enumerate(t.feature)],
+            "threshold": [0.0 if leaf[i] else float(v) for i, v in enumerate(t.threshold)],
+            "default_left": [int(v) for v in missing_left] if missing_left is not None else [1] * len(left),
+            "value": [float(v) if leaf[i] else 0.0 for i, v in enumerate(t.value[:, 0, 0])],
+        })
+    return {
+        "decision": "less_equal",
+        "float32_features": True,
+        "aggregation": "mean",
+        "base_score": 0.0,
+        "trees": trees,
+    }
@@ -26,11 +26,65 @@ export function getDataSourceColumns(sourceId, sourceType) {
   })
 }
 
-// 读取数据源数据
+// 读取数据源数据（按列传输，返回前还原为按行的记录）
 export function readDataSourceData(sourceId, sourceType, params = {}) {
   return request({
     url: `/petrol/visualization/data/${sourceId}/${sourceType}`,
     method: 'post',
+    data: { ...params, layout: 'columnar' },
+    headers: {
+      'repeatSubmit': false // 跳过重复提交检查
+    }
+  }).then(response => {
+    if (response.data && Array.isArray(response.data.columns)) {
+      response.data = columnarToRows(response.data)
+    }
+    return response
+  })
+}
+
+// 列式数据表转换为按行的记录
+export function columnarToRows(table) {
+  const rows = new Array(table.rowCount)
+  for (let r = 0; r < table.rowCount; r++) {
+    const row = {}
+    for (const column of table.columns) {
+      row[column.name] = column.values[r]
+    }
+    rows[r] = row
+  }
+  return rows
+}
+
+// 按视口读取曲线瓦片（minDepth/maxDepth为视口深度范围，resolution为像素数）
+export function readDataSourceTile(sourceId, sourceType, params = {}) {
+  return request({
+    url: `/petrol/visualization/tile/${sourceId}/${sourceType}`,
+    method: 'post',
+    data: params,
+    headers: {
+      'repeatSubmit': false // 跳过重复提交检查
+    }
+  })
+}
+
+// 分箱统计（直方图/交会图），spec: { xColumn, yColumn, zColumn, shape: 'rect'|'hex', xBins, yBins }
+export function readDataSourceBins(sourceId, sourceType, spec = {}) {
+  return request({
+    url: `/petrol/visualization/bins/${sourceId}/${sourceType}`,
+    method: 'post',
+    data: spec,
+    headers: {
+      'repeatSubmit': false // 跳过重复提交检查
+    }
+  })
+}
+
+// 相关系数矩阵（全部数据），params: { columns, method: 'pearson'|'spearman' }
+export function getDataSourceCorrelation(sourceId, sourceType, params = {}) {
+  return request({
+    url: `/petrol/visualization/correlation/${sourceId}/${sourceType}`,
+    method: 'post',
     data: params,
     headers: {
       'repeatSubmit': false // 跳过重复提交检查
@@ -1,6 +1,7 @@
 /**
  * 文件上传工具类 - 支持分片上传、进度监控、断点续传
  */
+import SparkMD5 from 'spark-md5'
 import request from '@/utils/request'
 import { getToken } from '@/utils/auth'
 
@@ -22,6 +23,7 @@ export class ChunkUploader {
     this.onSuccess = options.onSuccess || (() => {})
     
     this.chunks = []
+    this.chunkHashes = []
     this.uploadedChunks = new Set()
     this.fileHash = ''
     this.isUploading = false
@@ -29,7 +31,7 @@ export class ChunkUploader {
   }
 
   /**
-   * 计算文件哈希值
+   * 计算文件哈希值，同时记录每个分片的哈希供服务端校验
    */
   async calculateFileHash() {
     return new Promise((resolve) => {
@@ -38,8 +40,10 @@ export class ChunkUploader {
       const chunks = Math.ceil(this.file.size / this.chunkSize)
       let currentChunk = 0
 
+      this.chunkHashes = []
       fileReader.onload = (e) => {
         spark.append(e.target.result)
+        this.chunkHashes.push(SparkMD5.ArrayBuffer.hash(e.target.result))
         currentChunk++
 
         if (currentChunk < chunks) {
@@ -75,7 +79,7 @@ export class ChunkUploader {
         start,
         end,
         chunk: this.file.slice(start, end),
-        hash: `${this.fileHash}-${i}`,
+        hash: this.chunkHashes[i],
         size: end - start
       })
     }
@@ -121,6 +125,8 @@ export class ChunkUploader {
     formData.append('fileHash', this.fileHash)
     formData.append('fileName', this.file.name)
     formData.append('totalChunks', this.chunks.length)
+    formData.append('chunkSize', this.chunkSize)
+    formData.append('fileSize', this.file.size)
 
     try {
       const response = await request({